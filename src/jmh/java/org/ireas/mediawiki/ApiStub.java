@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process HTTP stub of the MediaWiki API that serves recorded fixture
+ * responses.  The stub listens on a random port of the loopback interface
+ * and selects the fixture based on the request arguments.  If the client
+ * accepts gzip encoded responses, the fixture is sent compressed.  The stub
+ * counts the number of requests and the number of response bytes on the
+ * wire, so that benchmarks can report the traffic caused by an operation.
+ *
+ * @author ireas
+ */
+final class ApiStub implements Closeable {
+
+    /**
+     * The name of the user in the fixture responses.
+     */
+    public static final String USER_NAME = "Ireas";
+
+    private static final String API_PATH = "/w/api.php";
+
+    private static final String FIXTURE_PATH = "fixtures/";
+
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+    private static final String CONTENT_TYPE_JSON =
+            "application/json; charset=utf-8";
+
+    private static final int NOT_FOUND = 404;
+
+    private static final int OK = 200;
+
+    private final Map<String, byte[]> fixtures = new HashMap<>();
+
+    private final Map<String, byte[]> compressedFixtures = new HashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong byteCount = new AtomicLong();
+
+    private final ExecutorService executor;
+
+    private final HttpServer server;
+
+    /**
+     * Starts a new stub on a random port of the loopback interface.
+     *
+     * @throws IOException if the server cannot be started or the fixtures
+     *         cannot be read
+     */
+    public ApiStub() throws IOException {
+        for (String name : new String[] { "usercontribs.json",
+                "usercontribs-last.json", "usercontribs-count.json",
+                "users.json", "users-editcount.json" }) {
+            byte[] fixture = readFixture(name);
+            fixtures.put(name, fixture);
+            compressedFixtures.put(name, compress(fixture));
+        }
+
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(API_PATH, new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange)
+                    throws IOException {
+                respond(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the total number of response bytes sent by this stub.
+     *
+     * @return the number of response bytes
+     */
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * Returns the gzip compressed content of the specified fixture.
+     *
+     * @param name the file name of the fixture
+     * @return the compressed content of the fixture
+     */
+    public byte[] getCompressedFixture(final String name) {
+        return compressedFixtures.get(name);
+    }
+
+    /**
+     * Returns the content of the specified fixture.
+     *
+     * @param name the file name of the fixture
+     * @return the content of the fixture
+     */
+    public byte[] getFixture(final String name) {
+        return fixtures.get(name);
+    }
+
+    /**
+     * Returns the total number of requests answered by this stub.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Creates a new {@code MediaWiki} instance that sends its requests to
+     * this stub.
+     *
+     * @param configuration the configuration for the new instance
+     * @return a new {@code MediaWiki} instance for this stub
+     * @throws MediaWikiException if the instance cannot be created
+     */
+    public MediaWiki newMediaWiki(final MediaWikiConfiguration configuration)
+            throws MediaWikiException {
+        MediaWikiFactory.setConfiguration(configuration);
+        return MediaWikiFactory.newInstance("http", "127.0.0.1", server
+                .getAddress().getPort(), API_PATH);
+    }
+
+    private void respond(final HttpExchange exchange) throws IOException {
+        Map<String, String> arguments;
+        try (InputStream body = exchange.getRequestBody()) {
+            arguments = parseArguments(body);
+        }
+        String fixture = selectFixture(arguments);
+        if (fixture == null) {
+            exchange.sendResponseHeaders(NOT_FOUND, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] response;
+        String acceptEncoding =
+                exchange.getRequestHeaders().getFirst(HEADER_ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains(ENCODING_GZIP)) {
+            response = compressedFixtures.get(fixture);
+            exchange.getResponseHeaders().set(HEADER_CONTENT_ENCODING,
+                    ENCODING_GZIP);
+        } else {
+            response = fixtures.get(fixture);
+        }
+        exchange.getResponseHeaders().set(HEADER_CONTENT_TYPE,
+                CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(OK, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+        requestCount.incrementAndGet();
+        byteCount.addAndGet(response.length);
+    }
+
+    private static byte[] compress(final byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(buffer)) {
+            output.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Map<String, String> parseArguments(final InputStream body)
+            throws IOException {
+        String query =
+                new String(ByteStreams.toByteArray(body),
+                        StandardCharsets.UTF_8);
+        Map<String, String> arguments = new HashMap<>();
+        for (NameValuePair pair : URLEncodedUtils.parse(query,
+                StandardCharsets.UTF_8)) {
+            arguments.put(pair.getName(), pair.getValue());
+        }
+        return arguments;
+    }
+
+    private static byte[] readFixture(final String name) throws IOException {
+        return Resources.toByteArray(Resources.getResource(ApiStub.class,
+                FIXTURE_PATH + name));
+    }
+
+    private static String selectFixture(final Map<String, String> arguments) {
+        String list = arguments.get(ApiConstants.LIST);
+        if (ApiConstants.LIST_USERCONTRIBS.equals(list)) {
+            String properties = arguments.get(ApiConstants.UC_PROP);
+            if (properties == null || properties.isEmpty()) {
+                return "usercontribs-count.json";
+            } else if (arguments.containsKey("uccontinue")) {
+                return "usercontribs-last.json";
+            }
+            return "usercontribs.json";
+        } else if (ApiConstants.LIST_USERS.equals(list)) {
+            if (ApiConstants.US_PROP_EDIT_COUNT.equals(arguments
+                    .get(ApiConstants.US_PROP))) {
+                return "users-editcount.json";
+            }
+            return "users.json";
+        }
+        return null;
+    }
+
+}
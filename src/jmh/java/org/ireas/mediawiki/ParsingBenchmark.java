@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.DefaultContribution;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks comparing the streaming parser in {@link StreamingResponses}
+ * with a tree parse using {@code org.json} for a recorded page of user
+ * contributions.  Run with the {@code gc} profiler to compare the
+ * allocation rates.
+ *
+ * @author ireas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParsingBenchmark {
+
+    private static final String FIXTURE = "usercontribs.json";
+
+    private byte[] response;
+
+    private byte[] compressedResponse;
+
+    /**
+     * Loads the recorded response.
+     *
+     * @throws IOException if the fixture cannot be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        try (ApiStub stub = new ApiStub()) {
+            response = stub.getFixture(FIXTURE);
+            compressedResponse = stub.getCompressedFixture(FIXTURE);
+        }
+    }
+
+    /**
+     * Counts the contributions using the streaming parser.
+     *
+     * @return the number of contributions
+     * @throws IOException if the response cannot be read
+     * @throws MediaWikiException if the response cannot be parsed
+     */
+    @Benchmark
+    public int streamingCount() throws IOException, MediaWikiException {
+        return StreamingResponses.parseContribCount(
+                new ByteArrayInputStream(response)).getCount();
+    }
+
+    /**
+     * Parses the contributions using the streaming parser.
+     *
+     * @return the parsed contributions
+     * @throws IOException if the response cannot be read
+     * @throws MediaWikiException if the response cannot be parsed
+     */
+    @Benchmark
+    public ResultPage<Contribution> streamingParse() throws IOException,
+            MediaWikiException {
+        return StreamingResponses.parseContributions(new ByteArrayInputStream(
+                response));
+    }
+
+    /**
+     * Decodes a gzip compressed response and parses the contributions using
+     * the streaming parser.  The difference to {@link #streamingParse}
+     * is the CPU cost of response compression.
+     *
+     * @return the parsed contributions
+     * @throws IOException if the response cannot be read
+     * @throws MediaWikiException if the response cannot be parsed
+     */
+    @Benchmark
+    public ResultPage<Contribution> streamingParseCompressed()
+            throws IOException, MediaWikiException {
+        try (InputStream stream =
+                new GZIPInputStream(new ByteArrayInputStream(
+                        compressedResponse))) {
+            return StreamingResponses.parseContributions(stream);
+        }
+    }
+
+    /**
+     * Parses the contributions into a {@code ContributionHistory} using the
+     * streaming parser.  In contrast to {@link #streamingParse}, no objects
+     * are created per contribution.
+     *
+     * @return the parsed contributions
+     * @throws IOException if the response cannot be read
+     * @throws MediaWikiException if the response cannot be parsed
+     */
+    @Benchmark
+    public ContributionHistory streamingParseHistory() throws IOException,
+            MediaWikiException {
+        ContributionHistory history =
+                new ContributionHistory(ApiStub.USER_NAME);
+        StreamingResponses.parseContributionHistory(new ByteArrayInputStream(
+                response), history);
+        return history;
+    }
+
+    /**
+     * Counts the contributions using an {@code org.json} tree.
+     *
+     * @return the number of contributions
+     */
+    @Benchmark
+    public int treeCount() {
+        return getContributionArray().length();
+    }
+
+    /**
+     * Parses the contributions using an {@code org.json} tree.
+     *
+     * @return the parsed contributions
+     */
+    @Benchmark
+    public List<Contribution> treeParse() {
+        JSONArray array = getContributionArray();
+        List<Contribution> contributions = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject object = array.getJSONObject(i);
+            contributions.add(new DefaultContribution(object
+                    .getString(ApiConstants.RESULT_UC_USER), object
+                    .getLong(ApiConstants.RESULT_UC_REVISION_ID), object
+                    .getInt(ApiConstants.RESULT_UC_PAGE_ID), object
+                    .getInt(ApiConstants.RESULT_UC_NAMESPACE), object
+                    .getString(ApiConstants.RESULT_UC_TITLE), MediaWikiUtils
+                    .parseApiTimestamp(object
+                            .getString(ApiConstants.RESULT_UC_TIMESTAMP))));
+        }
+        return contributions;
+    }
+
+    private JSONArray getContributionArray() {
+        JSONObject root =
+                new JSONObject(new String(response, StandardCharsets.UTF_8));
+        return root.getJSONObject(ApiConstants.ACTION_QUERY).getJSONArray(
+                ApiConstants.RESULT_USERCONTRIBS);
+    }
+
+}
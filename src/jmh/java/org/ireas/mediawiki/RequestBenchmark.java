@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Benchmarks for the request/response hot path of {@link DefaultMediaWiki}.
+ * The requests are answered by an {@link ApiStub} serving recorded API
+ * responses, so the results measure the client overhead (connection
+ * handling, request encoding and response parsing) without network
+ * latency.  Nagle's algorithm is disabled for the stub, as delayed
+ * acknowledgements would otherwise dominate the measured latency.  The
+ * {@link Traffic} counters report the number of requests and
+ * response bytes per operation, with and without response compression.
+ *
+ * @author ireas
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Fork(jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestBenchmark {
+
+    /**
+     * The API stub and a client with or without response compression.
+     */
+    @State(Scope.Benchmark)
+    public static class Client {
+
+        /**
+         * Whether the client requests compressed responses.
+         */
+        @Param({ "true", "false" })
+        public boolean compression;
+
+        private MediaWiki mediaWiki;
+
+        private ApiStub stub;
+
+        /**
+         * Starts the API stub and creates the client.
+         *
+         * @throws IOException if the stub cannot be started
+         * @throws MediaWikiException if the client cannot be created
+         */
+        @Setup
+        public void setUp() throws IOException, MediaWikiException {
+            stub = new ApiStub();
+            mediaWiki =
+                    stub.newMediaWiki(new BasicMediaWikiConfiguration.Builder()
+                            .setCompressionEnabled(compression).build());
+        }
+
+        /**
+         * Closes the client and stops the API stub.
+         *
+         * @throws IOException if the client cannot be closed
+         */
+        @TearDown
+        public void tearDown() throws IOException {
+            mediaWiki.close();
+            stub.close();
+        }
+
+    }
+
+    /**
+     * A client that counts contributions using a specific mode.
+     */
+    @State(Scope.Benchmark)
+    public static class ContribCounter {
+
+        /**
+         * The mode used to count contributions.
+         */
+        @Param({ "EDIT_COUNT", "LIST_CONTRIBUTIONS" })
+        public ContribCountMode contribCountMode;
+
+        private MediaWiki mediaWiki;
+
+        /**
+         * Creates the client for the configured mode.
+         *
+         * @param client the state holding the API stub
+         * @throws MediaWikiException if the client cannot be created
+         */
+        @Setup
+        public void setUp(final Client client) throws MediaWikiException {
+            mediaWiki =
+                    client.stub.newMediaWiki(
+                            new BasicMediaWikiConfiguration.Builder()
+                                    .setContribCountMode(contribCountMode)
+                                    .setCompressionEnabled(
+                                            client.compression).build());
+        }
+
+        /**
+         * Closes the client.
+         *
+         * @throws IOException if the client cannot be closed
+         */
+        @TearDown
+        public void tearDown() throws IOException {
+            mediaWiki.close();
+        }
+
+    }
+
+    /**
+     * Counters for the traffic caused by the benchmarked operations.  The
+     * counters are normalized by the benchmark mode, so dividing them by
+     * the operation rate yields the traffic per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Traffic {
+
+        /**
+         * The number of response bytes.
+         */
+        public long bytes;
+
+        /**
+         * The number of requests.
+         */
+        public long requests;
+
+        private long initialBytes;
+
+        private long initialRequests;
+
+        private ApiStub stub;
+
+        /**
+         * Stores the counters of the stub at the beginning of an iteration.
+         *
+         * @param client the state holding the API stub
+         */
+        @Setup(Level.Iteration)
+        public void start(final Client client) {
+            stub = client.stub;
+            initialBytes = stub.getByteCount();
+            initialRequests = stub.getRequestCount();
+        }
+
+        /**
+         * Updates the counters with the traffic of the last iteration.
+         */
+        @TearDown(Level.Iteration)
+        public void stop() {
+            bytes = stub.getByteCount() - initialBytes;
+            requests = stub.getRequestCount() - initialRequests;
+        }
+
+    }
+
+    private static final int CONTRIB_LIMIT = 1000;
+
+    private static final Map<String, String> USERS_ARGUMENTS = ImmutableMap
+            .of(ApiConstants.LIST, ApiConstants.LIST_USERS,
+                    ApiConstants.US_USERS, ApiStub.USER_NAME,
+                    ApiConstants.US_PROP, ApiConstants.US_PROP_REGISTRATION);
+
+    /**
+     * Counts the contributions of the user using the configured mode.
+     *
+     * @param counter the client configured with the count mode
+     * @param traffic the traffic counters
+     * @return the number of contributions
+     * @throws MediaWikiException if the request fails
+     */
+    @Benchmark
+    public int getContribCount(final ContribCounter counter,
+            final Traffic traffic) throws MediaWikiException {
+        return counter.mediaWiki.getContribCount(ApiStub.USER_NAME,
+                CONTRIB_LIMIT);
+    }
+
+    /**
+     * Iterates over all contributions of the user.
+     *
+     * @param client the client to use
+     * @param traffic the traffic counters
+     * @param blackhole the sink for the contributions
+     * @throws MediaWikiException if the request fails
+     */
+    @Benchmark
+    public void getContributions(final Client client, final Traffic traffic,
+            final Blackhole blackhole) throws MediaWikiException {
+        Iterator<Contribution> contributions =
+                client.mediaWiki.getContributions(ApiStub.USER_NAME,
+                        Collections.<Namespace> emptySet());
+        while (contributions.hasNext()) {
+            blackhole.consume(contributions.next());
+        }
+    }
+
+    /**
+     * Retrieves the data of the user.
+     *
+     * @param client the client to use
+     * @param traffic the traffic counters
+     * @return the user data
+     * @throws MediaWikiException if the request fails
+     */
+    @Benchmark
+    public UserData getUserData(final Client client, final Traffic traffic)
+            throws MediaWikiException {
+        return client.mediaWiki.getUserData(ApiStub.USER_NAME);
+    }
+
+    /**
+     * Performs a query request and parses the response as JSON.
+     *
+     * @param client the client to use
+     * @param traffic the traffic counters
+     * @return the parsed response
+     * @throws MediaWikiException if the request fails
+     */
+    @Benchmark
+    public JSONObject performJsonRequest(final Client client,
+            final Traffic traffic) throws MediaWikiException {
+        return client.mediaWiki.performJsonRequest(ApiConstants.ACTION_QUERY,
+                USERS_ARGUMENTS);
+    }
+
+    /**
+     * Performs a query request and returns the raw response.
+     *
+     * @param client the client to use
+     * @param traffic the traffic counters
+     * @return the raw response
+     * @throws MediaWikiException if the request fails
+     */
+    @Benchmark
+    public String performRequest(final Client client, final Traffic traffic)
+            throws MediaWikiException {
+        return client.mediaWiki.performRequest(ApiRequests.json(
+                ApiConstants.ACTION_QUERY, USERS_ARGUMENTS));
+    }
+
+}
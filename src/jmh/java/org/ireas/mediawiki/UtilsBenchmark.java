@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.NameValuePair;
+import org.ireas.mediawiki.data.Namespace;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for the helper methods in {@link MediaWikiUtils} that are
+ * called for every request and for every parsed timestamp.
+ *
+ * @author ireas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UtilsBenchmark {
+
+    private final Map<String, String> arguments = ApiRequests.json(
+            ApiConstants.ACTION_QUERY, ApiRequests.contributions(
+                    ApiStub.USER_NAME, Collections.<Namespace> emptySet()));
+
+    private final DateTimeFormatter jodaFormatter = ISODateTimeFormat
+            .dateTimeNoMillis().withZoneUTC();
+
+    private final String timestamp = "2014-03-17T18:45:12Z";
+
+    private final DateTime date = new DateTime(timestamp);
+
+    private final long millis = date.getMillis();
+
+    /**
+     * Formats a date as an API timestamp.
+     *
+     * @return the formatted timestamp
+     */
+    @Benchmark
+    public String formatApiDate() {
+        return MediaWikiUtils.formatApiDate(date);
+    }
+
+    /**
+     * Formats a date as an API timestamp using the Joda formatter, for
+     * comparison with {@link #formatApiDate()}.
+     *
+     * @return the formatted timestamp
+     */
+    @Benchmark
+    public String formatApiDateJoda() {
+        return jodaFormatter.print(date);
+    }
+
+    /**
+     * Formats an instant as an API timestamp.
+     *
+     * @return the formatted timestamp
+     */
+    @Benchmark
+    public String formatApiTimestamp() {
+        return MediaWikiUtils.formatApiTimestamp(millis);
+    }
+
+    /**
+     * Converts typical request arguments to name-value pairs.
+     *
+     * @return the name-value pairs
+     */
+    @Benchmark
+    public List<NameValuePair> mapToNameValuePairs() {
+        return MediaWikiUtils.mapToNameValuePairs(arguments);
+    }
+
+    /**
+     * Parses an API timestamp.
+     *
+     * @return the parsed timestamp
+     */
+    @Benchmark
+    public DateTime parseApiTimestamp() {
+        return MediaWikiUtils.parseApiTimestamp(timestamp);
+    }
+
+    /**
+     * Parses an API timestamp using the Joda formatter, for comparison with
+     * {@link #parseApiTimestamp()}.
+     *
+     * @return the parsed timestamp
+     */
+    @Benchmark
+    public DateTime parseApiTimestampJoda() {
+        return jodaFormatter.parseDateTime(timestamp);
+    }
+
+    /**
+     * Parses an API timestamp to milliseconds.
+     *
+     * @return the parsed timestamp
+     */
+    @Benchmark
+    public long parseApiTimestampMillis() {
+        return MediaWikiUtils.parseApiTimestampMillis(timestamp);
+    }
+
+}
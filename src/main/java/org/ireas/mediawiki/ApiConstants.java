@@ -56,6 +56,26 @@ public final class ApiConstants {
      */
     public static final String ACTION_TOKENS = "tokens";
 
+    /**
+     * Name of the parameter {@code continue}.
+     */
+    public static final String CONTINUE = "continue";
+
+    /**
+     * Error code {@code badtoken}.
+     */
+    public static final String ERROR_BAD_TOKEN = "badtoken";
+
+    /**
+     * Error code {@code maxlag}.
+     */
+    public static final String ERROR_MAX_LAG = "maxlag";
+
+    /**
+     * Error code {@code readonly}.
+     */
+    public static final String ERROR_READ_ONLY = "readonly";
+
     /**
      * Name of the parameter {@code format}.
      */
@@ -81,6 +101,17 @@ public final class ApiConstants {
      */
     public static final String LG_TOKEN = "lgtoken";
 
+    /**
+     * Maximum number of values for a multi-value parameter.
+     */
+    public static final int LIMIT_VALUES = 50;
+
+    /**
+     * Maximum number of values for a multi-value parameter for users
+     * with the {@code apihighlimits} right.
+     */
+    public static final int LIMIT_VALUES_HIGH = 500;
+
     /**
      * Name of the parameter {@code list}.
      */
@@ -96,6 +127,36 @@ public final class ApiConstants {
      */
     public static final String LIST_USERS = "users";
 
+    /**
+     * Name of the parameter {@code maxlag}.
+     */
+    public static final String MAX_LAG = "maxlag";
+
+    /**
+     * Name of the parameter {@code meta}.
+     */
+    public static final String META = "meta";
+
+    /**
+     * Name of the meta module {@code tokens}.
+     */
+    public static final String META_TOKENS = "tokens";
+
+    /**
+     * Name of the meta module {@code userinfo}.
+     */
+    public static final String META_USERINFO = "userinfo";
+
+    /**
+     * Name of the parameter {@code prop}.
+     */
+    public static final String PROP = "prop";
+
+    /**
+     * Key of the result field {@code continue}.
+     */
+    public static final String RESULT_CONTINUE = "continue";
+
     /**
      * Key of the result field {@code error}.
      */
@@ -136,6 +197,21 @@ public final class ApiConstants {
      */
     public static final String RESULT_LG_TOKEN = "token";
 
+    /**
+     * Key of the result field {@code normalized}.
+     */
+    public static final String RESULT_NORMALIZED = "normalized";
+
+    /**
+     * Key of the result field {@code normalized.from}.
+     */
+    public static final String RESULT_NORMALIZED_FROM = "from";
+
+    /**
+     * Key of the result field {@code normalized.to}.
+     */
+    public static final String RESULT_NORMALIZED_TO = "to";
+
     /**
      * Key of the result field for a token.  Must be formatted with the token
      * type.
@@ -147,21 +223,66 @@ public final class ApiConstants {
      */
     public static final String RESULT_USERCONTRIBS = "usercontribs";
 
+    /**
+     * Key of the result field {@code usercontribs.ns}.
+     */
+    public static final String RESULT_UC_NAMESPACE = "ns";
+
+    /**
+     * Key of the result field {@code usercontribs.pageid}.
+     */
+    public static final String RESULT_UC_PAGE_ID = "pageid";
+
+    /**
+     * Key of the result field {@code usercontribs.revid}.
+     */
+    public static final String RESULT_UC_REVISION_ID = "revid";
+
     /**
      * Key of the result field {@code usercontribs.timestamp}.
      */
     public static final String RESULT_UC_TIMESTAMP = "timestamp";
 
+    /**
+     * Key of the result field {@code usercontribs.title}.
+     */
+    public static final String RESULT_UC_TITLE = "title";
+
+    /**
+     * Key of the result field {@code usercontribs.user}.
+     */
+    public static final String RESULT_UC_USER = "user";
+
+    /**
+     * Key of the result field {@code userinfo}.
+     */
+    public static final String RESULT_USERINFO = "userinfo";
+
+    /**
+     * Key of the result field {@code userinfo.rights}.
+     */
+    public static final String RESULT_UI_RIGHTS = "rights";
+
     /**
      * Key of the result field {@code users}.
      */
     public static final String RESULT_USERS = "users";
 
+    /**
+     * Key of the result field {@code users.editcount}.
+     */
+    public static final String RESULT_US_EDIT_COUNT = "editcount";
+
     /**
      * Key of the result field {@code users.userid}.
      */
     public static final String RESULT_US_ID = "userid";
 
+    /**
+     * Key of the result field {@code users.invalid}.
+     */
+    public static final String RESULT_US_INVALID = "invalid";
+
     /**
      * Key of the result field {@code users.missing}.
      */
@@ -177,11 +298,21 @@ public final class ApiConstants {
      */
     public static final String RESULT_US_REGISTRATION = "registration";
 
+    /**
+     * Name of the user right {@code apihighlimits}.
+     */
+    public static final String RIGHT_API_HIGH_LIMITS = "apihighlimits";
+
     /**
      * Separator symbol for parameter values.
      */
     public static final String SEPARATOR = "|";
 
+    /**
+     * Name of the parameter {@code token}.
+     */
+    public static final String TOKEN = "token";
+
     /**
      * Name of the token type {@code block}.
      */
@@ -279,6 +410,12 @@ public final class ApiConstants {
      */
     public static final String UC_LIMIT = "uclimit";
 
+    /**
+     * Value of the argument {@code uclimit} that requests the maximum
+     * number of contributions.
+     */
+    public static final String UC_LIMIT_MAX = "max";
+
     /**
      * Name of the argument {@code ucnamespaces}.
      */
@@ -289,6 +426,21 @@ public final class ApiConstants {
      */
     public static final String UC_PROP = "ucprop";
 
+    /**
+     * Name of the user contributions property {@code ids}.
+     */
+    public static final String UC_PROP_IDS = "ids";
+
+    /**
+     * Name of the user contributions property {@code timestamp}.
+     */
+    public static final String UC_PROP_TIMESTAMP = "timestamp";
+
+    /**
+     * Name of the user contributions property {@code title}.
+     */
+    public static final String UC_PROP_TITLE = "title";
+
     /**
      * Name of the argument {@code ucstart}.
      */
@@ -299,11 +451,26 @@ public final class ApiConstants {
      */
     public static final String UC_USER = "ucuser";
 
+    /**
+     * Name of the argument {@code uiprop}.
+     */
+    public static final String UI_PROP = "uiprop";
+
+    /**
+     * Name of the user info property {@code rights}.
+     */
+    public static final String UI_PROP_RIGHTS = "rights";
+
     /**
      * Name of the argument {@code usprop}.
      */
     public static final String US_PROP = "usprop";
 
+    /**
+     * Name of the user property {@code editcount}.
+     */
+    public static final String US_PROP_EDIT_COUNT = "editcount";
+
     /**
      * Name of the user property {@code registration}.
      */
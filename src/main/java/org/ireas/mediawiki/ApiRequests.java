@@ -0,0 +1,502 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Builds the arguments for the API requests used by the {@code MediaWiki}
+ * and {@code AsyncMediaWiki} implementations.  The returned maps are
+ * mutable and may be modified by the caller.
+ *
+ * @author ireas
+ */
+final class ApiRequests {
+
+    private static final Set<String> CACHEABLE_ACTIONS = ImmutableSet.of(
+            ApiConstants.ACTION_QUERY);
+
+    private static final String HEADER_USER_AGENT = "User-Agent";
+
+    private static final Set<String> IDEMPOTENT_ACTIONS = ImmutableSet.of(
+            ApiConstants.ACTION_QUERY, ApiConstants.ACTION_TOKENS);
+
+    private static final String MODULE_SEPARATOR = ":";
+
+    private static final List<String> QUERY_MODULE_PARAMETERS =
+            ImmutableList.of(ApiConstants.LIST, ApiConstants.PROP,
+                    ApiConstants.META);
+
+    private static final Set<String> SESSION_META_MODULES = ImmutableSet.of(
+            ApiConstants.META_TOKENS, ApiConstants.META_USERINFO);
+
+    private static final Splitter SPLITTER =
+            Splitter.on(ApiConstants.SEPARATOR);
+
+    /**
+     * Returns the arguments for a contribution count request.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count (empty for all namespaces)
+     * @return the arguments for the request
+     */
+    public static Map<String, String> contribCount(final String user,
+            final int limit, final Set<Namespace> namespaces) {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERCONTRIBS);
+        arguments.put(ApiConstants.UC_LIMIT, Integer.toString(limit));
+        arguments.put(ApiConstants.UC_USER, user);
+        arguments.put(ApiConstants.UC_PROP, "");
+        arguments.put(ApiConstants.UC_DIR, ApiConstants.UC_DIR_NEWER);
+        arguments.put(ApiConstants.CONTINUE, "");
+
+        if (!namespaces.isEmpty()) {
+            String namespacesString =
+                    StringUtils.join(namespaces, ApiConstants.SEPARATOR);
+            arguments.put(ApiConstants.UC_NAMESPACE, namespacesString);
+        }
+
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a contribution count request that counts
+     * the contributions until the specified end date.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count (empty for all namespaces)
+     * @param endDate the date until which contributions will be counted
+     * @return the arguments for the request
+     */
+    public static Map<String, String> contribCount(final String user,
+            final int limit, final Set<Namespace> namespaces,
+            final DateTime endDate) {
+        Map<String, String> arguments = contribCount(user, limit, namespaces);
+        arguments.put(ApiConstants.UC_END, MediaWikiUtils
+                .formatApiDate(endDate));
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a contribution count request that counts
+     * the contributions within the specified period before the specified
+     * end date.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count (empty for all namespaces)
+     * @param endDate the date until which contributions will be counted
+     * @param period the period before the end date in which the
+     *        contributions will be counted
+     * @return the arguments for the request
+     */
+    public static Map<String, String> contribCount(final String user,
+            final int limit, final Set<Namespace> namespaces,
+            final DateTime endDate, final Period period) {
+        Map<String, String> arguments =
+                contribCount(user, limit, namespaces, endDate);
+        arguments.put(ApiConstants.UC_START, MediaWikiUtils
+                .formatApiDate(endDate.minus(period)));
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for the next page of a request that has been
+     * continued.  The returned map is a copy of the specified arguments
+     * that additionally contains the specified continuation arguments.
+     *
+     * @param arguments the arguments of the first request
+     * @param continuation the continuation arguments returned by the API
+     * @return the arguments for the next request
+     */
+    public static Map<String, String> continued(
+            final Map<String, String> arguments,
+            final Map<String, String> continuation) {
+        Map<String, String> continuedArguments = new HashMap<>(arguments);
+        continuedArguments.putAll(continuation);
+        return continuedArguments;
+    }
+
+    /**
+     * Returns the arguments for a request of the contributions of a user
+     * that are stored in a contribution history.  Only the IDs and the
+     * timestamps of the contributions are requested, and the titles only
+     * if more than one namespace is listed, as the API returns the
+     * namespace of a contribution only together with its title.  The
+     * contributions are requested in chronological order with the maximum
+     * page size.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list (empty for all namespaces)
+     * @return the arguments for the request
+     */
+    public static Map<String, String> contributionHistory(final String user,
+            final Set<Namespace> namespaces) {
+        Map<String, String> arguments =
+                contribCount(user, ApiConstants.LIMIT_VALUES, namespaces);
+        arguments.put(ApiConstants.UC_LIMIT, ApiConstants.UC_LIMIT_MAX);
+        if (namespaces.size() == 1) {
+            arguments.put(ApiConstants.UC_PROP, StringUtils.join(
+                    new String[] {ApiConstants.UC_PROP_IDS,
+                        ApiConstants.UC_PROP_TIMESTAMP },
+                    ApiConstants.SEPARATOR));
+        } else {
+            arguments.put(ApiConstants.UC_PROP, StringUtils.join(
+                    new String[] {ApiConstants.UC_PROP_IDS,
+                        ApiConstants.UC_PROP_TITLE,
+                        ApiConstants.UC_PROP_TIMESTAMP },
+                    ApiConstants.SEPARATOR));
+        }
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a request of the contributions of a user
+     * since the specified date (inclusive) that are stored in a
+     * contribution history.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list (empty for all namespaces)
+     * @param startDate the date from which contributions will be listed
+     * @return the arguments for the request
+     * @see #contributionHistory(String, Set)
+     */
+    public static Map<String, String> contributionHistory(final String user,
+            final Set<Namespace> namespaces, final DateTime startDate) {
+        Map<String, String> arguments = contributionHistory(user, namespaces);
+        arguments.put(ApiConstants.UC_START,
+                MediaWikiUtils.formatApiDate(startDate));
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a request of the contributions of a user
+     * within the specified dates (both inclusive) that are stored in a
+     * contribution history.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list (empty for all namespaces)
+     * @param startDate the date from which contributions will be listed
+     * @param endDate the date until which contributions will be listed
+     * @return the arguments for the request
+     * @see #contributionHistory(String, Set)
+     */
+    public static Map<String, String> contributionHistory(final String user,
+            final Set<Namespace> namespaces, final DateTime startDate,
+            final DateTime endDate) {
+        Map<String, String> arguments =
+                contributionHistory(user, namespaces, startDate);
+        arguments.put(ApiConstants.UC_END,
+                MediaWikiUtils.formatApiDate(endDate));
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a request of the contributions of a user.
+     * The contributions are requested in chronological order with the
+     * maximum page size.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list (empty for all namespaces)
+     * @return the arguments for the request
+     */
+    public static Map<String, String> contributions(final String user,
+            final Set<Namespace> namespaces) {
+        Map<String, String> arguments =
+                contribCount(user, ApiConstants.LIMIT_VALUES, namespaces);
+        arguments.put(ApiConstants.UC_LIMIT, ApiConstants.UC_LIMIT_MAX);
+        arguments.put(ApiConstants.UC_PROP, StringUtils.join(new String[] {
+            ApiConstants.UC_PROP_IDS, ApiConstants.UC_PROP_TITLE,
+            ApiConstants.UC_PROP_TIMESTAMP }, ApiConstants.SEPARATOR));
+        return arguments;
+    }
+
+    /**
+     * Returns the name of the API module requested with the specified
+     * arguments, for example for metrics.  The name consists of the action
+     * and, for query requests, a colon and the sorted list, prop and meta
+     * modules separated by {@code |} (for example {@code
+     * query:usercontribs|users}).
+     *
+     * @param arguments the arguments of the request, including the action
+     * @return the name of the requested module
+     */
+    public static String getModule(final Map<String, String> arguments) {
+        String action = arguments.get(ApiConstants.ACTION);
+        if (!ApiConstants.ACTION_QUERY.equals(action)) {
+            return Strings.nullToEmpty(action);
+        }
+        Set<String> modules = new TreeSet<>();
+        for (String parameter : QUERY_MODULE_PARAMETERS) {
+            String value = arguments.get(parameter);
+            if (value != null) {
+                for (String module : SPLITTER.split(value)) {
+                    if (!module.isEmpty()) {
+                        modules.add(module);
+                    }
+                }
+            }
+        }
+        if (modules.isEmpty()) {
+            return action;
+        }
+        return action + MODULE_SEPARATOR
+                + StringUtils.join(modules, ApiConstants.SEPARATOR);
+    }
+
+    /**
+     * Checks whether the response to a request with the specified arguments
+     * may be cached.  Only read-only query requests may be cached, and only
+     * if they do not request tokens or information about the current user.
+     * Requests of all other actions, including login, logout and token
+     * requests and all actions that change the wiki, are never cached.
+     *
+     * @param arguments the arguments of the request, including the action
+     * @return whether the response may be cached
+     */
+    public static boolean isCacheable(final Map<String, String> arguments) {
+        String action = arguments.get(ApiConstants.ACTION);
+        if (!CACHEABLE_ACTIONS.contains(action)) {
+            return false;
+        }
+        String meta = arguments.get(ApiConstants.META);
+        if (meta != null) {
+            for (String module : SPLITTER.split(meta)) {
+                if (SESSION_META_MODULES.contains(module)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a request with the specified arguments may be sent
+     * again if its outcome is unknown, e. g. after a connection reset.
+     * Only read-only actions (query and token requests) are idempotent.
+     *
+     * @param arguments the arguments of the request, including the action
+     * @return whether the request is idempotent
+     */
+    public static boolean isIdempotent(final Map<String, String> arguments) {
+        return IDEMPOTENT_ACTIONS.contains(arguments.get(ApiConstants.ACTION));
+    }
+
+    /**
+     * Returns the arguments for a request of the edit count of a user.
+     *
+     * @param user the name of the user to get the edit count for
+     * @return the arguments for the request
+     */
+    public static Map<String, String> editCount(final String user) {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERS);
+        arguments.put(ApiConstants.US_PROP, ApiConstants.US_PROP_EDIT_COUNT);
+        arguments.put(ApiConstants.US_USERS, user);
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a request of the first edit of a user.
+     *
+     * @param user the name of the user to get the first edit for
+     * @return the arguments for the request
+     */
+    public static Map<String, String> firstEdit(final String user) {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERCONTRIBS);
+        arguments.put(ApiConstants.UC_DIR, ApiConstants.UC_DIR_NEWER);
+        arguments.put(ApiConstants.UC_LIMIT, Integer.toString(1));
+        arguments.put(ApiConstants.UC_USER, user);
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a JSON request of the specified action.
+     * The action and the format are added to a copy of the specified
+     * arguments.
+     *
+     * @param action the name of the action to request (in lower case)
+     * @param arguments the arguments to pass to the API
+     * @return the arguments for the request
+     */
+    public static Map<String, String> json(final String action,
+            final Map<String, String> arguments) {
+        Map<String, String> modifiedArguments = new HashMap<>(arguments);
+        modifiedArguments.put(ApiConstants.FORMAT, ApiConstants.FORMAT_JSON);
+        modifiedArguments.put(ApiConstants.ACTION, action);
+        return modifiedArguments;
+    }
+
+    /**
+     * Returns the arguments for a login request.
+     *
+     * @param user the name of the user to login
+     * @param password the password of the user to login
+     * @return the arguments for the request
+     */
+    public static Map<String, String> login(final String user,
+            final String password) {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.LG_NAME, user);
+        arguments.put(ApiConstants.LG_PASSWORD, password);
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a login request using a login token.
+     *
+     * @param user the name of the user to login
+     * @param password the password of the user to login
+     * @param token the login token for the user
+     * @return the arguments for the request
+     */
+    public static Map<String, String> login(final String user,
+            final String password, final String token) {
+        Map<String, String> arguments = login(user, password);
+        arguments.put(ApiConstants.LG_TOKEN, token);
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a logout request.
+     *
+     * @return the arguments for the request
+     */
+    public static Map<String, String> logout() {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.ACTION, ApiConstants.ACTION_LOGOUT);
+        return arguments;
+    }
+
+    /**
+     * Constructs a new HTTP POST request to the specified API URI that sends
+     * the specified arguments as form data.
+     *
+     * @param apiUri the URI of the {@code api.php} file
+     * @param arguments the arguments to pass to the API
+     * @param userAgent the user agent to send
+     * @return the HTTP request
+     * @throws MediaWikiException if the arguments cannot be encoded
+     */
+    public static HttpPost newHttpPost(final URI apiUri,
+            final Map<String, String> arguments, final String userAgent)
+            throws MediaWikiException {
+        HttpPost httpPost = new HttpPost(apiUri);
+        List<NameValuePair> nameValuePairs =
+                MediaWikiUtils.mapToNameValuePairs(arguments);
+        UrlEncodedFormEntity argumentsEntity;
+        try {
+            argumentsEntity = new UrlEncodedFormEntity(nameValuePairs);
+        } catch (UnsupportedEncodingException exception) {
+            throw new MediaWikiException(exception);
+        }
+        httpPost.setEntity(argumentsEntity);
+        httpPost.setHeader(HEADER_USER_AGENT, userAgent);
+        return httpPost;
+    }
+
+    /**
+     * Returns the arguments for a request of one or more tokens.
+     *
+     * @param types the types of the tokens to get
+     * @return the arguments for the request
+     */
+    public static Map<String, String> tokens(final Set<TokenType> types) {
+        List<String> values = new ArrayList<>(types.size());
+        for (TokenType type : types) {
+            values.add(type.getValue());
+        }
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.TOKENS_TYPE,
+                StringUtils.join(values, ApiConstants.SEPARATOR));
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a user data request.
+     *
+     * @param user the name of the user to get the data for
+     * @return the arguments for the request
+     */
+    public static Map<String, String> userData(final String user) {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERS);
+        arguments.put(ApiConstants.US_PROP, ApiConstants.US_PROP_REGISTRATION);
+        arguments.put(ApiConstants.US_USERS, user);
+        return arguments;
+    }
+
+    /**
+     * Returns the arguments for a user data request for several users.
+     * The number of users must not exceed the multi-value limit of the API.
+     *
+     * @param users the names of the users to get the data for
+     * @return the arguments for the request
+     */
+    public static Map<String, String> userData(final Collection<String> users) {
+        return userData(StringUtils.join(users, ApiConstants.SEPARATOR));
+    }
+
+    /**
+     * Returns the arguments for a request of the rights of the current user.
+     *
+     * @return the arguments for the request
+     */
+    public static Map<String, String> userRights() {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.META, ApiConstants.META_USERINFO);
+        arguments.put(ApiConstants.UI_PROP, ApiConstants.UI_PROP_RIGHTS);
+        return arguments;
+    }
+
+    private ApiRequests() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ireas.mediawiki.data.DefaultUserData;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.ApiErrorException;
+import org.ireas.mediawiki.exceptions.InvalidResponseException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.ireas.mediawiki.exceptions.NoSuchUserException;
+import org.ireas.mediawiki.exceptions.WrongPasswordException;
+import org.joda.time.DateTime;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.google.common.base.Optional;
+
+/**
+ * Parses the results of the API requests used by the {@code MediaWiki} and
+ * {@code AsyncMediaWiki} implementations.  Unless noted otherwise, the
+ * methods expect the action result as returned by {@link
+ * #parseActionResult(JSONObject, String)}.
+ *
+ * @author ireas
+ */
+final class ApiResponses {
+
+    /**
+     * Returns the result of the specified action from the specified JSON
+     * response.  If the response does not contain a result for the action,
+     * an empty object is returned.
+     *
+     * @param root the JSON response as returned by {@link
+     *        #parseJsonRoot(String)}
+     * @param action the name of the requested action (in lower case)
+     * @return the result of the specified action
+     */
+    public static JSONObject parseActionResult(final JSONObject root,
+            final String action) {
+        JSONObject returnValue = new JSONObject();
+        if (root.has(action)) {
+            returnValue = root.getJSONObject(action);
+        }
+        return returnValue;
+    }
+
+    /**
+     * Parses the result of a user rights request and returns whether the
+     * current user has the {@code apihighlimits} right.
+     *
+     * @param result the result of the query action
+     * @return whether the current user may use the higher API limits
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static boolean parseApiHighLimits(final JSONObject result) {
+        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_USERINFO);
+        JSONObject userInfo =
+                result.getJSONObject(ApiConstants.RESULT_USERINFO);
+        MediaWikiUtils.requireJsonFields(userInfo,
+                ApiConstants.RESULT_UI_RIGHTS);
+        JSONArray rights =
+                userInfo.getJSONArray(ApiConstants.RESULT_UI_RIGHTS);
+        for (int i = 0; i < rights.length(); i++) {
+            String right = rights.getString(i);
+            if (right.equals(ApiConstants.RIGHT_API_HIGH_LIMITS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the continuation arguments of the specified JSON response, if
+     * there are any.
+     *
+     * @param root the JSON response as returned by {@link
+     *        #parseJsonRoot(String)}
+     * @return the continuation arguments for the next request
+     */
+    public static Optional<Map<String, String>> parseContinuation(
+            final JSONObject root) {
+        if (!root.has(ApiConstants.RESULT_CONTINUE)) {
+            return Optional.absent();
+        }
+        JSONObject continueObject =
+                root.getJSONObject(ApiConstants.RESULT_CONTINUE);
+        Map<String, String> continuation = new HashMap<>();
+        String[] keys = JSONObject.getNames(continueObject);
+        if (keys != null) {
+            for (String key : keys) {
+                continuation.put(key, continueObject.get(key).toString());
+            }
+        }
+        return Optional.of(continuation);
+    }
+
+    /**
+     * Parses the result of a contributions count request and returns the
+     * number of contributions on the current page.
+     *
+     * @param result the result of the query action
+     * @return the number of listed contributions
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static int parseContribCount(final JSONObject result) {
+        MediaWikiUtils.requireJsonFields(result,
+                ApiConstants.RESULT_USERCONTRIBS);
+        return result.getJSONArray(ApiConstants.RESULT_USERCONTRIBS).length();
+    }
+
+    /**
+     * Parses the result of an edit count request and returns the edit count
+     * of the user.  If the user is missing or invalid, zero is returned.
+     *
+     * @param result the result of the query action
+     * @return the edit count of the user
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static int parseEditCount(final JSONObject result) {
+        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_USERS);
+        JSONArray users = result.getJSONArray(ApiConstants.RESULT_USERS);
+        MediaWikiUtils.requireJsonLength(users, 1);
+        JSONObject userObject = users.getJSONObject(0);
+        if (userObject.has(ApiConstants.RESULT_US_MISSING)
+                || userObject.has(ApiConstants.RESULT_US_INVALID)) {
+            return 0;
+        }
+        MediaWikiUtils.requireJsonFields(userObject,
+                ApiConstants.RESULT_US_EDIT_COUNT);
+        return userObject.getInt(ApiConstants.RESULT_US_EDIT_COUNT);
+    }
+
+    /**
+     * Parses the result of an edit count request for several users and
+     * returns the edit count of the specified user.  If the user is missing,
+     * invalid or not contained in the result, zero is returned.  Names that
+     * have been normalized by the API are mapped back to the requested
+     * names.
+     *
+     * @param result the result of the query action
+     * @param user the name of the requested user
+     * @return the edit count of the user
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static int parseEditCount(final JSONObject result,
+            final String user) {
+        Optional<JSONObject> userObject =
+                parseUserObjects(result, Collections.singletonList(user))
+                        .get(user);
+        if (!userObject.isPresent()
+                || userObject.get().has(ApiConstants.RESULT_US_MISSING)
+                || userObject.get().has(ApiConstants.RESULT_US_INVALID)) {
+            return 0;
+        }
+        MediaWikiUtils.requireJsonFields(userObject.get(),
+                ApiConstants.RESULT_US_EDIT_COUNT);
+        return userObject.get().getInt(ApiConstants.RESULT_US_EDIT_COUNT);
+    }
+
+    /**
+     * Parses the result of a first edit request and returns the date of
+     * the first edit, if there is one.
+     *
+     * @param result the result of the query action
+     * @return the date of the first edit
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static Optional<DateTime> parseFirstEdit(final JSONObject result) {
+        MediaWikiUtils.requireJsonFields(result,
+                ApiConstants.RESULT_USERCONTRIBS);
+        JSONArray contributions =
+                result.getJSONArray(ApiConstants.RESULT_USERCONTRIBS);
+        Optional<DateTime> firstEdit = Optional.absent();
+        if (contributions.length() > 0) {
+            JSONObject contribution = contributions.getJSONObject(0);
+            MediaWikiUtils.requireJsonFields(contribution,
+                    ApiConstants.RESULT_UC_TIMESTAMP);
+            String firstEditTimestamp =
+                    contribution.getString(ApiConstants.RESULT_UC_TIMESTAMP);
+            DateTime firstEditDate =
+                    MediaWikiUtils.parseApiTimestamp(firstEditTimestamp);
+            firstEdit = Optional.of(firstEditDate);
+        }
+        return firstEdit;
+    }
+
+    /**
+     * Parses a raw JSON response.  If the response contains an error, an
+     * exception is thrown.
+     *
+     * @param response the raw API response
+     * @return the parsed JSON response
+     * @throws ApiErrorException if the API returned an error
+     * @throws org.json.JSONException if the response is not valid JSON
+     */
+    public static JSONObject parseJsonRoot(final String response)
+            throws MediaWikiException {
+        JSONObject root = new JSONObject(response);
+
+        if (root.has(ApiConstants.RESULT_ERROR)) {
+            JSONObject error = root.getJSONObject(ApiConstants.RESULT_ERROR);
+            String errorCode = error.getString(ApiConstants.RESULT_ERROR_CODE);
+            throw new ApiErrorException(errorCode);
+        }
+
+        return root;
+    }
+
+    /**
+     * Parses the result of a login request.  If the login was successful,
+     * an absent object is returned.  If the API requires a login token, the
+     * token is returned.  Otherwise, an exception is thrown.
+     *
+     * @param result the result of the login action
+     * @param user the name of the user to login
+     * @return the login token, if the API requires one
+     * @throws NoSuchUserException if there is no user with the specified name
+     * @throws WrongPasswordException if the password was wrong
+     * @throws MediaWikiException if the login failed for another reason
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static Optional<String> parseLogin(final JSONObject result,
+            final String user) throws MediaWikiException {
+        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_LG_RESULT);
+        String loginResult = result.getString(ApiConstants.RESULT_LG_RESULT);
+        if (loginResult.equals(ApiConstants.RESULT_LG_NEED_TOKEN)) {
+            MediaWikiUtils.requireJsonFields(result,
+                    ApiConstants.RESULT_LG_TOKEN);
+            return Optional.of(result.getString(ApiConstants.RESULT_LG_TOKEN));
+        } else if (loginResult.equals(ApiConstants.RESULT_LG_NOT_EXISTS)) {
+            throw new NoSuchUserException(user);
+        } else if (loginResult.equals(ApiConstants.RESULT_LG_WRONG_PASS)) {
+            throw new WrongPasswordException();
+        } else if (!loginResult.equals(ApiConstants.RESULT_LG_SUCCESS)) {
+            throw new MediaWikiException(loginResult);
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Parses the result of a token request and returns the tokens of the
+     * specified types.
+     *
+     * @param result the result of the tokens action
+     * @param types the types of the requested tokens
+     * @return the tokens of the requested types
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static Map<TokenType, String> parseTokens(final JSONObject result,
+            final Set<TokenType> types) {
+        Map<TokenType, String> tokens = new EnumMap<>(TokenType.class);
+        for (TokenType type : types) {
+            String tokenResultKey =
+                    String.format(ApiConstants.RESULT_TOKENS, type.getValue());
+            MediaWikiUtils.requireJsonFields(result, tokenResultKey);
+            tokens.put(type, result.getString(tokenResultKey));
+        }
+        return tokens;
+    }
+
+    /**
+     * Parses the result of a user data request for a single user.
+     *
+     * @param result the result of the query action
+     * @param user the name of the requested user
+     * @return the data of the user
+     * @throws NoSuchUserException if the user does not exist
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static UserData parseUserData(final JSONObject result,
+            final String user) throws NoSuchUserException {
+        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_USERS);
+        JSONArray users = result.getJSONArray(ApiConstants.RESULT_USERS);
+        MediaWikiUtils.requireJsonLength(users, 1);
+        Optional<UserData> userData = parseUser(users.getJSONObject(0));
+        if (!userData.isPresent()) {
+            throw new NoSuchUserException(user);
+        }
+        return userData.get();
+    }
+
+    /**
+     * Parses the result of a user data request for several users.  The
+     * returned map contains an entry for each of the specified users, in
+     * the order of the specified list.  The entries of missing or invalid
+     * users are absent.  Names that have been normalized by the API are
+     * mapped back to the requested names.
+     *
+     * @param result the result of the query action
+     * @param users the names of the requested users
+     * @return the data of the requested users
+     * @throws InvalidResponseException if the result cannot be parsed
+     */
+    public static Map<String, Optional<UserData>> parseUserData(
+            final JSONObject result, final List<String> users) {
+        Map<String, Optional<UserData>> userData = new LinkedHashMap<>();
+        for (Map.Entry<String, Optional<JSONObject>> entry : parseUserObjects(
+                result, users).entrySet()) {
+            Optional<UserData> data = Optional.absent();
+            if (entry.getValue().isPresent()) {
+                data = parseUser(entry.getValue().get());
+            }
+            userData.put(entry.getKey(), data);
+        }
+        return userData;
+    }
+
+    private static Map<String, String> parseNormalizedNames(
+            final JSONObject result) {
+        Map<String, String> normalizedNames = new HashMap<>();
+        if (result.has(ApiConstants.RESULT_NORMALIZED)) {
+            JSONArray normalized =
+                    result.getJSONArray(ApiConstants.RESULT_NORMALIZED);
+            for (int i = 0; i < normalized.length(); i++) {
+                JSONObject entry = normalized.getJSONObject(i);
+                MediaWikiUtils.requireJsonFields(entry,
+                        ApiConstants.RESULT_NORMALIZED_FROM,
+                        ApiConstants.RESULT_NORMALIZED_TO);
+                normalizedNames.put(
+                        entry.getString(ApiConstants.RESULT_NORMALIZED_FROM),
+                        entry.getString(ApiConstants.RESULT_NORMALIZED_TO));
+            }
+        }
+        return normalizedNames;
+    }
+
+    private static Optional<UserData> parseUser(final JSONObject userObject) {
+        if (userObject.has(ApiConstants.RESULT_US_MISSING)
+                || userObject.has(ApiConstants.RESULT_US_INVALID)) {
+            return Optional.absent();
+        }
+
+        MediaWikiUtils.requireJsonFields(userObject,
+                ApiConstants.RESULT_US_NAME, ApiConstants.RESULT_US_ID,
+                ApiConstants.RESULT_US_REGISTRATION);
+
+        String userName = userObject.getString(ApiConstants.RESULT_US_NAME);
+        int userId = userObject.getInt(ApiConstants.RESULT_US_ID);
+        String registrationString =
+                userObject.getString(ApiConstants.RESULT_US_REGISTRATION);
+        DateTime registrationDate =
+                MediaWikiUtils.parseApiTimestamp(registrationString);
+
+        UserData userData =
+                new DefaultUserData(userName, userId, registrationDate);
+        return Optional.of(userData);
+    }
+
+    private static Map<String, Optional<JSONObject>> parseUserObjects(
+            final JSONObject result, final List<String> users) {
+        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_USERS);
+        JSONArray userArray = result.getJSONArray(ApiConstants.RESULT_USERS);
+
+        Map<String, JSONObject> userObjectsByName = new HashMap<>();
+        for (int i = 0; i < userArray.length(); i++) {
+            JSONObject userObject = userArray.getJSONObject(i);
+            MediaWikiUtils.requireJsonFields(userObject,
+                    ApiConstants.RESULT_US_NAME);
+            String userName = userObject.getString(ApiConstants.RESULT_US_NAME);
+            userObjectsByName.put(userName, userObject);
+        }
+        Map<String, String> normalizedNames = parseNormalizedNames(result);
+
+        Map<String, Optional<JSONObject>> userObjects = new LinkedHashMap<>();
+        for (String user : users) {
+            String userName = user;
+            if (normalizedNames.containsKey(user)) {
+                userName = normalizedNames.get(user);
+            }
+            userObjects.put(user,
+                    Optional.fromNullable(userObjectsByName.get(userName)));
+        }
+        return userObjects;
+    }
+
+    private ApiResponses() {
+        throw new UnsupportedOperationException();
+    }
+
+}
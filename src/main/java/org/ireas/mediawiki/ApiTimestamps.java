@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import org.joda.time.Chronology;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Parses and formats API timestamps as milliseconds since the epoch.  The
+ * API always uses the fixed format {@code yyyy-MM-dd'T'HH:mm:ss'Z'} (UTC),
+ * so the fields are read from and written to fixed positions instead of
+ * using a {@code DateTimeFormatter}.  Parsing does not allocate any
+ * objects, and formatting only allocates the returned string.  The
+ * conversion between fields and milliseconds is done by the UTC ISO
+ * chronology, which also validates the fields.  Timestamps that do not
+ * match the fixed format (for example timestamps with an offset) are
+ * handled by the ISO formatter.
+ *
+ * @author ireas
+ */
+final class ApiTimestamps {
+
+    private static final Chronology CHRONOLOGY = ISOChronology
+            .getInstanceUTC();
+
+    private static final DateTimeFormatter FORMATTER = ISODateTimeFormat
+            .dateTimeNoMillis().withZoneUTC();
+
+    private static final String TEMPLATE = "0000-00-00T00:00:00Z";
+
+    private static final char DIGIT = '0';
+
+    private static final int RADIX = 10;
+
+    private static final int YEAR_OFFSET = 0;
+
+    private static final int YEAR_DIGITS = 4;
+
+    private static final int MAX_YEAR = 9999;
+
+    private static final int MONTH_OFFSET = 5;
+
+    private static final int DAY_OFFSET = 8;
+
+    private static final int HOUR_OFFSET = 11;
+
+    private static final int MINUTE_OFFSET = 14;
+
+    private static final int SECOND_OFFSET = 17;
+
+    private static final int FIELD_DIGITS = 2;
+
+    /**
+     * Formats the specified instant as an API timestamp.
+     *
+     * @param millis the instant in milliseconds since the epoch
+     * @return the API timestamp for the instant
+     */
+    public static String format(final long millis) {
+        int year = CHRONOLOGY.year().get(millis);
+        if (year < 0 || year > MAX_YEAR) {
+            return FORMATTER.print(millis);
+        }
+        char[] chars = TEMPLATE.toCharArray();
+        writeDigits(chars, YEAR_OFFSET, YEAR_DIGITS, year);
+        writeDigits(chars, MONTH_OFFSET, FIELD_DIGITS, CHRONOLOGY
+                .monthOfYear().get(millis));
+        writeDigits(chars, DAY_OFFSET, FIELD_DIGITS, CHRONOLOGY.dayOfMonth()
+                .get(millis));
+        writeDigits(chars, HOUR_OFFSET, FIELD_DIGITS, CHRONOLOGY.hourOfDay()
+                .get(millis));
+        writeDigits(chars, MINUTE_OFFSET, FIELD_DIGITS, CHRONOLOGY
+                .minuteOfHour().get(millis));
+        writeDigits(chars, SECOND_OFFSET, FIELD_DIGITS, CHRONOLOGY
+                .secondOfMinute().get(millis));
+        return new String(chars);
+    }
+
+    private static boolean matchesTemplate(final CharSequence timestamp) {
+        if (timestamp.length() != TEMPLATE.length()) {
+            return false;
+        }
+        for (int i = 0; i < TEMPLATE.length(); i++) {
+            char expected = TEMPLATE.charAt(i);
+            char actual = timestamp.charAt(i);
+            if (expected == DIGIT) {
+                if (actual < DIGIT || actual >= DIGIT + RADIX) {
+                    return false;
+                }
+            } else if (actual != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the specified API timestamp.  The timestamp may be any
+     * character sequence, for example a buffer of the JSON parser, so that
+     * no string has to be created for it.
+     *
+     * @param timestamp the API timestamp to parse
+     * @return the instant in milliseconds since the epoch
+     * @throws IllegalArgumentException if the specified timestamp is not a
+     *         valid API timestamp
+     */
+    public static long parse(final CharSequence timestamp) {
+        if (!matchesTemplate(timestamp)) {
+            return FORMATTER.parseMillis(timestamp.toString());
+        }
+        return CHRONOLOGY.getDateTimeMillis(
+                readDigits(timestamp, YEAR_OFFSET, YEAR_DIGITS),
+                readDigits(timestamp, MONTH_OFFSET, FIELD_DIGITS),
+                readDigits(timestamp, DAY_OFFSET, FIELD_DIGITS),
+                readDigits(timestamp, HOUR_OFFSET, FIELD_DIGITS),
+                readDigits(timestamp, MINUTE_OFFSET, FIELD_DIGITS),
+                readDigits(timestamp, SECOND_OFFSET, FIELD_DIGITS), 0);
+    }
+
+    private static int readDigits(final CharSequence timestamp,
+            final int offset, final int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value * RADIX + timestamp.charAt(i) - DIGIT;
+        }
+        return value;
+    }
+
+    private static void writeDigits(final char[] chars, final int offset,
+            final int count, final int value) {
+        int remaining = value;
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = (char) (DIGIT + remaining % RADIX);
+            remaining /= RADIX;
+        }
+    }
+
+    private ApiTimestamps() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Sends the HTTP requests to the API.  The transport can be set in the
+ * {@link MediaWikiConfiguration}; per default, the {@link #HTTP} transport
+ * is used, which sends the requests with the pooled HTTP client.  {@link
+ * RecordingTransport} additionally stores the responses in a fixture
+ * directory, and {@link ReplayTransport} serves stored responses without
+ * accessing the network, so that tests and benchmarks can run without a
+ * MediaWiki instance.
+ * <p>
+ * The transport is called for every attempt of a request, including the
+ * retries.  Implementations must be thread-safe, as one transport may be
+ * shared by several {@code MediaWiki} instances.
+ *
+ * @author ireas
+ * @see RecordingTransport
+ * @see ReplayTransport
+ */
+public interface ApiTransport {
+
+    /**
+     * Transport that sends the requests with the HTTP client.
+     */
+    ApiTransport HTTP = new ApiTransport() {
+        @Override
+        public CloseableHttpResponse execute(final CloseableHttpClient client,
+                final HttpPost request, final Map<String, String> arguments,
+                final HttpContext context) throws IOException {
+            return client.execute(request, context);
+        }
+    };
+
+    /**
+     * Executes the specified request and returns the response.  The caller
+     * closes the returned response.
+     *
+     * @param client the pooled HTTP client of the {@code MediaWiki}
+     *        instance
+     * @param request the HTTP request containing the encoded arguments
+     * @param arguments the arguments of the request
+     * @param context the HTTP context of the request
+     * @return the response to the request
+     * @throws IOException if an I/O error occurs
+     */
+    CloseableHttpResponse execute(CloseableHttpClient client,
+            HttpPost request, Map<String, String> arguments,
+            HttpContext context) throws IOException;
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+
+import org.ireas.mediawiki.data.MediaWikiData;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.json.JSONObject;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Asynchronous interface to the API of a MediaWiki installation.  This
+ * interface provides the same requests as {@link MediaWiki}, but the
+ * methods do not block until the API has answered.  Instead, they return a
+ * {@code ListenableFuture} that is completed as soon as the response has
+ * been received and parsed.  The requests are sent using non-blocking I/O,
+ * so that many requests can be in flight at the same time without using a
+ * thread per request.  To receive an instance of this class, use the
+ * {@link MediaWikiFactory}.
+ * <p>
+ * If a request fails, the returned future fails with the exception that
+ * the corresponding {@code MediaWiki} method would have thrown, e. g. a
+ * {@link org.ireas.mediawiki.exceptions.NoSuchUserException
+ * NoSuchUserException} or an {@link
+ * org.ireas.mediawiki.exceptions.HttpMediaWikiException
+ * HttpMediaWikiException}.  The exceptions thrown for invalid arguments
+ * are thrown directly by the methods.
+ *
+ * @author ireas
+ * @see MediaWiki
+ * @see MediaWikiFactory
+ */
+public interface AsyncMediaWiki extends Closeable {
+
+    /**
+     * Requests the contribution count for the specified user using the
+     * specified limit.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @return the contribution count of the specified user, at maximum
+     *         the specified limit
+     * @throws NullPointerException if the specified user is null
+     * @throws IllegalArgumentException if the specified limit is less than one
+     * @see MediaWiki#getContribCount(String, int)
+     */
+    ListenableFuture<Integer> getContribCount(String user, int limit);
+
+    /**
+     * Requests the contribution count for the specified user in the
+     * specified namespaces using the specified limit.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count
+     * @return the contribution count of the specified user, at maximum
+     *         the specified limit
+     * @throws NullPointerException if the specified user or namespaces are
+     *         null
+     * @throws IllegalArgumentException if the specified limit is less than one
+     * @see MediaWiki#getContribCount(String, int, Set)
+     */
+    ListenableFuture<Integer> getContribCount(String user, int limit,
+            Set<Namespace> namespaces);
+
+    /**
+     * Requests the contribution count for the specified user in the
+     * specified namespaces until the specified end date using the specified
+     * limit.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count
+     * @param endDate the date until which contributions will be counted
+     * @return the contribution count of the specified user, at maximum
+     *         the specified limit
+     * @throws NullPointerException if the specified user, namespaces or end
+     *         date are null
+     * @throws IllegalArgumentException if the specified limit is less than one
+     * @see MediaWiki#getContribCount(String, int, Set, DateTime)
+     */
+    ListenableFuture<Integer> getContribCount(String user, int limit,
+            Set<Namespace> namespaces, DateTime endDate);
+
+    /**
+     * Requests the contribution count for the specified user in the
+     * specified namespaces until the specified end date within the
+     * specified period using the specified limit.
+     *
+     * @param user the name of the user to get the contribution count
+     * @param limit the maximum contribution count
+     * @param namespaces the namespaces to count
+     * @param endDate the date until which contributions will be counted
+     * @param period the period before the end date in which the contributions
+     *        will be counted
+     * @return the contribution count of the specified user, at maximum
+     *         the specified limit
+     * @throws NullPointerException if the specified user, namespaces, end
+     *         date or period are null
+     * @throws IllegalArgumentException if the specified limit is less than one
+     * @see MediaWiki#getContribCount(String, int, Set, DateTime, Period)
+     */
+    ListenableFuture<Integer> getContribCount(String user, int limit,
+            Set<Namespace> namespaces, DateTime endDate, Period period);
+
+    /**
+     * Requests the date of the first edit for the specified user.
+     *
+     * @param user the name of the user to get the first edit for
+     * @return the date of the user’s first edit
+     * @throws NullPointerException if the specified user is null
+     * @see MediaWiki#getFirstEdit(String)
+     */
+    ListenableFuture<Optional<DateTime>> getFirstEdit(String user);
+
+    /**
+     * Returns the data of the MediaWiki installation that is accessed by this
+     * object.
+     *
+     * @return the data of the MediaWiki installation to access
+     */
+    MediaWikiData getMediaWikiData();
+
+    /**
+     * Requests a token of the specified type.
+     *
+     * @param type the type of the token to get
+     * @return a token of the specified type
+     * @throws NullPointerException if the specified type is null
+     * @see MediaWiki#getToken(TokenType)
+     */
+    ListenableFuture<String> getToken(TokenType type);
+
+    /**
+     * Requests tokens of the specified types.
+     *
+     * @param types the types of the tokens to get
+     * @return a map containing a token for each of the specified types
+     * @throws NullPointerException if the specified set of types is null
+     * @see MediaWiki#getTokens(Set)
+     */
+    ListenableFuture<Map<TokenType, String>> getTokens(Set<TokenType> types);
+
+    /**
+     * Requests the user data for the user with the given name.
+     *
+     * @param user the name of the user to get the date for
+     * @return the detail data for the specified user
+     * @throws NullPointerException if the specified user is null
+     * @see MediaWiki#getUserData(String)
+     */
+    ListenableFuture<UserData> getUserData(String user);
+
+    /**
+     * Logs in as the specified user using the specified password.  If
+     * required, a login token is requested first.
+     *
+     * @param user the name of the user to login
+     * @param password the password of the user to login
+     * @return a future that is completed when the login has succeeded
+     * @throws NullPointerException if the specified user or password is null
+     * @throws IllegalArgumentException if the specified user or password is
+     *         empty
+     * @see MediaWiki#login(String, String)
+     */
+    ListenableFuture<Void> login(String user, String password);
+
+    /**
+     * Logs in as the specified user using the specified password and the
+     * specified login token.
+     *
+     * @param user the name of the user to login
+     * @param password the password of the user to login
+     * @param token the login token for the user
+     * @return a future that is completed when the login has succeeded
+     * @throws NullPointerException if the specified user, password or token
+     *         is null
+     * @throws IllegalArgumentException if the specified user, password or
+     *         token is empty
+     * @see MediaWiki#login(String, String, String)
+     */
+    ListenableFuture<Void> login(String user, String password, String token);
+
+    /**
+     * Logs out from the MediaWiki API.
+     *
+     * @return a future that is completed when the logout request has been
+     *         sent
+     * @see MediaWiki#logout()
+     */
+    ListenableFuture<Void> logout();
+
+    /**
+     * Performs an API request on the specified action using the specified
+     * arguments and returns the action result.
+     *
+     * @param action the name of the action to request
+     * @param arguments the arguments to pass to the API
+     * @return the action result in the JSON format
+     * @throws NullPointerException if the specified action or arguments map is
+     *         null
+     * @throws IllegalArgumentException if the specified action is empty
+     * @see MediaWiki#performJsonRequest(String, Map)
+     */
+    ListenableFuture<JSONObject> performJsonRequest(String action,
+            Map<String, String> arguments);
+
+    /**
+     * Performs an API request using the specified arguments and returns the
+     * raw result.
+     *
+     * @param arguments the arguments to pass to the API
+     * @return the raw API result
+     * @throws NullPointerException if the specified arguments map is null
+     * @see MediaWiki#performRequest(Map)
+     */
+    ListenableFuture<String> performRequest(Map<String, String> arguments);
+
+}
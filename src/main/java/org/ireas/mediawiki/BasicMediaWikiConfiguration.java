@@ -22,25 +22,456 @@
 
 package org.ireas.mediawiki;
 
+import org.joda.time.Duration;
+
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 
 /**
- * Configuration object for {@code MediaWiki} instances.  The values of the
- * configuration must be set in the constructor.  The default user agent is
- * {@code "A tool using org.ireas.mediawiki"}.  It is highly recommended to
- * set the user agent to a string identifying the application using this
- * library.
+ * Configuration object for {@code MediaWiki} instances.  The configuration
+ * is immutable:  its values must be set in the constructor or using a
+ * {@link Builder}.  The default user agent is {@code "A tool using
+ * org.ireas.mediawiki"}.  It is highly recommended to set the user agent to
+ * a string identifying the application using this library.
+ * <p>
+ * Per default, the connection pool allows 50 connections in total and 10
+ * connections per host.  Connections are established within 10 seconds,
+ * the socket timeout is 60 seconds and a pooled connection is requested
+ * for at most 30 seconds.  Connections that are idle for 30 seconds are
+ * evicted, and connections are closed after 10 minutes at the latest.
+ * Contributions are counted by listing them (see {@link
+ * ContribCountMode#LIST_CONTRIBUTIONS}), responses are not cached, and
+ * compressed responses are requested.  The request rate is not limited,
+ * the {@code maxlag} parameter is not sent, and failed requests are
+ * retried according to the default {@link RetryPolicy}.  Metrics are not
+ * collected, a {@link MediaWikiMXBean} is registered for every instance,
+ * requests are sent using the {@link ApiTransport#HTTP} transport, and
+ * concurrent identical read requests are coalesced.
  *
  * @author ireas
  */
 public final class BasicMediaWikiConfiguration implements
         MediaWikiConfiguration {
 
+    /**
+     * Builder for {@code BasicMediaWikiConfiguration} objects.  All values
+     * are initialized with the default values and can be changed using the
+     * setter methods.  The setters return the builder itself, so that calls
+     * can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private String userAgent = DEFAULT_USER_AGENT;
+
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        private int maxConnectionsPerRoute =
+                DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+        private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+        private Duration socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+
+        private Duration connectionRequestTimeout =
+                DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
+        private Duration idleConnectionTimeout =
+                DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+        private Duration connectionTimeToLive =
+                DEFAULT_CONNECTION_TIME_TO_LIVE;
+
+        private ContribCountMode contribCountMode = DEFAULT_CONTRIB_COUNT_MODE;
+
+        private Optional<ResponseCache> responseCache = Optional.absent();
+
+        private boolean compressionEnabled = DEFAULT_COMPRESSION_ENABLED;
+
+        private boolean jmxEnabled = DEFAULT_JMX_ENABLED;
+
+        private boolean requestCoalescingEnabled =
+                DEFAULT_REQUEST_COALESCING_ENABLED;
+
+        private Optional<Integer> maxLag = Optional.absent();
+
+        private double requestRate = DEFAULT_REQUEST_RATE;
+
+        private int requestBurst = DEFAULT_REQUEST_BURST;
+
+        private RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+
+        private MetricsListener metricsListener = MetricsListener.NONE;
+
+        private ApiTransport transport = ApiTransport.HTTP;
+
+        /**
+         * Constructs a new builder using the default values.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Constructs a new configuration using the values of this builder.
+         *
+         * @return a new configuration with the values of this builder
+         */
+        public BasicMediaWikiConfiguration build() {
+            return new BasicMediaWikiConfiguration(this);
+        }
+
+        /**
+         * Sets whether compressed API responses are requested.
+         *
+         * @param enabled true if compressed responses should be requested
+         * @return this builder
+         */
+        public Builder setCompressionEnabled(final boolean enabled) {
+            compressionEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Sets the mode used to count the contributions of a user in all
+         * namespaces without a date filter.
+         *
+         * @param mode the contribution count mode
+         * @return this builder
+         * @throws NullPointerException if the specified mode is null
+         */
+        public Builder setContribCountMode(final ContribCountMode mode) {
+            contribCountMode = Preconditions.checkNotNull(mode);
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout.
+         *
+         * @param timeout the connect timeout, or zero for no timeout
+         * @return this builder
+         * @throws NullPointerException if the specified timeout is null
+         * @throws IllegalArgumentException if the specified timeout is
+         *         negative
+         */
+        public Builder setConnectTimeout(final Duration timeout) {
+            connectTimeout = checkTimeout(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the timeout for requesting a connection from the pool.
+         *
+         * @param timeout the connection request timeout, or zero for no
+         *        timeout
+         * @return this builder
+         * @throws NullPointerException if the specified timeout is null
+         * @throws IllegalArgumentException if the specified timeout is
+         *         negative
+         */
+        public Builder setConnectionRequestTimeout(
+                final Duration timeout) {
+            connectionRequestTimeout = checkTimeout(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the time to live of pooled connections.
+         *
+         * @param timeToLive the time to live, or zero for an infinite time
+         *        to live
+         * @return this builder
+         * @throws NullPointerException if the specified duration is null
+         * @throws IllegalArgumentException if the specified duration is
+         *         negative
+         */
+        public Builder setConnectionTimeToLive(
+                final Duration timeToLive) {
+            connectionTimeToLive = checkTimeout(timeToLive);
+            return this;
+        }
+
+        /**
+         * Sets the time after which idle connections are evicted from the
+         * pool.
+         *
+         * @param timeout the idle timeout, or zero to disable the eviction
+         *        of idle connections
+         * @return this builder
+         * @throws NullPointerException if the specified timeout is null
+         * @throws IllegalArgumentException if the specified timeout is
+         *         negative
+         */
+        public Builder setIdleConnectionTimeout(
+                final Duration timeout) {
+            idleConnectionTimeout = checkTimeout(timeout);
+            return this;
+        }
+
+        /**
+         * Sets whether a {@link MediaWikiMXBean} is registered for every
+         * {@code MediaWiki} instance created by the {@link
+         * MediaWikiFactory}.
+         *
+         * @param enabled true if the MXBeans should be registered
+         * @return this builder
+         */
+        public Builder setJmxEnabled(final boolean enabled) {
+            jmxEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total number of pooled connections.
+         *
+         * @param connections the maximum number of connections
+         * @return this builder
+         * @throws IllegalArgumentException if the specified number is less
+         *         than one
+         */
+        public Builder setMaxConnections(final int connections) {
+            Preconditions.checkArgument(connections > 0);
+            maxConnections = connections;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of pooled connections per host.
+         *
+         * @param connections the maximum number of connections per host
+         * @return this builder
+         * @throws IllegalArgumentException if the specified number is less
+         *         than one
+         */
+        public Builder setMaxConnectionsPerRoute(
+                final int connections) {
+            Preconditions.checkArgument(connections > 0);
+            maxConnectionsPerRoute = connections;
+            return this;
+        }
+
+        /**
+         * Sets the maximum replication lag that requests accept.
+         *
+         * @param seconds the maximum replication lag in seconds
+         * @return this builder
+         * @throws IllegalArgumentException if the specified lag is negative
+         */
+        public Builder setMaxLag(final int seconds) {
+            Preconditions.checkArgument(seconds >= 0);
+            maxLag = Optional.of(seconds);
+            return this;
+        }
+
+        /**
+         * Sets the listener that receives the metrics of every API request,
+         * for example a {@link MetricsRecorder}.
+         *
+         * @param listener the metrics listener
+         * @return this builder
+         * @throws NullPointerException if the specified listener is null
+         */
+        public Builder setMetricsListener(final MetricsListener listener) {
+            metricsListener = Preconditions.checkNotNull(listener);
+            return this;
+        }
+
+        /**
+         * Sets the number of requests that may be sent to one host at once
+         * before the request rate limit applies.
+         *
+         * @param burst the request burst size
+         * @return this builder
+         * @throws IllegalArgumentException if the specified burst size is
+         *         less than one
+         */
+        public Builder setRequestBurst(final int burst) {
+            Preconditions.checkArgument(burst >= 1);
+            requestBurst = burst;
+            return this;
+        }
+
+        /**
+         * Sets whether concurrent identical read requests share one API
+         * request and its result.
+         *
+         * @param enabled true if identical read requests should be coalesced
+         * @return this builder
+         */
+        public Builder setRequestCoalescingEnabled(final boolean enabled) {
+            requestCoalescingEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests per second that are sent to
+         * one host.
+         *
+         * @param rate the maximum number of requests per second, or zero
+         *        for no limit
+         * @return this builder
+         * @throws IllegalArgumentException if the specified rate is negative
+         *         or not finite
+         */
+        public Builder setRequestRate(final double rate) {
+            Preconditions.checkArgument(rate >= 0 && !Double.isInfinite(rate),
+                    "Invalid request rate");
+            requestRate = rate;
+            return this;
+        }
+
+        /**
+         * Sets the cache for the responses of read-only requests.
+         *
+         * @param cache the response cache
+         * @return this builder
+         * @throws NullPointerException if the specified cache is null
+         */
+        public Builder setResponseCache(final ResponseCache cache) {
+            responseCache = Optional.of(cache);
+            return this;
+        }
+
+        /**
+         * Sets the policy for retrying failed requests.
+         *
+         * @param policy the retry policy
+         * @return this builder
+         * @throws NullPointerException if the specified policy is null
+         */
+        public Builder setRetryPolicy(final RetryPolicy policy) {
+            retryPolicy = Preconditions.checkNotNull(policy);
+            return this;
+        }
+
+        /**
+         * Sets the socket timeout.
+         *
+         * @param timeout the socket timeout, or zero for no timeout
+         * @return this builder
+         * @throws NullPointerException if the specified timeout is null
+         * @throws IllegalArgumentException if the specified timeout is
+         *         negative
+         */
+        public Builder setSocketTimeout(final Duration timeout) {
+            socketTimeout = checkTimeout(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the transport that sends the HTTP requests to the API.
+         *
+         * @param newTransport the transport for API requests
+         * @return this builder
+         * @throws NullPointerException if the specified transport is null
+         */
+        public Builder setTransport(final ApiTransport newTransport) {
+            transport = Preconditions.checkNotNull(newTransport);
+            return this;
+        }
+
+        /**
+         * Sets the user agent for API connections.
+         *
+         * @param agent the user agent for API connections
+         * @return this builder
+         * @throws NullPointerException if the specified user agent is null
+         * @throws IllegalArgumentException if the specified user agent is
+         *         empty
+         */
+        public Builder setUserAgent(final String agent) {
+            Preconditions.checkNotNull(agent);
+            Preconditions.checkArgument(!agent.isEmpty(),
+                    "User agent may not be empty");
+            userAgent = agent;
+            return this;
+        }
+
+        private static Duration checkTimeout(final Duration timeout) {
+            Preconditions.checkNotNull(timeout);
+            Preconditions.checkArgument(timeout.getMillis() >= 0);
+            Preconditions.checkArgument(timeout.getMillis() <= MAX_TIMEOUT,
+                    "Timeout too long");
+            return timeout;
+        }
+
+    }
+
     private static final String DEFAULT_USER_AGENT =
             "A tool using org.ireas.mediawiki";
 
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration
+            .standardSeconds(10);
+
+    private static final Duration DEFAULT_SOCKET_TIMEOUT = Duration
+            .standardSeconds(60);
+
+    private static final Duration DEFAULT_CONNECTION_REQUEST_TIMEOUT =
+            Duration.standardSeconds(30);
+
+    private static final Duration DEFAULT_IDLE_CONNECTION_TIMEOUT =
+            Duration.standardSeconds(30);
+
+    private static final Duration DEFAULT_CONNECTION_TIME_TO_LIVE =
+            Duration.standardMinutes(10);
+
+    private static final ContribCountMode DEFAULT_CONTRIB_COUNT_MODE =
+            ContribCountMode.LIST_CONTRIBUTIONS;
+
+    private static final boolean DEFAULT_COMPRESSION_ENABLED = true;
+
+    private static final boolean DEFAULT_JMX_ENABLED = true;
+
+    private static final boolean DEFAULT_REQUEST_COALESCING_ENABLED = true;
+
+    private static final double DEFAULT_REQUEST_RATE = 0;
+
+    private static final int DEFAULT_REQUEST_BURST = 1;
+
+    private static final long MAX_TIMEOUT = Integer.MAX_VALUE;
+
     private final String userAgent;
 
+    private final int maxConnections;
+
+    private final int maxConnectionsPerRoute;
+
+    private final Duration connectTimeout;
+
+    private final Duration socketTimeout;
+
+    private final Duration connectionRequestTimeout;
+
+    private final Duration idleConnectionTimeout;
+
+    private final Duration connectionTimeToLive;
+
+    private final ContribCountMode contribCountMode;
+
+    private final Optional<ResponseCache> responseCache;
+
+    private final boolean compressionEnabled;
+
+    private final boolean jmxEnabled;
+
+    private final boolean requestCoalescingEnabled;
+
+    private final Optional<Integer> maxLag;
+
+    private final double requestRate;
+
+    private final int requestBurst;
+
+    private final RetryPolicy retryPolicy;
+
+    private final MetricsListener metricsListener;
+
+    private final ApiTransport transport;
+
     /**
      * Constructs a new configuration using the default values.
      */
@@ -49,18 +480,116 @@ public final class BasicMediaWikiConfiguration implements
     }
 
     /**
-     * Constructs a new configuration using the specified user agent.
+     * Constructs a new configuration using the specified user agent and
+     * the default values for all other settings.
      *
      * @param userAgent the user agent for API connections
      * @throws NullPointerException if the specified user agent is null
      * @throws IllegalArgumentException if the specified user agent is empty
      */
     public BasicMediaWikiConfiguration(final String userAgent) {
-        Preconditions.checkNotNull(userAgent);
-        Preconditions.checkArgument(!userAgent.isEmpty(),
-                "User agent may not be empty");
+        this(new Builder().setUserAgent(userAgent));
+    }
+
+    private BasicMediaWikiConfiguration(final Builder builder) {
+        Preconditions.checkArgument(
+                builder.maxConnectionsPerRoute <= builder.maxConnections,
+                "Connections per route may not exceed total connections");
+
+        userAgent = builder.userAgent;
+        maxConnections = builder.maxConnections;
+        maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        connectTimeout = builder.connectTimeout;
+        socketTimeout = builder.socketTimeout;
+        connectionRequestTimeout = builder.connectionRequestTimeout;
+        idleConnectionTimeout = builder.idleConnectionTimeout;
+        connectionTimeToLive = builder.connectionTimeToLive;
+        contribCountMode = builder.contribCountMode;
+        responseCache = builder.responseCache;
+        compressionEnabled = builder.compressionEnabled;
+        jmxEnabled = builder.jmxEnabled;
+        requestCoalescingEnabled = builder.requestCoalescingEnabled;
+        maxLag = builder.maxLag;
+        requestRate = builder.requestRate;
+        requestBurst = builder.requestBurst;
+        retryPolicy = builder.retryPolicy;
+        metricsListener = builder.metricsListener;
+        transport = builder.transport;
+    }
+
+    @Override
+    public ContribCountMode getContribCountMode() {
+        return contribCountMode;
+    }
+
+    @Override
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    @Override
+    public Duration getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    @Override
+    public Duration getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return maxConnections;
+    }
 
-        this.userAgent = userAgent;
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    @Override
+    public Optional<Integer> getMaxLag() {
+        return maxLag;
+    }
+
+    @Override
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    @Override
+    public int getRequestBurst() {
+        return requestBurst;
+    }
+
+    @Override
+    public double getRequestRate() {
+        return requestRate;
+    }
+
+    @Override
+    public Optional<ResponseCache> getResponseCache() {
+        return responseCache;
+    }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Override
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    @Override
+    public ApiTransport getTransport() {
+        return transport;
     }
 
     @Override
@@ -68,4 +597,19 @@ public final class BasicMediaWikiConfiguration implements
         return userAgent;
     }
 
+    @Override
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    @Override
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    @Override
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
 }
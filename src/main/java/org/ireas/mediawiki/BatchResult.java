@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The result of a sub-query of a {@link QueryBatch}.  The value of the
+ * result is available after the batch has been executed.
+ *
+ * @author ireas
+ * @param <T> the type of the value
+ * @see QueryBatch
+ */
+public final class BatchResult<T> {
+
+    private boolean done = false;
+
+    private T value;
+
+    /**
+     * Constructs a new result without a value.
+     */
+    BatchResult() {
+    }
+
+    /**
+     * Returns the value of this result.
+     *
+     * @return the value of this result
+     * @throws IllegalStateException if the value is not available yet
+     */
+    public T get() {
+        Preconditions.checkState(done, "The batch has not been executed");
+
+        return value;
+    }
+
+    /**
+     * Returns whether the value of this result is available.
+     *
+     * @return true if the value is available, otherwise false
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Sets the value of this result.
+     *
+     * @param newValue the value of this result
+     */
+    void set(final T newValue) {
+        Preconditions.checkNotNull(newValue);
+
+        value = newValue;
+        done = true;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+/**
+ * Defines how the number of contributions of a user is determined if the
+ * contributions in all namespaces are counted without a date filter.
+ * Counts restricted to namespaces or dates always list the contributions.
+ *
+ * @author ireas
+ * @see MediaWikiConfiguration#getContribCountMode()
+ */
+public enum ContribCountMode {
+
+    /**
+     * Uses the edit count stored for the user.  This requires a single
+     * small request regardless of the limit.  The edit count is maintained
+     * by MediaWiki and may differ slightly from the number of listed
+     * contributions, for example because it includes deleted edits.
+     */
+    EDIT_COUNT,
+
+    /**
+     * Lists the contributions of the user and counts them.  The number of
+     * requests and the size of the responses grow with the limit.
+     */
+    LIST_CONTRIBUTIONS
+
+}
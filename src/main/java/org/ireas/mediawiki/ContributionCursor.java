@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * Position of an incremental contribution sync.  A cursor marks the last
+ * contribution of a user that has already been read:  its timestamp in
+ * milliseconds since the epoch and its revision ID.  A following sync only
+ * returns contributions that are newer than the cursor.  Instances of this
+ * class are immutable.
+ *
+ * @author ireas
+ * @see ContributionSync
+ * @see CursorStore
+ */
+public final class ContributionCursor {
+
+    private final long timestamp;
+
+    private final long revisionId;
+
+    /**
+     * Constructs a new cursor for the specified contribution.
+     *
+     * @param timestamp the date of the last read contribution in
+     *        milliseconds since the epoch
+     * @param revisionId the revision ID of the last read contribution
+     */
+    public ContributionCursor(final long timestamp, final long revisionId) {
+        this.timestamp = timestamp;
+        this.revisionId = revisionId;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof ContributionCursor)) {
+            return false;
+        }
+        ContributionCursor cursor = (ContributionCursor) object;
+        return timestamp == cursor.timestamp
+                && revisionId == cursor.revisionId;
+    }
+
+    /**
+     * Returns the revision ID of the last read contribution.
+     *
+     * @return the revision ID of the last read contribution
+     */
+    public long getRevisionId() {
+        return revisionId;
+    }
+
+    /**
+     * Returns the date of the last read contribution in milliseconds since
+     * the epoch.
+     *
+     * @return the date of the last read contribution
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int hashCode() {
+        return Longs.hashCode(revisionId) ^ Longs.hashCode(timestamp);
+    }
+
+    /**
+     * Checks whether the specified contribution is newer than the
+     * contribution marked by this cursor.  Contributions with the same
+     * timestamp are ordered by their revision ID.
+     *
+     * @param otherTimestamp the date of the contribution in milliseconds
+     *        since the epoch
+     * @param otherRevisionId the revision ID of the contribution
+     * @return true if the contribution is newer than this cursor, otherwise
+     *         false
+     */
+    public boolean isBefore(final long otherTimestamp,
+            final long otherRevisionId) {
+        if (timestamp != otherTimestamp) {
+            return timestamp < otherTimestamp;
+        }
+        return revisionId < otherRevisionId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ContributionCursor[timestamp=%s,revision=%d]",
+                MediaWikiUtils.formatApiTimestamp(timestamp), revisionId);
+    }
+
+}
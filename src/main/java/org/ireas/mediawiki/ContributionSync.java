@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Set;
+
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Incrementally reads the contributions of users.  For each user, the
+ * position of the last read contribution is stored as a {@link
+ * ContributionCursor} in a {@link CursorStore}.  The first sync of a user
+ * reads all contributions of the user.  Later syncs only request the
+ * contributions since the stored cursor (using {@code ucstart} and {@code
+ * ucdir=newer}) and return the contributions that are newer than the
+ * cursor.
+ * <p>
+ * The contributions in all namespaces are synced, so that one cursor per
+ * user is sufficient; counts for single namespaces can be computed from
+ * the returned histories.  The cursor is advanced before {@link #sync}
+ * returns, so the caller has to store the returned contributions (or the
+ * values derived from them) itself.  If the caller cannot do so, it can
+ * reset the cursor using {@link #reset}.
+ *
+ * @author ireas
+ */
+public final class ContributionSync {
+
+    private static final Set<Namespace> ALL_NAMESPACES =
+            Collections.emptySet();
+
+    private final MediaWiki mediaWiki;
+
+    private final CursorStore cursorStore;
+
+    /**
+     * Constructs a new sync for the specified wiki that stores its cursors
+     * in the specified store.
+     *
+     * @param mediaWiki the wiki to read the contributions from
+     * @param cursorStore the store for the cursors
+     * @throws NullPointerException if one of the arguments is null
+     */
+    public ContributionSync(final MediaWiki mediaWiki,
+            final CursorStore cursorStore) {
+        Preconditions.checkNotNull(mediaWiki);
+        Preconditions.checkNotNull(cursorStore);
+
+        this.mediaWiki = mediaWiki;
+        this.cursorStore = cursorStore;
+    }
+
+    private URI getApiUri() {
+        return mediaWiki.getMediaWikiData().getApiUri();
+    }
+
+    /**
+     * Returns the cursor store of this sync.
+     *
+     * @return the cursor store of this sync
+     */
+    public CursorStore getCursorStore() {
+        return cursorStore;
+    }
+
+    /**
+     * Returns the stored cursor for the specified user, if there is one.
+     *
+     * @param user the name of the user
+     * @return the cursor of the user, or absent if the user has not been
+     *         synced yet
+     * @throws MediaWikiException if the cursor cannot be read
+     * @throws NullPointerException if the specified user is null
+     */
+    public Optional<ContributionCursor> getCursor(final String user)
+            throws MediaWikiException {
+        String userName = MediaWikiUtils.normalizeUserName(user);
+        try {
+            return cursorStore.get(getApiUri(), userName);
+        } catch (IOException exception) {
+            throw new MediaWikiException(String.format(
+                    "Could not read the cursor for %s.", userName),
+                    exception);
+        }
+    }
+
+    /**
+     * Returns the media wiki the contributions are read from.
+     *
+     * @return the media wiki of this sync
+     */
+    public MediaWiki getMediaWiki() {
+        return mediaWiki;
+    }
+
+    /**
+     * Removes the cursor for the specified user, so that the next sync
+     * returns all contributions of the user.
+     *
+     * @param user the name of the user
+     * @throws MediaWikiException if the cursor cannot be removed
+     * @throws NullPointerException if the specified user is null
+     */
+    public void reset(final String user) throws MediaWikiException {
+        String userName = MediaWikiUtils.normalizeUserName(user);
+        try {
+            cursorStore.remove(getApiUri(), userName);
+        } catch (IOException exception) {
+            throw new MediaWikiException(String.format(
+                    "Could not remove the cursor for %s.", userName),
+                    exception);
+        }
+    }
+
+    /**
+     * Returns the contributions of the specified user that are newer than
+     * the stored cursor and advances the cursor to the last returned
+     * contribution.  If there is no cursor for the user, all contributions
+     * are returned.  If there are no new contributions, an empty history is
+     * returned and the cursor is not changed.
+     *
+     * @param user the name of the user
+     * @return the new contributions of the user in chronological order
+     * @throws MediaWikiException if an error occurs during the request or if
+     *         the cursor cannot be read or written
+     * @throws NullPointerException if the specified user is null
+     */
+    public ContributionHistory sync(final String user)
+            throws MediaWikiException {
+        String userName = MediaWikiUtils.normalizeUserName(user);
+        Optional<ContributionCursor> cursor = getCursor(userName);
+
+        ContributionHistory history;
+        if (cursor.isPresent()) {
+            history =
+                    mediaWiki.getContributionHistory(userName,
+                            ALL_NAMESPACES, new DateTime(cursor.get()
+                                    .getTimestamp()));
+            int index = 0;
+            while (index < history.size()
+                    && !cursor.get().isBefore(history.getTimestamp(index),
+                            history.getRevisionId(index))) {
+                index++;
+            }
+            if (index > 0) {
+                history = history.slice(index, history.size());
+            }
+        } else {
+            history =
+                    mediaWiki.getContributionHistory(userName,
+                            ALL_NAMESPACES);
+        }
+
+        if (!history.isEmpty()) {
+            int last = history.size() - 1;
+            ContributionCursor newCursor =
+                    new ContributionCursor(history.getTimestamp(last),
+                            history.getRevisionId(last));
+            try {
+                cursorStore.put(getApiUri(), userName, newCursor);
+            } catch (IOException exception) {
+                throw new MediaWikiException(String.format(
+                        "Could not write the cursor for %s.", userName),
+                        exception);
+            }
+        }
+        return history;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.net.URI;
+
+import com.google.common.base.Optional;
+
+/**
+ * Persists the cursors of incremental contribution syncs.  The store holds
+ * one {@link ContributionCursor} per wiki and user.  The wiki is identified
+ * by the URI of its API, so that one store can be shared by the {@code
+ * MediaWiki} instances for several wikis.
+ * <p>
+ * Implementations must be thread-safe.  This package provides an in-memory
+ * implementation ({@link MemoryCursorStore}) and an implementation that
+ * persists the cursors in a local file ({@link FileCursorStore}).
+ *
+ * @author ireas
+ * @see ContributionSync
+ */
+public interface CursorStore {
+
+    /**
+     * Returns the cursor for the specified wiki and user, if there is one.
+     *
+     * @param apiUri the URI of the API of the wiki
+     * @param user the normalized name of the user
+     * @return the stored cursor, or absent if there is no cursor for the
+     *         wiki and user
+     * @throws IOException if the cursor cannot be read
+     */
+    Optional<ContributionCursor> get(URI apiUri, String user)
+            throws IOException;
+
+    /**
+     * Stores the cursor for the specified wiki and user, replacing the
+     * previous cursor.
+     *
+     * @param apiUri the URI of the API of the wiki
+     * @param user the normalized name of the user
+     * @param cursor the new cursor
+     * @throws IOException if the cursor cannot be written
+     */
+    void put(URI apiUri, String user, ContributionCursor cursor)
+            throws IOException;
+
+    /**
+     * Removes the cursor for the specified wiki and user, so that the next
+     * sync reads all contributions of the user again.
+     *
+     * @param apiUri the URI of the API of the wiki
+     * @param user the normalized name of the user
+     * @throws IOException if the cursor cannot be removed
+     */
+    void remove(URI apiUri, String user) throws IOException;
+
+}
@@ -0,0 +1,749 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.ireas.mediawiki.data.DefaultMediaWikiData;
+import org.ireas.mediawiki.data.MediaWikiData;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.HttpMediaWikiException;
+import org.ireas.mediawiki.exceptions.InvalidResponseException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.joda.time.Period;
+import org.json.JSONObject;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Default implementation of the {@code AsyncMediaWiki} interface.  This
+ * class uses the non-blocking Apache HttpAsyncClient library to access the
+ * MediaWiki API and parses the responses in the same way as {@link
+ * DefaultMediaWiki}.  The responses are parsed on the I/O thread that
+ * received them, so listeners that perform expensive operations should be
+ * registered with their own executor.  As HttpAsyncClient does not decode
+ * compressed responses, this class decodes gzip and deflate encoded
+ * responses itself.  The requests of an instance are paced by its own
+ * {@link RequestScheduler}; delayed requests are sent from a timer thread
+ * instead of blocking the caller.  It is recommended to use the {@link
+ * MediaWikiFactory} to create new {@code AsyncMediaWiki} instances instead
+ * of accessing this class directly.
+ *
+ * @author ireas
+ */
+public final class DefaultAsyncMediaWiki implements AsyncMediaWiki {
+
+    /**
+     * Parses an action result to the return value of a request.
+     *
+     * @param <T> the type of the return value
+     */
+    private abstract static class ResultParser<T> implements
+            AsyncFunction<JSONObject, T> {
+
+        @Override
+        public final ListenableFuture<T> apply(final JSONObject result)
+                throws MediaWikiException {
+            return Futures.immediateFuture(parse(result));
+        }
+
+        protected abstract T parse(JSONObject result)
+                throws MediaWikiException;
+
+    }
+
+    /**
+     * A request that is sent when the request scheduler permits it and that
+     * is retried according to the retry policy.
+     *
+     * @param <T> the type of the return value
+     */
+    private final class ScheduledRequest<T> {
+
+        private final Map<String, String> arguments;
+
+        private final EntityReader<T> reader;
+
+        private final boolean idempotent;
+
+        public ScheduledRequest(final Map<String, String> arguments,
+                final EntityReader<T> reader, final boolean idempotent) {
+            this.arguments = arguments;
+            this.reader = reader;
+            this.idempotent = idempotent;
+        }
+
+        public ListenableFuture<T> schedule(final int attempt,
+                final long delay) {
+            if (delay == 0) {
+                return send(attempt);
+            }
+            ListenableFuture<ListenableFuture<T>> scheduledRequest =
+                    timer.schedule(new Callable<ListenableFuture<T>>() {
+                        @Override
+                        public ListenableFuture<T> call() {
+                            return send(attempt);
+                        }
+                    }, delay, TimeUnit.NANOSECONDS);
+            return Futures.dereference(scheduledRequest);
+        }
+
+        private ListenableFuture<T> retry(final int attempt,
+                final Duration delay) {
+            return schedule(attempt + 1, scheduler.reserveRetry(delay));
+        }
+
+        private ListenableFuture<T> send(final int attempt) {
+            HttpPost httpPost;
+            try {
+                httpPost =
+                        ApiRequests.newHttpPost(mediaWikiData.getApiUri(),
+                                arguments, configuration.getUserAgent());
+            } catch (MediaWikiException exception) {
+                return Futures.immediateFailedFuture(exception);
+            }
+
+            final SettableFuture<T> result = SettableFuture.create();
+            FutureCallback<HttpResponse> callback =
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void cancelled() {
+                            result.cancel(false);
+                        }
+
+                        @Override
+                        public void completed(
+                                final HttpResponse httpResponse) {
+                            Optional<Duration> delay =
+                                    scheduler.getRetryDelay(httpResponse,
+                                            attempt, idempotent);
+                            if (delay.isPresent()) {
+                                forward(retry(attempt, delay.get()), result);
+                                return;
+                            }
+                            try {
+                                result.set(readResponse(httpResponse,
+                                        reader));
+                            } catch (MediaWikiException
+                                    | RuntimeException exception) {
+                                result.setException(exception);
+                            }
+                        }
+
+                        @Override
+                        public void failed(final Exception exception) {
+                            if (exception instanceof IOException) {
+                                Optional<Duration> delay =
+                                        scheduler.getRetryDelay(
+                                                (IOException) exception,
+                                                attempt, idempotent);
+                                if (delay.isPresent()) {
+                                    forward(retry(attempt, delay.get()),
+                                            result);
+                                    return;
+                                }
+                            }
+                            result.setException(new MediaWikiException(
+                                    "An error occured during the API query.",
+                                    exception));
+                        }
+                    };
+            final Future<HttpResponse> response =
+                    httpClient.execute(httpPost, callback);
+            result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (result.isCancelled()) {
+                        response.cancel(true);
+                    }
+                }
+            }, MoreExecutors.sameThreadExecutor());
+            return result;
+        }
+
+    }
+
+    private static final ThreadFactory TIMER_THREAD_FACTORY =
+            new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("mediawiki-timer-%d").build();
+
+    private static final String ENCODING_DEFLATE = "deflate";
+
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final String ENCODING_IDENTITY = "identity";
+
+    private static final String ENCODING_X_GZIP = "x-gzip";
+
+    private final DefaultMediaWikiData mediaWikiData;
+
+    private final MediaWikiConfiguration configuration;
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final TokenCache tokenCache = new TokenCache();
+
+    private final RequestScheduler scheduler;
+
+    private final ListeningScheduledExecutorService timer;
+
+    /**
+     * Constructs a new asynchronous MediaWiki instance for the MediaWiki
+     * installation represented by the specified MediaWiki data and using
+     * the specified configuration.  The connection settings of the
+     * configuration are applied to the non-blocking HTTP client.  It is
+     * recommended to use the {@link MediaWikiFactory} instead of this
+     * constructor.
+     *
+     * @param mediaWikiData the data of the MediaWiki installation to access
+     * @param configuration the configuration for the API request
+     * @throws NullPointerException if the specified URI or configuration is
+     *         null
+     */
+    public DefaultAsyncMediaWiki(final DefaultMediaWikiData mediaWikiData,
+            final MediaWikiConfiguration configuration) {
+        Preconditions.checkNotNull(mediaWikiData);
+        Preconditions.checkNotNull(configuration);
+
+        this.mediaWikiData = mediaWikiData;
+        this.configuration = configuration;
+
+        int connectTimeout =
+                Ints.checkedCast(configuration.getConnectTimeout()
+                        .getMillis());
+        int socketTimeout =
+                Ints.checkedCast(configuration.getSocketTimeout().getMillis());
+        int connectionRequestTimeout =
+                Ints.checkedCast(configuration.getConnectionRequestTimeout()
+                        .getMillis());
+        RequestConfig requestConfig =
+                RequestConfig.custom().setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(socketTimeout)
+                        .setConnectionRequestTimeout(connectionRequestTimeout)
+                        .build();
+        IOReactorConfig ioReactorConfig =
+                IOReactorConfig.custom().setConnectTimeout(connectTimeout)
+                        .setSoTimeout(socketTimeout).build();
+
+        HttpAsyncClientBuilder clientBuilder =
+                HttpAsyncClients.custom()
+                        .setMaxConnTotal(configuration.getMaxConnections())
+                        .setMaxConnPerRoute(
+                                configuration.getMaxConnectionsPerRoute())
+                        .setDefaultRequestConfig(requestConfig)
+                        .setDefaultIOReactorConfig(ioReactorConfig);
+        if (configuration.isCompressionEnabled()) {
+            clientBuilder.addInterceptorLast(new RequestAcceptEncoding());
+        }
+        httpClient = clientBuilder.build();
+        httpClient.start();
+
+        scheduler = new RequestScheduler(configuration);
+        timer =
+                MoreExecutors.listeningDecorator(Executors
+                        .newSingleThreadScheduledExecutor(
+                                TIMER_THREAD_FACTORY));
+    }
+
+    @Override
+    public void close() throws IOException {
+        timer.shutdownNow();
+        httpClient.close();
+    }
+
+    @Override
+    public ListenableFuture<Integer> getContribCount(final String user,
+            final int limit) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkArgument(limit > 0);
+
+        Set<Namespace> namespaces = Collections.emptySet();
+        return getContribCount(user, limit, namespaces);
+    }
+
+    @Override
+    public ListenableFuture<Integer> getContribCount(final String user,
+            final int limit, final Set<Namespace> namespaces) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+        Preconditions.checkArgument(limit > 0);
+
+        if (isEditCountApplicable(namespaces)) {
+            return query(ApiConstants.ACTION_QUERY,
+                    ApiRequests.editCount(user), new ResultParser<Integer>() {
+                        @Override
+                        protected Integer parse(final JSONObject result) {
+                            return Math.min(
+                                    ApiResponses.parseEditCount(result), limit);
+                        }
+                    });
+        }
+
+        Map<String, String> arguments =
+                ApiRequests.contribCount(user, limit, namespaces);
+        return getContribCount(arguments, limit);
+    }
+
+    @Override
+    public ListenableFuture<Integer> getContribCount(final String user,
+            final int limit, final Set<Namespace> namespaces,
+            final DateTime endDate) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+        Preconditions.checkNotNull(endDate);
+        Preconditions.checkArgument(limit > 0);
+
+        Map<String, String> arguments =
+                ApiRequests.contribCount(user, limit, namespaces, endDate);
+        return getContribCount(arguments, limit);
+    }
+
+    @Override
+    public ListenableFuture<Integer> getContribCount(final String user,
+            final int limit, final Set<Namespace> namespaces,
+            final DateTime endDate, final Period period) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+        Preconditions.checkNotNull(endDate);
+        Preconditions.checkNotNull(period);
+        Preconditions.checkArgument(limit > 0);
+
+        Map<String, String> arguments =
+                ApiRequests.contribCount(user, limit, namespaces, endDate,
+                        period);
+        return getContribCount(arguments, limit);
+    }
+
+    private ListenableFuture<Integer> getContribCount(
+            final Map<String, String> arguments, final int limit) {
+        return getContribCount(arguments, arguments, limit, 0);
+    }
+
+    private ListenableFuture<Integer> getContribCount(
+            final Map<String, String> arguments,
+            final Map<String, String> pageArguments, final int limit,
+            final int previousCount) {
+        ListenableFuture<StreamingResponses.ListCount> page =
+                performRequest(ApiRequests.json(ApiConstants.ACTION_QUERY,
+                        pageArguments), StreamingResponses.CONTRIB_COUNT);
+        return Futures.transform(page,
+                new AsyncFunction<StreamingResponses.ListCount, Integer>() {
+                    @Override
+                    public ListenableFuture<Integer> apply(
+                            final StreamingResponses.ListCount listCount) {
+                        return continueContribCount(arguments, listCount,
+                                limit, previousCount);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    private ListenableFuture<Integer> continueContribCount(
+            final Map<String, String> arguments,
+            final StreamingResponses.ListCount page, final int limit,
+            final int previousCount) {
+        int count = previousCount + page.getCount();
+        Optional<Map<String, String>> continuation = page.getContinuation();
+        if (count >= limit || !continuation.isPresent()) {
+            return Futures.immediateFuture(Math.min(count, limit));
+        }
+        Map<String, String> nextArguments =
+                ApiRequests.continued(arguments, continuation.get());
+        nextArguments.put(ApiConstants.UC_LIMIT,
+                Integer.toString(limit - count));
+        return getContribCount(arguments, nextArguments, limit, count);
+    }
+
+    @Override
+    public ListenableFuture<Optional<DateTime>> getFirstEdit(
+            final String user) {
+        Preconditions.checkNotNull(user);
+
+        return query(ApiConstants.ACTION_QUERY, ApiRequests.firstEdit(user),
+                new ResultParser<Optional<DateTime>>() {
+                    @Override
+                    protected Optional<DateTime> parse(
+                            final JSONObject result) {
+                        return ApiResponses.parseFirstEdit(result);
+                    }
+                });
+    }
+
+    @Override
+    public MediaWikiData getMediaWikiData() {
+        return mediaWikiData;
+    }
+
+    @Override
+    public ListenableFuture<String> getToken(final TokenType type) {
+        Preconditions.checkNotNull(type);
+
+        return Futures.transform(getTokens(EnumSet.of(type)),
+                new AsyncFunction<Map<TokenType, String>, String>() {
+                    @Override
+                    public ListenableFuture<String> apply(
+                            final Map<TokenType, String> tokens) {
+                        return Futures.immediateFuture(tokens.get(type));
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Override
+    public ListenableFuture<Map<TokenType, String>> getTokens(
+            final Set<TokenType> types) {
+        Preconditions.checkNotNull(types);
+
+        final Map<TokenType, String> tokens = tokenCache.get(types);
+        Set<TokenType> missingTypes =
+                Sets.difference(types, tokens.keySet()).immutableCopy();
+        if (missingTypes.isEmpty()) {
+            return Futures.immediateFuture(tokens);
+        }
+        return Futures.transform(requestTokens(missingTypes),
+                new AsyncFunction<Map<TokenType, String>,
+                        Map<TokenType, String>>() {
+                    @Override
+                    public ListenableFuture<Map<TokenType, String>> apply(
+                            final Map<TokenType, String> newTokens) {
+                        tokens.putAll(newTokens);
+                        return Futures.immediateFuture(tokens);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Override
+    public ListenableFuture<UserData> getUserData(final String user) {
+        Preconditions.checkNotNull(user);
+
+        return query(ApiConstants.ACTION_QUERY, ApiRequests.userData(user),
+                new ResultParser<UserData>() {
+                    @Override
+                    protected UserData parse(final JSONObject result)
+                            throws MediaWikiException {
+                        return ApiResponses.parseUserData(result, user);
+                    }
+                });
+    }
+
+    private boolean isEditCountApplicable(final Set<Namespace> namespaces) {
+        return namespaces.isEmpty()
+                && configuration.getContribCountMode()
+                    == ContribCountMode.EDIT_COUNT;
+    }
+
+    @Override
+    public ListenableFuture<Void> login(final String user,
+            final String password) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(password);
+        Preconditions.checkArgument(!user.isEmpty());
+        Preconditions.checkArgument(!password.isEmpty());
+
+        ListenableFuture<JSONObject> result =
+                performJsonRequest(ApiConstants.ACTION_LOGIN,
+                        ApiRequests.login(user, password));
+        return Futures.transform(result, new AsyncFunction<JSONObject, Void>() {
+            @Override
+            public ListenableFuture<Void> apply(final JSONObject loginResult)
+                    throws MediaWikiException {
+                tokenCache.clear();
+                Optional<String> token =
+                        ApiResponses.parseLogin(loginResult, user);
+                if (token.isPresent()) {
+                    return login(user, password, token.get());
+                }
+                return Futures.immediateFuture(null);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Override
+    public ListenableFuture<Void> login(final String user,
+            final String password, final String token) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(password);
+        Preconditions.checkNotNull(token);
+        Preconditions.checkArgument(!user.isEmpty());
+        Preconditions.checkArgument(!password.isEmpty());
+        Preconditions.checkArgument(!token.isEmpty());
+
+        return query(ApiConstants.ACTION_LOGIN,
+                ApiRequests.login(user, password, token),
+                new ResultParser<Void>() {
+                    @Override
+                    protected Void parse(final JSONObject result)
+                            throws MediaWikiException {
+                        tokenCache.clear();
+                        Optional<String> loginToken =
+                                ApiResponses.parseLogin(result, user);
+                        if (loginToken.isPresent()) {
+                            throw new MediaWikiException(
+                                    ApiConstants.RESULT_LG_NEED_TOKEN);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Override
+    public ListenableFuture<Void> logout() {
+        ListenableFuture<String> result =
+                performRequest(ApiRequests.logout());
+        return Futures.transform(result, new AsyncFunction<String, Void>() {
+            @Override
+            public ListenableFuture<Void> apply(final String response) {
+                tokenCache.clear();
+                return Futures.immediateFuture(null);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Override
+    public ListenableFuture<JSONObject> performJsonRequest(
+            final String action, final Map<String, String> arguments) {
+        Preconditions.checkNotNull(action);
+        Preconditions.checkNotNull(arguments);
+        Preconditions.checkArgument(!action.isEmpty(),
+                "Action may not be empty");
+
+        final String modifiedAction = action.toLowerCase();
+        ListenableFuture<JSONObject> root =
+                Futures.withFallback(
+                        performJsonRequestRoot(modifiedAction, arguments),
+                        new FutureFallback<JSONObject>() {
+                            @Override
+                            public ListenableFuture<JSONObject> create(
+                                    final Throwable throwable) {
+                                return retryWithNewTokens(modifiedAction,
+                                        arguments, throwable);
+                            }
+                        }, MoreExecutors.sameThreadExecutor());
+        return Futures.transform(root,
+                new AsyncFunction<JSONObject, JSONObject>() {
+                    @Override
+                    public ListenableFuture<JSONObject> apply(
+                            final JSONObject response) {
+                        return Futures.immediateFuture(ApiResponses
+                                .parseActionResult(response, modifiedAction));
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    private ListenableFuture<JSONObject> performJsonRequestRoot(
+            final String action, final Map<String, String> arguments) {
+        final Map<String, String> requestArguments =
+                ApiRequests.json(action, arguments);
+        final Optional<ResponseCache> responseCache =
+                configuration.getResponseCache();
+        final boolean cacheable =
+                responseCache.isPresent()
+                        && ApiRequests.isCacheable(requestArguments);
+        final URI apiUri = mediaWikiData.getApiUri();
+        if (cacheable) {
+            Optional<String> cachedResult =
+                    responseCache.get().get(apiUri, requestArguments);
+            if (cachedResult.isPresent()) {
+                try {
+                    return Futures.immediateFuture(ApiResponses
+                            .parseJsonRoot(cachedResult.get()));
+                } catch (MediaWikiException exception) {
+                    return Futures.immediateFailedFuture(exception);
+                }
+            }
+        }
+
+        ListenableFuture<String> result = performRequest(requestArguments);
+        return Futures.transform(result,
+                new AsyncFunction<String, JSONObject>() {
+                    @Override
+                    public ListenableFuture<JSONObject> apply(
+                            final String response) throws MediaWikiException {
+                        JSONObject root = ApiResponses.parseJsonRoot(response);
+                        if (cacheable) {
+                            responseCache.get().put(apiUri, requestArguments,
+                                    response);
+                        }
+                        return Futures.immediateFuture(root);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Override
+    public ListenableFuture<String> performRequest(
+            final Map<String, String> arguments) {
+        Preconditions.checkNotNull(arguments);
+
+        return performRequest(arguments, EntityReader.STRING);
+    }
+
+    private <T> ListenableFuture<T> performRequest(
+            final Map<String, String> arguments, final EntityReader<T> reader) {
+        ScheduledRequest<T> request =
+                new ScheduledRequest<>(scheduler.addMaxLag(arguments),
+                        reader, ApiRequests.isIdempotent(arguments));
+        return request.schedule(1, scheduler.reserve());
+    }
+
+    private <T> ListenableFuture<T> query(final String action,
+            final Map<String, String> arguments, final ResultParser<T> parser) {
+        ListenableFuture<JSONObject> result =
+                performJsonRequest(action, arguments);
+        return Futures.transform(result, parser,
+                MoreExecutors.sameThreadExecutor());
+    }
+
+    private ListenableFuture<Map<TokenType, String>> requestTokens(
+            final Set<TokenType> types) {
+        final long session = tokenCache.getSession();
+        return query(ApiConstants.ACTION_TOKENS, ApiRequests.tokens(types),
+                new ResultParser<Map<TokenType, String>>() {
+                    @Override
+                    protected Map<TokenType, String> parse(
+                            final JSONObject result) {
+                        Map<TokenType, String> tokens =
+                                ApiResponses.parseTokens(result, types);
+                        tokenCache.put(session, tokens);
+                        return tokens;
+                    }
+                });
+    }
+
+    private ListenableFuture<JSONObject> retryWithNewTokens(
+            final String action, final Map<String, String> arguments,
+            final Throwable throwable) {
+        if (!TokenCache.isBadTokenError(throwable)) {
+            return Futures.immediateFailedFuture(throwable);
+        }
+        final Map<TokenType, String> invalidTokens =
+                tokenCache.invalidate(arguments);
+        if (invalidTokens.isEmpty()) {
+            return Futures.immediateFailedFuture(throwable);
+        }
+        return Futures.transform(requestTokens(invalidTokens.keySet()),
+                new AsyncFunction<Map<TokenType, String>, JSONObject>() {
+                    @Override
+                    public ListenableFuture<JSONObject> apply(
+                            final Map<TokenType, String> tokens) {
+                        return performJsonRequestRoot(action, TokenCache
+                                .replaceTokens(arguments, invalidTokens,
+                                        tokens));
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+    }
+
+    private static HttpEntity decodeEntity(final HttpEntity entity) {
+        Header encoding = entity.getContentEncoding();
+        if (encoding == null) {
+            return entity;
+        }
+        String coding = encoding.getValue().trim().toLowerCase(Locale.ROOT);
+        if (coding.equals(ENCODING_GZIP) || coding.equals(ENCODING_X_GZIP)) {
+            return new GzipDecompressingEntity(entity);
+        } else if (coding.equals(ENCODING_DEFLATE)) {
+            return new DeflateDecompressingEntity(entity);
+        } else if (coding.isEmpty() || coding.equals(ENCODING_IDENTITY)) {
+            return entity;
+        }
+        throw new InvalidResponseException(String.format(
+                "Unsupported content encoding: %s", coding));
+    }
+
+    private static <T> void forward(final ListenableFuture<T> source,
+            final SettableFuture<T> target) {
+        Futures.addCallback(source,
+                new com.google.common.util.concurrent.FutureCallback<T>() {
+                    @Override
+                    public void onFailure(final Throwable throwable) {
+                        target.setException(throwable);
+                    }
+
+                    @Override
+                    public void onSuccess(final T value) {
+                        target.set(value);
+                    }
+                });
+        target.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (target.isCancelled()) {
+                    source.cancel(true);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    private static <T> T readResponse(final HttpResponse response,
+            final EntityReader<T> reader) throws MediaWikiException {
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() != HttpStatus.SC_OK) {
+            throw HttpMediaWikiException.newInstance(statusLine);
+        }
+        try {
+            return reader.read(decodeEntity(response.getEntity()));
+        } catch (IOException exception) {
+            throw new MediaWikiException(
+                    "An error occured during the API query.", exception);
+        }
+    }
+
+}
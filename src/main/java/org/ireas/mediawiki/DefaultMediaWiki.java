@@ -23,64 +23,157 @@
 package org.ireas.mediawiki;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-
-import org.apache.commons.lang3.StringUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.util.EntityUtils;
+import org.ireas.mediawiki.data.ActivityProfile;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
 import org.ireas.mediawiki.data.DefaultMediaWikiData;
-import org.ireas.mediawiki.data.DefaultUserData;
 import org.ireas.mediawiki.data.MediaWikiData;
 import org.ireas.mediawiki.data.Namespace;
 import org.ireas.mediawiki.data.TokenType;
 import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.ApiErrorException;
 import org.ireas.mediawiki.exceptions.HttpMediaWikiException;
 import org.ireas.mediawiki.exceptions.MediaWikiException;
-import org.ireas.mediawiki.exceptions.NoSuchUserException;
-import org.ireas.mediawiki.exceptions.WrongPasswordException;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.joda.time.Period;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
  * Default implementation of the {@code MediaWiki} interfaces.  This class
- * uses the Apache HTTPComponents library to access the MediaWiki API.  It
- * is recommended to use the {@link MediaWikiFactory} to create new {@code
+ * uses the Apache HTTPComponents library to access the MediaWiki API.  The
+ * HTTP connections are pooled according to the settings of the {@code
+ * MediaWikiConfiguration}, so an instance may be shared by several threads.
+ * All instances using the same connection pool share one {@link
+ * RequestScheduler} per host that limits the request rate and retries
+ * failed requests according to the {@link RetryPolicy}.
+ * It is recommended to use the {@link MediaWikiFactory} to create new {@code
  * MediaWiki} instances instead of accessing this class directly.
  *
  * @author ireas
  */
 public final class DefaultMediaWiki implements MediaWiki {
 
-    private static final String HEADER_USER_AGENT = "User-Agent";
+    /**
+     * Response of a JSON request that has been parsed into a tree.  The
+     * response is read and parsed by the same reader, so that the parsing
+     * time and API errors are part of the request metrics.  As a response
+     * may be shared by coalesced requests, the parsed tree is only handed
+     * out once; later callers receive a tree parsed from the text again.
+     */
+    private static final class JsonResponse {
+
+        public static final EntityReader<JsonResponse> READER =
+                new EntityReader<JsonResponse>() {
+                    @Override
+                    public JsonResponse read(final HttpEntity entity)
+                            throws IOException, MediaWikiException {
+                        String response = EntityUtils.toString(entity);
+                        return new JsonResponse(response,
+                                ApiResponses.parseJsonRoot(response));
+                    }
+                };
+
+        private final String text;
+
+        private final JSONObject root;
+
+        private final AtomicBoolean rootTaken = new AtomicBoolean();
+
+        public JsonResponse(final String text, final JSONObject root) {
+            this.text = text;
+            this.root = root;
+        }
+
+        public JSONObject takeRoot() throws MediaWikiException {
+            if (rootTaken.compareAndSet(false, true)) {
+                return root;
+            }
+            return ApiResponses.parseJsonRoot(text);
+        }
+
+    }
+
+    private static final ThreadFactory WORKER_THREAD_FACTORY =
+            new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("mediawiki-worker-%d").build();
 
     private final DefaultMediaWikiData mediaWikiData;
 
     private final MediaWikiConfiguration configuration;
 
-    private final CloseableHttpClient httpClient;
+    private final HttpConnectionPool connectionPool;
+
+    private final RequestScheduler scheduler;
+
+    private final ExecutorService executor;
+
+    private final TokenCache tokenCache = new TokenCache();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final RequestStatistics statistics = new RequestStatistics();
+
+    private final RequestCoalescer<List<Object>> requestCoalescer =
+            new RequestCoalescer<>();
+
+    private MBeanServer mbeanServer;
+
+    private ObjectName objectName;
+
+    private volatile Integer valuesLimit;
 
     /**
      * Constructs a new MediaWiki instance for the MediaWiki installation
      * represented by the specified MediaWiki data and using the specified
-     * configuration.  It is recommended to use the {@link MediaWikiFactory}
-     * instead of this constructor.
+     * configuration.  The instance uses its own connection pool.  It is
+     * recommended to use the {@link MediaWikiFactory} instead of this
+     * constructor.
      *
      * @param mediaWikiData the data of the MediaWiki installation to access
      * @param configuration the configuration for the API request
@@ -89,29 +182,120 @@ public final class DefaultMediaWiki implements MediaWiki {
      */
     public DefaultMediaWiki(final DefaultMediaWikiData mediaWikiData,
             final MediaWikiConfiguration configuration) {
+        this(mediaWikiData, configuration, new HttpConnectionPool(
+                configuration));
+    }
+
+    /**
+     * Constructs a new MediaWiki instance that uses the specified connection
+     * pool.  The reference to the pool held by the caller is transferred to
+     * the new instance and released when the instance is closed.
+     *
+     * @param mediaWikiData the data of the MediaWiki installation to access
+     * @param configuration the configuration for the API request
+     * @param connectionPool the connection pool to use for API requests
+     * @throws NullPointerException if the specified URI, configuration or
+     *         connection pool is null
+     */
+    DefaultMediaWiki(final DefaultMediaWikiData mediaWikiData,
+            final MediaWikiConfiguration configuration,
+            final HttpConnectionPool connectionPool) {
         Preconditions.checkNotNull(mediaWikiData);
         Preconditions.checkNotNull(configuration);
+        Preconditions.checkNotNull(connectionPool);
 
         this.mediaWikiData = mediaWikiData;
         this.configuration = configuration;
+        this.connectionPool = connectionPool;
 
-        httpClient = HttpClients.createDefault();
+        scheduler =
+                connectionPool.getScheduler(mediaWikiData.getApiUri()
+                        .getHost());
+        executor = Executors.newCachedThreadPool(WORKER_THREAD_FACTORY);
     }
 
     @Override
     public void close() throws IOException {
-        httpClient.close();
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            unregisterMXBean();
+        } finally {
+            connectionPool.close();
+        }
     }
 
-    private int getContribCount(final Map<String, String> arguments)
+    /**
+     * Continues counting the contributions of a request that has already
+     * returned the specified number of contributions.
+     *
+     * @param arguments the arguments of the first request
+     * @param limit the maximum number of contributions to count
+     * @param initialCount the number of contributions already counted
+     * @param initialContinuation the continuation arguments of the last
+     *        request
+     * @return the number of contributions
+     * @throws MediaWikiException if an error occurs during the requests
+     */
+    int continueContribCount(final Map<String, String> arguments,
+            final int limit, final int initialCount,
+            final Optional<Map<String, String>> initialContinuation)
             throws MediaWikiException {
-        JSONObject result =
-                performJsonRequest(ApiConstants.ACTION_QUERY, arguments);
-        MediaWikiUtils.requireJsonFields(result,
-                ApiConstants.RESULT_USERCONTRIBS);
-        JSONArray contributions =
-                result.getJSONArray(ApiConstants.RESULT_USERCONTRIBS);
-        return contributions.length();
+        int count = initialCount;
+        Optional<Map<String, String>> continuation = initialContinuation;
+        while (count < limit && continuation.isPresent()) {
+            Map<String, String> pageArguments =
+                    ApiRequests.continued(arguments, continuation.get());
+            pageArguments.put(ApiConstants.UC_LIMIT,
+                    Integer.toString(limit - count));
+            StreamingResponses.ListCount page =
+                    performJsonRequest(ApiConstants.ACTION_QUERY,
+                            pageArguments, StreamingResponses.CONTRIB_COUNT);
+            count += page.getCount();
+            continuation = page.getContinuation();
+        }
+        return Math.min(count, limit);
+    }
+
+    @Override
+    public ActivityProfile getActivityProfile(final String user,
+            final List<Set<Namespace>> namespaceSets, final DateTime endDate,
+            final List<Period> periods) throws MediaWikiException {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(endDate);
+        Preconditions.checkArgument(!namespaceSets.isEmpty());
+        Preconditions.checkArgument(!periods.isEmpty());
+
+        Set<Namespace> namespaces = EnumSet.noneOf(Namespace.class);
+        for (Set<Namespace> namespaceSet : namespaceSets) {
+            if (namespaceSet.isEmpty()) {
+                namespaces.clear();
+                break;
+            }
+            namespaces.addAll(namespaceSet);
+        }
+        DateTime startDate = endDate;
+        for (Period period : periods) {
+            DateTime periodStart = endDate.minus(period);
+            if (periodStart.isBefore(startDate)) {
+                startDate = periodStart;
+            }
+        }
+
+        ContributionHistory history =
+                getContributionHistory(user, namespaces,
+                        ApiRequests.contributionHistory(user, namespaces,
+                                startDate, endDate));
+        return new ActivityProfile(history, endDate, namespaceSets, periods);
+    }
+
+    private int getContribCount(final Map<String, String> arguments,
+            final int limit) throws MediaWikiException {
+        Map<String, String> noContinuation = Collections.emptyMap();
+        return continueContribCount(arguments, limit, 0,
+                Optional.of(noContinuation));
     }
 
     @Override
@@ -131,9 +315,16 @@ public final class DefaultMediaWiki implements MediaWiki {
         Preconditions.checkNotNull(namespaces);
         Preconditions.checkArgument(limit > 0);
 
+        if (isEditCountApplicable(namespaces)) {
+            JSONObject result =
+                    performJsonRequest(ApiConstants.ACTION_QUERY,
+                            ApiRequests.editCount(user));
+            return Math.min(ApiResponses.parseEditCount(result), limit);
+        }
+
         Map<String, String> arguments =
-                getContribCountArguments(user, limit, namespaces);
-        return getContribCount(arguments);
+                ApiRequests.contribCount(user, limit, namespaces);
+        return getContribCount(arguments, limit);
     }
 
     @Override
@@ -146,8 +337,8 @@ public final class DefaultMediaWiki implements MediaWiki {
         Preconditions.checkArgument(limit > 0);
 
         Map<String, String> arguments =
-                getContribCountArguments(user, limit, namespaces, endDate);
-        return getContribCount(arguments);
+                ApiRequests.contribCount(user, limit, namespaces, endDate);
+        return getContribCount(arguments, limit);
     }
 
     @Override
@@ -161,47 +352,87 @@ public final class DefaultMediaWiki implements MediaWiki {
         Preconditions.checkArgument(limit > 0);
 
         Map<String, String> arguments =
-                getContribCountArguments(user, limit, namespaces, endDate,
+                ApiRequests.contribCount(user, limit, namespaces, endDate,
                         period);
-        return getContribCount(arguments);
+        return getContribCount(arguments, limit);
     }
 
-    private Map<String, String> getContribCountArguments(final String user,
-            final int limit, final Set<Namespace> namespaces) {
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERCONTRIBS);
-        arguments.put(ApiConstants.UC_LIMIT, Integer.toString(limit));
-        arguments.put(ApiConstants.UC_USER, user);
-        arguments.put(ApiConstants.UC_PROP, "");
-        arguments.put(ApiConstants.UC_DIR, ApiConstants.UC_DIR_NEWER);
+    @Override
+    public ContributionHistory getContributionHistory(final String user,
+            final Set<Namespace> namespaces) throws MediaWikiException {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+
+        return getContributionHistory(user, namespaces,
+                ApiRequests.contributionHistory(user, namespaces));
+    }
 
-        if (!namespaces.isEmpty()) {
-            String namespacesString =
-                    StringUtils.join(namespaces, ApiConstants.SEPARATOR);
-            arguments.put(ApiConstants.UC_NAMESPACE, namespacesString);
-        }
+    @Override
+    public ContributionHistory getContributionHistory(final String user,
+            final Set<Namespace> namespaces, final DateTime startDate)
+            throws MediaWikiException {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+        Preconditions.checkNotNull(startDate);
 
-        return arguments;
+        return getContributionHistory(user, namespaces,
+                ApiRequests.contributionHistory(user, namespaces, startDate));
     }
 
-    private Map<String, String> getContribCountArguments(final String user,
-            final int limit, final Set<Namespace> namespaces,
-            final DateTime endDate) {
-        Map<String, String> arguments =
-                getContribCountArguments(user, limit, namespaces);
-        arguments.put(ApiConstants.UC_END, MediaWikiUtils
-                .formatApiDate(endDate));
-        return arguments;
+    private ContributionHistory getContributionHistory(final String user,
+            final Set<Namespace> namespaces,
+            final Map<String, String> arguments) throws MediaWikiException {
+        // a single namespace is not listed for every contribution
+        Optional<Namespace> namespace = Optional.absent();
+        if (namespaces.size() == 1) {
+            namespace = Optional.of(Iterables.getOnlyElement(namespaces));
+        }
+        ContributionHistory history = new ContributionHistory(user);
+        ContributionHistory page = new ContributionHistory(user);
+        Map<String, String> pageArguments = arguments;
+        Optional<Map<String, String>> continuation;
+        do {
+            continuation =
+                    performJsonRequest(ApiConstants.ACTION_QUERY,
+                            pageArguments,
+                            StreamingResponses.contributionHistory(page,
+                                    namespace));
+            history.addAll(page);
+            if (continuation.isPresent()) {
+                pageArguments =
+                        ApiRequests.continued(arguments, continuation.get());
+            }
+        } while (continuation.isPresent());
+        history.trimToSize();
+        return history;
     }
 
-    private Map<String, String> getContribCountArguments(final String user,
-            final int limit, final Set<Namespace> namespaces,
-            final DateTime endDate, final Period period) {
-        Map<String, String> arguments =
-                getContribCountArguments(user, limit, namespaces, endDate);
-        arguments.put(ApiConstants.UC_START, MediaWikiUtils
-                .formatApiDate(endDate.minus(period)));
-        return arguments;
+    @Override
+    public Iterator<Contribution> getContributions(final String user,
+            final Set<Namespace> namespaces) throws MediaWikiException {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkNotNull(namespaces);
+
+        final Map<String, String> arguments =
+                ApiRequests.contributions(user, namespaces);
+        PagingIterator.PageLoader<Contribution> loader =
+                new PagingIterator.PageLoader<Contribution>() {
+                    @Override
+                    public ResultPage<Contribution> loadPage(
+                            final Map<String, String> continuation)
+                            throws MediaWikiException {
+                        return getContributionPage(ApiRequests.continued(
+                                arguments, continuation));
+                    }
+                };
+        return new PagingIterator<>(getContributionPage(arguments), loader,
+                executor);
+    }
+
+    private ResultPage<Contribution> getContributionPage(
+            final Map<String, String> arguments) throws MediaWikiException {
+        return performJsonRequest(ApiConstants.ACTION_QUERY, arguments,
+                StreamingResponses.CONTRIBUTIONS);
     }
 
     @Override
@@ -209,31 +440,80 @@ public final class DefaultMediaWiki implements MediaWiki {
             throws MediaWikiException {
         Preconditions.checkNotNull(user);
 
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERCONTRIBS);
-        arguments.put(ApiConstants.UC_DIR, ApiConstants.UC_DIR_NEWER);
-        arguments.put(ApiConstants.UC_LIMIT, Integer.toString(1));
-        arguments.put(ApiConstants.UC_USER, user);
-
+        Map<String, String> arguments = ApiRequests.firstEdit(user);
         JSONObject result =
                 performJsonRequest(ApiConstants.ACTION_QUERY, arguments);
-        MediaWikiUtils.requireJsonFields(result,
-                ApiConstants.RESULT_USERCONTRIBS);
-        JSONArray contributions =
-                result.getJSONArray(ApiConstants.RESULT_USERCONTRIBS);
-        Optional<DateTime> firstEdit = Optional.absent();
-        if (contributions.length() > 0) {
-            JSONObject contribution = contributions.getJSONObject(0);
-            MediaWikiUtils.requireJsonFields(contribution,
-                    ApiConstants.RESULT_UC_TIMESTAMP);
-            String firstEditTimestamp =
-                    contribution.getString(ApiConstants.RESULT_UC_TIMESTAMP);
-            DateTime firstEditDate =
-                    MediaWikiUtils.parseApiTimestamp(firstEditTimestamp);
-            firstEdit = Optional.of(firstEditDate);
+        return ApiResponses.parseFirstEdit(result);
+    }
+
+    @Override
+    public Map<String, Optional<DateTime>> getFirstEdits(
+            final Collection<String> users) throws MediaWikiException {
+        Preconditions.checkNotNull(users);
+        for (String user : users) {
+            Preconditions.checkNotNull(user);
+            Preconditions.checkArgument(
+                    !user.contains(ApiConstants.SEPARATOR),
+                    "User name may not contain the separator");
+        }
 
+        Map<String, String> normalizedUsers = new LinkedHashMap<>();
+        for (String user : users) {
+            String normalizedUser = MediaWikiUtils.normalizeUserName(user);
+            if (!normalizedUsers.containsKey(normalizedUser)) {
+                normalizedUsers.put(normalizedUser, user);
+            }
+        }
+        Map<String, Optional<DateTime>> firstEdits = new LinkedHashMap<>();
+        if (normalizedUsers.isEmpty()) {
+            return firstEdits;
+        }
+
+        // multi-user usercontribs requests are sorted by user first, so
+        // they list the first edits of active users one user per page;
+        // a single-row request per user is cheaper
+        final Queue<Map.Entry<String, String>> pending =
+                new ConcurrentLinkedQueue<>(normalizedUsers.entrySet());
+        final Map<String, Optional<DateTime>> results =
+                new ConcurrentHashMap<>();
+        int parallelism =
+                Math.min(pending.size(),
+                        configuration.getMaxConnectionsPerRoute());
+        List<Future<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws MediaWikiException {
+                    Map.Entry<String, String> user = pending.poll();
+                    while (user != null) {
+                        results.put(user.getKey(),
+                                getFirstEdit(user.getValue()));
+                        user = pending.poll();
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> worker : workers) {
+                Uninterruptibles.getUninterruptibly(worker);
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            Throwables.propagateIfInstanceOf(cause, MediaWikiException.class);
+            throw Throwables.propagate(cause);
+        } finally {
+            pending.clear();
+            for (Future<Void> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+
+        for (String user : users) {
+            firstEdits.put(user,
+                    results.get(MediaWikiUtils.normalizeUserName(user)));
         }
-        return firstEdit;
+        return firstEdits;
     }
 
     @Override
@@ -245,60 +525,93 @@ public final class DefaultMediaWiki implements MediaWiki {
     public String getToken(final TokenType type) throws MediaWikiException {
         Preconditions.checkNotNull(type);
 
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.TOKENS_TYPE, type.getValue());
+        return getTokens(EnumSet.of(type)).get(type);
+    }
 
-        JSONObject result =
-                performJsonRequest(ApiConstants.ACTION_TOKENS, arguments);
-        String tokenResultKey =
-                String.format(ApiConstants.RESULT_TOKENS, type.getValue());
-        MediaWikiUtils.requireJsonFields(result, tokenResultKey);
-        String token = result.getString(tokenResultKey);
-        return token;
+    @Override
+    public Map<TokenType, String> getTokens(final Set<TokenType> types)
+            throws MediaWikiException {
+        Preconditions.checkNotNull(types);
+
+        Map<TokenType, String> tokens = tokenCache.get(types);
+        Set<TokenType> missingTypes =
+                Sets.difference(types, tokens.keySet()).immutableCopy();
+        if (!missingTypes.isEmpty()) {
+            tokens.putAll(requestTokens(missingTypes));
+        }
+        return tokens;
     }
 
     @Override
     public UserData getUserData(final String user) throws MediaWikiException {
         Preconditions.checkNotNull(user);
 
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.LIST, ApiConstants.LIST_USERS);
-        arguments.put(ApiConstants.US_PROP, ApiConstants.US_PROP_REGISTRATION);
-        arguments.put(ApiConstants.US_USERS, user);
-
+        Map<String, String> arguments = ApiRequests.userData(user);
         JSONObject result =
                 performJsonRequest(ApiConstants.ACTION_QUERY, arguments);
-        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_USERS);
-        JSONArray users = result.getJSONArray(ApiConstants.RESULT_USERS);
-        MediaWikiUtils.requireJsonLength(users, 1);
-        JSONObject userObject = users.getJSONObject(0);
-        if (userObject.has(ApiConstants.RESULT_US_MISSING)) {
-            throw new NoSuchUserException(user);
-        }
-
-        MediaWikiUtils.requireJsonFields(userObject,
-                ApiConstants.RESULT_US_NAME, ApiConstants.RESULT_US_ID,
-                ApiConstants.RESULT_US_REGISTRATION);
+        return ApiResponses.parseUserData(result, user);
+    }
 
-        String userName = userObject.getString(ApiConstants.RESULT_US_NAME);
-        int userId = userObject.getInt(ApiConstants.RESULT_US_ID);
-        String registrationString =
-                userObject.getString(ApiConstants.RESULT_US_REGISTRATION);
-        DateTime registrationDate =
-                MediaWikiUtils.parseApiTimestamp(registrationString);
+    @Override
+    public Map<String, Optional<UserData>> getUserData(
+            final Collection<String> users) throws MediaWikiException {
+        Preconditions.checkNotNull(users);
+        for (String user : users) {
+            Preconditions.checkNotNull(user);
+            Preconditions.checkArgument(
+                    !user.contains(ApiConstants.SEPARATOR),
+                    "User name may not contain the separator");
+        }
 
-        return new DefaultUserData(userName, userId, registrationDate);
+        List<String> userList = new ArrayList<>(new LinkedHashSet<>(users));
+        Map<String, Optional<UserData>> userData = new LinkedHashMap<>();
+        if (userList.isEmpty()) {
+            return userData;
+        }
+        for (List<String> batch : Lists.partition(userList, getValuesLimit())) {
+            Map<String, String> arguments = ApiRequests.userData(batch);
+            JSONObject result =
+                    performJsonRequest(ApiConstants.ACTION_QUERY, arguments);
+            userData.putAll(ApiResponses.parseUserData(result, batch));
+        }
+        return userData;
     }
 
-    private void handleLoginResult(final String result, final String user)
-            throws MediaWikiException {
-        if (result.equals(ApiConstants.RESULT_LG_NOT_EXISTS)) {
-            throw new NoSuchUserException(user);
-        } else if (result.equals(ApiConstants.RESULT_LG_WRONG_PASS)) {
-            throw new WrongPasswordException();
-        } else if (!result.equals(ApiConstants.RESULT_LG_SUCCESS)) {
-            throw new MediaWikiException(result);
+    /**
+     * Returns the maximum number of values for multi-value arguments.  The
+     * limit depends on the rights of the current user and is only requested
+     * once.
+     *
+     * @return the maximum number of values for multi-value arguments
+     * @throws MediaWikiException if an error occurs during the request
+     */
+    int getValuesLimit() throws MediaWikiException {
+        Integer limit = valuesLimit;
+        if (limit == null) {
+            JSONObject result =
+                    performJsonRequest(ApiConstants.ACTION_QUERY,
+                            ApiRequests.userRights());
+            if (ApiResponses.parseApiHighLimits(result)) {
+                limit = ApiConstants.LIMIT_VALUES_HIGH;
+            } else {
+                limit = ApiConstants.LIMIT_VALUES;
+            }
+            valuesLimit = limit;
         }
+        return limit;
+    }
+
+    /**
+     * Returns whether contributions in the specified namespaces should be
+     * counted using the edit count of the user.
+     *
+     * @param namespaces the namespaces to count the contributions in
+     * @return whether the edit count should be used
+     */
+    boolean isEditCountApplicable(final Set<Namespace> namespaces) {
+        return namespaces.isEmpty()
+                && configuration.getContribCountMode()
+                    == ContribCountMode.EDIT_COUNT;
     }
 
     @Override
@@ -309,21 +622,14 @@ public final class DefaultMediaWiki implements MediaWiki {
         Preconditions.checkArgument(!user.isEmpty());
         Preconditions.checkArgument(!password.isEmpty());
 
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.LG_NAME, user);
-        arguments.put(ApiConstants.LG_PASSWORD, password);
-
+        Map<String, String> arguments = ApiRequests.login(user, password);
         JSONObject result =
                 performJsonRequest(ApiConstants.ACTION_LOGIN, arguments);
-        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_LG_RESULT);
-        String loginResult = result.getString(ApiConstants.RESULT_LG_RESULT);
-        if (loginResult.equals(ApiConstants.RESULT_LG_NEED_TOKEN)) {
-            MediaWikiUtils.requireJsonFields(result,
-                    ApiConstants.RESULT_LG_TOKEN);
-            String token = result.getString(ApiConstants.RESULT_LG_TOKEN);
-            login(user, password, token);
-        } else {
-            handleLoginResult(loginResult, user);
+        valuesLimit = null;
+        tokenCache.clear();
+        Optional<String> token = ApiResponses.parseLogin(result, user);
+        if (token.isPresent()) {
+            login(user, password, token.get());
         }
     }
 
@@ -337,23 +643,29 @@ public final class DefaultMediaWiki implements MediaWiki {
         Preconditions.checkArgument(!password.isEmpty());
         Preconditions.checkArgument(!token.isEmpty());
 
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.LG_NAME, user);
-        arguments.put(ApiConstants.LG_PASSWORD, password);
-        arguments.put(ApiConstants.LG_TOKEN, token);
-
+        Map<String, String> arguments =
+                ApiRequests.login(user, password, token);
         JSONObject result =
                 performJsonRequest(ApiConstants.ACTION_LOGIN, arguments);
-        MediaWikiUtils.requireJsonFields(result, ApiConstants.RESULT_LG_RESULT);
-        String loginResult = result.getString(ApiConstants.RESULT_LG_RESULT);
-        handleLoginResult(loginResult, user);
+        valuesLimit = null;
+        tokenCache.clear();
+        Optional<String> loginToken = ApiResponses.parseLogin(result, user);
+        if (loginToken.isPresent()) {
+            throw new MediaWikiException(
+                    ApiConstants.RESULT_LG_NEED_TOKEN);
+        }
     }
 
     @Override
     public void logout() throws MediaWikiException {
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put(ApiConstants.ACTION, ApiConstants.ACTION_LOGOUT);
-        performRequest(arguments);
+        performRequest(ApiRequests.logout());
+        valuesLimit = null;
+        tokenCache.clear();
+    }
+
+    @Override
+    public QueryBatch newQueryBatch() {
+        return new DefaultQueryBatch(this);
     }
 
     @Override
@@ -365,25 +677,64 @@ public final class DefaultMediaWiki implements MediaWiki {
                 "Action may not be empty");
 
         String modifiedAction = action.toLowerCase();
-        Map<String, String> modifiedArguments =
-                new HashMap<String, String>(arguments);
-        modifiedArguments.put(ApiConstants.FORMAT, ApiConstants.FORMAT_JSON);
-        modifiedArguments.put(ApiConstants.ACTION, modifiedAction);
+        JSONObject root;
+        try {
+            root = performJsonRequestRoot(modifiedAction, arguments);
+        } catch (ApiErrorException exception) {
+            if (!TokenCache.isBadTokenError(exception)) {
+                throw exception;
+            }
+            Map<TokenType, String> invalidTokens =
+                    tokenCache.invalidate(arguments);
+            if (invalidTokens.isEmpty()) {
+                throw exception;
+            }
+            Map<TokenType, String> tokens =
+                    requestTokens(invalidTokens.keySet());
+            root =
+                    performJsonRequestRoot(modifiedAction, TokenCache
+                            .replaceTokens(arguments, invalidTokens, tokens));
+        }
+        return ApiResponses.parseActionResult(root, modifiedAction);
+    }
 
-        String result = performRequest(modifiedArguments);
-        JSONObject root = new JSONObject(result);
+    private <T> T performJsonRequest(final String action,
+            final Map<String, String> arguments, final EntityReader<T> reader)
+            throws MediaWikiException {
+        return performRequest(ApiRequests.json(action, arguments), reader);
+    }
 
-        if (root.has(ApiConstants.RESULT_ERROR)) {
-            JSONObject error = root.getJSONObject(ApiConstants.RESULT_ERROR);
-            String errorCode = error.getString(ApiConstants.RESULT_ERROR_CODE);
-            throw new MediaWikiException(errorCode);
+    /**
+     * Performs a JSON request on the specified action and returns the
+     * complete response.  The response cache is used if it is configured.
+     *
+     * @param action the name of the action to request
+     * @param arguments the arguments to pass to the API
+     * @return the JSON response
+     * @throws MediaWikiException if an error occurs during the request
+     */
+    JSONObject performJsonRequestRoot(final String action,
+            final Map<String, String> arguments) throws MediaWikiException {
+        Map<String, String> requestArguments =
+                ApiRequests.json(action, arguments);
+        Optional<ResponseCache> responseCache =
+                configuration.getResponseCache();
+        if (!responseCache.isPresent()
+                || !ApiRequests.isCacheable(requestArguments)) {
+            return performRequest(requestArguments, JsonResponse.READER)
+                    .takeRoot();
         }
 
-        JSONObject returnValue = new JSONObject();
-        if (root.has(modifiedAction)) {
-            returnValue = root.getJSONObject(modifiedAction);
+        URI apiUri = mediaWikiData.getApiUri();
+        Optional<String> cachedResult =
+                responseCache.get().get(apiUri, requestArguments);
+        if (cachedResult.isPresent()) {
+            return ApiResponses.parseJsonRoot(cachedResult.get());
         }
-        return returnValue;
+        JsonResponse response =
+                performRequest(requestArguments, JsonResponse.READER);
+        responseCache.get().put(apiUri, requestArguments, response.text);
+        return response.takeRoot();
     }
 
     @Override
@@ -391,35 +742,162 @@ public final class DefaultMediaWiki implements MediaWiki {
             throws MediaWikiException {
         Preconditions.checkNotNull(arguments);
 
-        HttpPost httpPost = new HttpPost(mediaWikiData.getApiUri());
-        List<NameValuePair> nameValuePairs =
-                MediaWikiUtils.mapToNameValuePairs(arguments);
-        UrlEncodedFormEntity argumentsEntity;
+        return performRequest(arguments, EntityReader.STRING);
+    }
+
+    private <T> T performRequest(final Map<String, String> arguments,
+            final EntityReader<T> reader) throws MediaWikiException {
+        if (!configuration.isRequestCoalescingEnabled()
+                || !ApiRequests.isIdempotent(arguments)) {
+            return performUncoalescedRequest(arguments, reader);
+        }
+
+        // The reader is part of the key as readers with state must not
+        // share their results, and the session as the result may depend on
+        // the logged in user.  All shared readers return immutable results,
+        // except for JSON responses, which hand out their tree only once.
+        List<Object> key =
+                Arrays.asList(reader, tokenCache.getSession(),
+                        ImmutableMap.copyOf(arguments));
+        return requestCoalescer.execute(key, new Callable<T>() {
+            @Override
+            public T call() throws MediaWikiException {
+                return performUncoalescedRequest(arguments, reader);
+            }
+        });
+    }
+
+    private <T> T performUncoalescedRequest(
+            final Map<String, String> arguments, final EntityReader<T> reader)
+            throws MediaWikiException {
+        HttpPost httpPost =
+                ApiRequests.newHttpPost(mediaWikiData.getApiUri(),
+                        scheduler.addMaxLag(arguments),
+                        configuration.getUserAgent());
+        boolean idempotent = ApiRequests.isIdempotent(arguments);
+        String host = mediaWikiData.getApiUri().getHost();
+        String module = ApiRequests.getModule(arguments);
+        MetricsListener metricsListener = configuration.getMetricsListener();
+        ApiTransport transport = configuration.getTransport();
+
+        Optional<Duration> delay = Optional.absent();
+        for (int attempt = 1;; attempt++) {
+            waitForScheduler(delay);
+            RequestTimer timer = new RequestTimer(host, module, attempt);
+            statistics.requestStarted();
+            HttpClientContext context = HttpClientContext.create();
+            context.setAttribute(RequestTimer.ATTRIBUTE, timer);
+            CloseableHttpResponse response = null;
+            try {
+                response =
+                        transport.execute(connectionPool.getHttpClient(),
+                                httpPost, arguments, context);
+                timer.markResponseIfAbsent(
+                        response.getStatusLine().getStatusCode());
+                delay = scheduler.getRetryDelay(response, attempt, idempotent);
+                if (!delay.isPresent()) {
+                    return readResponse(response, reader);
+                }
+            } catch (ApiErrorException exception) {
+                timer.setErrorCode(exception.getErrorCode());
+                throw exception;
+            } catch (IOException exception) {
+                delay =
+                        scheduler.getRetryDelay(exception, attempt,
+                                idempotent);
+                if (!delay.isPresent()) {
+                    throw new MediaWikiException(
+                            "An error occured during the API query.",
+                            exception);
+                }
+            } finally {
+                MediaWikiUtils.close(response);
+                RequestMetrics metrics = timer.finish();
+                statistics.requestFinished(metrics);
+                metricsListener.requestCompleted(metrics);
+            }
+        }
+    }
+
+    /**
+     * Registers a {@link MediaWikiMXBean} for this instance at the specified
+     * MBean server.  The MXBean is unregistered when this instance is
+     * closed.  If the registration fails, this instance is not affected.
+     *
+     * @param server the MBean server to register the MXBean at
+     * @return true if the MXBean has been registered, otherwise false
+     * @throws IllegalStateException if the MXBean has already been
+     *         registered
+     */
+    synchronized boolean registerMXBean(final MBeanServer server) {
+        Preconditions.checkNotNull(server);
+        Preconditions.checkState(objectName == null);
+
+        MediaWikiMonitor monitor =
+                new MediaWikiMonitor(mediaWikiData.getApiUri(),
+                        connectionPool, statistics, requestCoalescer,
+                        tokenCache, configuration.getResponseCache());
         try {
-            argumentsEntity = new UrlEncodedFormEntity(nameValuePairs);
-        } catch (UnsupportedEncodingException exception) {
-            throw new MediaWikiException(exception);
+            ObjectName name =
+                    MediaWikiMonitor.newObjectName(mediaWikiData.getApiUri());
+            server.registerMBean(monitor, name);
+            mbeanServer = server;
+            objectName = name;
+            return true;
+        } catch (JMException exception) {
+            return false;
         }
-        httpPost.setEntity(argumentsEntity);
-        httpPost.setHeader(HEADER_USER_AGENT, configuration.getUserAgent());
+    }
+
+    private Map<TokenType, String> requestTokens(final Set<TokenType> types)
+            throws MediaWikiException {
+        long session = tokenCache.getSession();
+        JSONObject result =
+                performJsonRequest(ApiConstants.ACTION_TOKENS,
+                        ApiRequests.tokens(types));
+        Map<TokenType, String> tokens = ApiResponses.parseTokens(result, types);
+        tokenCache.put(session, tokens);
+        return tokens;
+    }
 
-        CloseableHttpResponse response = null;
-        String result;
+    private synchronized void unregisterMXBean() throws IOException {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            mbeanServer.unregisterMBean(objectName);
+        } catch (JMException exception) {
+            throw new IOException("Could not unregister the MXBean.",
+                    exception);
+        } finally {
+            objectName = null;
+            mbeanServer = null;
+        }
+    }
+
+    private void waitForScheduler(final Optional<Duration> retryDelay)
+            throws MediaWikiException {
         try {
-            response = httpClient.execute(httpPost);
-            StatusLine statusLine = response.getStatusLine();
-            if (statusLine.getStatusCode() != HttpStatus.SC_OK) {
-                throw HttpMediaWikiException.newInstance(statusLine);
+            if (retryDelay.isPresent()) {
+                scheduler.acquireRetry(retryDelay.get());
+            } else {
+                scheduler.acquire();
             }
-            result = EntityUtils.toString(response.getEntity());
-        } catch (IOException exception) {
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
             throw new MediaWikiException(
-                    "An error occured during the API query.", exception);
-        } finally {
-            MediaWikiUtils.close(response);
+                    "Interrupted while waiting for the API.", exception);
         }
+    }
 
-        return result;
+    private static <T> T readResponse(final HttpResponse response,
+            final EntityReader<T> reader) throws IOException,
+            MediaWikiException {
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() != HttpStatus.SC_OK) {
+            throw HttpMediaWikiException.newInstance(statusLine);
+        }
+        return reader.read(response.getEntity());
     }
 
 }
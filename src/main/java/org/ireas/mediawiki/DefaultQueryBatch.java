@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+import org.json.JSONObject;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+
+/**
+ * Default implementation of {@link QueryBatch} for a {@link
+ * DefaultMediaWiki}.
+ *
+ * @author ireas
+ */
+final class DefaultQueryBatch implements QueryBatch {
+
+    private abstract static class SubQuery<T> {
+
+        private final BatchResult<T> result = new BatchResult<>();
+
+        public void complete(final JSONObject root)
+                throws MediaWikiException {
+            result.set(parse(root));
+        }
+
+        public BatchResult<T> getResult() {
+            return result;
+        }
+
+        protected abstract T parse(JSONObject root)
+                throws MediaWikiException;
+
+    }
+
+    private final Map<Map<String, String>, List<SubQuery<?>>> contribQueries =
+            new LinkedHashMap<>();
+
+    private boolean executed = false;
+
+    private final DefaultMediaWiki mediaWiki;
+
+    private final Map<TokenType, BatchResult<String>> tokenResults =
+            new EnumMap<>(TokenType.class);
+
+    private final ListMultimap<String, SubQuery<?>> userQueries =
+            LinkedListMultimap.create();
+
+    private final Set<String> userProperties = new LinkedHashSet<>();
+
+    /**
+     * Constructs a new batch for the specified {@code MediaWiki} instance.
+     *
+     * @param mediaWiki the {@code MediaWiki} instance to send the requests
+     *        with
+     */
+    public DefaultQueryBatch(final DefaultMediaWiki mediaWiki) {
+        Preconditions.checkNotNull(mediaWiki);
+
+        this.mediaWiki = mediaWiki;
+    }
+
+    private <T> BatchResult<T> addContribQuery(
+            final Map<String, String> arguments, final SubQuery<T> query) {
+        List<SubQuery<?>> queries = contribQueries.get(arguments);
+        if (queries == null) {
+            queries = new ArrayList<>();
+            contribQueries.put(arguments, queries);
+        }
+        queries.add(query);
+        return query.getResult();
+    }
+
+    @Override
+    public BatchResult<Integer> addContribCount(final String user,
+            final int limit) {
+        Set<Namespace> namespaces = Collections.emptySet();
+        return addContribCount(user, limit, namespaces);
+    }
+
+    @Override
+    public BatchResult<Integer> addContribCount(final String user,
+            final int limit, final Set<Namespace> namespaces) {
+        checkUser(user);
+        Preconditions.checkNotNull(namespaces);
+        Preconditions.checkArgument(limit > 0);
+
+        if (mediaWiki.isEditCountApplicable(namespaces)) {
+            return addUserQuery(user, ApiConstants.US_PROP_EDIT_COUNT,
+                    new SubQuery<Integer>() {
+                        @Override
+                        protected Integer parse(final JSONObject root) {
+                            JSONObject result = getQueryResult(root);
+                            return Math.min(
+                                    ApiResponses.parseEditCount(result, user),
+                                    limit);
+                        }
+                    });
+        }
+
+        final Map<String, String> arguments =
+                ApiRequests.contribCount(user, limit, namespaces);
+        return addContribQuery(arguments, new SubQuery<Integer>() {
+            @Override
+            protected Integer parse(final JSONObject root)
+                    throws MediaWikiException {
+                int count =
+                        ApiResponses.parseContribCount(getQueryResult(root));
+                return mediaWiki.continueContribCount(arguments, limit,
+                        count, ApiResponses.parseContinuation(root));
+            }
+        });
+    }
+
+    @Override
+    public BatchResult<Optional<DateTime>> addFirstEdit(final String user) {
+        checkUser(user);
+
+        return addContribQuery(ApiRequests.firstEdit(user),
+                new SubQuery<Optional<DateTime>>() {
+                    @Override
+                    protected Optional<DateTime> parse(
+                            final JSONObject root) {
+                        return ApiResponses.parseFirstEdit(
+                                getQueryResult(root));
+                    }
+                });
+    }
+
+    @Override
+    public BatchResult<String> addToken(final TokenType type) {
+        Preconditions.checkNotNull(type);
+        checkNotExecuted();
+
+        BatchResult<String> result = tokenResults.get(type);
+        if (result == null) {
+            result = new BatchResult<>();
+            tokenResults.put(type, result);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResult<Optional<UserData>> addUserData(final String user) {
+        checkUser(user);
+
+        return addUserQuery(user, ApiConstants.US_PROP_REGISTRATION,
+                new SubQuery<Optional<UserData>>() {
+                    @Override
+                    protected Optional<UserData> parse(
+                            final JSONObject root) {
+                        return ApiResponses.parseUserData(
+                                getQueryResult(root),
+                                Collections.singletonList(user)).get(user);
+                    }
+                });
+    }
+
+    private <T> BatchResult<T> addUserQuery(final String user,
+            final String property, final SubQuery<T> query) {
+        userProperties.add(property);
+        userQueries.put(user, query);
+        return query.getResult();
+    }
+
+    private void checkNotExecuted() {
+        Preconditions.checkState(!executed,
+                "The batch has already been executed");
+    }
+
+    private void checkUser(final String user) {
+        Preconditions.checkNotNull(user);
+        Preconditions.checkArgument(!user.contains(ApiConstants.SEPARATOR),
+                "User name may not contain the separator");
+        checkNotExecuted();
+    }
+
+    @Override
+    public void execute() throws MediaWikiException {
+        checkNotExecuted();
+        executed = true;
+
+        List<List<String>> userBatches = Collections.emptyList();
+        if (!userQueries.isEmpty()) {
+            List<String> users = new ArrayList<>(userQueries.keySet());
+            int valuesLimit = ApiConstants.LIMIT_VALUES;
+            if (users.size() > valuesLimit) {
+                valuesLimit = mediaWiki.getValuesLimit();
+            }
+            userBatches = Lists.partition(users, valuesLimit);
+        }
+        List<Map<String, String>> contribArguments =
+                new ArrayList<>(contribQueries.keySet());
+
+        int requestCount =
+                Math.max(userBatches.size(), contribArguments.size());
+        for (int i = 0; i < requestCount; i++) {
+            Map<String, String> arguments = new HashMap<>();
+            List<String> lists = new ArrayList<>();
+            List<SubQuery<?>> queries = new ArrayList<>();
+            if (i < userBatches.size()) {
+                List<String> users = userBatches.get(i);
+                lists.add(ApiConstants.LIST_USERS);
+                arguments.put(ApiConstants.US_PROP, StringUtils.join(
+                        userProperties, ApiConstants.SEPARATOR));
+                arguments.put(ApiConstants.US_USERS,
+                        StringUtils.join(users, ApiConstants.SEPARATOR));
+                for (String user : users) {
+                    queries.addAll(userQueries.get(user));
+                }
+            }
+            if (i < contribArguments.size()) {
+                Map<String, String> contribArgument = contribArguments.get(i);
+                arguments.putAll(contribArgument);
+                lists.add(contribArgument.get(ApiConstants.LIST));
+                queries.addAll(contribQueries.get(contribArgument));
+            }
+            arguments.put(ApiConstants.LIST,
+                    StringUtils.join(lists, ApiConstants.SEPARATOR));
+
+            JSONObject root =
+                    mediaWiki.performJsonRequestRoot(
+                            ApiConstants.ACTION_QUERY, arguments);
+            for (SubQuery<?> query : queries) {
+                query.complete(root);
+            }
+        }
+
+        if (!tokenResults.isEmpty()) {
+            Map<TokenType, String> tokens =
+                    mediaWiki.getTokens(tokenResults.keySet());
+            for (Map.Entry<TokenType, BatchResult<String>> entry : tokenResults
+                    .entrySet()) {
+                entry.getValue().set(tokens.get(entry.getKey()));
+            }
+        }
+    }
+
+    private static JSONObject getQueryResult(final JSONObject root) {
+        return ApiResponses.parseActionResult(root, ApiConstants.ACTION_QUERY);
+    }
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Default implementation of the {@code ResponseCache} interface.  The cache
+ * holds a bounded number of responses and evicts the least recently used
+ * responses if the maximum size is reached.
+ * <p>
+ * The time to live of a response is determined by rules that match the
+ * arguments of the request.  A rule applies to all requests that contain
+ * all of its arguments.  If several rules apply, the rule with the most
+ * arguments is used.  Requests that do not match any rule, or whose rule has
+ * a zero time to live, are not cached.  Per default, query requests are
+ * cached for five minutes.  Requests for the registration date of users and
+ * for the first edit of a user are cached for one day, as this data does
+ * not change.  The rule for first edits only applies to responses that
+ * list a contribution; a response without contributions is cached by the
+ * next applicable rule, as the user may start editing at any time.
+ *
+ * @author ireas
+ */
+public final class DefaultResponseCache implements ResponseCache {
+
+    /**
+     * Builder for {@code DefaultResponseCache} objects.  All values are
+     * initialized with the default values and can be changed using the
+     * setter methods.  The setters return the builder itself, so that calls
+     * can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private final Map<Map<String, String>, Duration> rules =
+                new HashMap<>(DEFAULT_RULES);
+
+        private Ticker ticker = Ticker.systemTicker();
+
+        /**
+         * Constructs a new builder using the default values.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Constructs a new cache using the values of this builder.
+         *
+         * @return a new cache with the values of this builder
+         */
+        public DefaultResponseCache build() {
+            return new DefaultResponseCache(this);
+        }
+
+        /**
+         * Sets the maximum number of cached responses.
+         *
+         * @param size the maximum number of cached responses
+         * @return this builder
+         * @throws IllegalArgumentException if the specified size is less
+         *         than one
+         */
+        public Builder setMaximumSize(final long size) {
+            Preconditions.checkArgument(size > 0);
+            maximumSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the ticker that is used to determine whether a cached
+         * response has expired.  This is useful for testing.
+         *
+         * @param cacheTicker the time source for the cache
+         * @return this builder
+         * @throws NullPointerException if the specified ticker is null
+         */
+        public Builder setTicker(final Ticker cacheTicker) {
+            ticker = Preconditions.checkNotNull(cacheTicker);
+            return this;
+        }
+
+        /**
+         * Sets the time to live for requests that contain all of the
+         * specified arguments.  A zero time to live disables caching for
+         * these requests.
+         *
+         * @param arguments the arguments identifying the requests
+         * @param timeToLive the time to live of the responses
+         * @return this builder
+         * @throws NullPointerException if the specified arguments or time
+         *         to live are null
+         * @throws IllegalArgumentException if the specified arguments are
+         *         empty or if the time to live is negative
+         */
+        public Builder setTimeToLive(final Map<String, String> arguments,
+                final Duration timeToLive) {
+            Preconditions.checkNotNull(arguments);
+            Preconditions.checkNotNull(timeToLive);
+            Preconditions.checkArgument(!arguments.isEmpty());
+            Preconditions.checkArgument(timeToLive.getMillis() >= 0);
+            rules.put(ImmutableMap.copyOf(arguments), timeToLive);
+            return this;
+        }
+
+        /**
+         * Sets the time to live for requests of the specified action.  A
+         * zero time to live disables caching for this action.
+         *
+         * @param action the name of the action
+         * @param timeToLive the time to live of the responses
+         * @return this builder
+         * @throws NullPointerException if the specified action or time to
+         *         live are null
+         * @throws IllegalArgumentException if the time to live is negative
+         */
+        public Builder setTimeToLive(final String action,
+                final Duration timeToLive) {
+            Preconditions.checkNotNull(action);
+            return setTimeToLive(
+                    Collections.singletonMap(ApiConstants.ACTION, action),
+                    timeToLive);
+        }
+
+    }
+
+    /**
+     * A cached response together with its expiration time.
+     */
+    private static final class CachedResponse {
+
+        private final String response;
+
+        private final long expirationTime;
+
+        public CachedResponse(final String response,
+                final long expirationTime) {
+            this.response = response;
+            this.expirationTime = expirationTime;
+        }
+
+    }
+
+    /**
+     * Records evictions caused by the size limit or the maximum time to live
+     * in the statistics.
+     */
+    private final class EvictionListener implements
+            RemovalListener<String, CachedResponse> {
+
+        @Override
+        public void onRemoval(final RemovalNotification<String,
+                CachedResponse> notification) {
+            if (notification.wasEvicted()) {
+                statsCounter.recordEviction();
+            }
+        }
+
+    }
+
+    /**
+     * Sorts rules by the number of arguments in descending order, so that
+     * the most specific rule is found first.
+     */
+    private static final class RuleComparator implements
+            Comparator<Map.Entry<Map<String, String>, Duration>> {
+
+        @Override
+        public int compare(final Map.Entry<Map<String, String>, Duration> a,
+                final Map.Entry<Map<String, String>, Duration> b) {
+            return Integer.compare(b.getKey().size(), a.getKey().size());
+        }
+
+    }
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * The arguments of first edit requests.  The rule with these arguments
+     * only applies to responses that list a contribution.
+     */
+    private static final Map<String, String> FIRST_EDIT_ARGUMENTS =
+            ImmutableMap.of(ApiConstants.ACTION, ApiConstants.ACTION_QUERY,
+                    ApiConstants.LIST, ApiConstants.LIST_USERCONTRIBS,
+                    ApiConstants.UC_DIR, ApiConstants.UC_DIR_NEWER,
+                    ApiConstants.UC_LIMIT, Integer.toString(1));
+
+    private static final Map<Map<String, String>, Duration> DEFAULT_RULES =
+            ImmutableMap.<Map<String, String>, Duration>of(
+                    ImmutableMap.of(ApiConstants.ACTION,
+                            ApiConstants.ACTION_QUERY),
+                    Duration.standardMinutes(5),
+                    ImmutableMap.of(ApiConstants.ACTION,
+                            ApiConstants.ACTION_QUERY, ApiConstants.LIST,
+                            ApiConstants.LIST_USERS, ApiConstants.US_PROP,
+                            ApiConstants.US_PROP_REGISTRATION),
+                    Duration.standardDays(1), FIRST_EDIT_ARGUMENTS,
+                    Duration.standardDays(1));
+
+    private final Cache<String, CachedResponse> cache;
+
+    private final AbstractCache.StatsCounter statsCounter =
+            new AbstractCache.SimpleStatsCounter();
+
+    private final List<Map.Entry<Map<String, String>, Duration>> rules;
+
+    private final Ticker ticker;
+
+    /**
+     * Constructs a new cache using the default values.
+     */
+    public DefaultResponseCache() {
+        this(new Builder());
+    }
+
+    private DefaultResponseCache(final Builder builder) {
+        ticker = builder.ticker;
+
+        List<Map.Entry<Map<String, String>, Duration>> sortedRules =
+                new ArrayList<>(builder.rules.entrySet());
+        Collections.sort(sortedRules, new RuleComparator());
+        rules = ImmutableList.copyOf(sortedRules);
+
+        long maxTimeToLive = 0;
+        for (Duration timeToLive : builder.rules.values()) {
+            maxTimeToLive = Math.max(maxTimeToLive, timeToLive.getMillis());
+        }
+        cache =
+                CacheBuilder.newBuilder().maximumSize(builder.maximumSize)
+                        .expireAfterWrite(maxTimeToLive, TimeUnit.MILLISECONDS)
+                        .ticker(ticker)
+                        .removalListener(new EvictionListener()).build();
+    }
+
+    @Override
+    public Optional<String> get(final URI apiUri,
+            final Map<String, String> arguments) {
+        Preconditions.checkNotNull(apiUri);
+        Preconditions.checkNotNull(arguments);
+
+        if (getTimeToLive(arguments).getMillis() == 0) {
+            return Optional.absent();
+        }
+        String key = getKey(apiUri, arguments);
+        CachedResponse cachedResponse = cache.getIfPresent(key);
+        if (cachedResponse != null
+                && cachedResponse.expirationTime - ticker.read() <= 0) {
+            cache.invalidate(key);
+            statsCounter.recordEviction();
+            cachedResponse = null;
+        }
+        if (cachedResponse == null) {
+            statsCounter.recordMisses(1);
+            return Optional.absent();
+        }
+        statsCounter.recordHits(1);
+        return Optional.of(cachedResponse.response);
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return statsCounter.snapshot();
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void put(final URI apiUri, final Map<String, String> arguments,
+            final String response) {
+        Preconditions.checkNotNull(apiUri);
+        Preconditions.checkNotNull(arguments);
+        Preconditions.checkNotNull(response);
+
+        Duration timeToLive = getTimeToLive(arguments, response);
+        if (timeToLive.getMillis() > 0) {
+            long expirationTime =
+                    ticker.read()
+                            + TimeUnit.MILLISECONDS.toNanos(timeToLive
+                                    .getMillis());
+            cache.put(getKey(apiUri, arguments), new CachedResponse(response,
+                    expirationTime));
+        }
+    }
+
+    private Duration getTimeToLive(final Map<String, String> arguments) {
+        for (Map.Entry<Map<String, String>, Duration> rule : rules) {
+            if (arguments.entrySet().containsAll(rule.getKey().entrySet())) {
+                return rule.getValue();
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    private Duration getTimeToLive(final Map<String, String> arguments,
+            final String response) {
+        for (Map.Entry<Map<String, String>, Duration> rule : rules) {
+            if (!arguments.entrySet().containsAll(rule.getKey().entrySet())) {
+                continue;
+            }
+            if (rule.getKey().equals(FIRST_EDIT_ARGUMENTS)
+                    && !hasContributions(response)) {
+                continue;
+            }
+            return rule.getValue();
+        }
+        return Duration.ZERO;
+    }
+
+    private static boolean hasContributions(final String response) {
+        try {
+            JSONArray contributions =
+                    new JSONObject(response).getJSONObject(
+                            ApiConstants.ACTION_QUERY).getJSONArray(
+                            ApiConstants.RESULT_USERCONTRIBS);
+            return contributions.length() > 0;
+        } catch (JSONException exception) {
+            return false;
+        }
+    }
+
+    private static String getKey(final URI apiUri,
+            final Map<String, String> arguments) {
+        return apiUri + "?" + URLEncodedUtils.format(
+                MediaWikiUtils.mapToNameValuePairs(new TreeMap<>(arguments)),
+                StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+
+/**
+ * Reads the entity of a successful API response.  Readers are used by the
+ * {@code MediaWiki} and {@code AsyncMediaWiki} implementations to convert
+ * the response body into the requested result without buffering it as a
+ * string first.
+ *
+ * @author ireas
+ * @param <T> the type of the result
+ */
+interface EntityReader<T> {
+
+    /**
+     * Reads the response body as a string using the charset specified by
+     * the response, or ISO-8859-1 if no charset is specified.
+     */
+    EntityReader<String> STRING = new EntityReader<String>() {
+        @Override
+        public String read(final HttpEntity entity) throws IOException {
+            return EntityUtils.toString(entity);
+        }
+    };
+
+    /**
+     * Reads the specified response entity.
+     *
+     * @param entity the entity of the API response
+     * @return the result read from the entity
+     * @throws IOException if the entity cannot be read
+     * @throws MediaWikiException if the API returned an error
+     * @throws org.ireas.mediawiki.exceptions.InvalidResponseException if the
+     *         response cannot be parsed
+     */
+    T read(HttpEntity entity) throws IOException, MediaWikiException;
+
+}
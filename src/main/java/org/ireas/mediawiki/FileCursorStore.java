@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+/**
+ * Implementation of the {@code CursorStore} interface that persists the
+ * cursors in a local file.  The file is a properties file that maps the
+ * API URI and the user name to the timestamp (in milliseconds since the
+ * epoch) and the revision ID of the cursor.  The file is read when the
+ * store is constructed and rewritten whenever a cursor is changed.  The
+ * new content is written to a temporary file that then replaces the old
+ * file, so that an interrupted write does not corrupt the store.
+ * <p>
+ * A file should only be used by one store at a time.  Changes made to the
+ * file by other processes are not detected.
+ *
+ * @author ireas
+ */
+public final class FileCursorStore implements CursorStore {
+
+    private static final String COMMENT = "Contribution cursors";
+
+    private static final char SEPARATOR = ' ';
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final Splitter VALUE_SPLITTER = Splitter.on(SEPARATOR);
+
+    private final Path file;
+
+    private final Properties cursors = new Properties();
+
+    /**
+     * Constructs a new store that persists the cursors in the specified
+     * file.  If the file exists, the cursors are read from it.
+     *
+     * @param file the file to store the cursors in
+     * @throws IOException if the file exists but cannot be read
+     * @throws NullPointerException if the specified file is null
+     */
+    public FileCursorStore(final Path file) throws IOException {
+        Preconditions.checkNotNull(file);
+
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                cursors.load(inputStream);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Optional<ContributionCursor> get(final URI apiUri,
+            final String user) throws IOException {
+        String value = cursors.getProperty(getKey(apiUri, user));
+        if (value == null) {
+            return Optional.absent();
+        }
+        List<String> fields = VALUE_SPLITTER.splitToList(value);
+        try {
+            if (fields.size() != 2) {
+                throw new NumberFormatException(value);
+            }
+            return Optional.of(new ContributionCursor(
+                    Long.parseLong(fields.get(0)),
+                    Long.parseLong(fields.get(1))));
+        } catch (NumberFormatException exception) {
+            throw new IOException(String.format(
+                    "Invalid cursor for %s in %s: %s", user, file, value),
+                    exception);
+        }
+    }
+
+    /**
+     * Returns the file the cursors are stored in.
+     *
+     * @return the file of this store
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    private static String getKey(final URI apiUri, final String user) {
+        Preconditions.checkNotNull(apiUri);
+        Preconditions.checkNotNull(user);
+
+        return apiUri.toString() + SEPARATOR + user;
+    }
+
+    @Override
+    public synchronized void put(final URI apiUri, final String user,
+            final ContributionCursor cursor) throws IOException {
+        Preconditions.checkNotNull(cursor);
+
+        String key = getKey(apiUri, user);
+        String value =
+                Long.toString(cursor.getTimestamp()) + SEPARATOR
+                        + Long.toString(cursor.getRevisionId());
+        Object previous = cursors.setProperty(key, value);
+        try {
+            write();
+        } catch (IOException exception) {
+            if (previous == null) {
+                cursors.remove(key);
+            } else {
+                cursors.put(key, previous);
+            }
+            throw exception;
+        }
+    }
+
+    @Override
+    public synchronized void remove(final URI apiUri, final String user)
+            throws IOException {
+        String key = getKey(apiUri, user);
+        Object previous = cursors.remove(key);
+        if (previous == null) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException exception) {
+            cursors.put(key, previous);
+            throw exception;
+        }
+    }
+
+    private void write() throws IOException {
+        Path temporaryFile =
+                file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        try (OutputStream outputStream =
+                Files.newOutputStream(temporaryFile)) {
+            cursors.store(outputStream, COMMENT);
+        }
+        try {
+            Files.move(temporaryFile, file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporaryFile, file,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.joda.time.Duration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Pool of HTTP connections used by {@code DefaultMediaWiki} instances.  The
+ * pool is configured using the connection settings of a {@code
+ * MediaWikiConfiguration}.  Unless compression is disabled, the HTTP client
+ * requests gzip or deflate encoded responses and decodes them
+ * transparently.  Requests are executed by a {@link
+ * MeteredRequestExecutor}, so that their phases can be measured.  If the
+ * configuration specifies an idle timeout,
+ * a background thread periodically closes expired and idle connections.
+ * <p>
+ * The pool is reference-counted so that it can be shared by several {@code
+ * MediaWiki} instances.  A new pool has one reference.  Additional
+ * references are acquired using {@link #retain} and released using {@link
+ * #close}.  The connections are closed when the last reference has been
+ * released.
+ *
+ * @author ireas
+ */
+final class HttpConnectionPool implements Closeable {
+
+    private static final ThreadFactory EVICTOR_THREAD_FACTORY =
+            new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("mediawiki-connection-evictor-%d").build();
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final ScheduledExecutorService evictor;
+
+    private final MediaWikiConfiguration configuration;
+
+    private final Map<String, RequestScheduler> schedulers = new HashMap<>();
+
+    private int references = 1;
+
+    /**
+     * Constructs a new connection pool using the connection settings of the
+     * specified configuration.
+     *
+     * @param configuration the configuration to read the connection
+     *        settings from
+     * @throws NullPointerException if the specified configuration is null
+     */
+    public HttpConnectionPool(final MediaWikiConfiguration configuration) {
+        Preconditions.checkNotNull(configuration);
+
+        this.configuration = configuration;
+        connectionManager =
+                new PoolingHttpClientConnectionManager(configuration
+                        .getConnectionTimeToLive().getMillis(),
+                        TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(configuration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration
+                .getMaxConnectionsPerRoute());
+
+        RequestConfig requestConfig =
+                RequestConfig.custom()
+                        .setConnectTimeout(
+                                toMillis(configuration.getConnectTimeout()))
+                        .setSocketTimeout(
+                                toMillis(configuration.getSocketTimeout()))
+                        .setConnectionRequestTimeout(
+                                toMillis(configuration
+                                        .getConnectionRequestTimeout()))
+                        .build();
+
+        HttpClientBuilder clientBuilder =
+                HttpClients.custom().setConnectionManager(connectionManager)
+                        .setDefaultRequestConfig(requestConfig)
+                        .setRequestExecutor(new MeteredRequestExecutor());
+        if (!configuration.isCompressionEnabled()) {
+            clientBuilder.disableContentCompression();
+        }
+        httpClient = clientBuilder.build();
+
+        evictor = startEvictor(configuration.getIdleConnectionTimeout());
+    }
+
+    private static int toMillis(final Duration duration) {
+        return Ints.checkedCast(duration.getMillis());
+    }
+
+    private ScheduledExecutorService startEvictor(
+            final Duration idleTimeout) {
+        if (idleTimeout.getMillis() == 0) {
+            return null;
+        }
+
+        final long idleMillis = idleTimeout.getMillis();
+        ScheduledExecutorService executor =
+                Executors.newSingleThreadScheduledExecutor(
+                        EVICTOR_THREAD_FACTORY);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+        }, idleMillis, idleMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Releases one reference to this pool.  If this was the last reference,
+     * the HTTP client and all pooled connections are closed and the
+     * eviction of idle connections is stopped.  Calling this method on a
+     * closed pool has no effect.
+     *
+     * @throws IOException if an error occurs while closing the HTTP client
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (references == 0) {
+                return;
+            }
+            references--;
+            if (references > 0) {
+                return;
+            }
+        }
+
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        httpClient.close();
+    }
+
+    /**
+     * Closes all expired and idle connections of this pool.  Leased
+     * connections are not affected.
+     */
+    public void closeIdleConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the HTTP client that uses the connections of this pool.
+     *
+     * @return the HTTP client using this pool
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Returns the request scheduler for the specified host.  All {@code
+     * MediaWiki} instances using this pool share one scheduler per host, so
+     * that the request rate limit applies to all of them.
+     *
+     * @param host the API host
+     * @return the request scheduler for the specified host
+     * @throws NullPointerException if the specified host is null
+     */
+    public synchronized RequestScheduler getScheduler(final String host) {
+        Preconditions.checkNotNull(host);
+
+        RequestScheduler scheduler = schedulers.get(host);
+        if (scheduler == null) {
+            scheduler = new RequestScheduler(configuration);
+            schedulers.put(host, scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Returns the current statistics of this pool, i. e. the number of
+     * leased, available and pending connections.
+     *
+     * @return the current pool statistics
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Acquires an additional reference to this pool if it has not been
+     * closed yet.  Each successful call must be followed by a call to
+     * {@link #close} once the pool is no longer used.
+     *
+     * @return true if a reference has been acquired, or false if this pool
+     *         has already been closed
+     */
+    public synchronized boolean retain() {
+        if (references == 0) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error.
+ * Like an HDR histogram, the values are counted in buckets whose width
+ * grows with the magnitude of the values:  values below 64 nanoseconds are
+ * counted exactly, and every further power of two is divided into 32
+ * buckets, so that percentiles are reported with a relative error of at
+ * most 1/32 (about 3 %).  Values above about 36 minutes are counted in
+ * the highest bucket.  The histogram uses a fixed array of counters, so
+ * recording a value does not allocate memory.
+ * <p>
+ * This class is thread-safe.  {@link #snapshot} and {@link #reset} are not
+ * atomic:  values recorded concurrently may or may not be contained in a
+ * snapshot, and may be lost by a reset.
+ *
+ * @author ireas
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Immutable copy of the counters of a histogram.
+     *
+     * @author ireas
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long min;
+
+        private final long max;
+
+        private Snapshot(final long[] counts, final long sum, final long min,
+                final long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            count = total;
+            this.sum = sum;
+            if (count == 0) {
+                this.min = 0;
+            } else {
+                this.min = min;
+            }
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the highest recorded value.
+         *
+         * @return the highest recorded value in nanoseconds, or zero if no
+         *         values have been recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean of the recorded values.
+         *
+         * @return the mean value in nanoseconds, or zero if no values have
+         *         been recorded
+         */
+        public double getMean() {
+            if (count == 0) {
+                return 0;
+            }
+            return (double) sum / count;
+        }
+
+        /**
+         * Returns the lowest recorded value.
+         *
+         * @return the lowest recorded value in nanoseconds, or zero if no
+         *         values have been recorded
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the value at the specified percentile, i. e. a value so
+         * that the specified percentage of the recorded values is less
+         * than or equal to it.  The value is the upper bound of the bucket
+         * containing the percentile, but not more than the highest
+         * recorded value.
+         *
+         * @param percentile the percentile (between 0 and 100)
+         * @return the value at the percentile in nanoseconds, or zero if no
+         *         values have been recorded
+         * @throws IllegalArgumentException if the percentile is not between
+         *         0 and 100
+         */
+        public long getValueAtPercentile(final double percentile) {
+            Preconditions.checkArgument(percentile >= 0
+                    && percentile <= MAX_PERCENTILE);
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank =
+                    Math.max(1, (long) Math.ceil(percentile / MAX_PERCENTILE
+                            * count));
+            long seen = 0;
+            for (int index = 0; index < counts.length; index++) {
+                seen += counts[index];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max,
+                            getHighestValue(index)));
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Snapshot[count=%d,min=%d,mean=%.0f,"
+                    + "p50=%d,p99=%d,max=%d]", count, min, getMean(),
+                    getValueAtPercentile(MEDIAN),
+                    getValueAtPercentile(P99), max);
+        }
+
+    }
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_EXPONENT = 40;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private static final int BUCKET_COUNT = getIndex(MAX_VALUE) + 1;
+
+    private static final double MAX_PERCENTILE = 100;
+
+    private static final double MEDIAN = 50;
+
+    private static final double P99 = 99;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs a new empty histogram.
+     */
+    public LatencyHistogram() {
+    }
+
+    private static long getHighestValue(final int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long lowestValue = (long) (index - shift * SUB_BUCKET_COUNT) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+
+    private static int getIndex(final long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift =
+                Long.SIZE - 1 - Long.numberOfLeadingZeros(value)
+                        - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Records the specified value.  Negative values are recorded as zero.
+     *
+     * @param nanos the value to record in nanoseconds
+     */
+    public void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(getIndex(Math.min(value, MAX_VALUE)));
+        sum.addAndGet(value);
+
+        long currentMin = min.get();
+        while (value < currentMin && !min.compareAndSet(currentMin, value)) {
+            currentMin = min.get();
+        }
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts.set(index, 0);
+        }
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    /**
+     * Returns a copy of the current counters of this histogram.
+     *
+     * @return a snapshot of this histogram
+     */
+    public Snapshot snapshot() {
+        long[] countsCopy = new long[BUCKET_COUNT];
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            countsCopy[index] = counts.get(index);
+        }
+        return new Snapshot(countsCopy, sum.get(), min.get(), max.get());
+    }
+
+}
@@ -23,9 +23,15 @@
 package org.ireas.mediawiki;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.ireas.mediawiki.data.ActivityProfile;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
 import org.ireas.mediawiki.data.MediaWikiData;
 import org.ireas.mediawiki.data.Namespace;
 import org.ireas.mediawiki.data.TokenType;
@@ -34,6 +40,7 @@ import org.ireas.mediawiki.exceptions.HttpMediaWikiException;
 import org.ireas.mediawiki.exceptions.InvalidResponseException;
 import org.ireas.mediawiki.exceptions.MediaWikiException;
 import org.ireas.mediawiki.exceptions.NoSuchUserException;
+import org.ireas.mediawiki.exceptions.UncheckedMediaWikiException;
 import org.ireas.mediawiki.exceptions.WrongPasswordException;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
@@ -61,31 +68,85 @@ import com.google.common.base.Optional;
  *     </tr>
  *     <tr>
  *       <td>{@code action=query&list=usercontribs} (counts)</td>
- *       <td>{@code getContribCount}</td>
+ *       <td>{@code getContribCount}, {@code getActivityProfile}</td>
+ *     </tr>
+ *     <tr>
+ *       <td>{@code action=query&list=usercontribs} (contributions)</td>
+ *       <td>{@code getContributions}, {@code getContributionHistory}</td>
  *     </tr>
  *     <tr>
  *       <td>{@code action=query&list=usercontribs} (first edit)</td>
  *       <td>{@code getFirstEdit}</td>
  *     </tr>
  *     <tr>
+ *       <td>{@code action=query&list=usercontribs} (first edits)</td>
+ *       <td>{@code getFirstEdits}</td>
+ *     </tr>
+ *     <tr>
  *       <td>{@code action=query&list=users} (single user)</td>
  *       <td>{@code getUserData}</td>
  *     </tr>
  *     <tr>
+ *       <td>{@code action=query&list=users} (multiple users)</td>
+ *       <td>{@code getUserData}</td>
+ *     </tr>
+ *     <tr>
  *       <td>{@code action=tokens}</td>
- *       <td>{@code getToken}</td>
+ *       <td>{@code getToken}, {@code getTokens}</td>
+ *     </tr>
+ *     <tr>
+ *       <td>{@code action=query} (several sub-queries)</td>
+ *       <td>{@code newQueryBatch}</td>
  *     </tr>
  *   </tbody>
  * </table>
+ * <p>
+ * The methods of this interface block until the API has answered.  For
+ * non-blocking access, use an {@link AsyncMediaWiki} instead.
  *
  * @author ireas
+ * @see AsyncMediaWiki
  * @see MediaWikiFactory
  */
 public interface MediaWiki extends Closeable {
 
+    /**
+     * Returns the contribution counts of the specified user for several
+     * windows before the specified end date.  For each of the specified
+     * namespace sets and each of the specified periods, the profile
+     * contains the number of contributions in these namespaces between
+     * the end date minus the period and the end date.  If a set of
+     * namespaces is empty, all namespaces are counted.  If the user does
+     * not exist, all counts are zero.
+     * <p>
+     * In contrast to calling {@link #getContribCount(String, int, Set,
+     * DateTime, Period)} for every window, the contributions in the widest
+     * window are requested only once, and all counts are computed from
+     * these contributions.  The counts are not limited.
+     *
+     * @param user the name of the user to get the activity profile for
+     * @param namespaceSets the namespaces for the rows of the profile
+     * @param endDate the date until which contributions will be counted
+     * @param periods the periods before the end date for the columns of
+     *        the profile
+     * @return the contribution counts of the specified user
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if one of the arguments is null
+     * @throws IllegalArgumentException if there are no namespace sets or no
+     *         periods
+     */
+    ActivityProfile getActivityProfile(String user,
+            List<Set<Namespace>> namespaceSets, DateTime endDate,
+            List<Period> periods) throws MediaWikiException;
+
     /**
      * Returns the contribution count for the specified user using
      * the specified limit.  If the user does not exist, zero is returned.
+     * If the configuration uses {@link ContribCountMode#EDIT_COUNT}, the
+     * edit count of the user is requested instead of listing the
+     * contributions.
      *
      * @param user the name of the user to get the contribution count
      * @param limit the maximum contribution count
@@ -104,7 +165,7 @@ public interface MediaWiki extends Closeable {
      * Returns the contribution count for the specified user in the specified
      * namespaces using the specified limit.  If the user does not exist, zero
      * is returned.  If the set of namespaces is empty, all namespaces are
-     * used.
+     * used and the {@link ContribCountMode} of the configuration applies.
      *
      * @param user the name of the user to get the contribution count
      * @param limit the maximum contribution count
@@ -171,6 +232,74 @@ public interface MediaWiki extends Closeable {
             final Set<Namespace> namespaces, final DateTime endDate,
             final Period period) throws MediaWikiException;
 
+    /**
+     * Returns the complete contribution history of the specified user in
+     * the specified namespaces.  If the set of namespaces is empty, all
+     * namespaces are used.  In contrast to {@link #getContributions(String,
+     * Set)}, all pages of contributions are loaded by this method, and the
+     * contributions are stored in primitive arrays instead of one object
+     * per contribution.  The titles of the edited pages are not stored.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list
+     * @return the contributions of the specified user in chronological
+     *         order
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified user or namespaces are
+     *         null
+     */
+    ContributionHistory getContributionHistory(String user,
+            Set<Namespace> namespaces) throws MediaWikiException;
+
+    /**
+     * Returns the contribution history of the specified user in the
+     * specified namespaces since the specified date (inclusive).  If the
+     * set of namespaces is empty, all namespaces are used.  Like {@link
+     * #getContributionHistory(String, Set)}, all pages of contributions are
+     * loaded by this method.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list
+     * @param startDate the date from which contributions will be listed
+     * @return the contributions of the specified user since the specified
+     *         date in chronological order
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified user, namespaces or
+     *         start date are null
+     */
+    ContributionHistory getContributionHistory(String user,
+            Set<Namespace> namespaces, DateTime startDate)
+            throws MediaWikiException;
+
+    /**
+     * Returns the contributions of the specified user in the specified
+     * namespaces in chronological order.  If the user does not exist, no
+     * contributions are returned.  If the set of namespaces is empty, all
+     * namespaces are used.
+     * <p>
+     * The contributions are loaded lazily:  the first page of contributions
+     * is requested by this method, and the following pages are requested
+     * in the background while the returned iterator is consumed.  At most
+     * two pages of contributions are held in memory at the same time.  If
+     * an error occurs while loading a following page, the iterator throws
+     * an {@link UncheckedMediaWikiException}.
+     *
+     * @param user the name of the user to get the contributions for
+     * @param namespaces the namespaces to list
+     * @return an iterator over the contributions of the specified user
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified user or namespaces are
+     *         null
+     */
+    Iterator<Contribution> getContributions(String user,
+            Set<Namespace> namespaces) throws MediaWikiException;
+
     /**
      * Returns the date of the first edit for the specified user.  If the
      * user does not exist or has not edited yet, an absent object is
@@ -185,6 +314,34 @@ public interface MediaWiki extends Closeable {
      */
     Optional<DateTime> getFirstEdit(String user) throws MediaWikiException;
 
+    /**
+     * Returns the dates of the first edits of the users with the given
+     * names.  Each user is requested with a separate request for a single
+     * contribution, as {@link #getFirstEdit(String)} does, and the requests
+     * are sent in parallel, using at most as many connections as configured
+     * per route.  Names that are equal after normalization are requested
+     * only once.
+     * <p>
+     * The returned map contains an entry for each of the specified names,
+     * in the order of the specified collection.  If a user does not exist or
+     * has not edited yet, the entry for that name is absent.  Unlike {@link
+     * #getUserData(Collection)}, the request fails if one of the names is
+     * not a valid user name.
+     *
+     * @param users the names of the users to get the first edits for
+     * @return the dates of the first edits of the specified users
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified collection or one of its
+     *         elements is null
+     * @throws IllegalArgumentException if one of the specified names
+     *         contains the separator {@code "|"}
+     * @see #getFirstEdit(String)
+     */
+    Map<String, Optional<DateTime>> getFirstEdits(Collection<String> users)
+            throws MediaWikiException;
+
     /**
      * Returns the data of the MediaWiki installation that is accessed by this
      * object.
@@ -194,7 +351,12 @@ public interface MediaWiki extends Closeable {
     MediaWikiData getMediaWikiData();
 
     /**
-     * Returns a token of the specified type.
+     * Returns a token of the specified type.  Tokens are cached for the
+     * current session, so the API is only queried if there is no cached
+     * token of this type.  The cache is cleared by {@code login} and {@code
+     * logout}.  If a request sent with {@code performJsonRequest} is
+     * rejected with a {@code badtoken} error, the cached tokens used in the
+     * request are refreshed and the request is repeated once.
      *
      * @param type the type of the token to get
      * @return a token of the specified type
@@ -205,6 +367,22 @@ public interface MediaWiki extends Closeable {
      */
     String getToken(final TokenType type) throws MediaWikiException;
 
+    /**
+     * Returns tokens of the specified types.  All types that are not cached
+     * are requested with a single API request.  See {@link
+     * #getToken(TokenType)} for details on the token cache.
+     *
+     * @param types the types of the tokens to get
+     * @return a map containing a token for each of the specified types
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified set of types is null or
+     *         contains null
+     */
+    Map<TokenType, String> getTokens(Set<TokenType> types)
+            throws MediaWikiException;
+
     /**
      * Returns the user date for the user with the given name.  The user data
      * consists of the name (as returned by the API), the MediaWiki ID and the
@@ -220,6 +398,29 @@ public interface MediaWiki extends Closeable {
      */
     UserData getUserData(String user) throws MediaWikiException;
 
+    /**
+     * Returns the user data for the users with the given names.  The users
+     * are requested in batches, so that only one request is sent for up to
+     * 50 users (or 500 users if the logged in user has the {@code
+     * apihighlimits} right).  Duplicate names are requested only once.
+     * <p>
+     * The returned map contains an entry for each of the specified names,
+     * in the order of the specified collection.  If there is no user with a
+     * name, the entry for that name is absent.
+     *
+     * @param users the names of the users to get the data for
+     * @return the detail data for the specified users
+     * @throws InvalidResponseException if the API response cannot be parsed
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the request
+     * @throws NullPointerException if the specified collection or one of its
+     *         elements is null
+     * @throws IllegalArgumentException if one of the specified names
+     *         contains the separator {@code "|"}
+     */
+    Map<String, Optional<UserData>> getUserData(Collection<String> users)
+            throws MediaWikiException;
+
     /**
      * Logs in as the specified user using the specified password.  It is
      * strongly recommended to use this method only on SSL connections.  If
@@ -270,6 +471,16 @@ public interface MediaWiki extends Closeable {
      */
     void logout() throws MediaWikiException;
 
+    /**
+     * Returns a new batch that sends several sub-queries to the API in as
+     * few requests as possible.  The sub-queries are only sent when the
+     * batch is executed.
+     *
+     * @return a new query batch for this {@code MediaWiki} instance
+     * @see QueryBatch
+     */
+    QueryBatch newQueryBatch();
+
     /**
      * Performs an API request on the specified action using the specified
      * arguments and returns the action result.  This method uses the JSON
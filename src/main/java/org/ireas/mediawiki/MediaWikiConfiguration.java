@@ -22,14 +22,150 @@
 
 package org.ireas.mediawiki;
 
+import org.joda.time.Duration;
+
+import com.google.common.base.Optional;
+
 /**
  * Configuration for a {@code MediaWiki} instance.  This class specifies
  * how a {@code MediaWiki} instance behaves when it does API queries.
+ * <p>
+ * Besides the user agent, the configuration controls the HTTP connection
+ * pool used by a {@code MediaWiki} instance.  The pool keeps connections
+ * to the API host open between requests, so that one instance can be used
+ * by several threads at the same time.
  *
  * @author ireas
  */
 public interface MediaWikiConfiguration {
 
+    /**
+     * Returns the mode used to count the contributions of a user in all
+     * namespaces without a date filter.
+     *
+     * @return the contribution count mode
+     */
+    ContribCountMode getContribCountMode();
+
+    /**
+     * Returns the maximum time to wait for a connection to the API host to
+     * be established.  A zero duration means that there is no timeout.
+     *
+     * @return the connect timeout
+     */
+    Duration getConnectTimeout();
+
+    /**
+     * Returns the maximum time to wait for a connection from the connection
+     * pool if all connections are in use.  A zero duration means that there
+     * is no timeout.
+     *
+     * @return the connection request timeout
+     */
+    Duration getConnectionRequestTimeout();
+
+    /**
+     * Returns the maximum time a pooled connection is kept open, regardless
+     * whether it is in use or not.  A zero duration means that connections
+     * may be kept open forever.
+     *
+     * @return the time to live of pooled connections
+     */
+    Duration getConnectionTimeToLive();
+
+    /**
+     * Returns the time after which idle connections are closed and removed
+     * from the connection pool.  A zero duration means that idle
+     * connections are not evicted.
+     *
+     * @return the idle timeout of pooled connections
+     */
+    Duration getIdleConnectionTimeout();
+
+    /**
+     * Returns the maximum number of connections in the connection pool.
+     *
+     * @return the maximum total number of connections
+     */
+    int getMaxConnections();
+
+    /**
+     * Returns the maximum number of connections to one host in the
+     * connection pool.
+     *
+     * @return the maximum number of connections per route
+     */
+    int getMaxConnectionsPerRoute();
+
+    /**
+     * Returns the maximum replication lag in seconds that requests accept.
+     * If present, the value is sent as the {@code maxlag} parameter with
+     * every request.  If the API rejects a request because the lag is
+     * higher, the client waits for the time suggested by the server and
+     * retries the request.
+     *
+     * @return the maximum replication lag in seconds, or absent if the
+     *         {@code maxlag} parameter is not used
+     */
+    Optional<Integer> getMaxLag();
+
+    /**
+     * Returns the listener that receives the metrics of every API request.
+     *
+     * @return the metrics listener, or {@link MetricsListener#NONE} if
+     *         metrics are not collected
+     */
+    MetricsListener getMetricsListener();
+
+    /**
+     * Returns the number of requests that may be sent to one host at once
+     * before the request rate limit applies.
+     *
+     * @return the request burst size
+     */
+    int getRequestBurst();
+
+    /**
+     * Returns the maximum number of requests per second that are sent to
+     * one host.  Requests that exceed this rate are delayed.  A rate of
+     * zero means that the request rate is not limited.
+     *
+     * @return the maximum number of requests per second
+     */
+    double getRequestRate();
+
+    /**
+     * Returns the cache for the responses of read-only requests.  If the
+     * cache is absent, all requests are sent to the API.
+     *
+     * @return the response cache, or absent if responses are not cached
+     */
+    Optional<ResponseCache> getResponseCache();
+
+    /**
+     * Returns the policy for retrying failed requests.
+     *
+     * @return the retry policy
+     */
+    RetryPolicy getRetryPolicy();
+
+    /**
+     * Returns the maximum time to wait for data once a connection has been
+     * established.  A zero duration means that there is no timeout.
+     *
+     * @return the socket timeout
+     */
+    Duration getSocketTimeout();
+
+    /**
+     * Returns the transport that sends the HTTP requests to the API.  The
+     * default transport {@link ApiTransport#HTTP} uses the connection pool;
+     * other transports can record or replay responses.
+     *
+     * @return the transport for API requests
+     */
+    ApiTransport getTransport();
+
     /**
      * Returns the user agent to be used when connecting to the MediaWiki API.
      *
@@ -37,4 +173,35 @@ public interface MediaWikiConfiguration {
      */
     String getUserAgent();
 
+    /**
+     * Returns whether compressed API responses are requested.  If
+     * compression is enabled, the client accepts gzip and deflate encoded
+     * responses and decodes them transparently.  This reduces the
+     * transferred data for large responses at the cost of some CPU time.
+     *
+     * @return true if compressed responses are requested
+     */
+    boolean isCompressionEnabled();
+
+    /**
+     * Returns whether the {@link MediaWikiFactory} registers a {@link
+     * MediaWikiMXBean} for every {@code MediaWiki} instance it creates.
+     *
+     * @return true if JMX monitoring is enabled, otherwise false
+     */
+    boolean isJmxEnabled();
+
+    /**
+     * Returns whether concurrent identical read requests are coalesced.  If
+     * coalescing is enabled and a query or token request is sent while an
+     * identical request of the same session is in progress, the second
+     * caller waits for the first request and receives a result read from
+     * the same response instead of sending the request again.  Each caller
+     * receives its own copy of mutable results like JSON objects.  Requests
+     * of other actions are never coalesced.
+     *
+     * @return true if identical read requests are coalesced
+     */
+    boolean isRequestCoalescingEnabled();
+
 }
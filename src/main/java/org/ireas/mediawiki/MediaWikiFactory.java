@@ -22,6 +22,7 @@
 
 package org.ireas.mediawiki;
 
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 
 import org.ireas.mediawiki.data.DefaultMediaWikiData;
@@ -35,6 +36,18 @@ import com.google.common.base.Preconditions;
  * newWikimediaInstance}) and to Wikipedia language versions ({@code
  * newWikipediaInstance}).  Per default, HTTPS is used.  {@code newInstance}
  * connects to a custom MediaWiki installation.
+ * <p>
+ * All instances created with the same configuration share one HTTP
+ * connection pool, so that connections and TLS sessions are reused across
+ * instances.  Closing an instance only releases its reference to the pool;
+ * the pool is closed when the last instance using it has been closed.
+ * <p>
+ * If JMX is enabled in the configuration, a {@link MediaWikiMXBean} is
+ * registered for every {@code MediaWiki} instance created by this factory.
+ * <p>
+ * The {@code newAsync...} methods create {@link AsyncMediaWiki} instances
+ * that send the requests using non-blocking I/O.  Each asynchronous
+ * instance uses its own connection pool.
  *
  * @author ireas
  */
@@ -51,16 +64,86 @@ public final class MediaWikiFactory {
     private static MediaWikiConfiguration configuration =
             new BasicMediaWikiConfiguration();
 
+    private static HttpConnectionPool connectionPool;
+
     /**
      * Returns the current configuration for the created {@code MediaWiki}
      * instances.
      *
      * @return the current MediaWiki configuration
      */
-    public static MediaWikiConfiguration getConfiguration() {
+    public static synchronized MediaWikiConfiguration getConfiguration() {
         return configuration;
     }
 
+    /**
+     * Constructs a new {@code AsyncMediaWiki} instance using the specified
+     * connection credentials.  The specified credentials are the parts of
+     * the URI pointing to the MediaWiki {@code api.php} file to access.
+     *
+     * @param scheme the scheme of the URI, e. g. {@code "https"}
+     * @param host the host of the URI, e. g. {@code "example.org"}
+     * @param port the port of the URI, e. g. {@code 443}. The port must be
+     *            non-negative.
+     * @param apiPath the path of the URI, e. g. {@code "/index.html"}
+     * @return a new {@code AsyncMediaWiki} instance pointing to the MediaWiki
+     *         installation located at the specified URI
+     * @throws MediaWikiException if the specified URI parts are invalid
+     * @throws NullPointerException of the specified scheme, host or api
+     *         path is null
+     * @throws IllegalArgumentException if the specified port is negative
+     */
+    public static AsyncMediaWiki newAsyncInstance(final String scheme,
+            final String host, final int port, final String apiPath)
+            throws MediaWikiException {
+        Preconditions.checkNotNull(scheme);
+        Preconditions.checkNotNull(host);
+        Preconditions.checkNotNull(apiPath);
+        Preconditions.checkArgument(port >= 0);
+
+        URI uri = MediaWikiUtils.buildUri(scheme, host, port, apiPath);
+        DefaultMediaWikiData mediaWikiData = new DefaultMediaWikiData(uri);
+        return new DefaultAsyncMediaWiki(mediaWikiData, getConfiguration());
+    }
+
+    /**
+     * Constructs a new {@code AsyncMediaWiki} instance using the {@code
+     * api.php} located on the specified host according to the WMF scheme.
+     * The constructed {@code AsyncMediaWiki} uses HTTPS on port 443.
+     *
+     * @param host the host of the MediaWiki installation to connect to
+     * @return a new {@code AsyncMediaWiki} instance pointing to the
+     *         MediaWiki installation on the specified host
+     * @throws MediaWikiException if the specified host is invalid
+     * @throws NullPointerException if the specified host is null
+     * @see #newWikimediaInstance(String)
+     */
+    public static AsyncMediaWiki newAsyncWikimediaInstance(final String host)
+            throws MediaWikiException {
+        Preconditions.checkNotNull(host);
+        return newAsyncInstance(HTTPS_SCHEME, host, HTTPS_PORT,
+                WIKIMEDIA_API_PATH);
+    }
+
+    /**
+     * Constructs a new {@code AsyncMediaWiki} instance for the specified
+     * Wikipedia language version.  The constructed {@code AsyncMediaWiki}
+     * instance will use HTTPS.
+     *
+     * @param language the language code of the Wikipedia version to connect to
+     * @return a new {@code AsyncMediaWiki} instance for the specified
+     *         Wikipedia language version
+     * @throws MediaWikiException if the specified language is invalid
+     * @throws NullPointerException if the specified language is null
+     * @see #newWikipediaInstance(String)
+     */
+    public static AsyncMediaWiki newAsyncWikipediaInstance(
+            final String language) throws MediaWikiException {
+        Preconditions.checkNotNull(language);
+        return newAsyncWikimediaInstance(String.format(WIKIPEDIA_HOST,
+                language));
+    }
+
     /**
      * Constructs a new {@code MediaWiki} instance using the specified
      * connection credentials.  The specified credentials are the parts of
@@ -87,7 +170,16 @@ public final class MediaWikiFactory {
 
         URI uri = MediaWikiUtils.buildUri(scheme, host, port, apiPath);
         DefaultMediaWikiData mediaWikiData = new DefaultMediaWikiData(uri);
-        return new DefaultMediaWiki(mediaWikiData, configuration);
+        synchronized (MediaWikiFactory.class) {
+            DefaultMediaWiki mediaWiki =
+                    new DefaultMediaWiki(mediaWikiData, configuration,
+                            retainConnectionPool());
+            if (configuration.isJmxEnabled()) {
+                mediaWiki.registerMXBean(ManagementFactory
+                        .getPlatformMBeanServer());
+            }
+            return mediaWiki;
+        }
     }
 
     /**
@@ -127,19 +219,29 @@ public final class MediaWikiFactory {
         return newWikimediaInstance(String.format(WIKIPEDIA_HOST, language));
     }
 
+    private static HttpConnectionPool retainConnectionPool() {
+        if (connectionPool == null || !connectionPool.retain()) {
+            connectionPool = new HttpConnectionPool(configuration);
+        }
+        return connectionPool;
+    }
+
     /**
      * Sets the configuration used for new {@code MediaWiki} instances
      * created using this factory class.  A change does not affect
-     * previously created instances.
+     * previously created instances.  New instances will use a new
+     * connection pool that is configured according to the specified
+     * configuration.
      *
      * @param configuration the configuration for new {@code MediaWiki}
      *        instances
      * @throws NullPointerException if the specified configuration is null
      */
-    public static void setConfiguration(
+    public static synchronized void setConfiguration(
             final MediaWikiConfiguration configuration) {
         Preconditions.checkNotNull(configuration);
         MediaWikiFactory.configuration = configuration;
+        connectionPool = null;
     }
 
     private MediaWikiFactory() {
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+/**
+ * Management interface of a {@code MediaWiki} instance.  The {@link
+ * MediaWikiFactory} registers an MXBean with this interface for every
+ * {@code MediaWiki} instance it creates (unless this is disabled in the
+ * {@link MediaWikiConfiguration}), so that the instances can be monitored
+ * with JMX tools like {@code jconsole}.  The object name of the MXBean is
+ * {@code org.ireas.mediawiki:type=MediaWiki,host=<host>,id=<id>}; it is
+ * unregistered when the instance is closed.
+ * <p>
+ * The connection pool is shared by all instances created with the same
+ * configuration, so the connection counts and the {@link
+ * #drainConnectionPool} operation refer to all of these instances.
+ *
+ * @author ireas
+ */
+public interface MediaWikiMXBean {
+
+    /**
+     * Removes all responses from the response cache.  If no response cache
+     * is configured, this operation has no effect.  The response cache may
+     * be shared by several instances.
+     */
+    void clearResponseCache();
+
+    /**
+     * Removes all tokens from the token cache of this instance.
+     */
+    void clearTokenCache();
+
+    /**
+     * Closes all idle and expired connections of the connection pool.
+     * Leased connections are not affected.
+     */
+    void drainConnectionPool();
+
+    /**
+     * Returns the URI of the API of this instance.
+     *
+     * @return the API URI
+     */
+    String getApiUri();
+
+    /**
+     * Returns the number of idle connections in the connection pool.
+     *
+     * @return the number of available connections
+     */
+    int getAvailableConnections();
+
+    /**
+     * Returns the number of read requests of this instance that have not
+     * been sent because they received the result of a concurrent identical
+     * request.
+     *
+     * @return the number of coalesced requests
+     */
+    long getCoalescedRequestCount();
+
+    /**
+     * Returns the number of failed requests of this instance, including
+     * retried attempts.
+     *
+     * @return the number of failed requests
+     */
+    long getErrorCount();
+
+    /**
+     * Returns the number of requests of this instance that are currently
+     * being sent or read.
+     *
+     * @return the number of requests in flight
+     */
+    int getInFlightRequests();
+
+    /**
+     * Returns the number of connections of the connection pool that are
+     * currently leased.
+     *
+     * @return the number of leased connections
+     */
+    int getLeasedConnections();
+
+    /**
+     * Returns the maximum number of connections of the connection pool.
+     *
+     * @return the maximum number of connections
+     */
+    int getMaxConnections();
+
+    /**
+     * Returns the number of requests waiting for a connection of the
+     * connection pool.
+     *
+     * @return the number of pending connection requests
+     */
+    int getPendingConnections();
+
+    /**
+     * Returns the number of requests of this instance, including retried
+     * attempts.
+     *
+     * @return the number of requests
+     */
+    long getRequestCount();
+
+    /**
+     * Returns the average number of requests per second of this instance
+     * within the last minute.
+     *
+     * @return the request rate in requests per second
+     */
+    double getRequestRate();
+
+    /**
+     * Returns the ratio of the lookups in the response cache that returned
+     * a cached response.  If the cache has not been used yet, the ratio is
+     * 1.  If no response cache is configured, the ratio is {@code NaN}.
+     *
+     * @return the hit ratio of the response cache
+     */
+    double getResponseCacheHitRatio();
+
+    /**
+     * Returns the ratio of the requested tokens that were found in the
+     * token cache of this instance.  If no tokens have been requested yet,
+     * the ratio is 1.
+     *
+     * @return the hit ratio of the token cache
+     */
+    double getTokenCacheHitRatio();
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.net.URI;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.apache.http.pool.PoolStats;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Implementation of the {@code MediaWikiMXBean} interface for {@code
+ * DefaultMediaWiki} instances.  The monitor reads the statistics of the
+ * components of the instance when an attribute is requested.
+ *
+ * @author ireas
+ */
+final class MediaWikiMonitor implements MediaWikiMXBean {
+
+    private static final String DOMAIN = "org.ireas.mediawiki";
+
+    private static final String KEY_HOST = "host";
+
+    private static final String KEY_ID = "id";
+
+    private static final String KEY_TYPE = "type";
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private static final String TYPE = "MediaWiki";
+
+    private final URI apiUri;
+
+    private final HttpConnectionPool connectionPool;
+
+    private final RequestStatistics statistics;
+
+    private final RequestCoalescer<?> requestCoalescer;
+
+    private final TokenCache tokenCache;
+
+    private final Optional<ResponseCache> responseCache;
+
+    /**
+     * Constructs a new monitor for the specified components.
+     *
+     * @param apiUri the URI of the API
+     * @param connectionPool the connection pool of the instance
+     * @param statistics the request statistics of the instance
+     * @param requestCoalescer the request coalescer of the instance
+     * @param tokenCache the token cache of the instance
+     * @param responseCache the response cache of the instance, if any
+     * @throws NullPointerException if one of the arguments is null
+     */
+    public MediaWikiMonitor(final URI apiUri,
+            final HttpConnectionPool connectionPool,
+            final RequestStatistics statistics,
+            final RequestCoalescer<?> requestCoalescer,
+            final TokenCache tokenCache,
+            final Optional<ResponseCache> responseCache) {
+        this.apiUri = Preconditions.checkNotNull(apiUri);
+        this.connectionPool = Preconditions.checkNotNull(connectionPool);
+        this.statistics = Preconditions.checkNotNull(statistics);
+        this.requestCoalescer = Preconditions.checkNotNull(requestCoalescer);
+        this.tokenCache = Preconditions.checkNotNull(tokenCache);
+        this.responseCache = Preconditions.checkNotNull(responseCache);
+    }
+
+    /**
+     * Returns a new object name for the MXBean of an instance with the
+     * specified API URI.  The name contains the host of the API (quoted if
+     * it is an IPv6 address) and a unique ID.
+     *
+     * @param apiUri the URI of the API
+     * @return a new object name
+     * @throws MalformedObjectNameException if the host is not a valid value
+     *         of an object name
+     */
+    public static ObjectName newObjectName(final URI apiUri)
+            throws MalformedObjectNameException {
+        String host = apiUri.getHost();
+        if (host.indexOf(':') >= 0) {
+            host = ObjectName.quote(host);
+        }
+        Hashtable<String, String> properties = new Hashtable<>();
+        properties.put(KEY_TYPE, TYPE);
+        properties.put(KEY_HOST, host);
+        properties.put(KEY_ID, Long.toString(NEXT_ID.getAndIncrement()));
+        return new ObjectName(DOMAIN, properties);
+    }
+
+    @Override
+    public void clearResponseCache() {
+        if (responseCache.isPresent()) {
+            responseCache.get().invalidateAll();
+        }
+    }
+
+    @Override
+    public void clearTokenCache() {
+        tokenCache.clear();
+    }
+
+    @Override
+    public void drainConnectionPool() {
+        connectionPool.closeIdleConnections();
+    }
+
+    @Override
+    public String getApiUri() {
+        return apiUri.toString();
+    }
+
+    @Override
+    public int getAvailableConnections() {
+        return getPoolStats().getAvailable();
+    }
+
+    @Override
+    public long getCoalescedRequestCount() {
+        return requestCoalescer.getCoalescedCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return statistics.getErrorCount();
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        return statistics.getInFlight();
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        return getPoolStats().getLeased();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return getPoolStats().getMax();
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return getPoolStats().getPending();
+    }
+
+    private PoolStats getPoolStats() {
+        return connectionPool.getTotalStats();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return statistics.getRequestCount();
+    }
+
+    @Override
+    public double getRequestRate() {
+        return statistics.getRequestRate();
+    }
+
+    @Override
+    public double getResponseCacheHitRatio() {
+        if (!responseCache.isPresent()) {
+            return Double.NaN;
+        }
+        return responseCache.get().getStats().hitRate();
+    }
+
+    @Override
+    public double getTokenCacheHitRatio() {
+        return tokenCache.getStats().hitRate();
+    }
+
+}
@@ -27,6 +27,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -37,9 +38,6 @@ import org.apache.http.message.BasicNameValuePair;
 import org.ireas.mediawiki.exceptions.InvalidResponseException;
 import org.ireas.mediawiki.exceptions.MediaWikiException;
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -53,9 +51,6 @@ import com.google.common.base.Preconditions;
  */
 public final class MediaWikiUtils {
 
-    private static final DateTimeFormatter API_TIMESTAMP_FORMAT =
-            ISODateTimeFormat.dateTimeNoMillis();
-
     /**
      * Constructs an {@code URI} object from {@code scheme}, {@code host},
      * {@code port} and {@code apiPath}. The constructed URI will have the
@@ -159,7 +154,20 @@ public final class MediaWikiUtils {
     public static String formatApiDate(final DateTime date) {
         Preconditions.checkNotNull(date);
 
-        return API_TIMESTAMP_FORMAT.print(date.toDateTime(DateTimeZone.UTC));
+        return ApiTimestamps.format(date.getMillis());
+    }
+
+    /**
+     * Converts the specified instant to a timestamp in the MediaWiki API
+     * format and in the UTC time zone.  Unlike {@link
+     * #formatApiDate(DateTime)}, this method does not require a {@code
+     * DateTime} object.
+     *
+     * @param millis the instant to convert in milliseconds since the epoch
+     * @return the specified instant as a UTC timestamp
+     */
+    public static String formatApiTimestamp(final long millis) {
+        return ApiTimestamps.format(millis);
     }
 
     /**
@@ -203,6 +211,29 @@ public final class MediaWikiUtils {
         return nameValuePairs;
     }
 
+    /**
+     * Normalizes a {@code userName} the way MediaWiki does in its default
+     * configuration:  underscores are replaced with spaces, surrounding
+     * whitespace is removed and the first letter is capitalized.
+     *
+     * @param userName
+     *            the user name to normalize
+     * @return the normalized user name
+     * @throws NullPointerException
+     *             if {@code userName} is {@code null}
+     */
+    public static String normalizeUserName(final String userName) {
+        Preconditions.checkNotNull(userName);
+
+        String normalized = userName.replace('_', ' ').trim();
+        if (normalized.isEmpty()) {
+            return normalized;
+        }
+        int firstLength = normalized.offsetByCodePoints(0, 1);
+        return normalized.substring(0, firstLength).toUpperCase(Locale.ROOT)
+                + normalized.substring(firstLength);
+    }
+
     /**
      * Parses a {@code timeStamp} as returned by the MediaWiki API and returns a
      * {@code Date} for that timestamp. MediaWiki API timestamps are in the
@@ -217,7 +248,29 @@ public final class MediaWikiUtils {
     public static DateTime parseApiTimestamp(final String timeStamp) {
         Preconditions.checkNotNull(timeStamp);
 
-        return API_TIMESTAMP_FORMAT.parseDateTime(timeStamp);
+        return new DateTime(ApiTimestamps.parse(timeStamp));
+    }
+
+    /**
+     * Parses a {@code timeStamp} as returned by the MediaWiki API and returns
+     * the milliseconds since the epoch for that timestamp.  Unlike {@link
+     * #parseApiTimestamp(String)}, this method does not allocate any objects
+     * for timestamps in the format {@code "yyyy-MM-dd'T'HH:mm:ss'Z'"} that
+     * is used by the API.
+     *
+     * @param timeStamp
+     *            the API timestamp to parse
+     * @return the milliseconds since the epoch for the MediaWiki API
+     *         {@code timeStamp}
+     * @throws NullPointerException
+     *             if {@code timeStamp} is {@code null}
+     * @throws IllegalArgumentException
+     *             if {@code timeStamp} is not a valid API timestamp
+     */
+    public static long parseApiTimestampMillis(final String timeStamp) {
+        Preconditions.checkNotNull(timeStamp);
+
+        return ApiTimestamps.parse(timeStamp);
     }
 
     /**
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Implementation of the {@code CursorStore} interface that keeps the
+ * cursors in memory.  The cursors are lost when the application exits.
+ *
+ * @author ireas
+ */
+public final class MemoryCursorStore implements CursorStore {
+
+    private final ConcurrentMap<Map.Entry<URI, String>, ContributionCursor>
+        cursors = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<ContributionCursor> get(final URI apiUri,
+            final String user) {
+        return Optional.fromNullable(cursors.get(getKey(apiUri, user)));
+    }
+
+    private static Map.Entry<URI, String> getKey(final URI apiUri,
+            final String user) {
+        Preconditions.checkNotNull(apiUri);
+        Preconditions.checkNotNull(user);
+
+        return Maps.immutableEntry(apiUri, user);
+    }
+
+    @Override
+    public void put(final URI apiUri, final String user,
+            final ContributionCursor cursor) {
+        Preconditions.checkNotNull(cursor);
+
+        cursors.put(getKey(apiUri, user), cursor);
+    }
+
+    @Override
+    public void remove(final URI apiUri, final String user) {
+        cursors.remove(getKey(apiUri, user));
+    }
+
+}
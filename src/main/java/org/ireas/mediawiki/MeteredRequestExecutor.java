@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * HTTP request executor that reports the progress of a request to the
+ * {@link RequestTimer} stored in the HTTP context.  The HTTP client calls
+ * the executor once it has leased and connected a connection, so the
+ * executor marks the end of the lease when it is called and the arrival of
+ * the response headers when the response has been received.  The response
+ * entity is wrapped so that the bytes of the body are counted and the end
+ * of the body is marked.  As the entity is wrapped before the response is
+ * decompressed, the compressed size is counted.
+ * <p>
+ * Requests without a timer in their context are executed without
+ * measurements.
+ *
+ * @author ireas
+ */
+final class MeteredRequestExecutor extends HttpRequestExecutor {
+
+    private static final class MeteredEntity extends HttpEntityWrapper {
+
+        private final RequestTimer timer;
+
+        public MeteredEntity(final HttpEntity entity,
+                final RequestTimer timer) {
+            super(entity);
+            this.timer = timer;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new MeteredInputStream(super.getContent(), timer);
+        }
+
+        @Override
+        public void writeTo(final OutputStream outputStream)
+                throws IOException {
+            try (InputStream inputStream = getContent()) {
+                ByteStreams.copy(inputStream, outputStream);
+            }
+        }
+
+    }
+
+    private static final class MeteredInputStream extends FilterInputStream {
+
+        private final RequestTimer timer;
+
+        public MeteredInputStream(final InputStream inputStream,
+                final RequestTimer timer) {
+            super(inputStream);
+            this.timer = timer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            timer.markDownloaded();
+            super.close();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result < 0) {
+                timer.markDownloaded();
+            } else {
+                timer.addBytesReceived(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset,
+                final int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count < 0) {
+                timer.markDownloaded();
+            } else {
+                timer.addBytesReceived(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(final long count) throws IOException {
+            long skipped = super.skip(count);
+            timer.addBytesReceived(skipped);
+            return skipped;
+        }
+
+    }
+
+    @Override
+    public HttpResponse execute(final HttpRequest request,
+            final HttpClientConnection connection, final HttpContext context)
+            throws IOException, HttpException {
+        Object attribute = context.getAttribute(RequestTimer.ATTRIBUTE);
+        if (!(attribute instanceof RequestTimer)) {
+            return super.execute(request, connection, context);
+        }
+
+        RequestTimer timer = (RequestTimer) attribute;
+        timer.markLeased();
+        HttpResponse response = super.execute(request, connection, context);
+        timer.markResponse(response.getStatusLine().getStatusCode());
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            response.setEntity(new MeteredEntity(entity, timer));
+        }
+        return response;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+/**
+ * Receives the {@link RequestMetrics} of every HTTP request sent to the
+ * API.  A listener can be set in the {@link MediaWikiConfiguration}; per
+ * default, the {@link #NONE} listener is used, which ignores all metrics.
+ * {@link MetricsRecorder} aggregates the metrics in memory.
+ * <p>
+ * The listener is called synchronously by the thread that performed the
+ * request, so implementations should return quickly.  Implementations
+ * must be thread-safe, as one listener may be shared by several {@code
+ * MediaWiki} instances.
+ *
+ * @author ireas
+ * @see MetricsRecorder
+ */
+public interface MetricsListener {
+
+    /**
+     * Listener that ignores all metrics.
+     */
+    MetricsListener NONE = new MetricsListener() {
+        @Override
+        public void requestCompleted(final RequestMetrics metrics) {
+        }
+    };
+
+    /**
+     * Called after a request has been completed, whether it was successful
+     * or not.
+     *
+     * @param metrics the metrics of the request
+     */
+    void requestCompleted(RequestMetrics metrics);
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.Maps;
+
+/**
+ * Implementation of the {@code MetricsListener} interface that aggregates
+ * the metrics in memory.  The metrics are grouped by host and API module.
+ * For each group, the recorder counts the requests, the HTTP status codes,
+ * the MediaWiki error codes and the received bytes, and records the
+ * durations of the request phases in {@link LatencyHistogram}s.
+ * <p>
+ * The aggregated metrics can be read using {@link #snapshot} and cleared
+ * using {@link #reset}, for example by a periodic scraper.  This class is
+ * thread-safe.
+ *
+ * @author ireas
+ */
+public final class MetricsRecorder implements MetricsListener {
+
+    /**
+     * Immutable copy of the aggregated metrics of one host and API module.
+     *
+     * @author ireas
+     */
+    public static final class ModuleMetrics {
+
+        private final String host;
+
+        private final String module;
+
+        private final long requestCount;
+
+        private final long bytesReceived;
+
+        private final Map<Integer, Long> statusCodes;
+
+        private final Map<String, Long> errorCodes;
+
+        private final Map<RequestMetrics.Phase, LatencyHistogram.Snapshot>
+            latencies;
+
+        private ModuleMetrics(final String host, final String module,
+                final Counters counters) {
+            this.host = host;
+            this.module = module;
+            requestCount = counters.requestCount.get();
+            bytesReceived = counters.bytesReceived.get();
+            statusCodes = copyOf(counters.statusCodes);
+            errorCodes = copyOf(counters.errorCodes);
+            Map<RequestMetrics.Phase, LatencyHistogram.Snapshot> snapshots =
+                    new EnumMap<>(RequestMetrics.Phase.class);
+            for (Map.Entry<RequestMetrics.Phase, LatencyHistogram> entry
+                    : counters.latencies.entrySet()) {
+                snapshots.put(entry.getKey(), entry.getValue().snapshot());
+            }
+            latencies = Collections.unmodifiableMap(snapshots);
+        }
+
+        /**
+         * Returns the number of received bytes of all requests.
+         *
+         * @return the number of received bytes
+         */
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        /**
+         * Returns the number of requests per MediaWiki error code.
+         * Requests without an error are not contained.
+         *
+         * @return an unmodifiable map from the error codes to the number of
+         *         requests, sorted by the error code
+         */
+        public Map<String, Long> getErrorCodes() {
+            return errorCodes;
+        }
+
+        /**
+         * Returns the host of the API.
+         *
+         * @return the host of the API
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Returns the latencies of the specified request phase.
+         *
+         * @param phase the request phase
+         * @return a snapshot of the latency histogram of the phase
+         * @throws NullPointerException if the specified phase is null
+         */
+        public LatencyHistogram.Snapshot getLatency(
+                final RequestMetrics.Phase phase) {
+            Preconditions.checkNotNull(phase);
+
+            return latencies.get(phase);
+        }
+
+        /**
+         * Returns the API module.
+         *
+         * @return the API module
+         * @see RequestMetrics#getModule()
+         */
+        public String getModule() {
+            return module;
+        }
+
+        /**
+         * Returns the number of requests, including retries.
+         *
+         * @return the number of requests
+         */
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * Returns the number of requests per HTTP status code.  Requests
+         * without a response are counted with the status code zero.
+         *
+         * @return an unmodifiable map from the status codes to the number
+         *         of requests, sorted by the status code
+         */
+        public Map<Integer, Long> getStatusCodes() {
+            return statusCodes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ModuleMetrics[host=%s,module=%s,"
+                    + "requests=%d,bytes=%d,status=%s,errors=%s,total=%s]",
+                    host, module, requestCount, bytesReceived, statusCodes,
+                    errorCodes, latencies.get(RequestMetrics.Phase.TOTAL));
+        }
+
+    }
+
+    private static final class Counters {
+
+        private final AtomicLong requestCount = new AtomicLong();
+
+        private final AtomicLong bytesReceived = new AtomicLong();
+
+        private final ConcurrentMap<Integer, AtomicLong> statusCodes =
+                new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, AtomicLong> errorCodes =
+                new ConcurrentHashMap<>();
+
+        private final Map<RequestMetrics.Phase, LatencyHistogram> latencies =
+                new EnumMap<>(RequestMetrics.Phase.class);
+
+        public Counters() {
+            for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+                latencies.put(phase, new LatencyHistogram());
+            }
+        }
+
+        public void record(final RequestMetrics metrics) {
+            requestCount.incrementAndGet();
+            bytesReceived.addAndGet(metrics.getBytesReceived());
+            increment(statusCodes, metrics.getStatusCode());
+            Optional<String> errorCode = metrics.getErrorCode();
+            if (errorCode.isPresent()) {
+                increment(errorCodes, errorCode.get());
+            }
+            for (Map.Entry<RequestMetrics.Phase, LatencyHistogram> entry
+                    : latencies.entrySet()) {
+                entry.getValue().record(metrics.getDuration(entry.getKey()));
+            }
+        }
+
+    }
+
+    private static final Comparator<ModuleMetrics> MODULE_ORDER =
+            new Comparator<ModuleMetrics>() {
+                @Override
+                public int compare(final ModuleMetrics metrics1,
+                        final ModuleMetrics metrics2) {
+                    return ComparisonChain.start()
+                            .compare(metrics1.host, metrics2.host)
+                            .compare(metrics1.module, metrics2.module)
+                            .result();
+                }
+            };
+
+    private final ConcurrentMap<Map.Entry<String, String>, Counters> counters =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new recorder without any metrics.
+     */
+    public MetricsRecorder() {
+    }
+
+    private static <K extends Comparable<K>> Map<K, Long> copyOf(
+            final Map<K, AtomicLong> map) {
+        Map<K, Long> copy = new TreeMap<>();
+        for (Map.Entry<K, AtomicLong> entry : map.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static <K> void increment(final ConcurrentMap<K, AtomicLong> map,
+            final K key) {
+        AtomicLong counter = map.get(key);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = map.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public void requestCompleted(final RequestMetrics metrics) {
+        Preconditions.checkNotNull(metrics);
+
+        Map.Entry<String, String> key =
+                Maps.immutableEntry(metrics.getHost(), metrics.getModule());
+        Counters moduleCounters = counters.get(key);
+        if (moduleCounters == null) {
+            Counters newCounters = new Counters();
+            moduleCounters = counters.putIfAbsent(key, newCounters);
+            if (moduleCounters == null) {
+                moduleCounters = newCounters;
+            }
+        }
+        moduleCounters.record(metrics);
+    }
+
+    /**
+     * Removes all aggregated metrics.
+     */
+    public void reset() {
+        counters.clear();
+    }
+
+    /**
+     * Returns a copy of the aggregated metrics.  The metrics are sorted by
+     * host and module.
+     *
+     * @return the aggregated metrics per host and API module
+     */
+    public List<ModuleMetrics> snapshot() {
+        List<ModuleMetrics> snapshot = new ArrayList<>();
+        for (Map.Entry<Map.Entry<String, String>, Counters> entry : counters
+                .entrySet()) {
+            Map.Entry<String, String> key = entry.getKey();
+            snapshot.add(new ModuleMetrics(key.getKey(), key.getValue(),
+                    entry.getValue()));
+        }
+        Collections.sort(snapshot, MODULE_ORDER);
+        return snapshot;
+    }
+
+}
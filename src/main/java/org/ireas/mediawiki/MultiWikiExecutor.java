@@ -0,0 +1,602 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.Duration;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Runs an operation against several wikis in parallel.  The wikis are
+ * identified by their hosts and accessed using {@code MediaWiki} instances
+ * created by {@link MediaWikiFactory#newWikimediaInstance(String)}.  The
+ * instances are created when they are first used and closed when this
+ * executor is closed.
+ * <p>
+ * The operations are run on a fixed number of worker threads, and at most
+ * {@code maxConcurrencyPerHost} operations access the same host at a time
+ * (also across concurrent calls of {@code execute}).  Operations waiting
+ * for a busy host do not occupy a worker thread, so a slow host does not
+ * delay the operations on other hosts.  The results are
+ * returned in the order of completion, so that they can be processed while
+ * the other operations are still running.  A failed operation does not
+ * affect the operations on the other hosts; its exception is stored in the
+ * result for that host.  If a deadline is specified, the operations that
+ * have not completed when it is exceeded are cancelled and reported as
+ * failed with a {@link TimeoutException}.  If the executor is closed, the
+ * operations that have not completed are cancelled and reported as failed
+ * with a {@link CancellationException}.
+ * <p>
+ * Executors are constructed using a {@link Builder}.  By default, the
+ * operations are run on 16 worker threads with one operation per host.
+ *
+ * @author ireas
+ */
+public final class MultiWikiExecutor implements Closeable {
+
+    /**
+     * Builder for {@code MultiWikiExecutor} objects.  The setters return the
+     * builder itself, so that calls can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private final Set<String> hosts = new LinkedHashSet<>();
+
+        private int maxConcurrencyPerHost = DEFAULT_MAX_CONCURRENCY_PER_HOST;
+
+        private int parallelism = DEFAULT_PARALLELISM;
+
+        /**
+         * Constructs a new builder without any hosts.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Adds a host that the operations should be run against.  The
+         * {@code api.php} must be located on the host according to the WMF
+         * scheme.
+         *
+         * @param host the host of the wiki
+         * @return this builder
+         * @throws NullPointerException if the specified host is null
+         */
+        public Builder addHost(final String host) {
+            Preconditions.checkNotNull(host);
+            hosts.add(host);
+            return this;
+        }
+
+        /**
+         * Adds several hosts that the operations should be run against.
+         *
+         * @param newHosts the hosts of the wikis
+         * @return this builder
+         * @throws NullPointerException if the specified collection or one of
+         *         its elements is null
+         * @see #addHost(String)
+         */
+        public Builder addHosts(final Collection<String> newHosts) {
+            Preconditions.checkNotNull(newHosts);
+            for (String host : newHosts) {
+                addHost(host);
+            }
+            return this;
+        }
+
+        /**
+         * Constructs a new executor using the values of this builder.
+         *
+         * @return a new executor with the values of this builder
+         */
+        public MultiWikiExecutor build() {
+            return new MultiWikiExecutor(this);
+        }
+
+        /**
+         * Sets the maximum number of operations that may access the same
+         * host at a time.
+         *
+         * @param concurrency the maximum number of operations per host
+         * @return this builder
+         * @throws IllegalArgumentException if the specified concurrency is
+         *         not positive
+         */
+        public Builder setMaxConcurrencyPerHost(final int concurrency) {
+            Preconditions.checkArgument(concurrency >= 1);
+            maxConcurrencyPerHost = concurrency;
+            return this;
+        }
+
+        /**
+         * Sets the number of worker threads, i. e. the maximum number of
+         * operations that are run at a time.
+         *
+         * @param threads the number of worker threads
+         * @return this builder
+         * @throws IllegalArgumentException if the specified number is not
+         *         positive
+         */
+        public Builder setParallelism(final int threads) {
+            Preconditions.checkArgument(threads >= 1);
+            parallelism = threads;
+            return this;
+        }
+
+    }
+
+    /**
+     * An operation that is run against a wiki.
+     *
+     * @param <T> the type of the result of the operation
+     */
+    public interface Operation<T> {
+
+        /**
+         * Runs this operation against the specified wiki.
+         *
+         * @param mediaWiki the wiki to run the operation against
+         * @return the result of the operation
+         * @throws MediaWikiException if an error occurs during a request
+         */
+        T apply(MediaWiki mediaWiki) throws MediaWikiException;
+
+    }
+
+    /**
+     * The result of an operation on a single host.  The result is either
+     * successful and has a value, or it is failed and has an exception.
+     *
+     * @param <T> the type of the result of the operation
+     */
+    public static final class Result<T> {
+
+        private final String host;
+
+        private final T value;
+
+        private final Optional<Exception> failure;
+
+        private Result(final String host, final T value,
+                final Optional<Exception> failure) {
+            this.host = host;
+            this.value = value;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns the value of this result.  If the operation failed, the
+         * exception is thrown instead.  Checked exceptions other than
+         * {@code MediaWikiException} are wrapped in a {@code
+         * MediaWikiException}.
+         *
+         * @return the value of the result
+         * @throws MediaWikiException if the operation failed
+         */
+        public T get() throws MediaWikiException {
+            if (failure.isPresent()) {
+                Exception exception = failure.get();
+                Throwables.propagateIfInstanceOf(exception,
+                        MediaWikiException.class);
+                Throwables.propagateIfPossible(exception);
+                throw new MediaWikiException(exception);
+            }
+            return value;
+        }
+
+        /**
+         * Returns the exception of the operation, if it failed.
+         *
+         * @return the exception of the failed operation
+         */
+        public Optional<Exception> getFailure() {
+            return failure;
+        }
+
+        /**
+         * Returns the host that the operation was run against.
+         *
+         * @return the host of the wiki
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Returns whether the operation completed successfully.
+         *
+         * @return true if the operation completed successfully, false if it
+         *         failed
+         */
+        public boolean isSuccessful() {
+            return !failure.isPresent();
+        }
+
+        @Override
+        public String toString() {
+            if (failure.isPresent()) {
+                return String.format("Result[host='%s',failure=%s]", host,
+                        failure.get());
+            }
+            return String.format("Result[host='%s',value=%s]", host, value);
+        }
+
+    }
+
+    /**
+     * Runs the operations for one host on the worker threads.  Operations
+     * that exceed the maximum concurrency of the host wait in a queue
+     * instead of occupying a worker thread, and are started when a running
+     * operation of the host has finished.  When the queue is closed, the
+     * waiting operations are cancelled.
+     */
+    private final class HostQueue {
+
+        private final int maxConcurrency;
+
+        private final Queue<ListenableFutureTask<?>> waiting =
+                new ArrayDeque<>();
+
+        private int running = 0;
+
+        private boolean closed = false;
+
+        public HostQueue(final int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public synchronized void close() {
+            closed = true;
+            for (ListenableFutureTask<?> task : waiting) {
+                task.cancel(false);
+            }
+            waiting.clear();
+        }
+
+        public synchronized void finished() {
+            while (true) {
+                ListenableFutureTask<?> task = waiting.poll();
+                if (task == null) {
+                    running--;
+                    return;
+                }
+                try {
+                    start(task);
+                    return;
+                } catch (RejectedExecutionException exception) {
+                    // the executor has been closed
+                    task.cancel(false);
+                }
+            }
+        }
+
+        private void start(final ListenableFutureTask<?> task) {
+            executor.execute(new HostTask(this, task));
+        }
+
+        public synchronized void submit(final ListenableFutureTask<?> task) {
+            if (closed) {
+                task.cancel(false);
+                return;
+            }
+            if (running >= maxConcurrency) {
+                waiting.add(task);
+                return;
+            }
+            try {
+                start(task);
+                running++;
+            } catch (RejectedExecutionException exception) {
+                // the executor has been closed
+                task.cancel(false);
+            }
+        }
+
+    }
+
+    /**
+     * An operation of a host queue that has been passed to the worker
+     * threads.  If the executor is closed before the operation is started,
+     * it is cancelled instead of being run.
+     */
+    private static final class HostTask implements Runnable {
+
+        private final HostQueue queue;
+
+        private final ListenableFutureTask<?> task;
+
+        public HostTask(final HostQueue queue,
+                final ListenableFutureTask<?> task) {
+            this.queue = queue;
+            this.task = task;
+        }
+
+        public void cancel() {
+            try {
+                task.cancel(false);
+            } finally {
+                queue.finished();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                queue.finished();
+            }
+        }
+
+    }
+
+    private final class ResultIterator<T> extends
+            AbstractIterator<Result<T>> {
+
+        private final Map<String, ListenableFuture<T>> pending;
+
+        private final BlockingQueue<String> completed =
+                new LinkedBlockingQueue<>();
+
+        private final Optional<Long> deadline;
+
+        private boolean expired = false;
+
+        public ResultIterator(final Operation<T> operation,
+                final Optional<Long> deadline) {
+            this.deadline = deadline;
+            pending = new LinkedHashMap<>();
+            for (final String host : queues.keySet()) {
+                ListenableFutureTask<T> task =
+                        ListenableFutureTask.create(new Callable<T>() {
+                            @Override
+                            public T call() throws Exception {
+                                return operation.apply(getMediaWiki(host));
+                            }
+                        });
+                pending.put(host, task);
+                task.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        completed.add(host);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                queues.get(host).submit(task);
+            }
+        }
+
+        @Override
+        protected Result<T> computeNext() {
+            while (!pending.isEmpty()) {
+                if (!expired) {
+                    Optional<String> host = pollCompleted();
+                    if (host.isPresent()) {
+                        ListenableFuture<T> future =
+                                pending.remove(host.get());
+                        if (future != null) {
+                            return getResult(host.get(), future);
+                        }
+                        continue;
+                    }
+                    expired = true;
+                    for (ListenableFuture<T> future : pending.values()) {
+                        future.cancel(true);
+                    }
+                }
+                Iterator<Map.Entry<String, ListenableFuture<T>>> iterator =
+                        pending.entrySet().iterator();
+                Map.Entry<String, ListenableFuture<T>> entry =
+                        iterator.next();
+                iterator.remove();
+                return getResult(entry.getKey(), entry.getValue());
+            }
+            return endOfData();
+        }
+
+        private Result<T> getResult(final String host,
+                final ListenableFuture<T> future) {
+            try {
+                T value = Uninterruptibles.getUninterruptibly(future);
+                return new Result<>(host, value, Optional.<Exception>absent());
+            } catch (CancellationException exception) {
+                Exception failure = exception;
+                if (expired) {
+                    failure =
+                            new TimeoutException(
+                                    "The deadline has been exceeded");
+                }
+                return new Result<>(host, null, Optional.of(failure));
+            } catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                Throwables.propagateIfInstanceOf(cause, Error.class);
+                Exception failure = (Exception) cause;
+                return new Result<>(host, null, Optional.of(failure));
+            }
+        }
+
+        private Optional<String> pollCompleted() {
+            if (!deadline.isPresent()) {
+                return Optional.of(Uninterruptibles
+                        .takeUninterruptibly(completed));
+            }
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    long remaining = deadline.get() - System.nanoTime();
+                    try {
+                        return Optional.fromNullable(completed.poll(
+                                remaining, TimeUnit.NANOSECONDS));
+                    } catch (InterruptedException exception) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENCY_PER_HOST = 1;
+
+    private static final int DEFAULT_PARALLELISM = 16;
+
+    private static final ThreadFactory THREAD_FACTORY =
+            new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("mediawiki-multiwiki-%d").build();
+
+    private final Map<String, HostQueue> queues;
+
+    private final Map<String, MediaWiki> instances = new HashMap<>();
+
+    private final ExecutorService executor;
+
+    private MultiWikiExecutor(final Builder builder) {
+        ImmutableMap.Builder<String, HostQueue> queuesBuilder =
+                ImmutableMap.builder();
+        for (String host : builder.hosts) {
+            queuesBuilder.put(host,
+                    new HostQueue(builder.maxConcurrencyPerHost));
+        }
+        queues = queuesBuilder.build();
+        executor =
+                Executors.newFixedThreadPool(builder.parallelism,
+                        THREAD_FACTORY);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (HostQueue queue : queues.values()) {
+            queue.close();
+        }
+        for (Runnable task : executor.shutdownNow()) {
+            ((HostTask) task).cancel();
+        }
+        synchronized (instances) {
+            MediaWikiUtils.close(instances.values());
+            instances.clear();
+        }
+    }
+
+    /**
+     * Runs the specified operation against all hosts of this executor and
+     * returns the results in the order of completion.  The iterator blocks
+     * until the next result is available.
+     *
+     * @param operation the operation to run
+     * @param <T> the type of the result of the operation
+     * @return an iterator over the results for all hosts
+     * @throws NullPointerException if the specified operation is null
+     */
+    public <T> Iterator<Result<T>> execute(final Operation<T> operation) {
+        Preconditions.checkNotNull(operation);
+
+        return new ResultIterator<>(operation, Optional.<Long>absent());
+    }
+
+    /**
+     * Runs the specified operation against all hosts of this executor and
+     * returns the results in the order of completion.  The iterator blocks
+     * until the next result is available or the specified timeout has
+     * elapsed since this method has been called.  Afterwards, the remaining
+     * operations are cancelled and reported as failed.
+     *
+     * @param operation the operation to run
+     * @param timeout the maximum time to wait for the results
+     * @param <T> the type of the result of the operation
+     * @return an iterator over the results for all hosts
+     * @throws NullPointerException if the specified operation or timeout is
+     *         null
+     * @throws IllegalArgumentException if the specified timeout is negative
+     */
+    public <T> Iterator<Result<T>> execute(final Operation<T> operation,
+            final Duration timeout) {
+        Preconditions.checkNotNull(operation);
+        Preconditions.checkNotNull(timeout);
+        Preconditions.checkArgument(!timeout.isShorterThan(Duration.ZERO));
+
+        long deadline =
+                System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(timeout.getMillis());
+        return new ResultIterator<>(operation, Optional.of(deadline));
+    }
+
+    /**
+     * Returns the hosts of this executor in the order they have been added.
+     *
+     * @return the hosts of the wikis
+     */
+    public Set<String> getHosts() {
+        return queues.keySet();
+    }
+
+    private MediaWiki getMediaWiki(final String host)
+            throws MediaWikiException {
+        synchronized (instances) {
+            MediaWiki mediaWiki = instances.get(host);
+            if (mediaWiki == null) {
+                mediaWiki = MediaWikiFactory.newWikimediaInstance(host);
+                instances.put(host, mediaWiki);
+            }
+            return mediaWiki;
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.ireas.mediawiki.exceptions.UncheckedMediaWikiException;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Iterator over a result list that is split into several pages.  While the
+ * results of one page are consumed, the next page is loaded in the
+ * background.  At most two pages are held in memory at the same time, so
+ * the memory usage does not depend on the total number of results.
+ * <p>
+ * If loading a page fails, the {@code MediaWikiException} is wrapped in an
+ * {@link UncheckedMediaWikiException} and thrown by {@code hasNext} or
+ * {@code next}.
+ *
+ * @author ireas
+ * @param <T> the type of the results
+ */
+final class PagingIterator<T> extends AbstractIterator<T> {
+
+    /**
+     * Loads a page of results.
+     *
+     * @param <T> the type of the results
+     */
+    interface PageLoader<T> {
+
+        /**
+         * Loads the page described by the specified continuation arguments.
+         *
+         * @param continuation the continuation arguments of the previous page
+         * @return the loaded page
+         * @throws MediaWikiException if the page cannot be loaded
+         */
+        ResultPage<T> loadPage(Map<String, String> continuation)
+                throws MediaWikiException;
+
+    }
+
+    private final PageLoader<T> loader;
+
+    private final ExecutorService executor;
+
+    private Iterator<T> currentPage;
+
+    private Future<ResultPage<T>> nextPage;
+
+    /**
+     * Constructs a new iterator starting with the specified page.  If there
+     * is a next page, it is immediately requested using the specified loader
+     * and executor.
+     *
+     * @param firstPage the first page of results
+     * @param loader the loader for the following pages
+     * @param executor the executor that loads the pages in the background
+     * @throws NullPointerException if one of the arguments is null
+     */
+    public PagingIterator(final ResultPage<T> firstPage,
+            final PageLoader<T> loader, final ExecutorService executor) {
+        Preconditions.checkNotNull(firstPage);
+        Preconditions.checkNotNull(loader);
+        Preconditions.checkNotNull(executor);
+
+        this.loader = loader;
+        this.executor = executor;
+        setPage(firstPage);
+    }
+
+    @Override
+    protected T computeNext() {
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                return endOfData();
+            }
+            setPage(getNextPage());
+        }
+        return currentPage.next();
+    }
+
+    private ResultPage<T> getNextPage() {
+        try {
+            return Uninterruptibles.getUninterruptibly(nextPage);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof MediaWikiException) {
+                throw new UncheckedMediaWikiException(
+                        (MediaWikiException) cause);
+            }
+            throw Throwables.propagate(cause);
+        }
+    }
+
+    private void setPage(final ResultPage<T> page) {
+        currentPage = page.getResults().iterator();
+        final Optional<Map<String, String>> continuation =
+                page.getContinuation();
+        if (continuation.isPresent()) {
+            nextPage = executor.submit(new Callable<ResultPage<T>>() {
+                @Override
+                public ResultPage<T> call() throws MediaWikiException {
+                    return loader.loadPage(continuation.get());
+                }
+            });
+        } else {
+            nextPage = null;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Set;
+
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.HttpMediaWikiException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Optional;
+
+/**
+ * Collects several sub-queries and sends them to the API in as few requests
+ * as possible.  The sub-queries on the {@code users} list are merged into
+ * a single module (as long as the multi-value limit of the API is not
+ * exceeded), and each request may additionally contain one sub-query on
+ * the {@code usercontribs} list.  Tokens are taken from the token cache or
+ * retrieved in one additional request.
+ * <p>
+ * Each {@code add} method returns a {@link BatchResult} that provides the
+ * value of the sub-query after the batch has been executed.  A batch may
+ * only be executed once.  To receive an instance of this class, use
+ * {@link MediaWiki#newQueryBatch()}.  Instances of this class are not
+ * thread-safe.
+ *
+ * @author ireas
+ * @see MediaWiki#newQueryBatch()
+ */
+public interface QueryBatch {
+
+    /**
+     * Adds a sub-query for the number of contributions of a user.  This is
+     * the batched equivalent of {@link MediaWiki#getContribCount(String,
+     * int)}.
+     *
+     * @param user the name of the user to get the contributions count for
+     * @param limit the maximum number of contributions to count
+     * @return the result of the sub-query
+     * @throws NullPointerException if the specified user is null
+     * @throws IllegalArgumentException if the specified limit is not
+     *         positive or the specified user contains the separator
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    BatchResult<Integer> addContribCount(String user, int limit);
+
+    /**
+     * Adds a sub-query for the number of contributions of a user in the
+     * specified namespaces.  This is the batched equivalent of {@link
+     * MediaWiki#getContribCount(String, int, Set)}.
+     *
+     * @param user the name of the user to get the contributions count for
+     * @param limit the maximum number of contributions to count
+     * @param namespaces the namespaces to count the contributions in (empty
+     *        for all namespaces)
+     * @return the result of the sub-query
+     * @throws NullPointerException if the specified user or namespaces set is
+     *         null
+     * @throws IllegalArgumentException if the specified limit is not
+     *         positive or the specified user contains the separator
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    BatchResult<Integer> addContribCount(String user, int limit,
+            Set<Namespace> namespaces);
+
+    /**
+     * Adds a sub-query for the date of the first edit of a user.  This is
+     * the batched equivalent of {@link MediaWiki#getFirstEdit(String)}.
+     *
+     * @param user the name of the user to get the first edit for
+     * @return the result of the sub-query
+     * @throws NullPointerException if the specified user is null
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    BatchResult<Optional<DateTime>> addFirstEdit(String user);
+
+    /**
+     * Adds a sub-query for a token of the specified type.  This is the
+     * batched equivalent of {@link MediaWiki#getToken(TokenType)}.
+     *
+     * @param type the type of the token to retrieve
+     * @return the result of the sub-query
+     * @throws NullPointerException if the specified type is null
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    BatchResult<String> addToken(TokenType type);
+
+    /**
+     * Adds a sub-query for the data of a user.  Unlike {@link
+     * MediaWiki#getUserData(String)}, the value of the result is absent if
+     * the user does not exist.
+     *
+     * @param user the name of the user to get the data for
+     * @return the result of the sub-query
+     * @throws NullPointerException if the specified user is null
+     * @throws IllegalArgumentException if the specified user contains the
+     *         separator
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    BatchResult<Optional<UserData>> addUserData(String user);
+
+    /**
+     * Sends the collected sub-queries to the API and sets the values of
+     * the results.  If an error occurs, the results of the requests that
+     * have not been completed remain unavailable.
+     *
+     * @throws HttpMediaWikiException if an HTTP error occurs
+     * @throws MediaWikiException if an error occurs during the requests
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    void execute() throws MediaWikiException;
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+
+/**
+ * A buffered HTTP response that can be stored in and read from a fixture
+ * directory.  Each response is stored in two files whose names are derived
+ * from the request key (see {@link #getKey(URI, Map)}): a properties file
+ * containing the key, the status line and the content type, and a file
+ * containing the response body.  Other headers are not stored.
+ *
+ * @author ireas
+ */
+final class RecordedResponse {
+
+    private static final String BODY_SUFFIX = ".body";
+
+    private static final String COMMENT = "Recorded API response";
+
+    private static final String MASK = "*";
+
+    private static final Set<String> MASKED_ARGUMENTS = ImmutableSet.of(
+            ApiConstants.LG_PASSWORD, ApiConstants.LG_TOKEN,
+            ApiConstants.TOKEN);
+
+    private static final String PROPERTIES_GLOB = "*.properties";
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+
+    private static final String PROPERTY_CONTENT_TYPE = "contentType";
+
+    private static final String PROPERTY_REASON = "reason";
+
+    private static final String PROPERTY_REQUEST = "request";
+
+    private static final String PROPERTY_STATUS = "status";
+
+    private final int statusCode;
+
+    private final String reasonPhrase;
+
+    private final Optional<String> contentType;
+
+    private final byte[] body;
+
+    /**
+     * Constructs a new response with the specified data.
+     *
+     * @param statusCode the HTTP status code
+     * @param reasonPhrase the reason phrase of the status line
+     * @param contentType the content type of the body, if any
+     * @param body the response body
+     */
+    public RecordedResponse(final int statusCode, final String reasonPhrase,
+            final Optional<String> contentType, final byte[] body) {
+        Preconditions.checkNotNull(reasonPhrase);
+        Preconditions.checkNotNull(contentType);
+        Preconditions.checkNotNull(body);
+
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * Returns the key of a request with the specified URI and arguments.
+     * The key contains the URI and the sorted arguments, so that it does
+     * not depend on the order of the arguments.  The {@code maxlag}
+     * argument is omitted, and the values of passwords and tokens are
+     * masked, as they change between sessions and must not be stored.
+     *
+     * @param apiUri the URI of the API
+     * @param arguments the arguments of the request
+     * @return the key of the request
+     */
+    public static String getKey(final URI apiUri,
+            final Map<String, String> arguments) {
+        Map<String, String> keyArguments = new TreeMap<>(arguments);
+        keyArguments.remove(ApiConstants.MAX_LAG);
+        for (Map.Entry<String, String> entry : keyArguments.entrySet()) {
+            if (MASKED_ARGUMENTS.contains(entry.getKey())) {
+                entry.setValue(MASK);
+            }
+        }
+        return apiUri + "?" + URLEncodedUtils.format(
+                MediaWikiUtils.mapToNameValuePairs(keyArguments),
+                StandardCharsets.UTF_8);
+    }
+
+    private static String getName(final String key) {
+        return Hashing.sha1().hashString(key, StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    /**
+     * Reads and closes the specified response.
+     *
+     * @param response the response to read
+     * @return the buffered response
+     * @throws IOException if the response body cannot be read
+     */
+    public static RecordedResponse read(final CloseableHttpResponse response)
+            throws IOException {
+        try {
+            HttpEntity entity = response.getEntity();
+            Optional<String> contentType = Optional.absent();
+            byte[] body = new byte[0];
+            if (entity != null) {
+                if (entity.getContentType() != null) {
+                    contentType =
+                            Optional.of(entity.getContentType().getValue());
+                }
+                body = EntityUtils.toByteArray(entity);
+            }
+            return new RecordedResponse(
+                    response.getStatusLine().getStatusCode(),
+                    response.getStatusLine().getReasonPhrase(), contentType,
+                    body);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Reads all responses stored in the specified directory.
+     *
+     * @param directory the fixture directory
+     * @return the stored responses mapped to their request keys
+     * @throws IOException if the directory or a response cannot be read
+     */
+    public static Map<String, RecordedResponse> readAll(final Path directory)
+            throws IOException {
+        Map<String, RecordedResponse> responses = new HashMap<>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(directory, PROPERTIES_GLOB)) {
+            for (Path file : stream) {
+                Properties properties = new Properties();
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    properties.load(inputStream);
+                }
+                String key = properties.getProperty(PROPERTY_REQUEST);
+                String status = properties.getProperty(PROPERTY_STATUS);
+                if (key == null || status == null) {
+                    throw new IOException("Invalid recorded response: "
+                            + file);
+                }
+                int statusCode;
+                try {
+                    statusCode = Integer.parseInt(status);
+                } catch (NumberFormatException exception) {
+                    throw new IOException("Invalid recorded response: "
+                            + file, exception);
+                }
+                byte[] body = Files.readAllBytes(directory.resolve(
+                        getName(key) + BODY_SUFFIX));
+                responses.put(key, new RecordedResponse(statusCode,
+                        properties.getProperty(PROPERTY_REASON, ""),
+                        Optional.fromNullable(properties
+                                .getProperty(PROPERTY_CONTENT_TYPE)), body));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Returns a new HTTP response with the data of this response.  The
+     * returned response does not need to be closed.
+     *
+     * @return a new HTTP response
+     */
+    public CloseableHttpResponse toHttpResponse() {
+        ByteArrayEntity entity = new ByteArrayEntity(body);
+        if (contentType.isPresent()) {
+            entity.setContentType(contentType.get());
+        }
+        BufferedHttpResponse response =
+                new BufferedHttpResponse(statusCode, reasonPhrase);
+        response.setEntity(entity);
+        return response;
+    }
+
+    /**
+     * Stores this response for the specified request key in the specified
+     * directory.  A response previously stored for the same key is
+     * replaced.
+     *
+     * @param directory the fixture directory
+     * @param key the request key
+     * @throws IOException if the response cannot be written
+     */
+    public void write(final Path directory, final String key)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PROPERTY_REQUEST, key);
+        properties.setProperty(PROPERTY_STATUS, Integer.toString(statusCode));
+        properties.setProperty(PROPERTY_REASON, reasonPhrase);
+        if (contentType.isPresent()) {
+            properties.setProperty(PROPERTY_CONTENT_TYPE, contentType.get());
+        }
+
+        String name = getName(key);
+        Files.write(directory.resolve(name + BODY_SUFFIX), body);
+        try (OutputStream outputStream = Files.newOutputStream(
+                directory.resolve(name + PROPERTIES_SUFFIX))) {
+            properties.store(outputStream, COMMENT);
+        }
+    }
+
+    /**
+     * An HTTP response that holds its entity in memory, so that closing it
+     * has no effect.
+     */
+    private static final class BufferedHttpResponse extends BasicHttpResponse
+            implements CloseableHttpResponse {
+
+        public BufferedHttpResponse(final int statusCode,
+                final String reasonPhrase) {
+            super(HttpVersion.HTTP_1_1, statusCode, reasonPhrase);
+        }
+
+        @Override
+        public void close() {
+            // the entity is held in memory, so there is nothing to release
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Implementation of the {@code ApiTransport} interface that stores every
+ * response in a fixture directory, so that it can be served by a {@link
+ * ReplayTransport} later.  The requests are executed by a delegate
+ * transport, per default {@link ApiTransport#HTTP}.  The response body is
+ * read completely before the response is returned.
+ * <p>
+ * Responses are identified by the URI and the arguments of the request.
+ * The values of passwords and tokens are not stored.  If a request is
+ * sent several times, the last response is kept.  Fixture directories can
+ * be shared by several recording sessions, but only one transport should
+ * write to a directory at a time.
+ *
+ * @author ireas
+ * @see ReplayTransport
+ */
+public final class RecordingTransport implements ApiTransport {
+
+    private final Path directory;
+
+    private final ApiTransport delegate;
+
+    /**
+     * Constructs a new transport that sends the requests with the HTTP
+     * client and stores the responses in the specified directory.  The
+     * directory is created if it does not exist.
+     *
+     * @param directory the fixture directory
+     * @throws IOException if the directory cannot be created
+     * @throws NullPointerException if the specified directory is null
+     */
+    public RecordingTransport(final Path directory) throws IOException {
+        this(directory, ApiTransport.HTTP);
+    }
+
+    /**
+     * Constructs a new transport that sends the requests with the specified
+     * transport and stores the responses in the specified directory.  The
+     * directory is created if it does not exist.
+     *
+     * @param directory the fixture directory
+     * @param delegate the transport to send the requests with
+     * @throws IOException if the directory cannot be created
+     * @throws NullPointerException if one of the arguments is null
+     */
+    public RecordingTransport(final Path directory,
+            final ApiTransport delegate) throws IOException {
+        Preconditions.checkNotNull(directory);
+        Preconditions.checkNotNull(delegate);
+
+        this.directory = Files.createDirectories(directory);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(final CloseableHttpClient client,
+            final HttpPost request, final Map<String, String> arguments,
+            final HttpContext context) throws IOException {
+        RecordedResponse response = RecordedResponse.read(
+                delegate.execute(client, request, arguments, context));
+        String key = RecordedResponse.getKey(request.getURI(), arguments);
+        synchronized (this) {
+            response.write(directory, key);
+        }
+        return response.toHttpResponse();
+    }
+
+    /**
+     * Returns the directory the responses are stored in.
+     *
+     * @return the fixture directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.joda.time.Duration;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Implementation of the {@code ApiTransport} interface that serves the
+ * responses stored by a {@link RecordingTransport} without accessing the
+ * network.  The responses are read into memory when the transport is
+ * built.  Requests are matched by their URI and arguments, ignoring the
+ * values of passwords and tokens.  If no response has been recorded for a
+ * request, a response with the HTTP status code 404 is returned.
+ * <p>
+ * To simulate a server, every request can be delayed by a synthetic
+ * latency and a random jitter.  The delay blocks the calling thread, so
+ * the number of concurrent requests is limited by the number of client
+ * threads, not by the connection pool.
+ * <p>
+ * Transports are constructed using a {@link Builder}.  Per default,
+ * requests are not delayed.
+ *
+ * @author ireas
+ * @see RecordingTransport
+ */
+public final class ReplayTransport implements ApiTransport {
+
+    /**
+     * Builder for {@code ReplayTransport} objects.  Responses are added by
+     * reading fixture directories, and the latency can be changed using
+     * the setter methods.  The setters return the builder itself, so that
+     * calls can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private final Map<String, RecordedResponse> responses =
+                new HashMap<>();
+
+        private Duration latency = Duration.ZERO;
+
+        private Duration jitter = Duration.ZERO;
+
+        /**
+         * Constructs a new builder without responses.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Reads the responses stored in the specified fixture directory.
+         * Responses replace previously added responses for the same
+         * request.
+         *
+         * @param directory the fixture directory
+         * @return this builder
+         * @throws IOException if the directory or a response cannot be read
+         * @throws NullPointerException if the specified directory is null
+         */
+        public Builder addDirectory(final Path directory)
+                throws IOException {
+            Preconditions.checkNotNull(directory);
+            responses.putAll(RecordedResponse.readAll(directory));
+            return this;
+        }
+
+        /**
+         * Constructs a new transport using the values of this builder.
+         *
+         * @return a new transport with the values of this builder
+         */
+        public ReplayTransport build() {
+            return new ReplayTransport(this);
+        }
+
+        /**
+         * Sets the maximum random delay that is added to the latency of
+         * each request.
+         *
+         * @param maxJitter the maximum jitter
+         * @return this builder
+         * @throws NullPointerException if the specified jitter is null
+         * @throws IllegalArgumentException if the specified jitter is
+         *         negative
+         */
+        public Builder setJitter(final Duration maxJitter) {
+            Preconditions.checkNotNull(maxJitter);
+            Preconditions.checkArgument(maxJitter.getMillis() >= 0);
+            jitter = maxJitter;
+            return this;
+        }
+
+        /**
+         * Sets the minimum delay of each request.
+         *
+         * @param minLatency the latency
+         * @return this builder
+         * @throws NullPointerException if the specified latency is null
+         * @throws IllegalArgumentException if the specified latency is
+         *         negative
+         */
+        public Builder setLatency(final Duration minLatency) {
+            Preconditions.checkNotNull(minLatency);
+            Preconditions.checkArgument(minLatency.getMillis() >= 0);
+            latency = minLatency;
+            return this;
+        }
+
+    }
+
+    private static final String REASON_NOT_RECORDED = "No recorded response";
+
+    private static final RecordedResponse NOT_RECORDED = new RecordedResponse(
+            HttpStatus.SC_NOT_FOUND, REASON_NOT_RECORDED,
+            Optional.<String>absent(), new byte[0]);
+
+    private final ImmutableMap<String, RecordedResponse> responses;
+
+    private final Duration latency;
+
+    private final Duration jitter;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private ReplayTransport(final Builder builder) {
+        responses = ImmutableMap.copyOf(builder.responses);
+        latency = builder.latency;
+        jitter = builder.jitter;
+    }
+
+    private void delay() throws InterruptedIOException {
+        long millis = latency.getMillis();
+        if (jitter.getMillis() > 0) {
+            millis += ThreadLocalRandom.current().nextLong(
+                    jitter.getMillis() + 1);
+        }
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while simulating latency");
+            }
+        }
+    }
+
+    @Override
+    public CloseableHttpResponse execute(final CloseableHttpClient client,
+            final HttpPost request, final Map<String, String> arguments,
+            final HttpContext context) throws IOException {
+        requestCount.incrementAndGet();
+        delay();
+        RecordedResponse response = responses.get(
+                RecordedResponse.getKey(request.getURI(), arguments));
+        if (response == null) {
+            missCount.incrementAndGet();
+            response = NOT_RECORDED;
+        }
+        return response.toHttpResponse();
+    }
+
+    /**
+     * Returns the maximum random delay that is added to the latency.
+     *
+     * @return the maximum jitter
+     */
+    public Duration getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Returns the minimum delay of each request.
+     *
+     * @return the latency
+     */
+    public Duration getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of requests for which no response has been
+     * recorded.
+     *
+     * @return the number of unmatched requests
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of requests served by this transport.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of recorded responses.
+     *
+     * @return the number of responses
+     */
+    public int getResponseCount() {
+        return responses.size();
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Coalesces concurrent executions of identical requests.  The first thread
+ * that executes a request with a given key performs the request.  Threads
+ * that execute a request with an equal key while it is in progress wait for
+ * it and receive the same result or exception.  Once a request has
+ * finished, its key is released, so results are never cached.  Requests
+ * with equal keys must return results of the same type.  This class is
+ * thread-safe.
+ *
+ * @param <K> the type of the request keys
+ * @author ireas
+ */
+final class RequestCoalescer<K> {
+
+    private final ConcurrentMap<K, SettableFuture<Object>> requests =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private static <V> V await(final SettableFuture<Object> future)
+            throws MediaWikiException {
+        try {
+            @SuppressWarnings("unchecked")
+            V result = (V) Uninterruptibles.getUninterruptibly(future);
+            return result;
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            Throwables.propagateIfInstanceOf(cause, MediaWikiException.class);
+            throw Throwables.propagate(cause);
+        }
+    }
+
+    /**
+     * Performs the specified request unless a request with an equal key is
+     * in progress, in which case the result of that request is returned.
+     * Exceptions thrown by the request are rethrown to all waiting threads.
+     *
+     * @param key the key identifying the request
+     * @param request the request to perform
+     * @param <V> the type of the result
+     * @return the result of the request
+     * @throws MediaWikiException if the request throws a {@code
+     *         MediaWikiException}
+     * @throws NullPointerException if one of the arguments is null
+     */
+    public <V> V execute(final K key, final Callable<V> request)
+            throws MediaWikiException {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(request);
+
+        SettableFuture<Object> future = SettableFuture.create();
+        SettableFuture<Object> pendingFuture =
+                requests.putIfAbsent(key, future);
+        if (pendingFuture != null) {
+            coalescedCount.incrementAndGet();
+            return await(pendingFuture);
+        }
+
+        V result;
+        try {
+            result = request.call();
+        } catch (Throwable throwable) {
+            requests.remove(key, future);
+            future.setException(throwable);
+            Throwables.propagateIfInstanceOf(throwable,
+                    MediaWikiException.class);
+            throw Throwables.propagate(throwable);
+        }
+        requests.remove(key, future);
+        future.set(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of requests that have been answered with the
+     * result of a concurrent identical request instead of being performed.
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+}
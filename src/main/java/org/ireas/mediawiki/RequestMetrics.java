@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Arrays;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Measurements of a single HTTP request to the API.  A request is split
+ * into several {@link Phase phases}, and the duration of each phase is
+ * measured in nanoseconds.  If a request is retried, each attempt is
+ * measured separately.  Instances of this class are created by the {@code
+ * MediaWiki} implementation and passed to the configured {@link
+ * MetricsListener}; they are immutable.
+ *
+ * @author ireas
+ * @see MetricsListener
+ */
+public final class RequestMetrics {
+
+    /**
+     * The phases of a request.
+     *
+     * @author ireas
+     */
+    public enum Phase {
+
+        /**
+         * Waiting for a pooled connection, including establishing a new
+         * connection if there is no idle connection to the host.
+         */
+        LEASE,
+
+        /**
+         * Sending the request and waiting for the response headers.
+         */
+        SERVER,
+
+        /**
+         * Reading the response body.  Streaming readers parse the response
+         * while reading it, so for these readers, this phase also contains
+         * most of the parsing.
+         */
+        DOWNLOAD,
+
+        /**
+         * Processing the response after the body has been read completely,
+         * for example building a JSON tree from the response string.
+         */
+        PARSE,
+
+        /**
+         * The complete request, from requesting a connection until the
+         * response has been processed.
+         */
+        TOTAL;
+
+    }
+
+    private final String host;
+
+    private final String module;
+
+    private final int attempt;
+
+    private final int statusCode;
+
+    private final Optional<String> errorCode;
+
+    private final long bytesReceived;
+
+    private final long[] durations;
+
+    /**
+     * Constructs new request metrics.
+     *
+     * @param host the host the request was sent to
+     * @param module the API module of the request
+     * @param attempt the number of the attempt, starting with one
+     * @param statusCode the HTTP status code, or zero if there was no
+     *        response
+     * @param errorCode the MediaWiki error code, if the API returned an
+     *        error
+     * @param bytesReceived the number of bytes of the response body
+     * @param durations the durations of the phases in nanoseconds, indexed
+     *        by the ordinal of the phase
+     */
+    RequestMetrics(final String host, final String module, final int attempt,
+            final int statusCode, final Optional<String> errorCode,
+            final long bytesReceived, final long[] durations) {
+        Preconditions.checkNotNull(host);
+        Preconditions.checkNotNull(module);
+        Preconditions.checkNotNull(errorCode);
+        Preconditions.checkArgument(
+                durations.length == Phase.values().length);
+
+        this.host = host;
+        this.module = module;
+        this.attempt = attempt;
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+        this.bytesReceived = bytesReceived;
+        this.durations = durations.clone();
+    }
+
+    /**
+     * Returns the number of the attempt.  The first attempt of a request
+     * has the number one; retries have higher numbers.
+     *
+     * @return the number of the attempt
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Returns the number of bytes of the response body that have been
+     * received.  If the response was compressed, the compressed size is
+     * returned.
+     *
+     * @return the number of received bytes
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns the duration of the specified phase in nanoseconds.  If the
+     * request failed before the phase was reached, zero is returned.
+     *
+     * @param phase the phase
+     * @return the duration of the phase in nanoseconds
+     * @throws NullPointerException if the specified phase is null
+     */
+    public long getDuration(final Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * Returns the MediaWiki error code of the response, if the API returned
+     * an error.
+     *
+     * @return the error code, or absent if the API did not return an error
+     */
+    public Optional<String> getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Returns the host the request was sent to.
+     *
+     * @return the host of the API
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the API module of the request:  the action, followed by a
+     * colon and the list, prop and meta modules for query requests (for
+     * example {@code query:usercontribs}).
+     *
+     * @return the API module of the request
+     * @see ApiRequests#getModule(java.util.Map)
+     */
+    public String getModule() {
+        return module;
+    }
+
+    /**
+     * Returns the HTTP status code of the response, or zero if no response
+     * has been received.
+     *
+     * @return the HTTP status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RequestMetrics[host=%s,module=%s,attempt=%d,"
+                + "status=%d,error=%s,bytes=%d,durations=%s]", host, module,
+                attempt, statusCode, errorCode.orNull(), bytesReceived,
+                Arrays.toString(durations));
+    }
+
+}
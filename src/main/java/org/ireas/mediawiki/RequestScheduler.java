@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.joda.time.Duration;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.primitives.Longs;
+
+/**
+ * Schedules the requests sent to one API host.  The scheduler limits the
+ * request rate according to the settings of a {@code
+ * MediaWikiConfiguration}, adds the {@code maxlag} parameter to the
+ * requests and decides whether and when failed requests are retried.
+ * <p>
+ * The rate limit is a token bucket:  up to {@code getRequestBurst} requests
+ * may be sent at once, and the bucket is refilled at {@code
+ * getRequestRate} requests per second.  A request reserves a slot using
+ * {@link #reserve} and has to wait for the returned time before it is
+ * sent, so the scheduler can be used by blocking and by non-blocking
+ * clients.
+ * <p>
+ * If a request fails, the client asks the scheduler for the retry delay
+ * using {@code getRetryDelay}.  The delay is determined by the {@link
+ * RetryPolicy} of the configuration and the {@code Retry-After} header of
+ * the response.  If the server rejected the request because it is
+ * overloaded or read-only, all requests to the host are delayed.  The
+ * retry is then scheduled using {@link #reserveRetry}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author ireas
+ */
+final class RequestScheduler {
+
+    private static final String HEADER_API_ERROR = "MediaWiki-API-Error";
+
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final Ticker ticker;
+
+    private final Optional<String> maxLag;
+
+    private final RetryPolicy retryPolicy;
+
+    private final long interval;
+
+    private final long burstTolerance;
+
+    private long nextTime;
+
+    private long resumeTime;
+
+    private double retryBalance;
+
+    /**
+     * Constructs a new scheduler using the settings of the specified
+     * configuration.
+     *
+     * @param configuration the configuration to read the settings from
+     * @throws NullPointerException if the specified configuration is null
+     */
+    public RequestScheduler(final MediaWikiConfiguration configuration) {
+        this(configuration, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new scheduler using the settings of the specified
+     * configuration and the specified time source.
+     *
+     * @param configuration the configuration to read the settings from
+     * @param ticker the time source
+     * @throws NullPointerException if the specified configuration or ticker
+     *         is null
+     */
+    public RequestScheduler(final MediaWikiConfiguration configuration,
+            final Ticker ticker) {
+        Preconditions.checkNotNull(configuration);
+        this.ticker = Preconditions.checkNotNull(ticker);
+
+        if (configuration.getMaxLag().isPresent()) {
+            maxLag = Optional.of(configuration.getMaxLag().get().toString());
+        } else {
+            maxLag = Optional.absent();
+        }
+        retryPolicy = configuration.getRetryPolicy();
+        double rate = configuration.getRequestRate();
+        if (rate > 0) {
+            interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        } else {
+            interval = 0;
+        }
+        burstTolerance = interval * (configuration.getRequestBurst() - 1);
+        nextTime = ticker.read();
+        resumeTime = nextTime;
+        retryBalance = retryPolicy.getMaxRetryBurst();
+    }
+
+    /**
+     * Waits until the next request may be sent.
+     *
+     * @throws InterruptedException if the current thread is interrupted
+     *         while waiting
+     */
+    public void acquire() throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve());
+    }
+
+    /**
+     * Waits until a retried request may be sent.
+     *
+     * @param delay the minimum time to wait
+     * @throws InterruptedException if the current thread is interrupted
+     *         while waiting
+     * @throws NullPointerException if the specified delay is null
+     */
+    public void acquireRetry(final Duration delay) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserveRetry(delay));
+    }
+
+    /**
+     * Returns a copy of the specified request arguments with the {@code
+     * maxlag} parameter if it is configured.  If the arguments already
+     * contain the parameter, they are returned unchanged.
+     *
+     * @param arguments the request arguments
+     * @return the request arguments with the {@code maxlag} parameter
+     * @throws NullPointerException if the specified arguments are null
+     */
+    public Map<String, String> addMaxLag(final Map<String, String> arguments) {
+        Preconditions.checkNotNull(arguments);
+
+        if (!maxLag.isPresent()
+                || arguments.containsKey(ApiConstants.MAX_LAG)) {
+            return arguments;
+        }
+        Map<String, String> modifiedArguments = new HashMap<>(arguments);
+        modifiedArguments.put(ApiConstants.MAX_LAG, maxLag.get());
+        return modifiedArguments;
+    }
+
+    /**
+     * Delays all requests that have not been reserved yet until the
+     * specified delay has passed.
+     *
+     * @param delay the time to wait before sending the next request
+     * @throws NullPointerException if the specified delay is null
+     */
+    public synchronized void backOff(final Duration delay) {
+        Preconditions.checkNotNull(delay);
+
+        resumeTime = Math.max(resumeTime, ticker.read() + toNanos(delay));
+    }
+
+    /**
+     * Returns the time to wait before retrying a request that failed with
+     * the specified I/O error.  Requests are only retried if they are
+     * idempotent and if the error is transient, e. g. a connection reset or
+     * a timeout.  Unknown hosts, SSL errors and interruptions are not
+     * retried.
+     *
+     * @param exception the I/O error
+     * @param attempt the number of the failed attempt, starting with one
+     * @param idempotent whether the request is idempotent
+     * @return the time to wait before the retry, or absent if the request
+     *         should not be retried
+     * @throws NullPointerException if the specified exception is null
+     */
+    public Optional<Duration> getRetryDelay(final IOException exception,
+            final int attempt, final boolean idempotent) {
+        Preconditions.checkNotNull(exception);
+
+        if (!idempotent || !isTransient(exception)) {
+            return Optional.absent();
+        }
+        return retry(attempt, Duration.ZERO);
+    }
+
+    /**
+     * Returns the time to wait before retrying a request that received the
+     * specified response.  If MediaWiki rejected the request with a {@code
+     * maxlag} or {@code readonly} API error (as indicated by the {@code
+     * MediaWiki-API-Error} header), the request is retried and all requests
+     * to the host are delayed.  The HTTP status codes 429 and 503 delay all
+     * requests to the host as well, but as they may also be sent by a proxy
+     * after the request has been processed, they are only retried for
+     * idempotent requests, like other server errors.  The delay is at least
+     * the time given in the {@code Retry-After} header.
+     *
+     * @param response the HTTP response
+     * @param attempt the number of the failed attempt, starting with one
+     * @param idempotent whether the request is idempotent
+     * @return the time to wait before the retry, or absent if the request
+     *         should not be retried
+     * @throws NullPointerException if the specified response is null
+     */
+    public Optional<Duration> getRetryDelay(final HttpResponse response,
+            final int attempt, final boolean idempotent) {
+        Preconditions.checkNotNull(response);
+
+        int statusCode = response.getStatusLine().getStatusCode();
+        boolean rejected =
+                isRejected(response.getFirstHeader(HEADER_API_ERROR));
+        boolean throttled =
+                (statusCode == SC_TOO_MANY_REQUESTS
+                        || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE)
+                        && idempotent;
+        boolean failed =
+                statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                        && idempotent;
+        if (!rejected && !throttled && !failed) {
+            return Optional.absent();
+        }
+        Optional<Duration> delay =
+                retry(attempt, parseRetryAfter(response
+                        .getFirstHeader(HEADER_RETRY_AFTER)));
+        if ((rejected || throttled) && delay.isPresent()) {
+            backOff(delay.get());
+        }
+        return delay;
+    }
+
+    /**
+     * Reserves a slot for a request and returns the time to wait before
+     * the request may be sent.  Each request adds to the retry budget.
+     *
+     * @return the time to wait in nanoseconds
+     */
+    public synchronized long reserve() {
+        retryBalance =
+                Math.min(retryPolicy.getMaxRetryBurst(), retryBalance
+                        + retryPolicy.getRetryRatio());
+        return reserve(ticker.read(), 0);
+    }
+
+    /**
+     * Reserves a slot for a retried request and returns the time to wait
+     * before the request may be sent.  The returned time is at least the
+     * specified delay.
+     *
+     * @param delay the minimum time to wait
+     * @return the time to wait in nanoseconds
+     * @throws NullPointerException if the specified delay is null
+     */
+    public synchronized long reserveRetry(final Duration delay) {
+        Preconditions.checkNotNull(delay);
+
+        return reserve(ticker.read(), toNanos(delay));
+    }
+
+    private long reserve(final long now, final long delay) {
+        long start = Math.max(now + delay, resumeTime);
+        if (interval == 0) {
+            return start - now;
+        }
+        nextTime = Math.max(nextTime, start);
+        long sendTime = Math.max(start, nextTime - burstTolerance);
+        nextTime += interval;
+        return sendTime - now;
+    }
+
+    private synchronized Optional<Duration> retry(final int attempt,
+            final Duration serverDelay) {
+        if (attempt >= retryPolicy.getMaxAttempts() || retryBalance < 1) {
+            return Optional.absent();
+        }
+        retryBalance--;
+        Duration delay = retryPolicy.getDelay(attempt);
+        if (serverDelay.isLongerThan(delay)) {
+            delay = serverDelay;
+        }
+        return Optional.of(delay);
+    }
+
+    private static boolean isRejected(final Header apiError) {
+        if (apiError == null) {
+            return false;
+        }
+        String errorCode = apiError.getValue();
+        return ApiConstants.ERROR_MAX_LAG.equals(errorCode)
+                || ApiConstants.ERROR_READ_ONLY.equals(errorCode);
+    }
+
+    private static boolean isTransient(final IOException exception) {
+        if (exception instanceof UnknownHostException
+                || exception instanceof SSLException) {
+            return false;
+        }
+        if (exception instanceof InterruptedIOException) {
+            return exception instanceof SocketTimeoutException
+                    || exception instanceof ConnectTimeoutException;
+        }
+        return true;
+    }
+
+    private static Duration parseRetryAfter(final Header header) {
+        if (header == null) {
+            return Duration.ZERO;
+        }
+        String value = header.getValue().trim();
+        Long seconds = Longs.tryParse(value);
+        if (seconds != null) {
+            return Duration.standardSeconds(Math.max(seconds, 0));
+        }
+        Date date = DateUtils.parseDate(value);
+        if (date == null) {
+            return Duration.ZERO;
+        }
+        return new Duration(Math.max(
+                date.getTime() - System.currentTimeMillis(), 0));
+    }
+
+    private static long toNanos(final Duration duration) {
+        return TimeUnit.MILLISECONDS.toNanos(duration.getMillis());
+    }
+
+}
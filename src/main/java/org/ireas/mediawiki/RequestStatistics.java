@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+/**
+ * Counts the requests of a {@code MediaWiki} instance for monitoring:  the
+ * number of requests in flight, the total number of requests and of failed
+ * requests, and the request rate over the last minute.  A request has
+ * failed if no response has been received, if the HTTP status code is not
+ * 200 or if the API returned an error.  The rate is computed from one
+ * counter per second, so recording a request does not allocate memory.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author ireas
+ */
+final class RequestStatistics {
+
+    private static final int RATE_WINDOW = 60;
+
+    private static final int SC_OK = 200;
+
+    private final Ticker ticker;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private final long[] seconds = new long[RATE_WINDOW];
+
+    private final long[] counts = new long[RATE_WINDOW];
+
+    /**
+     * Constructs new statistics using the system time.
+     */
+    public RequestStatistics() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs new statistics using the specified time source.
+     *
+     * @param ticker the time source for the request rate
+     * @throws NullPointerException if the specified ticker is null
+     */
+    public RequestStatistics(final Ticker ticker) {
+        this.ticker = Preconditions.checkNotNull(ticker);
+    }
+
+    private long getCurrentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(ticker.read());
+    }
+
+    /**
+     * Returns the number of failed requests.
+     *
+     * @return the number of failed requests
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Returns the number of requests that have been started but not
+     * finished yet.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of finished requests.
+     *
+     * @return the number of finished requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the average number of requests per second that have been
+     * finished within the last minute.
+     *
+     * @return the request rate in requests per second
+     */
+    public synchronized double getRequestRate() {
+        long currentSecond = getCurrentSecond();
+        long count = 0;
+        for (int index = 0; index < RATE_WINDOW; index++) {
+            if (currentSecond - seconds[index] < RATE_WINDOW) {
+                count += counts[index];
+            }
+        }
+        return (double) count / RATE_WINDOW;
+    }
+
+    /**
+     * Records that a request has been finished.
+     *
+     * @param metrics the metrics of the finished request
+     */
+    public void requestFinished(final RequestMetrics metrics) {
+        inFlight.decrementAndGet();
+        requestCount.incrementAndGet();
+        if (metrics.getStatusCode() != SC_OK
+                || metrics.getErrorCode().isPresent()) {
+            errorCount.incrementAndGet();
+        }
+
+        long currentSecond = getCurrentSecond();
+        int index = (int) (currentSecond % RATE_WINDOW);
+        synchronized (this) {
+            if (seconds[index] != currentSecond) {
+                seconds[index] = currentSecond;
+                counts[index] = 0;
+            }
+            counts[index]++;
+        }
+    }
+
+    /**
+     * Records that a request has been started.
+     */
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+}
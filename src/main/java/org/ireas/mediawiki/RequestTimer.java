@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import com.google.common.base.Optional;
+
+/**
+ * Measures the phases of one attempt of an API request.  The timer is
+ * created by {@code DefaultMediaWiki} for each attempt and passed to the
+ * {@link MeteredRequestExecutor} as an attribute of the HTTP context, which
+ * marks the end of the connection lease and the arrival of the response
+ * headers and counts the bytes of the response body.  Instances of this
+ * class are used by a single thread and are not thread-safe.
+ *
+ * @author ireas
+ */
+final class RequestTimer {
+
+    /**
+     * Name of the HTTP context attribute that holds the timer of the
+     * request.
+     */
+    public static final String ATTRIBUTE = "org.ireas.mediawiki.timer";
+
+    private static final long NOT_REACHED = -1;
+
+    private final String host;
+
+    private final String module;
+
+    private final int attempt;
+
+    private final long startTime = System.nanoTime();
+
+    private long leaseTime = NOT_REACHED;
+
+    private long responseTime = NOT_REACHED;
+
+    private long downloadTime = NOT_REACHED;
+
+    private int statusCode = 0;
+
+    private Optional<String> errorCode = Optional.absent();
+
+    private long bytesReceived = 0;
+
+    /**
+     * Constructs a new timer and starts measuring.
+     *
+     * @param host the host the request is sent to
+     * @param module the API module of the request
+     * @param attempt the number of the attempt, starting with one
+     */
+    public RequestTimer(final String host, final String module,
+            final int attempt) {
+        this.host = host;
+        this.module = module;
+        this.attempt = attempt;
+    }
+
+    /**
+     * Adds the specified number of bytes to the received bytes.
+     *
+     * @param count the number of bytes read from the response body
+     */
+    public void addBytesReceived(final long count) {
+        bytesReceived += count;
+    }
+
+    private static long between(final long start, final long end) {
+        if (start == NOT_REACHED || end == NOT_REACHED) {
+            return 0;
+        }
+        return end - start;
+    }
+
+    /**
+     * Stops measuring and returns the metrics of the request.
+     *
+     * @return the metrics of the request
+     */
+    public RequestMetrics finish() {
+        long finishTime = System.nanoTime();
+        long bodyTime = downloadTime;
+        if (bodyTime == NOT_REACHED && responseTime != NOT_REACHED) {
+            bodyTime = finishTime;
+        }
+
+        long[] durations = new long[RequestMetrics.Phase.values().length];
+        durations[RequestMetrics.Phase.LEASE.ordinal()] =
+                between(startTime, leaseTime);
+        durations[RequestMetrics.Phase.SERVER.ordinal()] =
+                between(leaseTime, responseTime);
+        durations[RequestMetrics.Phase.DOWNLOAD.ordinal()] =
+                between(responseTime, bodyTime);
+        durations[RequestMetrics.Phase.PARSE.ordinal()] =
+                between(bodyTime, finishTime);
+        durations[RequestMetrics.Phase.TOTAL.ordinal()] =
+                finishTime - startTime;
+        return new RequestMetrics(host, module, attempt, statusCode,
+                errorCode, bytesReceived, durations);
+    }
+
+    /**
+     * Marks the end of the response body.  Only the first call has an
+     * effect.
+     */
+    public void markDownloaded() {
+        if (downloadTime == NOT_REACHED) {
+            downloadTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the end of the connection lease.  If the HTTP client repeats
+     * the request on another connection, the last lease is used.
+     */
+    public void markLeased() {
+        leaseTime = System.nanoTime();
+        responseTime = NOT_REACHED;
+    }
+
+    /**
+     * Marks the arrival of the response headers.
+     *
+     * @param newStatusCode the HTTP status code of the response
+     */
+    public void markResponse(final int newStatusCode) {
+        responseTime = System.nanoTime();
+        statusCode = newStatusCode;
+    }
+
+    /**
+     * Marks the arrival of the response headers if the request has not
+     * been sent by the HTTP client, for example because the response was
+     * replayed by an {@link ApiTransport}.  In this case, the time since
+     * the start of the request is counted as server time, and the response
+     * body is considered to be downloaded, as such transports buffer the
+     * body in memory.
+     *
+     * @param newStatusCode the HTTP status code of the response
+     */
+    public void markResponseIfAbsent(final int newStatusCode) {
+        if (responseTime == NOT_REACHED) {
+            if (leaseTime == NOT_REACHED) {
+                leaseTime = startTime;
+            }
+            markResponse(newStatusCode);
+            markDownloaded();
+        }
+    }
+
+    /**
+     * Sets the MediaWiki error code returned by the API.
+     *
+     * @param newErrorCode the error code
+     */
+    public void setErrorCode(final String newErrorCode) {
+        errorCode = Optional.of(newErrorCode);
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.net.URI;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches raw API responses of read-only requests.  A response cache can be
+ * set in the {@link MediaWikiConfiguration}.  If it is set, {@code
+ * MediaWiki} and {@code AsyncMediaWiki} instances look up the responses of
+ * JSON requests in the cache before sending them, and store successful
+ * responses in the cache.  Only query requests are passed to the cache;
+ * requests of other actions, for example login, logout, token and edit
+ * requests, are always sent to the API.  Queries for tokens or information
+ * about the current user are never passed to the cache either.
+ * <p>
+ * Cached responses are not bound to a session: a response cached while
+ * one user was logged in may be returned to another user or to an
+ * anonymous session of any instance sharing the cache.  Do not use a
+ * response cache for queries whose results depend on the rights of the
+ * logged in user, for example when the number of returned items is
+ * limited by the {@code apihighlimits} right.
+ * <p>
+ * The implementation decides which of the passed requests are cached and
+ * for how long.  Implementations must be thread-safe, as one cache may be
+ * shared by several {@code MediaWiki} instances.
+ *
+ * @author ireas
+ * @see DefaultResponseCache
+ */
+public interface ResponseCache {
+
+    /**
+     * Returns the cached response for the specified request, if there is
+     * one.
+     *
+     * @param apiUri the URI of the API the request is sent to
+     * @param arguments the arguments of the request
+     * @return the cached response, or absent if there is no valid cached
+     *         response for the request
+     */
+    Optional<String> get(URI apiUri, Map<String, String> arguments);
+
+    /**
+     * Returns the hit and miss statistics of this cache.
+     *
+     * @return the statistics of this cache
+     */
+    CacheStats getStats();
+
+    /**
+     * Removes all cached responses.
+     */
+    void invalidateAll();
+
+    /**
+     * Stores the response for the specified request, if the request may be
+     * cached.
+     *
+     * @param apiUri the URI of the API the request was sent to
+     * @param arguments the arguments of the request
+     * @param response the successful response to the request
+     */
+    void put(URI apiUri, Map<String, String> arguments, String response);
+
+}
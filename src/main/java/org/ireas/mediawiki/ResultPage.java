@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * One page of a result list returned by the API.  The page stores the
+ * results and, if there are more results, the continuation arguments that
+ * have to be sent to request the next page.
+ *
+ * @author ireas
+ * @param <T> the type of the results
+ */
+final class ResultPage<T> {
+
+    private final List<T> results;
+
+    private final Optional<Map<String, String>> continuation;
+
+    /**
+     * Constructs a new page with the specified results and continuation
+     * arguments.
+     *
+     * @param results the results on this page
+     * @param continuation the arguments to request the next page, or absent
+     *        if this is the last page
+     * @throws NullPointerException if the specified results or continuation
+     *         are null
+     */
+    public ResultPage(final List<T> results,
+            final Optional<Map<String, String>> continuation) {
+        Preconditions.checkNotNull(results);
+        Preconditions.checkNotNull(continuation);
+
+        this.results = ImmutableList.copyOf(results);
+        if (continuation.isPresent()) {
+            this.continuation =
+                    Optional.<Map<String, String>>of(ImmutableMap
+                            .copyOf(continuation.get()));
+        } else {
+            this.continuation = Optional.absent();
+        }
+    }
+
+    /**
+     * Returns the arguments that have to be sent to request the next page,
+     * or absent if this is the last page.
+     *
+     * @return the continuation arguments
+     */
+    public Optional<Map<String, String>> getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * Returns the results on this page.
+     *
+     * @return the results on this page
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.joda.time.Duration;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Policy for retrying failed API requests.  A failed request is retried up
+ * to {@code getMaxAttempts} attempts in total.  The delay before a retry
+ * grows exponentially, starting with {@code getInitialDelay} and multiplied
+ * by {@code getMultiplier} for each attempt, up to {@code getMaxDelay}.
+ * The delay is reduced by a random fraction of up to {@code getJitter}, so
+ * that clients that failed at the same time do not retry at the same time.
+ * If the server suggests a longer delay, the suggested delay is used.
+ * <p>
+ * Retries are limited by a retry budget:  each request earns {@code
+ * getRetryRatio} retries, and at most {@code getMaxRetryBurst} retries
+ * can be saved up.  If the budget is exhausted, for example because the
+ * server is down, failed requests are not retried.
+ * <p>
+ * Requests that have been rejected by MediaWiki without being processed
+ * ({@code maxlag} and {@code readonly} errors) are retried for all
+ * actions.  Requests with an unknown outcome (I/O errors and server
+ * errors, including the HTTP status codes 429 and 503, which may be sent
+ * by a proxy) are only retried for idempotent actions, i. e. queries.
+ * <p>
+ * Policies are immutable and constructed using a {@link Builder}.  The
+ * default policy tries a request up to five times with an initial delay of
+ * one second, a multiplier of two, a maximum delay of one minute and a
+ * jitter of 50 percent.  The retry budget allows retries for 20 percent of
+ * the requests and a burst of ten retries.  To disable retries, set the
+ * maximum number of attempts to one.
+ *
+ * @author ireas
+ */
+public final class RetryPolicy {
+
+    /**
+     * Builder for {@code RetryPolicy} objects.  All values are initialized
+     * with the default values and can be changed using the setter methods.
+     * The setters return the builder itself, so that calls can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+        private Duration initialDelay = DEFAULT_INITIAL_DELAY;
+
+        private Duration maxDelay = DEFAULT_MAX_DELAY;
+
+        private double multiplier = DEFAULT_MULTIPLIER;
+
+        private double jitter = DEFAULT_JITTER;
+
+        private double retryRatio = DEFAULT_RETRY_RATIO;
+
+        private int maxRetryBurst = DEFAULT_MAX_RETRY_BURST;
+
+        /**
+         * Constructs a new builder using the default values.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Constructs a new retry policy using the values of this builder.
+         *
+         * @return a new retry policy with the values of this builder
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+
+        /**
+         * Sets the delay before the first retry.
+         *
+         * @param delay the initial delay
+         * @return this builder
+         * @throws NullPointerException if the specified delay is null
+         * @throws IllegalArgumentException if the specified delay is
+         *         negative
+         */
+        public Builder setInitialDelay(final Duration delay) {
+            Preconditions.checkNotNull(delay);
+            Preconditions.checkArgument(delay.getMillis() >= 0);
+            initialDelay = delay;
+            return this;
+        }
+
+        /**
+         * Sets the maximum fraction by which a delay is reduced randomly.
+         *
+         * @param fraction the jitter fraction between zero and one
+         * @return this builder
+         * @throws IllegalArgumentException if the specified fraction is not
+         *         between zero and one
+         */
+        public Builder setJitter(final double fraction) {
+            Preconditions.checkArgument(fraction >= 0 && fraction <= 1,
+                    "Jitter must be between zero and one");
+            jitter = fraction;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of attempts for a request, including the
+         * first attempt.  If set to one, requests are not retried.
+         *
+         * @param attempts the maximum number of attempts
+         * @return this builder
+         * @throws IllegalArgumentException if the specified number is less
+         *         than one
+         */
+        public Builder setMaxAttempts(final int attempts) {
+            Preconditions.checkArgument(attempts >= 1);
+            maxAttempts = attempts;
+            return this;
+        }
+
+        /**
+         * Sets the maximum delay before a retry.
+         *
+         * @param delay the maximum delay
+         * @return this builder
+         * @throws NullPointerException if the specified delay is null
+         * @throws IllegalArgumentException if the specified delay is
+         *         negative
+         */
+        public Builder setMaxDelay(final Duration delay) {
+            Preconditions.checkNotNull(delay);
+            Preconditions.checkArgument(delay.getMillis() >= 0);
+            maxDelay = delay;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of retries that can be saved up in the
+         * retry budget.
+         *
+         * @param burst the maximum number of saved retries
+         * @return this builder
+         * @throws IllegalArgumentException if the specified number is
+         *         negative
+         */
+        public Builder setMaxRetryBurst(final int burst) {
+            Preconditions.checkArgument(burst >= 0);
+            maxRetryBurst = burst;
+            return this;
+        }
+
+        /**
+         * Sets the factor by which the delay grows with each retry.
+         *
+         * @param factor the delay multiplier
+         * @return this builder
+         * @throws IllegalArgumentException if the specified factor is less
+         *         than one
+         */
+        public Builder setMultiplier(final double factor) {
+            Preconditions.checkArgument(factor >= 1
+                    && !Double.isInfinite(factor), "Invalid multiplier");
+            multiplier = factor;
+            return this;
+        }
+
+        /**
+         * Sets the number of retries each request adds to the retry budget.
+         *
+         * @param ratio the number of retries per request
+         * @return this builder
+         * @throws IllegalArgumentException if the specified ratio is
+         *         negative
+         */
+        public Builder setRetryRatio(final double ratio) {
+            Preconditions.checkArgument(ratio >= 0
+                    && !Double.isInfinite(ratio), "Invalid retry ratio");
+            retryRatio = ratio;
+            return this;
+        }
+
+    }
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private static final Duration DEFAULT_INITIAL_DELAY = Duration
+            .standardSeconds(1);
+
+    private static final Duration DEFAULT_MAX_DELAY = Duration
+            .standardMinutes(1);
+
+    private static final double DEFAULT_MULTIPLIER = 2;
+
+    private static final double DEFAULT_JITTER = 0.5;
+
+    private static final double DEFAULT_RETRY_RATIO = 0.2;
+
+    private static final int DEFAULT_MAX_RETRY_BURST = 10;
+
+    private final int maxAttempts;
+
+    private final Duration initialDelay;
+
+    private final Duration maxDelay;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    private final double retryRatio;
+
+    private final int maxRetryBurst;
+
+    private RetryPolicy(final Builder builder) {
+        maxAttempts = builder.maxAttempts;
+        initialDelay = builder.initialDelay;
+        maxDelay = builder.maxDelay;
+        multiplier = builder.multiplier;
+        jitter = builder.jitter;
+        retryRatio = builder.retryRatio;
+        maxRetryBurst = builder.maxRetryBurst;
+    }
+
+    /**
+     * Returns the delay before the retry following the specified failed
+     * attempt, including the random jitter.
+     *
+     * @param attempt the number of the failed attempt, starting with one
+     * @return the delay before the next attempt
+     * @throws IllegalArgumentException if the specified attempt is less
+     *         than one
+     */
+    public Duration getDelay(final int attempt) {
+        Preconditions.checkArgument(attempt >= 1);
+
+        double delay =
+                initialDelay.getMillis() * Math.pow(multiplier, attempt - 1);
+        delay = Math.min(delay, maxDelay.getMillis());
+        delay *= 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        return new Duration(Math.round(delay));
+    }
+
+    /**
+     * Returns the delay before the first retry.
+     *
+     * @return the initial delay
+     */
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * Returns the maximum fraction by which a delay is reduced randomly.
+     *
+     * @return the jitter fraction
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Returns the maximum number of attempts for a request, including the
+     * first attempt.
+     *
+     * @return the maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the maximum delay before a retry.
+     *
+     * @return the maximum delay
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Returns the maximum number of retries that can be saved up in the
+     * retry budget.
+     *
+     * @return the maximum number of saved retries
+     */
+    public int getMaxRetryBurst() {
+        return maxRetryBurst;
+    }
+
+    /**
+     * Returns the factor by which the delay grows with each retry.
+     *
+     * @return the delay multiplier
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Returns the number of retries each request adds to the retry budget.
+     *
+     * @return the number of retries per request
+     */
+    public double getRetryRatio() {
+        return retryRatio;
+    }
+
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.DefaultContribution;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.exceptions.ApiErrorException;
+import org.ireas.mediawiki.exceptions.InvalidResponseException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.DateTime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Parses API responses directly from the response stream.  In contrast to
+ * {@link ApiResponses}, the response is neither buffered as a string nor
+ * converted into a JSON object tree.  Only the fields that are needed for
+ * the result are read; all other values are skipped.  This is used for
+ * list queries that may return large pages of results.
+ *
+ * @author ireas
+ */
+final class StreamingResponses {
+
+    /**
+     * The number of results on one page of a list query together with the
+     * continuation arguments for the next page.
+     *
+     * @author ireas
+     */
+    static final class ListCount {
+
+        private final int count;
+
+        private final Optional<Map<String, String>> continuation;
+
+        private ListCount(final int count,
+                final Optional<Map<String, String>> continuation) {
+            this.count = count;
+            if (continuation.isPresent()) {
+                this.continuation =
+                        Optional.<Map<String, String>>of(ImmutableMap
+                                .copyOf(continuation.get()));
+            } else {
+                this.continuation = Optional.absent();
+            }
+        }
+
+        /**
+         * Returns the arguments that have to be sent to request the next
+         * page, or absent if this is the last page.
+         *
+         * @return the continuation arguments
+         */
+        public Optional<Map<String, String>> getContinuation() {
+            return continuation;
+        }
+
+        /**
+         * Returns the number of results on this page.
+         *
+         * @return the number of results
+         */
+        public int getCount() {
+            return count;
+        }
+
+    }
+
+    /**
+     * Handles the elements of the result list of a list query.  The parser
+     * is positioned at the start of the element object and has to be left
+     * at the end of the object.
+     */
+    private interface ElementHandler {
+
+        void handle(JsonParser parser) throws IOException;
+
+    }
+
+    /**
+     * Reads the result of a contribution count request.
+     */
+    public static final EntityReader<ListCount> CONTRIB_COUNT =
+            new EntityReader<ListCount>() {
+                @Override
+                public ListCount read(final HttpEntity entity)
+                        throws IOException, MediaWikiException {
+                    try (InputStream stream = entity.getContent()) {
+                        return parseContribCount(stream);
+                    }
+                }
+            };
+
+    /**
+     * Reads the result of a contributions request.
+     */
+    public static final EntityReader<ResultPage<Contribution>> CONTRIBUTIONS =
+            new EntityReader<ResultPage<Contribution>>() {
+                @Override
+                public ResultPage<Contribution> read(final HttpEntity entity)
+                        throws IOException, MediaWikiException {
+                    try (InputStream stream = entity.getContent()) {
+                        return parseContributions(stream);
+                    }
+                }
+            };
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int FIELD_REVISION_ID = 1;
+
+    private static final int FIELD_PAGE_ID = 2;
+
+    private static final int FIELD_NAMESPACE = 4;
+
+    private static final int FIELD_TIMESTAMP = 8;
+
+    /**
+     * Returns a reader for the result of a contributions request that
+     * stores the contributions in the specified history.  The history is
+     * cleared before the response is read.  If a namespace is specified, it
+     * is used for contributions that are listed without a namespace.
+     *
+     * @param history the history to store the contributions in
+     * @param namespace the only namespace that has been requested, if any
+     * @return the reader for the result
+     * @see ApiRequests#contributionHistory(String, java.util.Set)
+     */
+    public static EntityReader<Optional<Map<String, String>>>
+            contributionHistory(final ContributionHistory history,
+                    final Optional<Namespace> namespace) {
+        return new EntityReader<Optional<Map<String, String>>>() {
+            @Override
+            public Optional<Map<String, String>> read(
+                    final HttpEntity entity) throws IOException,
+                    MediaWikiException {
+                history.clear();
+                try (InputStream stream = entity.getContent()) {
+                    return parseContributionHistory(stream, history,
+                            namespace);
+                }
+            }
+        };
+    }
+
+    /**
+     * Parses the response of a contribution count request and returns the
+     * number of contributions on this page.
+     *
+     * @param stream the stream of the raw API response
+     * @return the number of contributions and the continuation arguments
+     * @throws IOException if the stream cannot be read
+     * @throws ApiErrorException if the API returned an error
+     * @throws InvalidResponseException if the response cannot be parsed
+     */
+    public static ListCount parseContribCount(final InputStream stream)
+            throws IOException, MediaWikiException {
+        final int[] count = new int[1];
+        Optional<Map<String, String>> continuation =
+                parseList(stream, ApiConstants.RESULT_USERCONTRIBS,
+                        new ElementHandler() {
+                            @Override
+                            public void handle(final JsonParser parser)
+                                    throws IOException {
+                                parser.skipChildren();
+                                count[0]++;
+                            }
+                        });
+        return new ListCount(count[0], continuation);
+    }
+
+    /**
+     * Parses the response of a contributions request and returns the
+     * contributions on this page.
+     *
+     * @param stream the stream of the raw API response
+     * @return the contributions and the continuation arguments
+     * @throws IOException if the stream cannot be read
+     * @throws ApiErrorException if the API returned an error
+     * @throws InvalidResponseException if the response cannot be parsed
+     */
+    public static ResultPage<Contribution> parseContributions(
+            final InputStream stream) throws IOException, MediaWikiException {
+        final List<Contribution> contributions = new ArrayList<>();
+        Optional<Map<String, String>> continuation =
+                parseList(stream, ApiConstants.RESULT_USERCONTRIBS,
+                        new ElementHandler() {
+                            @Override
+                            public void handle(final JsonParser parser)
+                                    throws IOException {
+                                contributions.add(parseContribution(parser));
+                            }
+                        });
+        return new ResultPage<>(contributions, continuation);
+    }
+
+    private static Contribution parseContribution(final JsonParser parser)
+            throws IOException {
+        String user = null;
+        Long revisionId = null;
+        Integer pageId = null;
+        Integer namespace = null;
+        String title = null;
+        String timestamp = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals(ApiConstants.RESULT_UC_USER)) {
+                user = parser.getText();
+            } else if (field.equals(ApiConstants.RESULT_UC_REVISION_ID)) {
+                revisionId = parser.getLongValue();
+            } else if (field.equals(ApiConstants.RESULT_UC_PAGE_ID)) {
+                pageId = parser.getIntValue();
+            } else if (field.equals(ApiConstants.RESULT_UC_NAMESPACE)) {
+                namespace = parser.getIntValue();
+            } else if (field.equals(ApiConstants.RESULT_UC_TITLE)) {
+                title = parser.getText();
+            } else if (field.equals(ApiConstants.RESULT_UC_TIMESTAMP)) {
+                timestamp = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        requireField(user, ApiConstants.RESULT_UC_USER);
+        requireField(revisionId, ApiConstants.RESULT_UC_REVISION_ID);
+        requireField(pageId, ApiConstants.RESULT_UC_PAGE_ID);
+        requireField(namespace, ApiConstants.RESULT_UC_NAMESPACE);
+        requireField(title, ApiConstants.RESULT_UC_TITLE);
+        requireField(timestamp, ApiConstants.RESULT_UC_TIMESTAMP);
+        DateTime date = MediaWikiUtils.parseApiTimestamp(timestamp);
+        return new DefaultContribution(user, revisionId, pageId, namespace,
+                title, date);
+    }
+
+    /**
+     * Parses the response of a contributions request and appends the
+     * contributions on this page to the specified history.  No contribution
+     * objects or strings are created; the timestamps are parsed from the
+     * buffer of the JSON parser through a {@code CharBuffer} view.
+     *
+     * @param stream the stream of the raw API response
+     * @param history the history to append the contributions to
+     * @return the continuation arguments
+     * @throws IOException if the stream cannot be read
+     * @throws ApiErrorException if the API returned an error
+     * @throws InvalidResponseException if the response cannot be parsed
+     */
+    public static Optional<Map<String, String>> parseContributionHistory(
+            final InputStream stream, final ContributionHistory history)
+            throws IOException, MediaWikiException {
+        return parseContributionHistory(stream, history,
+                Optional.<Namespace>absent());
+    }
+
+    /**
+     * Parses the response of a contributions request and appends the
+     * contributions on this page to the specified history.  If a namespace
+     * is specified, it is used for contributions that are listed without a
+     * namespace, i. e. if the titles have not been requested.
+     *
+     * @param stream the stream of the raw API response
+     * @param history the history to append the contributions to
+     * @param namespace the only namespace that has been requested, if any
+     * @return the continuation arguments
+     * @throws IOException if the stream cannot be read
+     * @throws ApiErrorException if the API returned an error
+     * @throws InvalidResponseException if the response cannot be parsed
+     * @see #parseContributionHistory(InputStream, ContributionHistory)
+     */
+    public static Optional<Map<String, String>> parseContributionHistory(
+            final InputStream stream, final ContributionHistory history,
+            final Optional<Namespace> namespace) throws IOException,
+            MediaWikiException {
+        return parseList(stream, ApiConstants.RESULT_USERCONTRIBS,
+                new ElementHandler() {
+                    @Override
+                    public void handle(final JsonParser parser)
+                            throws IOException {
+                        parseHistoryEntry(parser, history, namespace);
+                    }
+                });
+    }
+
+    private static Map<String, String> parseContinuation(
+            final JsonParser parser) throws IOException {
+        requireToken(parser, JsonToken.START_OBJECT);
+        Map<String, String> continuation = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            continuation.put(key, parser.getText());
+        }
+        return continuation;
+    }
+
+    private static ApiErrorException parseError(final JsonParser parser)
+            throws IOException {
+        requireToken(parser, JsonToken.START_OBJECT);
+        String errorCode = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals(ApiConstants.RESULT_ERROR_CODE)) {
+                errorCode = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        requireField(errorCode, ApiConstants.RESULT_ERROR_CODE);
+        return new ApiErrorException(errorCode);
+    }
+
+    private static void parseHistoryEntry(final JsonParser parser,
+            final ContributionHistory history,
+            final Optional<Namespace> defaultNamespace) throws IOException {
+        int fields = 0;
+        long revisionId = 0;
+        int pageId = 0;
+        int namespace = 0;
+        long timestamp = 0;
+        if (defaultNamespace.isPresent()) {
+            namespace = defaultNamespace.get().getNamespace();
+            fields |= FIELD_NAMESPACE;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals(ApiConstants.RESULT_UC_REVISION_ID)) {
+                revisionId = parser.getLongValue();
+                fields |= FIELD_REVISION_ID;
+            } else if (field.equals(ApiConstants.RESULT_UC_PAGE_ID)) {
+                pageId = parser.getIntValue();
+                fields |= FIELD_PAGE_ID;
+            } else if (field.equals(ApiConstants.RESULT_UC_NAMESPACE)) {
+                namespace = parser.getIntValue();
+                fields |= FIELD_NAMESPACE;
+            } else if (field.equals(ApiConstants.RESULT_UC_TIMESTAMP)) {
+                timestamp = parseTimestamp(parser);
+                fields |= FIELD_TIMESTAMP;
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        requireField(fields, FIELD_REVISION_ID,
+                ApiConstants.RESULT_UC_REVISION_ID);
+        requireField(fields, FIELD_PAGE_ID, ApiConstants.RESULT_UC_PAGE_ID);
+        requireField(fields, FIELD_NAMESPACE,
+                ApiConstants.RESULT_UC_NAMESPACE);
+        requireField(fields, FIELD_TIMESTAMP,
+                ApiConstants.RESULT_UC_TIMESTAMP);
+        history.add(timestamp, namespace, pageId, revisionId);
+    }
+
+    private static Optional<Map<String, String>> parseList(
+            final InputStream stream, final String list,
+            final ElementHandler handler) throws IOException,
+            MediaWikiException {
+        try (JsonParser parser = JSON_FACTORY.createParser(stream)) {
+            parser.nextToken();
+            requireToken(parser, JsonToken.START_OBJECT);
+
+            boolean listFound = false;
+            Optional<Map<String, String>> continuation = Optional.absent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals(ApiConstants.RESULT_ERROR)) {
+                    throw parseError(parser);
+                } else if (field.equals(ApiConstants.RESULT_CONTINUE)) {
+                    continuation = Optional.of(parseContinuation(parser));
+                } else if (field.equals(ApiConstants.ACTION_QUERY)) {
+                    listFound = parseQuery(parser, list, handler);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (!listFound) {
+                throw new InvalidResponseException(String.format(
+                        "Field missing: %s", list));
+            }
+            return continuation;
+        } catch (JsonParseException exception) {
+            throw new InvalidResponseException(exception.getMessage());
+        }
+    }
+
+    private static boolean parseQuery(final JsonParser parser,
+            final String list, final ElementHandler handler)
+            throws IOException {
+        requireToken(parser, JsonToken.START_OBJECT);
+        boolean listFound = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals(list)) {
+                requireToken(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    handler.handle(parser);
+                }
+                requireToken(parser, JsonToken.END_ARRAY);
+                listFound = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return listFound;
+    }
+
+    private static long parseTimestamp(final JsonParser parser)
+            throws IOException {
+        try {
+            return ApiTimestamps.parse(CharBuffer.wrap(
+                    parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength()));
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidResponseException(exception.getMessage());
+        }
+    }
+
+    private static void requireField(final int fields, final int flag,
+            final String field) {
+        if ((fields & flag) == 0) {
+            throw new InvalidResponseException(String.format(
+                    "Field missing: %s", field));
+        }
+    }
+
+    private static void requireField(final Object value, final String field) {
+        if (value == null) {
+            throw new InvalidResponseException(String.format(
+                    "Field missing: %s", field));
+        }
+    }
+
+    private static void requireToken(final JsonParser parser,
+            final JsonToken token) {
+        if (parser.getCurrentToken() != token) {
+            throw new InvalidResponseException(String.format(
+                    "Unexpected token: %s", parser.getCurrentToken()));
+        }
+    }
+
+    private StreamingResponses() {
+        throw new UnsupportedOperationException();
+    }
+
+}
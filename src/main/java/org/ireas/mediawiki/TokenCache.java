@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.exceptions.ApiErrorException;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches the tokens of the current session.  Tokens stay valid until the
+ * session changes, so the cache has to be cleared after a login or a
+ * logout.  To avoid caching tokens of a previous session, tokens are only
+ * stored if the cache has not been cleared since their request started (see
+ * {@link #getSession()}).  This class is thread-safe.
+ *
+ * @author ireas
+ */
+final class TokenCache {
+
+    private final Map<TokenType, String> tokens =
+            new EnumMap<>(TokenType.class);
+
+    private long session;
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * Removes all tokens from the cache and starts a new session.
+     */
+    public synchronized void clear() {
+        tokens.clear();
+        session++;
+    }
+
+    /**
+     * Returns the cached tokens of the specified types.  Types that are not
+     * cached are not contained in the returned map.
+     *
+     * @param types the token types to look up
+     * @return the cached tokens of the specified types
+     */
+    public synchronized Map<TokenType, String> get(
+            final Set<TokenType> types) {
+        Map<TokenType, String> cachedTokens = new EnumMap<>(TokenType.class);
+        for (TokenType type : types) {
+            String token = tokens.get(type);
+            if (token != null) {
+                cachedTokens.put(type, token);
+            }
+        }
+        hitCount += cachedTokens.size();
+        missCount += types.size() - cachedTokens.size();
+        return cachedTokens;
+    }
+
+    /**
+     * Returns the current session.  The session has to be retrieved before
+     * requesting new tokens and passed to {@link #put(long, Map)}.
+     *
+     * @return the current session
+     */
+    public synchronized long getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the hit and miss statistics of this cache.  Each requested
+     * token type counts as one hit or miss.
+     *
+     * @return the statistics of this cache
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hitCount, missCount, 0, 0, 0, 0);
+    }
+
+    /**
+     * Removes the cached tokens that are used as values in the specified
+     * request arguments, for example because the API rejected them.
+     *
+     * @param arguments the arguments of a rejected request
+     * @return the removed tokens
+     */
+    public synchronized Map<TokenType, String> invalidate(
+            final Map<String, String> arguments) {
+        Map<TokenType, String> invalidTokens = new EnumMap<>(TokenType.class);
+        for (Map.Entry<TokenType, String> entry : tokens.entrySet()) {
+            if (arguments.containsValue(entry.getValue())) {
+                invalidTokens.put(entry.getKey(), entry.getValue());
+            }
+        }
+        tokens.keySet().removeAll(invalidTokens.keySet());
+        return invalidTokens;
+    }
+
+    /**
+     * Stores the specified tokens if the cache has not been cleared since
+     * the specified session was retrieved.
+     *
+     * @param tokenSession the session retrieved before requesting the tokens
+     * @param newTokens the tokens to store
+     */
+    public synchronized void put(final long tokenSession,
+            final Map<TokenType, String> newTokens) {
+        if (tokenSession == session) {
+            tokens.putAll(newTokens);
+        }
+    }
+
+    /**
+     * Checks whether the specified exception was caused by an API error
+     * indicating an invalid token.
+     *
+     * @param throwable the exception to check
+     * @return whether the exception is a {@code badtoken} API error
+     */
+    public static boolean isBadTokenError(final Throwable throwable) {
+        return throwable instanceof ApiErrorException
+                && ((ApiErrorException) throwable).getErrorCode().equals(
+                        ApiConstants.ERROR_BAD_TOKEN);
+    }
+
+    /**
+     * Returns a copy of the specified arguments where all occurrences of
+     * the old tokens are replaced with the new token of the same type.
+     *
+     * @param arguments the arguments of a rejected request
+     * @param oldTokens the rejected tokens
+     * @param newTokens the refreshed tokens
+     * @return the arguments for the repeated request
+     */
+    public static Map<String, String> replaceTokens(
+            final Map<String, String> arguments,
+            final Map<TokenType, String> oldTokens,
+            final Map<TokenType, String> newTokens) {
+        Map<String, String> newArguments = new HashMap<>(arguments);
+        for (Map.Entry<String, String> argument : newArguments.entrySet()) {
+            for (Map.Entry<TokenType, String> token : oldTokens.entrySet()) {
+                if (argument.getValue().equals(token.getValue())
+                        && newTokens.containsKey(token.getKey())) {
+                    argument.setValue(newTokens.get(token.getKey()));
+                }
+            }
+        }
+        return newArguments;
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Matrix of the contribution counts of a user in several windows.  Each
+ * row of the matrix belongs to a set of namespaces, and each column belongs
+ * to a period before a common end date.  The cell in row {@code i} and
+ * column {@code j} contains the number of contributions in the namespaces
+ * of row {@code i} between the end date minus the period of column {@code
+ * j} and the end date (both inclusive).  An empty set of namespaces stands
+ * for all namespaces.  The bounds of the windows are truncated to whole
+ * seconds, as the API timestamps and the dates passed to the API are.
+ * <p>
+ * The counts are computed from a {@link ContributionHistory} in a single
+ * scan, so the contributions have to be requested only once for the
+ * widest window.  Instances of this class are immutable.
+ *
+ * @author ireas
+ */
+public final class ActivityProfile {
+
+    private final String userName;
+
+    private final DateTime endDate;
+
+    private final List<Set<Namespace>> namespaceSets;
+
+    private final List<Period> periods;
+
+    private final int[][] counts;
+
+    /**
+     * Constructs a new activity profile by counting the contributions of
+     * the specified history.  The history may contain contributions outside
+     * of the windows; these are ignored.
+     *
+     * @param history the contributions of the user
+     * @param endDate the end date of all windows
+     * @param namespaceSets the namespaces for the rows of the matrix
+     * @param periods the periods for the columns of the matrix
+     * @throws NullPointerException if one of the arguments or one of the
+     *         namespace sets or periods is null
+     * @throws IllegalArgumentException if there are no namespace sets or
+     *         no periods
+     */
+    public ActivityProfile(final ContributionHistory history,
+            final DateTime endDate, final List<Set<Namespace>> namespaceSets,
+            final List<Period> periods) {
+        Preconditions.checkNotNull(history);
+        Preconditions.checkNotNull(endDate);
+        Preconditions.checkArgument(!namespaceSets.isEmpty());
+        Preconditions.checkArgument(!periods.isEmpty());
+
+        userName = history.getUserName();
+        this.endDate = endDate;
+        List<Set<Namespace>> namespaceSetsCopy =
+                new ArrayList<>(namespaceSets.size());
+        for (Set<Namespace> namespaceSet : namespaceSets) {
+            namespaceSetsCopy.add(Collections.unmodifiableSet(
+                    copyOf(namespaceSet)));
+        }
+        this.namespaceSets = Collections.unmodifiableList(namespaceSetsCopy);
+        this.periods =
+                Collections.unmodifiableList(new ArrayList<>(periods));
+        for (Period period : this.periods) {
+            Preconditions.checkNotNull(period);
+        }
+        counts = count(history);
+    }
+
+    private static Set<Namespace> copyOf(final Set<Namespace> namespaces) {
+        if (namespaces.isEmpty()) {
+            return EnumSet.noneOf(Namespace.class);
+        }
+        return EnumSet.copyOf(namespaces);
+    }
+
+    private int[][] count(final ContributionHistory history) {
+        long end = endDate.withMillisOfSecond(0).getMillis();
+        long[] starts = new long[periods.size()];
+        long earliestStart = end;
+        for (int j = 0; j < starts.length; j++) {
+            starts[j] =
+                    endDate.minus(periods.get(j)).withMillisOfSecond(0)
+                            .getMillis();
+            earliestStart = Math.min(earliestStart, starts[j]);
+        }
+        int[][] namespaceIds = new int[namespaceSets.size()][];
+        for (int i = 0; i < namespaceIds.length; i++) {
+            namespaceIds[i] = getNamespaceIds(namespaceSets.get(i));
+        }
+
+        int[][] result = new int[namespaceIds.length][starts.length];
+        int size = history.size();
+        for (int k = history.indexOf(earliestStart); k < size; k++) {
+            long timestamp = history.getTimestamp(k);
+            if (timestamp > end) {
+                break;
+            }
+            int namespace = history.getNamespace(k);
+            for (int i = 0; i < namespaceIds.length; i++) {
+                if (namespaceIds[i].length > 0 && Arrays.binarySearch(
+                        namespaceIds[i], namespace) < 0) {
+                    continue;
+                }
+                for (int j = 0; j < starts.length; j++) {
+                    if (timestamp >= starts[j]) {
+                        result[i][j]++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contribution count in the specified row and column.
+     *
+     * @param row the index of the namespace set
+     * @param column the index of the period
+     * @return the contribution count in the specified cell
+     * @throws IndexOutOfBoundsException if the row or column is out of
+     *         range
+     */
+    public int getCount(final int row, final int column) {
+        Preconditions.checkElementIndex(row, counts.length);
+        Preconditions.checkElementIndex(column, periods.size());
+        return counts[row][column];
+    }
+
+    /**
+     * Returns the contribution count in the specified namespaces within
+     * the specified period.
+     *
+     * @param namespaces the namespaces of the row
+     * @param period the period of the column
+     * @return the contribution count in the specified cell
+     * @throws IllegalArgumentException if this profile does not contain
+     *         the specified namespace set or period
+     */
+    public int getCount(final Set<Namespace> namespaces,
+            final Period period) {
+        int row = namespaceSets.indexOf(namespaces);
+        int column = periods.indexOf(period);
+        Preconditions.checkArgument(row >= 0, "Unknown namespaces: %s",
+                namespaces);
+        Preconditions.checkArgument(column >= 0, "Unknown period: %s",
+                period);
+        return counts[row][column];
+    }
+
+    /**
+     * Returns the end date of the windows.
+     *
+     * @return the end date of the windows
+     */
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    private static int[] getNamespaceIds(final Set<Namespace> namespaces) {
+        int[] ids = new int[namespaces.size()];
+        int index = 0;
+        for (Namespace namespace : namespaces) {
+            ids[index++] = namespace.getNamespace();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the namespace sets of the rows of this profile.
+     *
+     * @return an unmodifiable list of the namespace sets
+     */
+    public List<Set<Namespace>> getNamespaceSets() {
+        return namespaceSets;
+    }
+
+    /**
+     * Returns the periods of the columns of this profile.
+     *
+     * @return an unmodifiable list of the periods
+     */
+    public List<Period> getPeriods() {
+        return periods;
+    }
+
+    /**
+     * Returns the name of the user who made the contributions.
+     *
+     * @return the name of the user
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns a copy of the contribution counts.  The first index is the
+     * row, the second index is the column.
+     *
+     * @return the contribution counts
+     */
+    public int[][] toArray() {
+        int[][] copy = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            copy[i] = counts[i].clone();
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ActivityProfile[user='%s',endDate=%s,"
+                + "namespaces=%s,periods=%s,counts=%s]", userName, endDate,
+                namespaceSets, periods, Arrays.deepToString(counts));
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import org.joda.time.DateTime;
+
+/**
+ * Stores the metadata for one contribution of a user, i. e. one revision
+ * created by the user.  This includes the revision and page IDs, the
+ * namespace and title of the page and the timestamp of the revision.
+ *
+ * @author ireas
+ */
+public interface Contribution extends Data<Contribution> {
+
+    /**
+     * Returns the ID of the namespace of the edited page.
+     *
+     * @return the namespace ID
+     */
+    int getNamespace();
+
+    /**
+     * Returns the ID of the edited page.
+     *
+     * @return the page ID
+     */
+    int getPageId();
+
+    /**
+     * Returns the ID of the revision created by this contribution.
+     *
+     * @return the revision ID
+     */
+    long getRevisionId();
+
+    /**
+     * Returns the date of this contribution.
+     *
+     * @return the timestamp of the revision
+     */
+    DateTime getTimestamp();
+
+    /**
+     * Returns the title of the edited page.
+     *
+     * @return the page title
+     */
+    String getTitle();
+
+    /**
+     * Returns the name of the user who made this contribution as returned by
+     * the API.
+     *
+     * @return the user name
+     */
+    String getUserName();
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Compact list of the contributions of a user.  Instead of one object per
+ * contribution, the metadata is stored in parallel primitive arrays:  the
+ * timestamps (in milliseconds since the epoch), the namespace IDs, the page
+ * IDs and the revision IDs.  Page titles are not stored.  The
+ * contributions are kept in chronological order, so that the contributions
+ * in a period can be found using a binary search.
+ * <p>
+ * New contributions are appended using the {@code add} methods; the arrays
+ * grow as needed.  The {@code slice} methods return independent copies of
+ * a part of the history.  Instances of this class are not thread-safe.
+ *
+ * @author ireas
+ */
+public final class ContributionHistory {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final String userName;
+
+    private long[] timestamps;
+
+    private int[] namespaces;
+
+    private int[] pageIds;
+
+    private long[] revisionIds;
+
+    private int size = 0;
+
+    /**
+     * Constructs a new empty history for the specified user.
+     *
+     * @param userName the name of the user
+     * @throws NullPointerException if the specified user name is null
+     */
+    public ContributionHistory(final String userName) {
+        this(userName, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new empty history for the specified user that can hold
+     * the specified number of contributions without growing.
+     *
+     * @param userName the name of the user
+     * @param capacity the initial capacity
+     * @throws NullPointerException if the specified user name is null
+     * @throws IllegalArgumentException if the specified capacity is
+     *         negative
+     */
+    public ContributionHistory(final String userName, final int capacity) {
+        Preconditions.checkNotNull(userName);
+        Preconditions.checkArgument(capacity >= 0);
+
+        this.userName = userName;
+        timestamps = new long[capacity];
+        namespaces = new int[capacity];
+        pageIds = new int[capacity];
+        revisionIds = new long[capacity];
+    }
+
+    /**
+     * Appends a contribution to this history.  The contribution must not be
+     * older than the last contribution of this history.
+     *
+     * @param timestamp the date of the contribution in milliseconds since
+     *        the epoch
+     * @param namespace the namespace ID of the edited page
+     * @param pageId the ID of the edited page
+     * @param revisionId the ID of the created revision
+     * @throws IllegalArgumentException if the contribution is older than the
+     *         last contribution of this history
+     */
+    public void add(final long timestamp, final int namespace,
+            final int pageId, final long revisionId) {
+        Preconditions.checkArgument(size == 0
+                || timestamp >= timestamps[size - 1],
+                "Contributions must be added in chronological order");
+
+        ensureCapacity(size + 1);
+        timestamps[size] = timestamp;
+        namespaces[size] = namespace;
+        pageIds[size] = pageId;
+        revisionIds[size] = revisionId;
+        size++;
+    }
+
+    /**
+     * Appends all contributions of the specified history to this history.
+     * The contributions must not be older than the last contribution of
+     * this history.
+     *
+     * @param history the history to append
+     * @throws NullPointerException if the specified history is null
+     * @throws IllegalArgumentException if the contributions are older than
+     *         the last contribution of this history
+     */
+    public void addAll(final ContributionHistory history) {
+        Preconditions.checkNotNull(history);
+        if (history.size == 0) {
+            return;
+        }
+        Preconditions.checkArgument(size == 0
+                || history.timestamps[0] >= timestamps[size - 1],
+                "Contributions must be added in chronological order");
+
+        ensureCapacity(size + history.size);
+        System.arraycopy(history.timestamps, 0, timestamps, size,
+                history.size);
+        System.arraycopy(history.namespaces, 0, namespaces, size,
+                history.size);
+        System.arraycopy(history.pageIds, 0, pageIds, size, history.size);
+        System.arraycopy(history.revisionIds, 0, revisionIds, size,
+                history.size);
+        size += history.size;
+    }
+
+    /**
+     * Removes all contributions from this history.  The capacity is not
+     * changed.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure that this history can hold the specified number of
+     * contributions without growing.
+     *
+     * @param capacity the minimum capacity
+     */
+    public void ensureCapacity(final int capacity) {
+        if (capacity <= timestamps.length) {
+            return;
+        }
+        int newCapacity =
+                Math.max(capacity, timestamps.length
+                        + (timestamps.length >> 1));
+        resize(newCapacity);
+    }
+
+    /**
+     * Returns the date of the contribution at the specified index.
+     *
+     * @param index the index of the contribution
+     * @return the date of the contribution
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public DateTime getDate(final int index) {
+        return new DateTime(getTimestamp(index));
+    }
+
+    /**
+     * Returns the namespace ID of the page edited by the contribution at the
+     * specified index.
+     *
+     * @param index the index of the contribution
+     * @return the namespace ID of the edited page
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getNamespace(final int index) {
+        Preconditions.checkElementIndex(index, size);
+        return namespaces[index];
+    }
+
+    /**
+     * Returns the ID of the page edited by the contribution at the specified
+     * index.
+     *
+     * @param index the index of the contribution
+     * @return the ID of the edited page
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getPageId(final int index) {
+        Preconditions.checkElementIndex(index, size);
+        return pageIds[index];
+    }
+
+    /**
+     * Returns the ID of the revision created by the contribution at the
+     * specified index.
+     *
+     * @param index the index of the contribution
+     * @return the ID of the created revision
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long getRevisionId(final int index) {
+        Preconditions.checkElementIndex(index, size);
+        return revisionIds[index];
+    }
+
+    /**
+     * Returns the date of the contribution at the specified index in
+     * milliseconds since the epoch.
+     *
+     * @param index the index of the contribution
+     * @return the date of the contribution
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long getTimestamp(final int index) {
+        Preconditions.checkElementIndex(index, size);
+        return timestamps[index];
+    }
+
+    /**
+     * Returns the name of the user who made the contributions.
+     *
+     * @return the name of the user
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns the index of the first contribution that is not older than
+     * the specified date.  If there is no such contribution, the size of
+     * this history is returned.
+     *
+     * @param timestamp the date in milliseconds since the epoch
+     * @return the index of the first contribution at or after the date
+     */
+    public int indexOf(final long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns whether this history does not contain any contributions.
+     *
+     * @return true if this history is empty, otherwise false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize(final int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        namespaces = Arrays.copyOf(namespaces, capacity);
+        pageIds = Arrays.copyOf(pageIds, capacity);
+        revisionIds = Arrays.copyOf(revisionIds, capacity);
+    }
+
+    /**
+     * Returns the number of contributions in this history.
+     *
+     * @return the number of contributions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the contributions in the specified index range.
+     *
+     * @param fromIndex the index of the first contribution (inclusive)
+     * @param toIndex the index of the last contribution (exclusive)
+     * @return a new history containing the contributions in the range
+     * @throws IndexOutOfBoundsException if the range is invalid
+     */
+    public ContributionHistory slice(final int fromIndex, final int toIndex) {
+        Preconditions.checkPositionIndexes(fromIndex, toIndex, size);
+
+        int length = toIndex - fromIndex;
+        ContributionHistory slice = new ContributionHistory(userName, length);
+        System.arraycopy(timestamps, fromIndex, slice.timestamps, 0, length);
+        System.arraycopy(namespaces, fromIndex, slice.namespaces, 0, length);
+        System.arraycopy(pageIds, fromIndex, slice.pageIds, 0, length);
+        System.arraycopy(revisionIds, fromIndex, slice.revisionIds, 0,
+                length);
+        slice.size = length;
+        return slice;
+    }
+
+    /**
+     * Returns a copy of the contributions in the specified period.
+     *
+     * @param start the start of the period in milliseconds since the epoch
+     *        (inclusive)
+     * @param end the end of the period in milliseconds since the epoch
+     *        (exclusive)
+     * @return a new history containing the contributions in the period
+     * @throws IllegalArgumentException if the end is before the start
+     */
+    public ContributionHistory sliceByTime(final long start, final long end) {
+        Preconditions.checkArgument(start <= end);
+
+        return slice(indexOf(start), indexOf(end));
+    }
+
+    /**
+     * Returns a copy of the namespace IDs of the contributions.
+     *
+     * @return the namespace IDs in chronological order
+     */
+    public int[] toNamespaceArray() {
+        return Arrays.copyOf(namespaces, size);
+    }
+
+    /**
+     * Returns a copy of the page IDs of the contributions.
+     *
+     * @return the page IDs in chronological order
+     */
+    public int[] toPageIdArray() {
+        return Arrays.copyOf(pageIds, size);
+    }
+
+    /**
+     * Returns a copy of the revision IDs of the contributions.
+     *
+     * @return the revision IDs in chronological order
+     */
+    public long[] toRevisionIdArray() {
+        return Arrays.copyOf(revisionIds, size);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ContributionHistory[user='%s',size=%d]",
+                userName, size);
+    }
+
+    /**
+     * Returns a copy of the timestamps of the contributions.
+     *
+     * @return the timestamps in milliseconds since the epoch in
+     *         chronological order
+     */
+    public long[] toTimestampArray() {
+        return Arrays.copyOf(timestamps, size);
+    }
+
+    /**
+     * Reduces the capacity of this history to its size.
+     */
+    public void trimToSize() {
+        if (size < timestamps.length) {
+            resize(size);
+        }
+    }
+
+}
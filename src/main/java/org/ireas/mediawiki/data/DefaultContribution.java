@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+
+/**
+ * Default implementation of {@code Contribution} that stores the metadata
+ * for one contribution of a user.
+ *
+ * @author ireas
+ */
+public final class DefaultContribution implements Contribution {
+
+    private final String userName;
+
+    private final long revisionId;
+
+    private final int pageId;
+
+    private final int namespace;
+
+    private final String title;
+
+    private final DateTime timestamp;
+
+    /**
+     * Constructs a new contribution with the specified data.
+     *
+     * @param userName the name of the user who made the contribution
+     * @param revisionId the ID of the created revision
+     * @param pageId the ID of the edited page
+     * @param namespace the namespace ID of the edited page
+     * @param title the title of the edited page
+     * @param timestamp the date of the contribution
+     * @throws NullPointerException if the specified user name, title or
+     *         timestamp is null
+     * @throws IllegalArgumentException if the specified revision ID, page ID
+     *         or namespace is negative
+     */
+    public DefaultContribution(final String userName, final long revisionId,
+            final int pageId, final int namespace, final String title,
+            final DateTime timestamp) {
+        Preconditions.checkNotNull(userName);
+        Preconditions.checkNotNull(title);
+        Preconditions.checkNotNull(timestamp);
+        Preconditions.checkArgument(revisionId >= 0);
+        Preconditions.checkArgument(pageId >= 0);
+        Preconditions.checkArgument(namespace >= 0);
+
+        this.userName = userName;
+        this.revisionId = revisionId;
+        this.pageId = pageId;
+        this.namespace = namespace;
+        this.title = title;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Compares this contribution with the specified contribution.  The
+     * contributions are ordered by their timestamps and, for equal
+     * timestamps, by their revision IDs.
+     *
+     * @param contribution the contribution to compare with
+     * @return a negative integer, zero, or a positive integer as this
+     *         contribution is older than, equal to, or newer than the
+     *         specified contribution
+     */
+    @Override
+    public int compareTo(final Contribution contribution) {
+        Preconditions.checkNotNull(contribution);
+        int result = getTimestamp().compareTo(contribution.getTimestamp());
+        if (result == 0) {
+            result = Long.compare(getRevisionId(),
+                    contribution.getRevisionId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof DefaultContribution)) {
+            return false;
+        }
+        DefaultContribution contribution = (DefaultContribution) object;
+        return getRevisionId() == contribution.getRevisionId();
+    }
+
+    @Override
+    public int getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public int getPageId() {
+        return pageId;
+    }
+
+    @Override
+    public long getRevisionId() {
+        return revisionId;
+    }
+
+    @Override
+    public DateTime getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String getUserName() {
+        return userName;
+    }
+
+    @Override
+    public int hashCode() {
+        return Longs.hashCode(getRevisionId());
+    }
+
+    /**
+     * Returns a string representation of this object.  The string
+     * representation of the contribution contains all information about the
+     * contribution in a human-readable format.
+     *
+     * @return a string representation of this object
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "Contribution[user='%s',revision=%d,page=%d,namespace=%d,"
+                        + "title='%s',timestamp=%s]", userName, revisionId,
+                pageId, namespace, title, timestamp.toString());
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.exceptions;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Thrown if the MediaWiki API returned an error.  The exception provides the
+ * error code sent by the API ({@code getErrorCode}), for example {@code
+ * badtoken} or {@code maxlag}.  The error code is also used as the detail
+ * message.
+ *
+ * @author ireas
+ */
+public final class ApiErrorException extends MediaWikiException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String errorCode;
+
+    /**
+     * Constructs a new exception for the specified API error code.
+     *
+     * @param errorCode the error code returned by the API
+     * @throws NullPointerException if the specified error code is null
+     */
+    public ApiErrorException(final String errorCode) {
+        super(errorCode);
+
+        Preconditions.checkNotNull(errorCode);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Returns the error code returned by the API that caused this exception
+     * to be thrown.
+     *
+     * @return the API error code
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+}
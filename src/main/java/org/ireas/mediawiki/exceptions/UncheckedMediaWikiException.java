@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.exceptions;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Unchecked wrapper for a {@code MediaWikiException}.  This exception is
+ * thrown by methods that cannot throw checked exceptions, e. g. the methods
+ * of an {@code Iterator} that loads further results from the API.  The
+ * original exception is available as the cause of this exception.
+ *
+ * @author ireas
+ */
+public final class UncheckedMediaWikiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new exception wrapping the specified exception.
+     *
+     * @param cause the exception to wrap
+     * @throws NullPointerException if the specified exception is null
+     */
+    public UncheckedMediaWikiException(final MediaWikiException cause) {
+        super(Preconditions.checkNotNull(cause));
+    }
+
+    /**
+     * Returns the wrapped {@code MediaWikiException}.
+     *
+     * @return the cause of this exception
+     */
+    @Override
+    public MediaWikiException getCause() {
+        return (MediaWikiException) super.getCause();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ireas.mediawiki.data.Namespace;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ApiRequestsTest {
+
+    @Test
+    public void testContributionHistory() {
+        Map<String, String> arguments = ApiRequests.contributionHistory(
+                "Test", Collections.<Namespace>emptySet());
+        Assert.assertEquals("ids|title|timestamp",
+                arguments.get(ApiConstants.UC_PROP));
+        Assert.assertFalse(arguments.containsKey(ApiConstants.UC_NAMESPACE));
+
+        arguments = ApiRequests.contributionHistory("Test",
+                EnumSet.of(Namespace.USER_TALK));
+        Assert.assertEquals("ids|timestamp",
+                arguments.get(ApiConstants.UC_PROP));
+        Assert.assertEquals("3", arguments.get(ApiConstants.UC_NAMESPACE));
+
+        arguments = ApiRequests.contributionHistory("Test",
+                EnumSet.of(Namespace.USER, Namespace.USER_TALK));
+        Assert.assertEquals("ids|title|timestamp",
+                arguments.get(ApiConstants.UC_PROP));
+    }
+
+    @Test
+    public void testIsCacheable() {
+        Map<String, String> noArguments = Collections.emptyMap();
+        Assert.assertTrue(ApiRequests.isCacheable(ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.editCount("Test"))));
+        Assert.assertFalse(ApiRequests.isCacheable(noArguments));
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.json(
+                ApiConstants.ACTION_TOKENS, noArguments)));
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.logout()));
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.json("edit",
+                noArguments)));
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.json("delete",
+                noArguments)));
+    }
+
+    @Test
+    public void testIsCacheableSessionModules() {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.META, ApiConstants.META_USERINFO);
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.json(
+                ApiConstants.ACTION_QUERY, arguments)));
+
+        arguments.put(ApiConstants.META, "siteinfo|"
+                + ApiConstants.META_TOKENS);
+        Assert.assertFalse(ApiRequests.isCacheable(ApiRequests.json(
+                ApiConstants.ACTION_QUERY, arguments)));
+
+        arguments.put(ApiConstants.META, "siteinfo");
+        Assert.assertTrue(ApiRequests.isCacheable(ApiRequests.json(
+                ApiConstants.ACTION_QUERY, arguments)));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ApiTimestampsTest {
+
+    private static final DateTimeFormatter FORMATTER = ISODateTimeFormat
+            .dateTimeNoMillis().withZoneUTC();
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("2014-03-17T18:45:12Z", ApiTimestamps
+                .format(new DateTime(2014, 3, 17, 18, 45, 12, DateTimeZone.UTC)
+                        .getMillis()));
+        Assert.assertEquals("1970-01-01T00:00:00Z", ApiTimestamps.format(0));
+        Assert.assertEquals("1969-12-31T23:59:59Z",
+                ApiTimestamps.format(-1));
+        Assert.assertEquals(FORMATTER.print(Long.MAX_VALUE / 2),
+                ApiTimestamps.format(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void testFormatRandom() {
+        Random random = new Random(0);
+        long range = new DateTime(9999, 1, 1, 0, 0, DateTimeZone.UTC)
+                .getMillis();
+        for (int i = 0; i < 10000; i++) {
+            long millis = (long) ((random.nextDouble() * 2 - 1) * range);
+            String timestamp = ApiTimestamps.format(millis);
+            Assert.assertEquals(FORMATTER.print(millis), timestamp);
+            Assert.assertEquals(new DateTime(millis, DateTimeZone.UTC)
+                    .withMillisOfSecond(0).getMillis(),
+                    ApiTimestamps.parse(timestamp));
+        }
+    }
+
+    @Test
+    public void testParse() {
+        long millis =
+                new DateTime(2014, 3, 17, 18, 45, 12, DateTimeZone.UTC)
+                        .getMillis();
+        Assert.assertEquals(millis,
+                ApiTimestamps.parse("2014-03-17T18:45:12Z"));
+        Assert.assertEquals(millis,
+                ApiTimestamps.parse("2014-03-17T19:45:12+01:00"));
+        Assert.assertEquals(new DateTime(2016, 2, 29, 0, 0, DateTimeZone.UTC)
+                .getMillis(), ApiTimestamps.parse("2016-02-29T00:00:00Z"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidDay() {
+        ApiTimestamps.parse("2014-02-29T00:00:00Z");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidFormat() {
+        ApiTimestamps.parse("2014-03-17 18:45:12Z");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidSecond() {
+        ApiTimestamps.parse("2014-03-17T18:45:60Z");
+    }
+
+}
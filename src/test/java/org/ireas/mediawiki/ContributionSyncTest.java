@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.ireas.mediawiki.testing.FakeMediaWikiServer;
+import org.ireas.mediawiki.testing.SyntheticWiki;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+public class ContributionSyncTest {
+
+    /**
+     * The minimum number of edits in the second that the cursor is set to.
+     */
+    private static final int EDITS_PER_SECOND = 3;
+
+    private static SyntheticWiki wiki;
+
+    private static FakeMediaWikiServer server;
+
+    private static int user;
+
+    private static String userName;
+
+    private MediaWiki mediaWiki;
+
+    private ContributionSync sync;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        // a short time span, so that users make several edits per second
+        DateTime startDate = new DateTime(2014, 1, 1, 0, 0, DateTimeZone.UTC);
+        wiki = new SyntheticWiki.Builder().setSeed(42).setUserCount(20)
+                .setMaxEditCount(2000).setStartDate(startDate)
+                .setEndDate(startDate.plusMinutes(10)).build();
+        server = new FakeMediaWikiServer(wiki);
+        for (int i = 0; i < wiki.getUserCount(); i++) {
+            if (wiki.getEditCount(i) > wiki.getEditCount(user)) {
+                user = i;
+            }
+        }
+        userName = wiki.getUserName(user);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    private static void assertEdits(final ContributionHistory history,
+            final int firstEdit) {
+        Assert.assertEquals(wiki.getEditCount(user) - firstEdit,
+                history.size());
+        for (int i = 0; i < history.size(); i++) {
+            Assert.assertEquals(wiki.getTimestamp(user, firstEdit + i),
+                    history.getTimestamp(i));
+            Assert.assertEquals(wiki.getRevisionId(user, firstEdit + i),
+                    history.getRevisionId(i));
+        }
+    }
+
+    private static ContributionCursor getCursor(final int edit) {
+        return new ContributionCursor(wiki.getTimestamp(user, edit),
+                wiki.getRevisionId(user, edit));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MediaWikiFactory.setConfiguration(new BasicMediaWikiConfiguration(
+                "org.ireas.mediawiki.test"));
+        mediaWiki = server.newMediaWiki();
+        sync = new ContributionSync(mediaWiki, new MemoryCursorStore());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mediaWiki.close();
+    }
+
+    @Test
+    public void testSync() throws MediaWikiException {
+        Assert.assertFalse(sync.getCursor(userName).isPresent());
+
+        ContributionHistory history = sync.sync(userName);
+        assertEdits(history, 0);
+        int last = wiki.getEditCount(user) - 1;
+        Assert.assertEquals(Optional.of(getCursor(last)),
+                sync.getCursor(userName));
+    }
+
+    @Test
+    public void testSyncCursorInSecond() throws Exception {
+        // find an edit with an earlier and a later edit in the same second
+        int edit = 1;
+        while (wiki.getTimestamp(user, edit - 1) != wiki.getTimestamp(user,
+                edit + EDITS_PER_SECOND - 2)) {
+            edit++;
+        }
+        sync.getCursorStore().put(mediaWiki.getMediaWikiData().getApiUri(),
+                userName, getCursor(edit));
+
+        ContributionHistory history = sync.sync(userName);
+        Assert.assertEquals(wiki.getTimestamp(user, edit),
+                history.getTimestamp(0));
+        assertEdits(history, edit + 1);
+        int last = wiki.getEditCount(user) - 1;
+        Assert.assertEquals(Optional.of(getCursor(last)),
+                sync.getCursor(userName));
+    }
+
+    @Test
+    public void testSyncReset() throws MediaWikiException {
+        sync.sync(userName);
+        sync.reset(userName);
+        Assert.assertFalse(sync.getCursor(userName).isPresent());
+
+        assertEdits(sync.sync(userName), 0);
+    }
+
+    @Test
+    public void testSyncUnchanged() throws MediaWikiException {
+        sync.sync(userName);
+        Optional<ContributionCursor> cursor = sync.getCursor(userName);
+
+        Assert.assertTrue(sync.sync(userName).isEmpty());
+        Assert.assertEquals(cursor, sync.getCursor(userName));
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.ExecutionException;
+
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.NoSuchUserException;
+import org.ireas.mediawiki.testing.FakeMediaWikiServer;
+import org.ireas.mediawiki.testing.SyntheticWiki;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+public class DefaultAsyncMediaWikiTest {
+
+    private static final int USER = 7;
+
+    private static SyntheticWiki wiki;
+
+    private static FakeMediaWikiServer server;
+
+    private static String userName;
+
+    private static String userNameMissing;
+
+    private AsyncMediaWiki mediaWiki;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        wiki = new SyntheticWiki.Builder().setSeed(42).setUserCount(200)
+                .setMaxEditCount(4000).build();
+        server = new FakeMediaWikiServer(wiki);
+        userName = wiki.getUserName(USER);
+        userNameMissing = SyntheticWiki.USER_NAME_PREFIX + wiki.getUserCount();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MediaWikiConfiguration configuration =
+                new BasicMediaWikiConfiguration("org.ireas.mediawiki.test");
+        MediaWikiFactory.setConfiguration(configuration);
+        mediaWiki = server.newAsyncMediaWiki();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MediaWikiUtils.close(mediaWiki);
+    }
+
+    @Test
+    public void testGetContribCountLimit() throws Exception {
+        int count = mediaWiki.getContribCount(userName, 1).get();
+        Assert.assertEquals(count, 1);
+    }
+
+    @Test
+    public void testGetFirstEdit() throws Exception {
+        Optional<DateTime> date = mediaWiki.getFirstEdit(userName).get();
+        Assert.assertEquals(wiki.getTimestamp(USER, 0), date.get()
+                .getMillis());
+    }
+
+    @Test
+    public void testGetToken() throws Exception {
+        String token = mediaWiki.getToken(TokenType.EDIT).get();
+        Assert.assertNotNull(token);
+        Assert.assertTrue(!token.isEmpty());
+    }
+
+    @Test
+    public void testGetUserData() throws Exception {
+        UserData userData = mediaWiki.getUserData(userName).get();
+        Assert.assertEquals(userName, userData.getUserName());
+        Assert.assertEquals(wiki.getUserId(USER), userData.getUserId());
+    }
+
+    @Test(expected = NoSuchUserException.class)
+    public void testGetUserDataNoSuchUser() throws Throwable {
+        try {
+            mediaWiki.getUserData(userNameMissing).get();
+        } catch (ExecutionException exception) {
+            throw exception.getCause();
+        }
+    }
+
+}
@@ -22,41 +22,100 @@
 
 package org.ireas.mediawiki;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import org.ireas.mediawiki.data.ActivityProfile;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.DefaultMediaWikiData;
 import org.ireas.mediawiki.data.Namespace;
 import org.ireas.mediawiki.data.TokenType;
 import org.ireas.mediawiki.data.UserData;
 import org.ireas.mediawiki.exceptions.MediaWikiException;
 import org.ireas.mediawiki.exceptions.NoSuchUserException;
+import org.ireas.mediawiki.exceptions.WrongPasswordException;
+import org.ireas.mediawiki.testing.FakeMediaWikiServer;
+import org.ireas.mediawiki.testing.SyntheticWiki;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Period;
+import org.json.JSONObject;
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 public class DefaultMediaWikiTest {
 
-    private static final String USER_NAME = "Ireas";
+    private static final int ACTIVE_EDIT_COUNT = 500;
+
+    private static final int CALLERS = 8;
+
+    private static final int FIRST_EDIT_USERS = 20;
+
+    private static final int USER = 7;
+
+    private static SyntheticWiki wiki;
+
+    private static FakeMediaWikiServer server;
+
+    private static String userName;
 
-    private static final String USER_NAME_MISSING = "Ireas-";
+    private static String userNameMissing;
 
     private MediaWiki mediaWiki;
 
+    @BeforeClass
+    public static void startServer() throws Exception {
+        wiki = new SyntheticWiki.Builder().setSeed(42).setUserCount(200)
+                .setMaxEditCount(4000).build();
+        server = new FakeMediaWikiServer(wiki);
+        userName = wiki.getUserName(USER);
+        userNameMissing = SyntheticWiki.USER_NAME_PREFIX + wiki.getUserCount();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
     @Before
     public void setUp() throws Exception {
         MediaWikiConfiguration configuration =
                 new BasicMediaWikiConfiguration("org.ireas.mediawiki.test");
         MediaWikiFactory.setConfiguration(configuration);
-        mediaWiki = MediaWikiFactory.newWikipediaInstance("de");
+        mediaWiki = server.newMediaWiki();
     }
 
     @After
@@ -64,116 +123,361 @@ public class DefaultMediaWikiTest {
         MediaWikiUtils.close(mediaWiki);
     }
 
+    private static DateTime getEndDate() {
+        return new DateTime(wiki.getTimestamp(USER,
+                wiki.getEditCount(USER) / 2), DateTimeZone.UTC);
+    }
+
+    private static int getExpectedCount(final Set<Namespace> namespaces,
+            final DateTime endDate, final Period period) {
+        int first = wiki.findEdit(USER, endDate.minus(period).getMillis());
+        int last = wiki.findEdit(USER, endDate.getMillis() + 1);
+        Set<Integer> namespaceIds = new HashSet<>();
+        for (Namespace namespace : namespaces) {
+            namespaceIds.add(namespace.getNamespace());
+        }
+        int count = 0;
+        for (int edit = first; edit < last; edit++) {
+            if (namespaceIds.isEmpty()
+                    || namespaceIds.contains(wiki.getNamespace(USER, edit))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Test
-    public void testGetApiUri() throws URISyntaxException {
-        Assert.assertEquals(new URI("https://de.wikipedia.org:443/w/api.php"),
-                mediaWiki.getMediaWikiData().getApiUri());
+    public void testGetActivityProfile() throws MediaWikiException {
+        DateTime endDate = getEndDate();
+        List<Set<Namespace>> namespaceSets =
+                Arrays.<Set<Namespace>>asList(
+                        EnumSet.of(Namespace.USER_TALK),
+                        Collections.<Namespace>emptySet());
+        List<Period> periods =
+                Arrays.asList(Period.days(29), Period.months(6));
+        ActivityProfile profile =
+                mediaWiki.getActivityProfile(userName, namespaceSets,
+                        endDate, periods);
+        for (int i = 0; i < namespaceSets.size(); i++) {
+            for (int j = 0; j < periods.size(); j++) {
+                int count =
+                        mediaWiki.getContribCount(userName, Integer.MAX_VALUE,
+                                namespaceSets.get(i), endDate,
+                                periods.get(j));
+                Assert.assertEquals(count, profile.getCount(i, j));
+                Assert.assertEquals(getExpectedCount(namespaceSets.get(i),
+                        endDate, periods.get(j)), profile.getCount(i, j));
+            }
+        }
+        Assert.assertTrue(profile.getCount(1, 1) > 0);
     }
 
     @Test
-    public void testGetContribCountHighNamespace() throws MediaWikiException {
-        Set<Namespace> namespaces = EnumSet.of(Namespace.ARTICLE);
-        int count = mediaWiki.getContribCount(USER_NAME, 500, namespaces);
-        Assert.assertEquals(count, 500);
+    public void testGetApiUri() {
+        Assert.assertEquals(server.getApiUri(), mediaWiki.getMediaWikiData()
+                .getApiUri());
+    }
+
+    @Test
+    public void testGetContribCountEditCount() throws Exception {
+        MediaWikiConfiguration configuration =
+                new BasicMediaWikiConfiguration.Builder()
+                        .setUserAgent("org.ireas.mediawiki.test")
+                        .setContribCountMode(ContribCountMode.EDIT_COUNT)
+                        .build();
+        MediaWikiFactory.setConfiguration(configuration);
+        try (MediaWiki editCountMediaWiki = server.newMediaWiki()) {
+            long requests = server.getRequestCount();
+            Assert.assertEquals(Math.min(wiki.getEditCount(USER), 500),
+                    editCountMediaWiki.getContribCount(userName, 500));
+            Assert.assertEquals(1, server.getRequestCount() - requests);
+            Assert.assertEquals(0, editCountMediaWiki.getContribCount(
+                    userNameMissing, 50));
+        }
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testGetContribCountInvalidLimit() throws MediaWikiException {
-        mediaWiki.getContribCount(USER_NAME, 0);
+        mediaWiki.getContribCount(userName, 0);
     }
 
     @Test
-    public void testGetContribCountLimit() throws MediaWikiException {
-        int count = mediaWiki.getContribCount(USER_NAME, 1);
-        Assert.assertEquals(count, 1);
+    public void testGetContribCountNoSuchUser() throws MediaWikiException {
+        int count = mediaWiki.getContribCount(userNameMissing, 50);
+        Assert.assertEquals(count, 0);
     }
 
     @Test
-    public void testGetContribCountLowNamespace() throws MediaWikiException {
-        Set<Namespace> namespaces = EnumSet.of(Namespace.HELP_TALK);
-        int count = mediaWiki.getContribCount(USER_NAME, 50, namespaces);
-        Assert.assertTrue(count < 20);
+    public void testGetContributionHistoryNamespace()
+            throws MediaWikiException {
+        ContributionHistory history = mediaWiki.getContributionHistory(
+                userName, EnumSet.of(Namespace.USER_TALK));
+        int index = 0;
+        for (int edit = 0; edit < wiki.getEditCount(USER); edit++) {
+            if (wiki.getNamespace(USER, edit)
+                    == Namespace.USER_TALK.getNamespace()) {
+                Assert.assertEquals(wiki.getRevisionId(USER, edit),
+                        history.getRevisionId(index));
+                Assert.assertEquals(Namespace.USER_TALK.getNamespace(),
+                        history.getNamespace(index));
+                index++;
+            }
+        }
+        Assert.assertEquals(index, history.size());
+        Assert.assertTrue(index > 0);
     }
 
     @Test
-    public void testGetContribCountNamespacePeriod() throws MediaWikiException {
+    public void testGetContributions() throws MediaWikiException {
         Set<Namespace> namespaces = EnumSet.of(Namespace.USER_TALK);
-        DateTime dateEnd = new DateTime(2009, 4, 30, 0, 0, 0, DateTimeZone.UTC);
-        Period period = Period.days(29);
-        int count =
-                mediaWiki.getContribCount(USER_NAME, 50, namespaces, dateEnd,
-                        period);
-        Assert.assertEquals(count, 2);
+        Iterator<Contribution> contributions =
+                mediaWiki.getContributions(userName, namespaces);
+        Contribution previous = null;
+        int count = 0;
+        while (contributions.hasNext()) {
+            Contribution contribution = contributions.next();
+            Assert.assertEquals(contribution.getNamespace(),
+                    Namespace.USER_TALK.getNamespace());
+            if (previous != null) {
+                Assert.assertTrue(previous.compareTo(contribution) < 0);
+            }
+            previous = contribution;
+            count++;
+        }
+        Assert.assertTrue(count > 0);
+        Assert.assertEquals(count,
+                mediaWiki.getContribCount(userName, Integer.MAX_VALUE,
+                        namespaces));
     }
 
     @Test
-    public void testGetContribCountNoSuchUser() throws MediaWikiException {
-        int count = mediaWiki.getContribCount(USER_NAME_MISSING, 50);
-        Assert.assertEquals(count, 0);
+    public void testGetContributionsNoSuchUser() throws MediaWikiException {
+        Set<Namespace> namespaces = Collections.emptySet();
+        Iterator<Contribution> contributions =
+                mediaWiki.getContributions(userNameMissing, namespaces);
+        Assert.assertFalse(contributions.hasNext());
     }
 
     @Test
-    public void testGetContribCountZeroPeriod() throws MediaWikiException {
-        Set<Namespace> namespaces = Collections.emptySet();
-        DateTime endDate = new DateTime(2006, 1, 1, 0, 0, 0, DateTimeZone.UTC);
-        Period period = Period.months(2);
+    public void testGetFirstEdit() throws MediaWikiException {
+        Optional<DateTime> date = mediaWiki.getFirstEdit(userName);
+        Assert.assertEquals(wiki.getTimestamp(USER, 0), date.get()
+                .getMillis());
+    }
 
-        int count =
-                mediaWiki.getContribCount(USER_NAME, 50, namespaces, endDate,
-                        period);
-        Assert.assertEquals(count, 0);
+    @Test
+    public void testGetFirstEditNoSuchUser() throws MediaWikiException {
+        Optional<DateTime> date = mediaWiki.getFirstEdit(userNameMissing);
+        Assert.assertFalse(date.isPresent());
     }
 
     @Test
-    public void testGetFirstEdit() throws MediaWikiException {
-        Optional<DateTime> date = mediaWiki.getFirstEdit(USER_NAME);
-        DateTime firstEdit =
-                new DateTime(2007, 1, 15, 15, 44, 31, DateTimeZone.UTC);
-        Assert.assertEquals(firstEdit.getMillis(), date.get().getMillis());
+    public void testGetFirstEdits() throws MediaWikiException {
+        String normalizedUserName = userName.toLowerCase().replace(' ', '_');
+        Map<String, Optional<DateTime>> firstEdits =
+                mediaWiki.getFirstEdits(Arrays.asList(userName,
+                        userNameMissing, normalizedUserName));
+        Assert.assertEquals(3, firstEdits.size());
+        Assert.assertEquals(wiki.getTimestamp(USER, 0),
+                firstEdits.get(userName).get().getMillis());
+        Assert.assertEquals(firstEdits.get(userName),
+                firstEdits.get(normalizedUserName));
+        Assert.assertFalse(firstEdits.get(userNameMissing).isPresent());
     }
 
     @Test
-    public void testGetFirstEditNoSuchUser() throws MediaWikiException {
-        Optional<DateTime> date = mediaWiki.getFirstEdit(USER_NAME_MISSING);
-        Assert.assertTrue(!date.isPresent());
+    public void testGetFirstEditsActiveUsers() throws MediaWikiException {
+        List<Integer> users = new ArrayList<>();
+        for (int user = 0; users.size() < FIRST_EDIT_USERS; user++) {
+            if (wiki.getEditCount(user) >= ACTIVE_EDIT_COUNT) {
+                users.add(user);
+            }
+        }
+        List<String> userNames = new ArrayList<>();
+        for (int user : users) {
+            userNames.add(wiki.getUserName(user));
+        }
+
+        long requestCount = server.getRequestCount();
+        Map<String, Optional<DateTime>> firstEdits =
+                mediaWiki.getFirstEdits(userNames);
+        Assert.assertTrue(server.getRequestCount() - requestCount
+                <= FIRST_EDIT_USERS);
+        Assert.assertEquals(userNames, new ArrayList<>(firstEdits.keySet()));
+        for (int user : users) {
+            Assert.assertEquals(wiki.getTimestamp(user, 0),
+                    firstEdits.get(wiki.getUserName(user)).get()
+                            .getMillis());
+        }
     }
 
     @Test
     public void testGetToken() throws MediaWikiException {
         String token = mediaWiki.getToken(TokenType.EDIT);
         Assert.assertNotNull(token);
-        Assert.assertTrue(!token.isEmpty());
+        Assert.assertFalse(token.isEmpty());
+    }
+
+    @Test
+    public void testGetTokens() throws MediaWikiException {
+        Set<TokenType> types = EnumSet.of(TokenType.EDIT, TokenType.WATCH);
+        Map<TokenType, String> tokens = mediaWiki.getTokens(types);
+        Assert.assertEquals(tokens.keySet(), types);
+        Assert.assertEquals(tokens.get(TokenType.EDIT),
+                mediaWiki.getToken(TokenType.EDIT));
     }
 
     @Test
     public void testGetUserData() throws MediaWikiException {
-        UserData userData = mediaWiki.getUserData(USER_NAME);
-        Assert.assertEquals("Ireas", userData.getUserName());
-        Assert.assertEquals(336793, userData.getUserId());
-        DateTime registration =
-                new DateTime(2007, 1, 15, 15, 7, 16, DateTimeZone.UTC);
-        Assert.assertEquals(registration.getMillis(), userData
+        UserData userData = mediaWiki.getUserData(userName);
+        Assert.assertEquals(userName, userData.getUserName());
+        Assert.assertEquals(wiki.getUserId(USER), userData.getUserId());
+        Assert.assertEquals(wiki.getRegistration(USER), userData
                 .getRegistrationDate().getMillis());
     }
 
+    @Test
+    public void testGetUserDataMultiple() throws MediaWikiException {
+        String normalizedUserName = userName.toLowerCase().replace(' ', '_');
+        Map<String, Optional<UserData>> userData =
+                mediaWiki.getUserData(Arrays.asList(userName,
+                        userNameMissing, normalizedUserName));
+        Assert.assertEquals(3, userData.size());
+        Assert.assertEquals(wiki.getUserId(USER), userData.get(userName)
+                .get().getUserId());
+        Assert.assertEquals(wiki.getUserId(USER),
+                userData.get(normalizedUserName).get().getUserId());
+        Assert.assertFalse(userData.get(userNameMissing).isPresent());
+    }
+
     @Test(expected = NoSuchUserException.class)
     public void testGetUserDataNoSuchUser() throws MediaWikiException {
-        mediaWiki.getUserData(USER_NAME_MISSING);
+        mediaWiki.getUserData(userNameMissing);
+    }
+
+    @Test
+    public void testGetUserDataUncompressed() throws Exception {
+        MediaWikiConfiguration configuration =
+                new BasicMediaWikiConfiguration.Builder()
+                        .setUserAgent("org.ireas.mediawiki.test")
+                        .setCompressionEnabled(false).build();
+        MediaWikiFactory.setConfiguration(configuration);
+        try (MediaWiki uncompressedMediaWiki = server.newMediaWiki()) {
+            Assert.assertEquals(wiki.getUserId(USER),
+                    uncompressedMediaWiki.getUserData(userName).getUserId());
+        }
     }
 
     @Test
     public void testLogin() throws MediaWikiException {
-        // mediaWiki.login("ValidUserName", "ValidPassword");
+        mediaWiki.login(userName, wiki.getPassword());
+        mediaWiki.logout();
     }
 
     @Test(expected = NoSuchUserException.class)
     public void testLoginNoSuchUser() throws MediaWikiException {
-        mediaWiki.login(USER_NAME_MISSING, "blubb");
+        mediaWiki.login(userNameMissing, "blubb");
     }
 
-    @Test(expected = MediaWikiException.class)
+    @Test(expected = WrongPasswordException.class)
     public void testLoginWrongPassword() throws MediaWikiException {
-        mediaWiki.login(USER_NAME, "blubb");
+        mediaWiki.login(userName, "blubb");
+    }
+
+    @Test
+    public void testPerformJsonRequestCoalesced() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger sent = new AtomicInteger();
+        ApiTransport transport = new ApiTransport() {
+            @Override
+            public CloseableHttpResponse execute(
+                    final CloseableHttpClient client, final HttpPost request,
+                    final Map<String, String> arguments,
+                    final HttpContext context) throws IOException {
+                sent.incrementAndGet();
+                Uninterruptibles.awaitUninterruptibly(release);
+                return ApiTransport.HTTP.execute(client, request, arguments,
+                        context);
+            }
+        };
+        MediaWikiConfiguration configuration =
+                new BasicMediaWikiConfiguration.Builder()
+                        .setUserAgent("org.ireas.mediawiki.test")
+                        .setTransport(transport).build();
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try (DefaultMediaWiki coalescingMediaWiki =
+                new DefaultMediaWiki(new DefaultMediaWikiData(
+                        server.getApiUri()), configuration)) {
+            Assert.assertTrue(coalescingMediaWiki.registerMXBean(mbeanServer));
+            MediaWikiMXBean monitor =
+                    JMX.newMXBeanProxy(mbeanServer, mbeanServer.queryNames(
+                            new ObjectName("org.ireas.mediawiki:*"), null)
+                            .iterator().next(), MediaWikiMXBean.class);
+
+            final DefaultMediaWiki target = coalescingMediaWiki;
+            List<Future<JSONObject>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(new Callable<JSONObject>() {
+                    @Override
+                    public JSONObject call() throws MediaWikiException {
+                        return target.performJsonRequest(
+                                ApiConstants.ACTION_QUERY,
+                                ApiRequests.userData(userName));
+                    }
+                }));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (monitor.getCoalescedRequestCount() < CALLERS - 1) {
+                Assert.assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            List<JSONObject> results = new ArrayList<>();
+            for (Future<JSONObject> future : futures) {
+                results.add(future.get());
+            }
+            Assert.assertEquals(1, sent.get());
+            String expected = results.get(0).toString();
+            results.get(0).put("modified", true);
+            for (int i = 1; i < results.size(); i++) {
+                Assert.assertNotSame(results.get(0), results.get(i));
+                Assert.assertEquals(expected, results.get(i).toString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueryBatch() throws MediaWikiException {
+        QueryBatch batch = mediaWiki.newQueryBatch();
+        BatchResult<Optional<UserData>> userData =
+                batch.addUserData(userName);
+        BatchResult<Optional<UserData>> missingUserData =
+                batch.addUserData(userNameMissing);
+        BatchResult<Optional<DateTime>> firstEdit =
+                batch.addFirstEdit(userName);
+        BatchResult<Integer> contribCount =
+                batch.addContribCount(userName, 10);
+        BatchResult<String> token = batch.addToken(TokenType.EDIT);
+        Assert.assertFalse(userData.isDone());
+        batch.execute();
+
+        Assert.assertEquals(wiki.getUserId(USER), userData.get().get()
+                .getUserId());
+        Assert.assertFalse(missingUserData.get().isPresent());
+        Assert.assertEquals(mediaWiki.getFirstEdit(userName),
+                firstEdit.get());
+        Assert.assertEquals(Math.min(wiki.getEditCount(USER), 10),
+                contribCount.get().intValue());
+        Assert.assertEquals(mediaWiki.getToken(TokenType.EDIT), token.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testQueryBatchNotExecuted() {
+        mediaWiki.newQueryBatch().addToken(TokenType.EDIT).get();
     }
 
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class DefaultResponseCacheTest {
+
+    private static final URI API_URI =
+            URI.create("https://de.wikipedia.org/w/api.php");
+
+    private static final String FIRST_EDIT_RESPONSE =
+            "{\"query\":{\"usercontribs\":[{\"user\":\"Ireas\","
+                    + "\"timestamp\":\"2007-01-15T15:07:16Z\"}]}}";
+
+    private static final String RESPONSE = "{\"query\":{}}";
+
+    private long time;
+
+    private DefaultResponseCache responseCache;
+
+    @Before
+    public void setUp() {
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return time;
+            }
+        };
+        responseCache = new DefaultResponseCache.Builder().setTicker(ticker)
+                .build();
+    }
+
+    @Test
+    public void testExpiration() {
+        Map<String, String> arguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.editCount("Ireas"));
+        responseCache.put(API_URI, arguments, RESPONSE);
+        time += TimeUnit.MINUTES.toNanos(4);
+        Assert.assertTrue(responseCache.get(API_URI, arguments).isPresent());
+        time += TimeUnit.MINUTES.toNanos(1);
+        Assert.assertFalse(responseCache.get(API_URI, arguments).isPresent());
+        Assert.assertEquals(responseCache.getStats().hitCount(), 1);
+        Assert.assertEquals(responseCache.getStats().missCount(), 1);
+    }
+
+    @Test
+    public void testImmutableData() {
+        Map<String, String> arguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.firstEdit("Ireas"));
+        responseCache.put(API_URI, arguments, FIRST_EDIT_RESPONSE);
+        time += TimeUnit.HOURS.toNanos(23);
+        Assert.assertEquals(responseCache.get(API_URI, arguments).get(),
+                FIRST_EDIT_RESPONSE);
+    }
+
+    @Test
+    public void testImmutableDataMissing() {
+        Map<String, String> arguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.firstEdit("Ireas"));
+        String response = "{\"query\":{\"usercontribs\":[]}}";
+        responseCache.put(API_URI, arguments, response);
+        time += TimeUnit.MINUTES.toNanos(4);
+        Assert.assertEquals(responseCache.get(API_URI, arguments).get(),
+                response);
+        time += TimeUnit.MINUTES.toNanos(1);
+        Assert.assertFalse(responseCache.get(API_URI, arguments).isPresent());
+    }
+
+    @Test
+    public void testKeyIncludesApiUri() {
+        Map<String, String> arguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.userData("Ireas"));
+        responseCache.put(API_URI, arguments, RESPONSE);
+        URI otherUri = URI.create("https://en.wikipedia.org/w/api.php");
+        Assert.assertFalse(responseCache.get(otherUri, arguments).isPresent());
+        Assert.assertTrue(responseCache.get(API_URI,
+                new HashMap<>(arguments)).isPresent());
+    }
+
+    @Test
+    public void testUnmatchedAction() {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.ACTION, "edit");
+        responseCache.put(API_URI, arguments, RESPONSE);
+        Assert.assertFalse(responseCache.get(API_URI, arguments).isPresent());
+        Assert.assertEquals(responseCache.getStats().requestCount(), 0);
+    }
+
+    @Test
+    public void testZeroTimeToLive() {
+        responseCache = new DefaultResponseCache.Builder().setTimeToLive(
+                ApiConstants.ACTION_QUERY, Duration.ZERO).build();
+        Map<String, String> countArguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.editCount("Ireas"));
+        Map<String, String> registrationArguments = ApiRequests.json(
+                ApiConstants.ACTION_QUERY, ApiRequests.userData("Ireas"));
+        responseCache.put(API_URI, countArguments, RESPONSE);
+        responseCache.put(API_URI, registrationArguments, RESPONSE);
+        Assert.assertFalse(responseCache.get(API_URI, countArguments)
+                .isPresent());
+        Assert.assertTrue(responseCache.get(API_URI, registrationArguments)
+                .isPresent());
+    }
+
+}
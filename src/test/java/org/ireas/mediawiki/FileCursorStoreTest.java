@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Optional;
+
+public class FileCursorStoreTest {
+
+    private static final URI API_URI =
+            URI.create("https://de.wikipedia.org/w/api.php");
+
+    private static final String USER_NAME = "Foo bar";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path getFile() {
+        return folder.getRoot().toPath().resolve("cursors.properties");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidCursor() throws IOException {
+        String line =
+                "https\\://de.wikipedia.org/w/api.php\\ Foo\\ bar=123";
+        Files.write(getFile(), Collections.singletonList(line),
+                StandardCharsets.ISO_8859_1);
+        new FileCursorStore(getFile()).get(API_URI, USER_NAME);
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        FileCursorStore store = new FileCursorStore(getFile());
+        Assert.assertFalse(store.get(API_URI, USER_NAME).isPresent());
+        Assert.assertFalse(Files.exists(getFile()));
+    }
+
+    @Test
+    public void testPut() throws IOException {
+        ContributionCursor cursor = new ContributionCursor(1000L, 42L);
+        new FileCursorStore(getFile()).put(API_URI, USER_NAME, cursor);
+
+        FileCursorStore store = new FileCursorStore(getFile());
+        Assert.assertEquals(Optional.of(cursor),
+                store.get(API_URI, USER_NAME));
+        Assert.assertFalse(store.get(API_URI, "Foo").isPresent());
+        Assert.assertFalse(store.get(
+                URI.create("https://en.wikipedia.org/w/api.php"), USER_NAME)
+                .isPresent());
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        FileCursorStore store = new FileCursorStore(getFile());
+        store.put(API_URI, USER_NAME, new ContributionCursor(1000L, 42L));
+        store.remove(API_URI, USER_NAME);
+
+        Assert.assertFalse(new FileCursorStore(getFile()).get(API_URI,
+                USER_NAME).isPresent());
+    }
+
+}
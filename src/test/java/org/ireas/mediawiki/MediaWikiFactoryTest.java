@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.testing.FakeMediaWikiServer;
+import org.ireas.mediawiki.testing.SyntheticWiki;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MediaWikiFactoryTest {
+
+    private FakeMediaWikiServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        MediaWikiFactory.setConfiguration(new BasicMediaWikiConfiguration(
+                "org.ireas.mediawiki.test"));
+        server =
+                new FakeMediaWikiServer(new SyntheticWiki.Builder()
+                        .setUserCount(10).build());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testCloseTwice() throws Exception {
+        MediaWiki first = server.newMediaWiki();
+        MediaWiki second = server.newMediaWiki();
+        try {
+            first.close();
+            first.close();
+
+            String user = server.getWiki().getUserName(0);
+            UserData userData = second.getUserData(user);
+            Assert.assertEquals(user, userData.getUserName());
+        } finally {
+            second.close();
+        }
+    }
+
+}
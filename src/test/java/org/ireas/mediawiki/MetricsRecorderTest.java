@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+public class MetricsRecorderTest {
+
+    private static RequestMetrics newMetrics(final String module,
+            final int statusCode, final String errorCode, final long total) {
+        long[] durations = new long[RequestMetrics.Phase.values().length];
+        durations[RequestMetrics.Phase.TOTAL.ordinal()] = total;
+        return new RequestMetrics("de.wikipedia.org", module, 1, statusCode,
+                Optional.fromNullable(errorCode), 100, durations);
+    }
+
+    @Test
+    public void testGetModule() {
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put(ApiConstants.ACTION, ApiConstants.ACTION_QUERY);
+        arguments.put(ApiConstants.LIST, "users|usercontribs");
+        arguments.put(ApiConstants.META, "userinfo");
+        Assert.assertEquals("query:usercontribs|userinfo|users",
+                ApiRequests.getModule(arguments));
+        Assert.assertEquals("logout",
+                ApiRequests.getModule(ApiRequests.logout()));
+    }
+
+    @Test
+    public void testRecord() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        recorder.requestCompleted(newMetrics("query:users", 200, null, 10));
+        recorder.requestCompleted(newMetrics("query:users", 200, "badvalue",
+                20));
+        recorder.requestCompleted(newMetrics("query:users", 503, null, 30));
+        recorder.requestCompleted(newMetrics("parse", 0, null, 40));
+
+        List<MetricsRecorder.ModuleMetrics> snapshot = recorder.snapshot();
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals("parse", snapshot.get(0).getModule());
+        MetricsRecorder.ModuleMetrics users = snapshot.get(1);
+        Assert.assertEquals("query:users", users.getModule());
+        Assert.assertEquals("de.wikipedia.org", users.getHost());
+        Assert.assertEquals(3, users.getRequestCount());
+        Assert.assertEquals(300, users.getBytesReceived());
+        Assert.assertEquals(Long.valueOf(2), users.getStatusCodes().get(200));
+        Assert.assertEquals(Long.valueOf(1), users.getStatusCodes().get(503));
+        Assert.assertEquals(Long.valueOf(1),
+                users.getErrorCodes().get("badvalue"));
+        LatencyHistogram.Snapshot total =
+                users.getLatency(RequestMetrics.Phase.TOTAL);
+        Assert.assertEquals(3, total.getCount());
+        Assert.assertEquals(30, total.getMax());
+        Assert.assertEquals(0,
+                users.getLatency(RequestMetrics.Phase.LEASE).getMax());
+    }
+
+    @Test
+    public void testReset() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        recorder.requestCompleted(newMetrics("parse", 200, null, 10));
+        recorder.reset();
+        Assert.assertTrue(recorder.snapshot().isEmpty());
+    }
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class MultiWikiExecutorTest {
+
+    private static final List<String> HOSTS = Arrays.asList(
+            "de.wikipedia.org", "en.wikipedia.org", "fr.wikipedia.org");
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private MultiWikiExecutor executor;
+
+    private static void await(final CountDownLatch latch)
+            throws MediaWikiException {
+        try {
+            Assert.assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException exception) {
+            throw new MediaWikiException(exception);
+        }
+    }
+
+    private static String getHost(final MediaWiki mediaWiki) {
+        return mediaWiki.getMediaWikiData().getApiUri().getHost();
+    }
+
+    private static <T> Map<String, MultiWikiExecutor.Result<T>> toMap(
+            final Iterator<MultiWikiExecutor.Result<T>> results) {
+        Map<String, MultiWikiExecutor.Result<T>> map = new HashMap<>();
+        while (results.hasNext()) {
+            MultiWikiExecutor.Result<T> result = results.next();
+            map.put(result.getHost(), result);
+        }
+        return map;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.close();
+    }
+
+    @Test(timeout = TIMEOUT_SECONDS * 1000)
+    public void testClose() throws IOException, MediaWikiException {
+        executor =
+                new MultiWikiExecutor.Builder().addHosts(HOSTS)
+                        .setParallelism(1).build();
+        final CountDownLatch started = new CountDownLatch(1);
+        MultiWikiExecutor.Operation<String> operation =
+                new MultiWikiExecutor.Operation<String>() {
+                    @Override
+                    public String apply(final MediaWiki mediaWiki)
+                            throws MediaWikiException {
+                        started.countDown();
+                        await(new CountDownLatch(1));
+                        return getHost(mediaWiki);
+                    }
+                };
+        // the second operation on the first host waits in the host queue,
+        // the operations on the other hosts wait for the worker thread
+        Iterator<MultiWikiExecutor.Result<String>> first =
+                executor.execute(operation);
+        Iterator<MultiWikiExecutor.Result<String>> second =
+                executor.execute(operation);
+        await(started);
+        executor.close();
+
+        Map<String, MultiWikiExecutor.Result<String>> firstResults =
+                toMap(first);
+        Map<String, MultiWikiExecutor.Result<String>> secondResults =
+                toMap(second);
+        Assert.assertEquals(HOSTS.size(), firstResults.size());
+        Assert.assertEquals(HOSTS.size(), secondResults.size());
+        Assert.assertTrue(firstResults.get(HOSTS.get(0)).getFailure().get()
+                instanceof MediaWikiException);
+        for (String host : HOSTS) {
+            if (!host.equals(HOSTS.get(0))) {
+                Assert.assertTrue(firstResults.get(host).getFailure().get()
+                        instanceof CancellationException);
+            }
+            Assert.assertTrue(secondResults.get(host).getFailure().get()
+                    instanceof CancellationException);
+        }
+    }
+
+    @Test
+    public void testExecute() throws MediaWikiException {
+        executor = new MultiWikiExecutor.Builder().addHosts(HOSTS).build();
+        final CountDownLatch release = new CountDownLatch(1);
+        Iterator<MultiWikiExecutor.Result<String>> results =
+                executor.execute(new MultiWikiExecutor.Operation<String>() {
+                    @Override
+                    public String apply(final MediaWiki mediaWiki)
+                            throws MediaWikiException {
+                        String host = getHost(mediaWiki);
+                        if (host.startsWith("de")) {
+                            await(release);
+                        }
+                        return host;
+                    }
+                });
+        List<String> hosts = new ArrayList<>();
+        while (results.hasNext()) {
+            MultiWikiExecutor.Result<String> result = results.next();
+            Assert.assertTrue(result.isSuccessful());
+            Assert.assertEquals(result.getHost(), result.get());
+            hosts.add(result.getHost());
+            if (hosts.size() == HOSTS.size() - 1) {
+                release.countDown();
+            }
+        }
+        Assert.assertEquals(HOSTS.size(), hosts.size());
+        Assert.assertEquals(HOSTS.get(0), hosts.get(hosts.size() - 1));
+    }
+
+    @Test
+    public void testExecuteDeadline() throws MediaWikiException {
+        executor = new MultiWikiExecutor.Builder().addHosts(HOSTS).build();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Map<String, MultiWikiExecutor.Result<String>> results =
+                toMap(executor.execute(
+                        new MultiWikiExecutor.Operation<String>() {
+                            @Override
+                            public String apply(final MediaWiki mediaWiki)
+                                    throws MediaWikiException {
+                                String host = getHost(mediaWiki);
+                                if (host.startsWith("en")) {
+                                    try {
+                                        new CountDownLatch(1).await();
+                                    } catch (InterruptedException e) {
+                                        interrupted.countDown();
+                                        throw new MediaWikiException(e);
+                                    }
+                                }
+                                return host;
+                            }
+                        }, Duration.standardSeconds(2)));
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS
+                .toNanos(TIMEOUT_SECONDS));
+        Assert.assertEquals(HOSTS.size(), results.size());
+        Assert.assertTrue(results.get(HOSTS.get(0)).isSuccessful());
+        Assert.assertTrue(results.get(HOSTS.get(1)).getFailure().get()
+                instanceof TimeoutException);
+        Assert.assertTrue(results.get(HOSTS.get(2)).isSuccessful());
+        await(interrupted);
+    }
+
+    @Test
+    public void testExecuteFailure() {
+        executor = new MultiWikiExecutor.Builder().addHosts(HOSTS).build();
+        final MediaWikiException exception = new MediaWikiException();
+        Map<String, MultiWikiExecutor.Result<String>> results =
+                toMap(executor.execute(
+                        new MultiWikiExecutor.Operation<String>() {
+                            @Override
+                            public String apply(final MediaWiki mediaWiki)
+                                    throws MediaWikiException {
+                                String host = getHost(mediaWiki);
+                                if (host.startsWith("fr")) {
+                                    throw exception;
+                                }
+                                return host;
+                            }
+                        }));
+        Assert.assertEquals(HOSTS.size(), results.size());
+        Assert.assertTrue(results.get(HOSTS.get(0)).isSuccessful());
+        Assert.assertSame(exception, results.get(HOSTS.get(2)).getFailure()
+                .get());
+        try {
+            results.get(HOSTS.get(2)).get();
+            Assert.fail();
+        } catch (MediaWikiException e) {
+            Assert.assertSame(exception, e);
+        }
+    }
+
+    @Test
+    public void testMaxConcurrencyPerHost() throws MediaWikiException {
+        executor =
+                new MultiWikiExecutor.Builder().addHost(HOSTS.get(0))
+                        .setMaxConcurrencyPerHost(2).setParallelism(8)
+                        .build();
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        MultiWikiExecutor.Operation<Integer> operation =
+                new MultiWikiExecutor.Operation<Integer>() {
+                    @Override
+                    public Integer apply(final MediaWiki mediaWiki)
+                            throws MediaWikiException {
+                        int current = active.incrementAndGet();
+                        int max = maxActive.get();
+                        while (current > max
+                                && !maxActive.compareAndSet(max, current)) {
+                            max = maxActive.get();
+                        }
+                        try {
+                            // both permitted operations have to overlap
+                            barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        } catch (InterruptedException | BrokenBarrierException
+                                | TimeoutException exception) {
+                            throw new MediaWikiException(exception);
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                        return current;
+                    }
+                };
+        List<Iterator<MultiWikiExecutor.Result<Integer>>> results =
+                new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            results.add(executor.execute(operation));
+        }
+        for (Iterator<MultiWikiExecutor.Result<Integer>> result : results) {
+            Assert.assertTrue(result.next().isSuccessful());
+            Assert.assertFalse(result.hasNext());
+        }
+        Assert.assertEquals(2, maxActive.get());
+    }
+
+    @Test
+    public void testSlowHostDoesNotBlockWorkers() throws MediaWikiException {
+        executor =
+                new MultiWikiExecutor.Builder().addHosts(HOSTS.subList(0, 2))
+                        .setMaxConcurrencyPerHost(1).setParallelism(2)
+                        .build();
+        final CountDownLatch release = new CountDownLatch(1);
+        MultiWikiExecutor.Operation<String> operation =
+                new MultiWikiExecutor.Operation<String>() {
+                    @Override
+                    public String apply(final MediaWiki mediaWiki)
+                            throws MediaWikiException {
+                        String host = getHost(mediaWiki);
+                        if (host.equals(HOSTS.get(0))) {
+                            await(release);
+                        }
+                        return host;
+                    }
+                };
+        List<Iterator<MultiWikiExecutor.Result<String>>> results =
+                new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.execute(operation,
+                    Duration.standardSeconds(TIMEOUT_SECONDS)));
+        }
+        // the operations on the idle host complete while the slow host is
+        // blocked, although there are more waiting operations for the slow
+        // host than worker threads
+        for (Iterator<MultiWikiExecutor.Result<String>> result : results) {
+            MultiWikiExecutor.Result<String> first = result.next();
+            Assert.assertEquals(HOSTS.get(1), first.getHost());
+            Assert.assertTrue(first.isSuccessful());
+        }
+        release.countDown();
+        for (Iterator<MultiWikiExecutor.Result<String>> result : results) {
+            MultiWikiExecutor.Result<String> second = result.next();
+            Assert.assertEquals(HOSTS.get(0), second.getHost());
+            Assert.assertTrue(second.isSuccessful());
+            Assert.assertFalse(result.hasNext());
+        }
+    }
+
+}
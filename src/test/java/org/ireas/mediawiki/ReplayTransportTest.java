@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+public class ReplayTransportTest {
+
+    private static final URI API_URI =
+            URI.create("https://de.wikipedia.org/w/api.php");
+
+    private static final String BODY = "{\"login\":{\"result\":\"Success\"}}";
+
+    private static final String CONTENT_TYPE =
+            "application/json; charset=utf-8";
+
+    private static final String PASSWORD = "secret";
+
+    private static final ApiTransport STUB = new ApiTransport() {
+        @Override
+        public CloseableHttpResponse execute(final CloseableHttpClient client,
+                final HttpPost request, final Map<String, String> arguments,
+                final HttpContext context) {
+            return new RecordedResponse(HttpStatus.SC_OK, "OK",
+                    Optional.of(CONTENT_TYPE),
+                    BODY.getBytes(StandardCharsets.UTF_8)).toHttpResponse();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, String> login(final String token) {
+        return ImmutableMap.of(ApiConstants.ACTION, ApiConstants.ACTION_LOGIN,
+                ApiConstants.LG_NAME, "Foo", ApiConstants.LG_PASSWORD,
+                PASSWORD, ApiConstants.LG_TOKEN, token);
+    }
+
+    private Path getDirectory() {
+        return folder.getRoot().toPath().resolve("fixtures");
+    }
+
+    private static String read(final CloseableHttpResponse response)
+            throws IOException {
+        return EntityUtils.toString(response.getEntity());
+    }
+
+    private void record(final Map<String, String> arguments)
+            throws IOException {
+        RecordingTransport transport =
+                new RecordingTransport(getDirectory(), STUB);
+        try (CloseableHttpResponse response = transport.execute(null,
+                new HttpPost(API_URI), arguments, null)) {
+            Assert.assertEquals(BODY, read(response));
+        }
+    }
+
+    @Test
+    public void testMissingResponse() throws IOException {
+        record(login("123"));
+        ReplayTransport transport =
+                new ReplayTransport.Builder().addDirectory(getDirectory())
+                        .build();
+        CloseableHttpResponse response = transport.execute(null,
+                new HttpPost(API_URI), ImmutableMap.of(ApiConstants.ACTION,
+                        ApiConstants.ACTION_LOGOUT), null);
+        Assert.assertEquals(HttpStatus.SC_NOT_FOUND,
+                response.getStatusLine().getStatusCode());
+        Assert.assertEquals(1, transport.getMissCount());
+        Assert.assertEquals(1, transport.getRequestCount());
+    }
+
+    @Test
+    public void testPasswordNotRecorded() throws IOException {
+        record(login("123"));
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(getDirectory())) {
+            for (Path file : stream) {
+                String content = new String(Files.readAllBytes(file),
+                        StandardCharsets.UTF_8);
+                Assert.assertFalse(content.contains(PASSWORD));
+            }
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        record(login("123"));
+        ReplayTransport transport =
+                new ReplayTransport.Builder().addDirectory(getDirectory())
+                        .build();
+        Assert.assertEquals(1, transport.getResponseCount());
+
+        CloseableHttpResponse response = transport.execute(null,
+                new HttpPost(API_URI), login("456"), null);
+        Assert.assertEquals(HttpStatus.SC_OK,
+                response.getStatusLine().getStatusCode());
+        Assert.assertEquals(CONTENT_TYPE,
+                response.getEntity().getContentType().getValue());
+        Assert.assertEquals(BODY, read(response));
+        Assert.assertEquals(0, transport.getMissCount());
+    }
+
+}
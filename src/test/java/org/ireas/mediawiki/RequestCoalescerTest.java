@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ireas.mediawiki.exceptions.ApiErrorException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 16;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<Integer>> results =
+                submit(coalescer, "key", new BlockingRequest(release, calls));
+
+        awaitCoalesced(coalescer, THREADS - 1);
+        release.countDown();
+        for (Future<Integer> result : results) {
+            Assert.assertEquals(Integer.valueOf(1), result.get());
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(THREADS - 1, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testConcurrentFailure() throws Exception {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results =
+                submit(coalescer, "key", new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        release.await();
+                        throw new ApiErrorException("maxlag");
+                    }
+                });
+
+        awaitCoalesced(coalescer, THREADS - 1);
+        release.countDown();
+        for (Future<Integer> result : results) {
+            try {
+                result.get();
+                Assert.fail();
+            } catch (ExecutionException exception) {
+                Assert.assertTrue(exception.getCause()
+                        instanceof ApiErrorException);
+            }
+        }
+    }
+
+    @Test
+    public void testDifferentKeys() throws Exception {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<Integer> first =
+                submit(coalescer, "a", new BlockingRequest(release, calls),
+                        1).get(0);
+        Future<Integer> second =
+                submit(coalescer, "b", new BlockingRequest(release, calls),
+                        1).get(0);
+
+        release.countDown();
+        first.get();
+        second.get();
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testSequentialRequests() throws MediaWikiException {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+        CountDownLatch release = new CountDownLatch(0);
+        AtomicInteger calls = new AtomicInteger();
+        BlockingRequest request = new BlockingRequest(release, calls);
+        Assert.assertEquals(Integer.valueOf(1),
+                coalescer.execute("key", request));
+        Assert.assertEquals(Integer.valueOf(2),
+                coalescer.execute("key", request));
+        Assert.assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    private static void awaitCoalesced(final RequestCoalescer<?> coalescer,
+            final int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (coalescer.getCoalescedCount() < count) {
+            Assert.assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private List<Future<Integer>> submit(
+            final RequestCoalescer<String> coalescer, final String key,
+            final Callable<Integer> request) {
+        return submit(coalescer, key, request, THREADS);
+    }
+
+    private List<Future<Integer>> submit(
+            final RequestCoalescer<String> coalescer, final String key,
+            final Callable<Integer> request, final int count) {
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws MediaWikiException {
+                    return coalescer.execute(key, request);
+                }
+            }));
+        }
+        return results;
+    }
+
+    private static final class BlockingRequest implements Callable<Integer> {
+
+        private final CountDownLatch release;
+
+        private final AtomicInteger calls;
+
+        public BlockingRequest(final CountDownLatch release,
+                final AtomicInteger calls) {
+            this.release = release;
+            this.calls = calls;
+        }
+
+        @Override
+        public Integer call() throws InterruptedException {
+            release.await();
+            return calls.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+
+public class RequestSchedulerTest {
+
+    private long time;
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return time;
+        }
+    };
+
+    @Test
+    public void testAddMaxLag() {
+        Map<String, String> arguments =
+                Collections.singletonMap(ApiConstants.LIST,
+                        ApiConstants.LIST_USERS);
+        RequestScheduler scheduler =
+                new RequestScheduler(new BasicMediaWikiConfiguration.Builder()
+                        .setMaxLag(5).build(), ticker);
+        Assert.assertEquals("5",
+                scheduler.addMaxLag(arguments).get(ApiConstants.MAX_LAG));
+        Assert.assertFalse(arguments.containsKey(ApiConstants.MAX_LAG));
+
+        scheduler = new RequestScheduler(new BasicMediaWikiConfiguration(),
+                ticker);
+        Assert.assertSame(arguments, scheduler.addMaxLag(arguments));
+    }
+
+    @Test
+    public void testBackOff() {
+        RequestScheduler scheduler =
+                new RequestScheduler(new BasicMediaWikiConfiguration(),
+                        ticker);
+        Assert.assertEquals(0, scheduler.reserve());
+        scheduler.backOff(Duration.standardSeconds(3));
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(3), scheduler.reserve());
+        time += TimeUnit.SECONDS.toNanos(3);
+        Assert.assertEquals(0, scheduler.reserve());
+    }
+
+    @Test
+    public void testGetRetryDelay() {
+        RequestScheduler scheduler = newRetryScheduler(3, 10);
+        HttpResponse response =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK,
+                        "OK");
+        Assert.assertFalse(scheduler.getRetryDelay(response, 1, true)
+                .isPresent());
+
+        response.setHeader("MediaWiki-API-Error", "maxlag");
+        response.setHeader("Retry-After", "7");
+        Assert.assertEquals(Optional.of(Duration.standardSeconds(7)),
+                scheduler.getRetryDelay(response, 1, false));
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(7), scheduler.reserve());
+
+        response =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                        HttpStatus.SC_INTERNAL_SERVER_ERROR, "Error");
+        Assert.assertFalse(scheduler.getRetryDelay(response, 1, false)
+                .isPresent());
+        Assert.assertEquals(Optional.of(Duration.standardSeconds(2)),
+                scheduler.getRetryDelay(response, 2, true));
+        Assert.assertFalse(scheduler.getRetryDelay(response, 3, true)
+                .isPresent());
+    }
+
+    @Test
+    public void testGetRetryDelayException() {
+        RequestScheduler scheduler = newRetryScheduler(3, 10);
+        Assert.assertEquals(Optional.of(Duration.standardSeconds(1)),
+                scheduler.getRetryDelay(new SocketException(), 1, true));
+        Assert.assertFalse(scheduler.getRetryDelay(new SocketException(), 1,
+                false).isPresent());
+        Assert.assertFalse(scheduler.getRetryDelay(
+                new UnknownHostException(), 1, true).isPresent());
+        Assert.assertFalse(scheduler.getRetryDelay(
+                new InterruptedIOException(), 1, true).isPresent());
+    }
+
+    @Test
+    public void testGetRetryDelayServiceUnavailable() {
+        RequestScheduler scheduler = newRetryScheduler(3, 10);
+        HttpResponse response =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1,
+                        HttpStatus.SC_SERVICE_UNAVAILABLE, "Unavailable");
+        response.setHeader("Retry-After", "5");
+        Assert.assertFalse(scheduler.getRetryDelay(response, 1, false)
+                .isPresent());
+        Assert.assertEquals(0, scheduler.reserve());
+
+        Assert.assertEquals(Optional.of(Duration.standardSeconds(5)),
+                scheduler.getRetryDelay(response, 1, true));
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(5), scheduler.reserve());
+
+        response.setHeader("MediaWiki-API-Error", "readonly");
+        Assert.assertTrue(scheduler.getRetryDelay(response, 1, false)
+                .isPresent());
+    }
+
+    @Test
+    public void testGetRetryDelayTooManyRequests() {
+        RequestScheduler scheduler = newRetryScheduler(3, 10);
+        HttpResponse response =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1, 429,
+                        "Too Many Requests");
+        Assert.assertFalse(scheduler.getRetryDelay(response, 1, false)
+                .isPresent());
+        Assert.assertEquals(Optional.of(Duration.standardSeconds(1)),
+                scheduler.getRetryDelay(response, 1, true));
+    }
+
+    @Test
+    public void testRetryBudget() {
+        RequestScheduler scheduler = newRetryScheduler(2, 1);
+        IOException exception = new SocketException();
+        Assert.assertTrue(scheduler.getRetryDelay(exception, 1, true)
+                .isPresent());
+        Assert.assertFalse(scheduler.getRetryDelay(exception, 1, true)
+                .isPresent());
+        for (int i = 0; i < 5; i++) {
+            scheduler.reserve();
+        }
+        Assert.assertTrue(scheduler.getRetryDelay(exception, 1, true)
+                .isPresent());
+    }
+
+    @Test
+    public void testReserve() {
+        RequestScheduler scheduler =
+                new RequestScheduler(new BasicMediaWikiConfiguration.Builder()
+                        .setRequestRate(2).setRequestBurst(2).build(), ticker);
+        long interval = TimeUnit.MILLISECONDS.toNanos(500);
+        Assert.assertEquals(0, scheduler.reserve());
+        Assert.assertEquals(0, scheduler.reserve());
+        Assert.assertEquals(interval, scheduler.reserve());
+        Assert.assertEquals(2 * interval, scheduler.reserve());
+        time += 10 * interval;
+        Assert.assertEquals(0, scheduler.reserve());
+        Assert.assertEquals(0, scheduler.reserve());
+        Assert.assertEquals(interval, scheduler.reserve());
+    }
+
+    private RequestScheduler newRetryScheduler(final int maxAttempts,
+            final int maxRetryBurst) {
+        RetryPolicy retryPolicy =
+                new RetryPolicy.Builder().setMaxAttempts(maxAttempts)
+                        .setJitter(0).setMaxRetryBurst(maxRetryBurst).build();
+        return new RequestScheduler(new BasicMediaWikiConfiguration.Builder()
+                .setRetryPolicy(retryPolicy).build(), ticker);
+    }
+
+}
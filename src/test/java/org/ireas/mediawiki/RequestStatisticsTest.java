@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+
+public class RequestStatisticsTest {
+
+    private long time;
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return time;
+        }
+    };
+
+    private static RequestMetrics newMetrics(final int statusCode,
+            final String errorCode) {
+        return new RequestMetrics("de.wikipedia.org", "query", 1, statusCode,
+                Optional.fromNullable(errorCode), 0,
+                new long[RequestMetrics.Phase.values().length]);
+    }
+
+    @Test
+    public void testCounts() {
+        RequestStatistics statistics = new RequestStatistics(ticker);
+        statistics.requestStarted();
+        statistics.requestStarted();
+        Assert.assertEquals(2, statistics.getInFlight());
+        statistics.requestFinished(newMetrics(200, null));
+        statistics.requestFinished(newMetrics(200, "badvalue"));
+        statistics.requestStarted();
+        statistics.requestFinished(newMetrics(0, null));
+        Assert.assertEquals(0, statistics.getInFlight());
+        Assert.assertEquals(3, statistics.getRequestCount());
+        Assert.assertEquals(2, statistics.getErrorCount());
+    }
+
+    @Test
+    public void testRequestRate() {
+        RequestStatistics statistics = new RequestStatistics(ticker);
+        for (int second = 0; second < 120; second++) {
+            time = TimeUnit.SECONDS.toNanos(second);
+            for (int i = 0; i < 3; i++) {
+                statistics.requestStarted();
+                statistics.requestFinished(newMetrics(200, null));
+            }
+        }
+        Assert.assertEquals(3.0, statistics.getRequestRate(), 0);
+
+        time += TimeUnit.SECONDS.toNanos(30);
+        Assert.assertEquals(1.5, statistics.getRequestRate(), 0.1);
+        time += TimeUnit.SECONDS.toNanos(60);
+        Assert.assertEquals(0.0, statistics.getRequestRate(), 0);
+    }
+
+}
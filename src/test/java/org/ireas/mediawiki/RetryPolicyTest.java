@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testGetDelay() {
+        RetryPolicy retryPolicy =
+                new RetryPolicy.Builder()
+                        .setInitialDelay(Duration.millis(100))
+                        .setMaxDelay(Duration.millis(1000)).setMultiplier(3)
+                        .setJitter(0).build();
+        Assert.assertEquals(Duration.millis(100), retryPolicy.getDelay(1));
+        Assert.assertEquals(Duration.millis(300), retryPolicy.getDelay(2));
+        Assert.assertEquals(Duration.millis(900), retryPolicy.getDelay(3));
+        Assert.assertEquals(Duration.millis(1000), retryPolicy.getDelay(4));
+    }
+
+    @Test
+    public void testGetDelayJitter() {
+        RetryPolicy retryPolicy =
+                new RetryPolicy.Builder()
+                        .setInitialDelay(Duration.millis(1000))
+                        .setJitter(0.25).build();
+        for (int i = 0; i < 100; i++) {
+            long delay = retryPolicy.getDelay(1).getMillis();
+            Assert.assertTrue(delay >= 750 && delay <= 1000);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJitter() {
+        new RetryPolicy.Builder().setJitter(1.5);
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.exceptions.InvalidResponseException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+public class StreamingResponsesTest {
+
+    private static final String CONTRIBUTIONS =
+            "{\"batchcomplete\":\"\",\"continue\":{\"uccontinue\":"
+                    + "\"20070116150716|3\",\"continue\":\"-||\"},"
+                    + "\"query\":{\"usercontribs\":[{\"userid\":1,"
+                    + "\"user\":\"Ireas\",\"pageid\":5,\"revid\":1,"
+                    + "\"parentid\":0,\"ns\":0,\"title\":\"A\","
+                    + "\"timestamp\":\"2007-01-15T15:07:16Z\","
+                    + "\"tags\":[\"mobile edit\"]},{\"userid\":1,"
+                    + "\"user\":\"Ireas\",\"pageid\":6,\"revid\":2,"
+                    + "\"ns\":3,\"title\":\"User talk:B\","
+                    + "\"timestamp\":\"2007-01-16T15:07:16Z\"}]}}";
+
+    @Test
+    public void testParseContribCount() throws Exception {
+        StreamingResponses.ListCount count =
+                StreamingResponses.parseContribCount(toStream(CONTRIBUTIONS));
+        Assert.assertEquals(count.getCount(), 2);
+        Assert.assertEquals(count.getContinuation().get().get("uccontinue"),
+                "20070116150716|3");
+    }
+
+    @Test
+    public void testParseContributionHistory() throws Exception {
+        ContributionHistory history = new ContributionHistory("Ireas");
+        Optional<Map<String, String>> continuation =
+                StreamingResponses.parseContributionHistory(
+                        toStream(CONTRIBUTIONS), history);
+        Assert.assertEquals(history.size(), 2);
+        Assert.assertEquals(history.getRevisionId(0), 1);
+        Assert.assertEquals(history.getPageId(1), 6);
+        Assert.assertEquals(history.getNamespace(1),
+                Namespace.USER_TALK.getNamespace());
+        Assert.assertEquals(history.getTimestamp(0),
+                MediaWikiUtils.parseApiTimestampMillis(
+                        "2007-01-15T15:07:16Z"));
+        Assert.assertEquals(continuation.get().get("uccontinue"),
+                "20070116150716|3");
+    }
+
+    @Test(expected = InvalidResponseException.class)
+    public void testParseContributionHistoryMissingField() throws Exception {
+        StreamingResponses.parseContributionHistory(toStream(
+                "{\"query\":{\"usercontribs\":[{\"revid\":1,"
+                        + "\"pageid\":5,\"ns\":0}]}}"),
+                new ContributionHistory("Ireas"));
+    }
+
+    @Test
+    public void testParseContributionHistoryNamespace() throws Exception {
+        ContributionHistory history = new ContributionHistory("Ireas");
+        StreamingResponses.parseContributionHistory(toStream(
+                "{\"query\":{\"usercontribs\":[{\"revid\":1,"
+                        + "\"pageid\":5,"
+                        + "\"timestamp\":\"2007-01-15T15:07:16Z\"}]}}"),
+                history, Optional.of(Namespace.USER_TALK));
+        Assert.assertEquals(history.size(), 1);
+        Assert.assertEquals(history.getNamespace(0),
+                Namespace.USER_TALK.getNamespace());
+    }
+
+    @Test
+    public void testParseContributions() throws Exception {
+        ResultPage<Contribution> page =
+                StreamingResponses.parseContributions(toStream(CONTRIBUTIONS));
+        List<Contribution> contributions = page.getResults();
+        Assert.assertEquals(contributions.size(), 2);
+        Assert.assertEquals(contributions.get(0).getRevisionId(), 1);
+        Assert.assertEquals(contributions.get(1).getNamespace(),
+                Namespace.USER_TALK.getNamespace());
+        Assert.assertEquals(contributions.get(1).getTitle(), "User talk:B");
+        Assert.assertEquals(page.getContinuation().get().get("continue"),
+                "-||");
+    }
+
+    @Test
+    public void testParseContributionsLastPage() throws Exception {
+        ResultPage<Contribution> page =
+                StreamingResponses.parseContributions(toStream(
+                        "{\"query\":{\"usercontribs\":[]}}"));
+        Assert.assertTrue(page.getResults().isEmpty());
+        Assert.assertFalse(page.getContinuation().isPresent());
+    }
+
+    @Test
+    public void testParseError() throws IOException {
+        try {
+            StreamingResponses.parseContributions(toStream(
+                    "{\"error\":{\"code\":\"maxlag\",\"info\":\"Waiting\"}}"));
+            Assert.fail();
+        } catch (MediaWikiException exception) {
+            Assert.assertEquals(exception.getMessage(), "maxlag");
+        }
+    }
+
+    @Test(expected = InvalidResponseException.class)
+    public void testParseInvalidJson() throws Exception {
+        StreamingResponses.parseContribCount(toStream("{\"query\":"));
+    }
+
+    @Test(expected = InvalidResponseException.class)
+    public void testParseMissingList() throws Exception {
+        StreamingResponses.parseContribCount(toStream("{\"query\":{}}"));
+    }
+
+    private static InputStream toStream(final String response) {
+        return new ByteArrayInputStream(
+                response.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.exceptions.ApiErrorException;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenCacheTest {
+
+    @Test
+    public void testClear() {
+        TokenCache tokenCache = new TokenCache();
+        long session = tokenCache.getSession();
+        tokenCache.put(session, tokens("edit"));
+        tokenCache.clear();
+        Assert.assertTrue(tokenCache.get(EnumSet.allOf(TokenType.class))
+                .isEmpty());
+    }
+
+    @Test
+    public void testInvalidate() {
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.put(tokenCache.getSession(), tokens("edit"));
+        Map<String, String> arguments = new HashMap<>();
+        arguments.put("title", "Test");
+        arguments.put("token", "edit");
+
+        Map<TokenType, String> invalidTokens =
+                tokenCache.invalidate(arguments);
+        Assert.assertEquals(invalidTokens, tokens("edit"));
+        Assert.assertTrue(tokenCache.get(EnumSet.of(TokenType.EDIT))
+                .isEmpty());
+
+        Map<String, String> newArguments =
+                TokenCache.replaceTokens(arguments, invalidTokens,
+                        tokens("edit2"));
+        Assert.assertEquals(newArguments.get("token"), "edit2");
+        Assert.assertEquals(newArguments.get("title"), "Test");
+    }
+
+    @Test
+    public void testIsBadTokenError() {
+        Assert.assertTrue(TokenCache.isBadTokenError(new ApiErrorException(
+                ApiConstants.ERROR_BAD_TOKEN)));
+        Assert.assertFalse(TokenCache.isBadTokenError(new ApiErrorException(
+                "maxlag")));
+        Assert.assertFalse(TokenCache.isBadTokenError(new MediaWikiException(
+                ApiConstants.ERROR_BAD_TOKEN)));
+    }
+
+    @Test
+    public void testPutOutdatedSession() {
+        TokenCache tokenCache = new TokenCache();
+        long session = tokenCache.getSession();
+        tokenCache.clear();
+        tokenCache.put(session, tokens("edit"));
+        Assert.assertTrue(tokenCache.get(EnumSet.of(TokenType.EDIT))
+                .isEmpty());
+    }
+
+    @Test
+    public void testStats() {
+        TokenCache tokenCache = new TokenCache();
+        Assert.assertEquals(1.0, tokenCache.getStats().hitRate(), 0);
+        tokenCache.put(tokenCache.getSession(), tokens("edit"));
+        tokenCache.get(EnumSet.of(TokenType.EDIT, TokenType.BLOCK));
+        tokenCache.get(EnumSet.of(TokenType.EDIT));
+        Assert.assertEquals(2, tokenCache.getStats().hitCount());
+        Assert.assertEquals(1, tokenCache.getStats().missCount());
+    }
+
+    private static Map<TokenType, String> tokens(final String editToken) {
+        Map<TokenType, String> tokens = new HashMap<>();
+        tokens.put(TokenType.EDIT, editToken);
+        return tokens;
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActivityProfileTest {
+
+    private static final DateTime END_DATE =
+            new DateTime(2014, 1, 31, 0, 0, 0, DateTimeZone.UTC);
+
+    private static final Set<Namespace> ALL = Collections.emptySet();
+
+    private static final Set<Namespace> ARTICLE =
+            EnumSet.of(Namespace.ARTICLE);
+
+    private static final Set<Namespace> USER =
+            EnumSet.of(Namespace.USER, Namespace.USER_TALK);
+
+    private static void add(final ContributionHistory history,
+            final int days, final int namespace) {
+        history.add(END_DATE.minusDays(days).getMillis(), namespace, 1, 1);
+    }
+
+    private static ActivityProfile newProfile() {
+        ContributionHistory history = new ContributionHistory("Ireas");
+        add(history, 400, 0);
+        add(history, 100, 0);
+        add(history, 60, 2);
+        add(history, 30, 0);
+        add(history, 10, 3);
+        add(history, 5, 4);
+        add(history, 0, 0);
+        history.add(END_DATE.plusMillis(1).getMillis(), 0, 1, 1);
+
+        List<Set<Namespace>> namespaceSets = Arrays.asList(ALL, ARTICLE, USER);
+        List<Period> periods =
+                Arrays.asList(Period.days(30), Period.days(90),
+                        Period.days(365));
+        return new ActivityProfile(history, END_DATE, namespaceSets, periods);
+    }
+
+    @Test
+    public void testCounts() {
+        int[][] expected = { { 4, 5, 6 }, { 2, 2, 3 }, { 1, 2, 2 } };
+        Assert.assertArrayEquals(expected, newProfile().toArray());
+    }
+
+    @Test
+    public void testEndDateMillis() {
+        ContributionHistory history = new ContributionHistory("Ireas");
+        add(history, 31, 0);
+        add(history, 30, 0);
+        add(history, 0, 0);
+        history.add(END_DATE.plusSeconds(1).getMillis(), 0, 1, 1);
+
+        // the start and end second are counted like by getContribCount
+        ActivityProfile profile =
+                new ActivityProfile(history, END_DATE.plusMillis(500),
+                        Arrays.asList(ALL), Arrays.asList(Period.days(30)));
+        Assert.assertEquals(2, profile.getCount(0, 0));
+    }
+
+    @Test
+    public void testEmptyHistory() {
+        ActivityProfile profile =
+                new ActivityProfile(new ContributionHistory("Ireas"),
+                        END_DATE, Arrays.asList(ALL),
+                        Arrays.asList(Period.days(1)));
+        Assert.assertEquals(0, profile.getCount(0, 0));
+    }
+
+    @Test
+    public void testGetCount() {
+        ActivityProfile profile = newProfile();
+        Assert.assertEquals(2, profile.getCount(USER, Period.days(90)));
+        Assert.assertEquals(3,
+                profile.getCount(EnumSet.of(Namespace.ARTICLE),
+                        Period.days(365)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetCountUnknownPeriod() {
+        newProfile().getCount(ALL, Period.days(7));
+    }
+
+}
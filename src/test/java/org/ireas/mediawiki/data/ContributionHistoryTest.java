@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContributionHistoryTest {
+
+    private static ContributionHistory newHistory(final int size) {
+        ContributionHistory history = new ContributionHistory("Ireas", 0);
+        for (int i = 0; i < size; i++) {
+            history.add(i * 10L, i % 2, i + 100, i + 1000L);
+        }
+        return history;
+    }
+
+    @Test
+    public void testAdd() {
+        ContributionHistory history = newHistory(100);
+        Assert.assertEquals(100, history.size());
+        Assert.assertEquals(990, history.getTimestamp(99));
+        Assert.assertEquals(1, history.getNamespace(99));
+        Assert.assertEquals(199, history.getPageId(99));
+        Assert.assertEquals(1099, history.getRevisionId(99));
+        Assert.assertEquals(100, history.toTimestampArray().length);
+    }
+
+    @Test
+    public void testAddAll() {
+        ContributionHistory history = newHistory(3);
+        ContributionHistory later = new ContributionHistory("Ireas");
+        later.add(20, 0, 1, 2);
+        later.add(50, 0, 1, 3);
+        history.addAll(later);
+        Assert.assertArrayEquals(new long[] { 0, 10, 20, 20, 50 },
+                history.toTimestampArray());
+        Assert.assertArrayEquals(new long[] { 1000, 1001, 1002, 2, 3 },
+                history.toRevisionIdArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOlder() {
+        newHistory(3).add(5, 0, 0, 0);
+    }
+
+    @Test
+    public void testClear() {
+        ContributionHistory history = newHistory(3);
+        history.clear();
+        Assert.assertTrue(history.isEmpty());
+        history.add(0, 0, 0, 0);
+        Assert.assertEquals(1, history.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        ContributionHistory history = newHistory(3);
+        history.trimToSize();
+        history.clear();
+        history.getTimestamp(0);
+    }
+
+    @Test
+    public void testSlice() {
+        ContributionHistory slice = newHistory(10).slice(2, 5);
+        Assert.assertArrayEquals(new long[] { 20, 30, 40 },
+                slice.toTimestampArray());
+        Assert.assertArrayEquals(new int[] { 102, 103, 104 },
+                slice.toPageIdArray());
+        Assert.assertArrayEquals(new int[] { 0, 1, 0 },
+                slice.toNamespaceArray());
+        Assert.assertEquals("Ireas", slice.getUserName());
+    }
+
+    @Test
+    public void testSliceByTime() {
+        ContributionHistory history = newHistory(10);
+        Assert.assertArrayEquals(new long[] { 20, 30 },
+                history.sliceByTime(15, 40).toTimestampArray());
+        Assert.assertEquals(0, history.sliceByTime(1000, 2000).size());
+        Assert.assertEquals(10, history.sliceByTime(-5, 95).size());
+        Assert.assertEquals(3, history.indexOf(30));
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.ireas.mediawiki.BasicMediaWikiConfiguration;
+import org.ireas.mediawiki.MediaWiki;
+import org.ireas.mediawiki.MediaWikiFactory;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.ContributionHistory;
+import org.ireas.mediawiki.data.Namespace;
+import org.ireas.mediawiki.data.TokenType;
+import org.ireas.mediawiki.data.UserData;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+import org.ireas.mediawiki.exceptions.NoSuchUserException;
+import org.ireas.mediawiki.exceptions.WrongPasswordException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+public class FakeMediaWikiServerTest {
+
+    private static SyntheticWiki wiki;
+
+    private static FakeMediaWikiServer server;
+
+    private static int activeUser;
+
+    private MediaWiki mediaWiki;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        wiki = new SyntheticWiki.Builder().setSeed(42).setUserCount(200)
+                .setMaxEditCount(4000).build();
+        server = new FakeMediaWikiServer(wiki);
+        for (int user = 0; user < wiki.getUserCount(); user++) {
+            if (wiki.getEditCount(user) > wiki.getEditCount(activeUser)) {
+                activeUser = user;
+            }
+        }
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MediaWikiFactory.setConfiguration(new BasicMediaWikiConfiguration(
+                "org.ireas.mediawiki.test"));
+        mediaWiki = server.newMediaWiki();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mediaWiki.close();
+    }
+
+    @Test
+    public void testDeterministic() {
+        SyntheticWiki other = new SyntheticWiki.Builder().setSeed(42)
+                .setUserCount(200).setMaxEditCount(4000).build();
+        Assert.assertEquals(wiki.getEditCount(activeUser),
+                other.getEditCount(activeUser));
+        Assert.assertEquals(wiki.getContribution(activeUser, 100),
+                other.getContribution(activeUser, 100));
+        Assert.assertEquals(wiki.getTitle(activeUser, 100),
+                other.getTitle(activeUser, 100));
+    }
+
+    @Test
+    public void testGetContribCount() throws MediaWikiException {
+        String user = wiki.getUserName(activeUser);
+        int editCount = wiki.getEditCount(activeUser);
+        Assert.assertEquals(editCount,
+                mediaWiki.getContribCount(user, Integer.MAX_VALUE));
+        Assert.assertEquals(10, mediaWiki.getContribCount(user, 10));
+
+        DateTime endDate = new DateTime(
+                wiki.getTimestamp(activeUser, editCount / 2),
+                DateTimeZone.UTC);
+        Period period = Period.days(100);
+        int expected =
+                wiki.findEdit(activeUser, endDate.getMillis() + 1)
+                        - wiki.findEdit(activeUser,
+                                endDate.minus(period).getMillis());
+        Assert.assertEquals(expected, mediaWiki.getContribCount(user,
+                Integer.MAX_VALUE, EnumSet.noneOf(Namespace.class), endDate,
+                period));
+    }
+
+    @Test
+    public void testGetContributionHistory() throws MediaWikiException {
+        ContributionHistory history =
+                mediaWiki.getContributionHistory(
+                        wiki.getUserName(activeUser),
+                        EnumSet.noneOf(Namespace.class));
+        Assert.assertEquals(wiki.getEditCount(activeUser), history.size());
+        for (int edit = 0; edit < history.size(); edit++) {
+            Assert.assertEquals(wiki.getRevisionId(activeUser, edit),
+                    history.getRevisionId(edit));
+            Assert.assertEquals(wiki.getTimestamp(activeUser, edit),
+                    history.getTimestamp(edit));
+        }
+        Assert.assertTrue(server.getRequestCount() > 1);
+    }
+
+    @Test
+    public void testGetContributions() throws MediaWikiException {
+        List<Contribution> expected = new ArrayList<>();
+        for (int edit = 0; edit < wiki.getEditCount(activeUser); edit++) {
+            if (wiki.getNamespace(activeUser, edit) == Namespace.USER_TALK
+                    .getNamespace()) {
+                expected.add(wiki.getContribution(activeUser, edit));
+            }
+        }
+        List<Contribution> contributions = new ArrayList<>();
+        Iterator<Contribution> iterator =
+                mediaWiki.getContributions(wiki.getUserName(activeUser),
+                        EnumSet.of(Namespace.USER_TALK));
+        while (iterator.hasNext()) {
+            contributions.add(iterator.next());
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, contributions);
+        Assert.assertEquals(expected.get(0).getTitle(),
+                contributions.get(0).getTitle());
+    }
+
+    @Test
+    public void testGetFirstEdits() throws MediaWikiException {
+        List<String> users = new ArrayList<>();
+        for (int user = 0; user < wiki.getUserCount(); user++) {
+            users.add(wiki.getUserName(user));
+        }
+        Map<String, Optional<DateTime>> firstEdits =
+                mediaWiki.getFirstEdits(users);
+        for (int user = 0; user < wiki.getUserCount(); user++) {
+            Optional<DateTime> firstEdit =
+                    firstEdits.get(wiki.getUserName(user));
+            if (wiki.getEditCount(user) == 0) {
+                Assert.assertFalse(firstEdit.isPresent());
+            } else {
+                Assert.assertEquals(wiki.getTimestamp(user, 0),
+                        firstEdit.get().getMillis());
+            }
+        }
+    }
+
+    @Test
+    public void testGetUserData() throws MediaWikiException {
+        Assert.assertEquals(wiki.getUserData(7),
+                mediaWiki.getUserData("synthetic_user_7"));
+        Assert.assertEquals(wiki.getRegistration(7),
+                mediaWiki.getUserData(wiki.getUserName(7))
+                        .getRegistrationDate().getMillis());
+        Map<String, Optional<UserData>> userData =
+                mediaWiki.getUserData(Collections.singletonList(
+                        SyntheticWiki.USER_NAME_PREFIX + wiki.getUserCount()));
+        Assert.assertFalse(userData.values().iterator().next().isPresent());
+    }
+
+    @Test(expected = NoSuchUserException.class)
+    public void testGetUserDataMissing() throws MediaWikiException {
+        mediaWiki.getUserData("Synthetic user 007");
+    }
+
+    @Test
+    public void testLogin() throws MediaWikiException {
+        Assert.assertEquals("+\\", mediaWiki.getToken(TokenType.EDIT));
+        mediaWiki.login(wiki.getUserName(3), wiki.getPassword());
+        String token = mediaWiki.getToken(TokenType.EDIT);
+        Assert.assertNotEquals("+\\", token);
+        Assert.assertTrue(token.endsWith("+\\"));
+        mediaWiki.logout();
+    }
+
+    @Test(expected = WrongPasswordException.class)
+    public void testLoginWrongPassword() throws MediaWikiException {
+        mediaWiki.login(wiki.getUserName(3), wiki.getPassword() + "-");
+    }
+
+}
@@ -0,0 +1,806 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.testing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.ireas.mediawiki.ApiConstants;
+import org.ireas.mediawiki.MediaWikiUtils;
+import org.ireas.mediawiki.data.TokenType;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Handles the requests to the API of a {@link FakeMediaWikiServer}.  The
+ * handler implements the subset of the MediaWiki API used by this library
+ * on top of a {@link SyntheticWiki}:  {@code action=query} with {@code
+ * list=users}, {@code list=usercontribs} and {@code meta=userinfo}, {@code
+ * action=tokens}, {@code action=login} and {@code action=logout}.  Sessions
+ * are tracked with a cookie.  Responses are always JSON and are compressed
+ * if the client accepts gzip.  This class is thread-safe.
+ *
+ * @author ireas
+ */
+final class FakeApi implements HttpHandler {
+
+    /**
+     * A login session.  The user index is negative if no user is logged
+     * in.
+     */
+    private static final class Session {
+
+        private final String loginToken = newToken();
+
+        private final String editToken = newToken();
+
+        private volatile int user = -1;
+
+        public boolean isLoggedIn() {
+            return user >= 0;
+        }
+
+    }
+
+    /**
+     * An error reported in the {@code error} field of the response.
+     */
+    private static final class ApiError extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String code;
+
+        public ApiError(final String code, final String info) {
+            super(info);
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+    }
+
+    private static final String ANONYMOUS_NAME = "127.0.0.1";
+
+    private static final String ANONYMOUS_TOKEN = "+\\";
+
+    private static final List<String> ANONYMOUS_RIGHTS = ImmutableList.of(
+            "read", "edit", "createaccount");
+
+    private static final List<String> USER_RIGHTS = ImmutableList.of("read",
+            "edit", "createpage", ApiConstants.RIGHT_API_HIGH_LIMITS);
+
+    private static final String CONTENT_TYPE =
+            "application/json; charset=utf-8";
+
+    private static final int CONTINUE_FIELDS = 3;
+
+    private static final String CONTINUE_VALUE = "-||";
+
+    private static final String COOKIE_NAME = "fakewiki_session";
+
+    private static final int DEFAULT_UC_LIMIT = 10;
+
+    private static final String DEFAULT_UC_PROP = "ids|title|timestamp";
+
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String HEADER_API_ERROR = "MediaWiki-API-Error";
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+    private static final String HEADER_COOKIE = "Cookie";
+
+    private static final String HEADER_SET_COOKIE = "Set-Cookie";
+
+    private static final int LIMIT_LIST = 500;
+
+    private static final int LIMIT_LIST_HIGH = 5000;
+
+    private static final String METHOD_POST = "POST";
+
+    private static final int OK = 200;
+
+    private static final int TOKEN_BYTES = 16;
+
+    private static final String UC_CONTINUE = "uccontinue";
+
+    private static final DateTimeFormatter CONTINUE_FORMAT = DateTimeFormat
+            .forPattern("yyyyMMddHHmmss").withZoneUTC();
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Joiner JOINER = Joiner.on(ApiConstants.SEPARATOR);
+
+    private static final Splitter SPLITTER = Splitter
+            .on(ApiConstants.SEPARATOR);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SyntheticWiki wiki;
+
+    private final ConcurrentMap<String, Session> sessions =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * Constructs a new handler serving the data of the specified wiki.
+     *
+     * @param wiki the synthetic wiki
+     */
+    public FakeApi(final SyntheticWiki wiki) {
+        this.wiki = wiki;
+    }
+
+    private static void addWarning(final Map<String, String> warnings,
+            final String parameter, final int limit) {
+        warnings.put(parameter, String.format(
+                "Too many values supplied for parameter '%s': the limit is %d",
+                parameter, limit));
+    }
+
+    private int findEnd(final int user, final Optional<Long> end) {
+        if (!end.isPresent()) {
+            return wiki.getEditCount(user);
+        }
+        return wiki.findEdit(user, end.get() + 1);
+    }
+
+    private int findStart(final int user, final Optional<Long> start) {
+        if (!start.isPresent()) {
+            return 0;
+        }
+        return wiki.findEdit(user, start.get());
+    }
+
+    private static String formatContinuation(final String user,
+            final long timestamp, final long revisionId) {
+        return JOINER.join(user, CONTINUE_FORMAT.print(timestamp),
+                revisionId);
+    }
+
+    private static Map<String, String> getArguments(
+            final HttpExchange exchange) throws IOException {
+        List<NameValuePair> pairs = new ArrayList<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            pairs.addAll(URLEncodedUtils.parse(query, StandardCharsets.UTF_8));
+        }
+        if (METHOD_POST.equals(exchange.getRequestMethod())) {
+            String body = new String(ByteStreams.toByteArray(exchange
+                    .getRequestBody()), StandardCharsets.UTF_8);
+            pairs.addAll(URLEncodedUtils.parse(body, StandardCharsets.UTF_8));
+        }
+        Map<String, String> arguments = new HashMap<>();
+        for (NameValuePair pair : pairs) {
+            arguments.put(pair.getName(), Optional.fromNullable(
+                    pair.getValue()).or(""));
+        }
+        return arguments;
+    }
+
+    private int getListLimit(final Optional<Session> session) {
+        if (session.isPresent() && session.get().isLoggedIn()) {
+            return LIMIT_LIST_HIGH;
+        }
+        return LIMIT_LIST;
+    }
+
+    /**
+     * Returns the number of requests handled.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    private Optional<Session> getSession(final HttpExchange exchange) {
+        List<String> cookies =
+                exchange.getRequestHeaders().get(HEADER_COOKIE);
+        if (cookies != null) {
+            for (String header : cookies) {
+                for (String cookie : Splitter.on(';').trimResults().split(
+                        header)) {
+                    if (cookie.startsWith(COOKIE_NAME + "=")) {
+                        Session session = sessions.get(cookie
+                                .substring(COOKIE_NAME.length() + 1));
+                        if (session != null) {
+                            return Optional.of(session);
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.absent();
+    }
+
+    private int getValuesLimit(final Optional<Session> session) {
+        if (session.isPresent() && session.get().isLoggedIn()) {
+            return ApiConstants.LIMIT_VALUES_HIGH;
+        }
+        return ApiConstants.LIMIT_VALUES;
+    }
+
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            Map<String, String> arguments = getArguments(exchange);
+            Optional<Session> session = getSession(exchange);
+            byte[] body;
+            try {
+                body = render(exchange, arguments, session);
+            } catch (ApiError error) {
+                exchange.getResponseHeaders().set(HEADER_API_ERROR,
+                        error.getCode());
+                body = renderError(error);
+            }
+            sendResponse(exchange, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return BaseEncoding.base16().lowerCase().encode(bytes);
+    }
+
+    private static Optional<Set<Integer>> parseNamespaces(
+            final Map<String, String> arguments) throws ApiError {
+        String value = arguments.get(ApiConstants.UC_NAMESPACE);
+        if (value == null || value.isEmpty()) {
+            return Optional.absent();
+        }
+        Set<Integer> namespaces = new HashSet<>();
+        for (String namespace : SPLITTER.split(value)) {
+            Integer id = Ints.tryParse(namespace);
+            if (id == null) {
+                throw new ApiError("unknown_ucnamespace", String.format(
+                        "Unrecognized value for parameter 'ucnamespace': %s",
+                        namespace));
+            }
+            namespaces.add(id);
+        }
+        return Optional.of(namespaces);
+    }
+
+    private static Optional<Long> parseTimestamp(
+            final Map<String, String> arguments, final String parameter)
+            throws ApiError {
+        String value = arguments.get(parameter);
+        if (value == null) {
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(MediaWikiUtils.parseApiTimestampMillis(value));
+        } catch (IllegalArgumentException exception) {
+            throw new ApiError("badtimestamp_" + parameter, String.format(
+                    "Invalid value '%s' for timestamp parameter %s", value,
+                    parameter));
+        }
+    }
+
+    private int parseUserContribsLimit(final Map<String, String> arguments,
+            final Optional<Session> session) throws ApiError {
+        int maxLimit = getListLimit(session);
+        String value = arguments.get(ApiConstants.UC_LIMIT);
+        if (value == null) {
+            return DEFAULT_UC_LIMIT;
+        }
+        if (value.equals(ApiConstants.UC_LIMIT_MAX)) {
+            return maxLimit;
+        }
+        Integer limit = Ints.tryParse(value);
+        if (limit == null) {
+            throw new ApiError("badinteger", String.format(
+                    "Invalid value '%s' for integer parameter 'uclimit'",
+                    value));
+        }
+        return Math.max(1, Math.min(limit, maxLimit));
+    }
+
+    private byte[] render(final HttpExchange exchange,
+            final Map<String, String> arguments,
+            final Optional<Session> session) throws ApiError, IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator generator =
+                JSON_FACTORY.createGenerator(buffer, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            writeAction(generator, exchange, arguments, session);
+            generator.writeEndObject();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] renderError(final ApiError error)
+            throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator generator =
+                JSON_FACTORY.createGenerator(buffer, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart(ApiConstants.RESULT_ERROR);
+            generator.writeStringField(ApiConstants.RESULT_ERROR_CODE,
+                    error.getCode());
+            generator.writeStringField("info", error.getMessage());
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void sendResponse(final HttpExchange exchange,
+            final byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set(HEADER_CONTENT_TYPE, CONTENT_TYPE);
+        byte[] content = body;
+        String acceptEncoding =
+                exchange.getRequestHeaders().getFirst(HEADER_ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains(ENCODING_GZIP)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (OutputStream stream = new GZIPOutputStream(buffer)) {
+                stream.write(body);
+            }
+            content = buffer.toByteArray();
+            headers.set(HEADER_CONTENT_ENCODING, ENCODING_GZIP);
+        }
+        exchange.sendResponseHeaders(OK, content.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(content);
+        }
+    }
+
+    private void writeAction(final JsonGenerator generator,
+            final HttpExchange exchange, final Map<String, String> arguments,
+            final Optional<Session> session) throws ApiError, IOException {
+        String action = Optional.fromNullable(
+                arguments.get(ApiConstants.ACTION)).or("help");
+        if (action.equals(ApiConstants.ACTION_QUERY)) {
+            writeQuery(generator, arguments, session);
+        } else if (action.equals(ApiConstants.ACTION_TOKENS)) {
+            writeTokens(generator, arguments, session);
+        } else if (action.equals(ApiConstants.ACTION_LOGIN)) {
+            writeLogin(generator, exchange, arguments, session);
+        } else if (action.equals(ApiConstants.ACTION_LOGOUT)) {
+            if (session.isPresent()) {
+                session.get().user = -1;
+            }
+        } else {
+            throw new ApiError("unknown_action", String.format(
+                    "Unrecognized value for parameter 'action': %s",
+                    action));
+        }
+    }
+
+    private void writeContribution(final JsonGenerator generator,
+            final int user, final int edit, final Set<String> properties)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("userid", wiki.getUserId(user));
+        generator.writeStringField(ApiConstants.RESULT_UC_USER,
+                wiki.getUserName(user));
+        if (properties.contains(ApiConstants.UC_PROP_IDS)) {
+            generator.writeNumberField(ApiConstants.RESULT_UC_PAGE_ID,
+                    wiki.getPageId(user, edit));
+            generator.writeNumberField(ApiConstants.RESULT_UC_REVISION_ID,
+                    wiki.getRevisionId(user, edit));
+        }
+        if (properties.contains(ApiConstants.UC_PROP_TITLE)) {
+            generator.writeNumberField(ApiConstants.RESULT_UC_NAMESPACE,
+                    wiki.getNamespace(user, edit));
+            generator.writeStringField(ApiConstants.RESULT_UC_TITLE,
+                    wiki.getTitle(user, edit));
+        }
+        if (properties.contains(ApiConstants.UC_PROP_TIMESTAMP)) {
+            generator.writeStringField(ApiConstants.RESULT_UC_TIMESTAMP,
+                    MediaWikiUtils.formatApiTimestamp(wiki.getTimestamp(user,
+                            edit)));
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeLogin(final JsonGenerator generator,
+            final HttpExchange exchange, final Map<String, String> arguments,
+            final Optional<Session> session) throws IOException {
+        Session currentSession;
+        if (session.isPresent()) {
+            currentSession = session.get();
+        } else {
+            String id = newToken();
+            currentSession = new Session();
+            sessions.put(id, currentSession);
+            exchange.getResponseHeaders().add(HEADER_SET_COOKIE,
+                    COOKIE_NAME + "=" + id + "; path=/; HttpOnly");
+        }
+
+        String name =
+                Optional.fromNullable(arguments.get(ApiConstants.LG_NAME))
+                        .or("");
+        String password = Optional.fromNullable(
+                arguments.get(ApiConstants.LG_PASSWORD)).or("");
+        String token = arguments.get(ApiConstants.LG_TOKEN);
+        Optional<Integer> user = wiki.getUserIndex(name);
+
+        generator.writeObjectFieldStart(ApiConstants.ACTION_LOGIN);
+        if (token == null) {
+            generator.writeStringField(ApiConstants.RESULT_LG_RESULT,
+                    ApiConstants.RESULT_LG_NEED_TOKEN);
+            generator.writeStringField(ApiConstants.RESULT_LG_TOKEN,
+                    currentSession.loginToken);
+        } else if (!token.equals(currentSession.loginToken)) {
+            generator.writeStringField(ApiConstants.RESULT_LG_RESULT,
+                    "WrongToken");
+        } else if (!user.isPresent()) {
+            generator.writeStringField(ApiConstants.RESULT_LG_RESULT,
+                    ApiConstants.RESULT_LG_NOT_EXISTS);
+        } else if (!password.equals(wiki.getPassword())) {
+            generator.writeStringField(ApiConstants.RESULT_LG_RESULT,
+                    ApiConstants.RESULT_LG_WRONG_PASS);
+        } else {
+            currentSession.user = user.get();
+            generator.writeStringField(ApiConstants.RESULT_LG_RESULT,
+                    ApiConstants.RESULT_LG_SUCCESS);
+            generator.writeNumberField("lguserid",
+                    wiki.getUserId(user.get()));
+            generator.writeStringField("lgusername",
+                    wiki.getUserName(user.get()));
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeQuery(final JsonGenerator generator,
+            final Map<String, String> arguments,
+            final Optional<Session> session) throws ApiError, IOException {
+        Set<String> lists = new HashSet<>(SPLITTER.omitEmptyStrings()
+                .splitToList(Optional.fromNullable(
+                        arguments.get(ApiConstants.LIST)).or("")));
+        Set<String> metas = new HashSet<>(SPLITTER.omitEmptyStrings()
+                .splitToList(Optional.fromNullable(
+                        arguments.get(ApiConstants.META)).or("")));
+        for (String list : lists) {
+            if (!list.equals(ApiConstants.LIST_USERS)
+                    && !list.equals(ApiConstants.LIST_USERCONTRIBS)) {
+                throw new ApiError("unknown_list", String.format(
+                        "Unrecognized value for parameter 'list': %s", list));
+            }
+        }
+        for (String meta : metas) {
+            if (!meta.equals(ApiConstants.META_USERINFO)) {
+                throw new ApiError("unknown_meta", String.format(
+                        "Unrecognized value for parameter 'meta': %s", meta));
+            }
+        }
+
+        Map<String, String> warnings = new LinkedHashMap<>();
+        Optional<String> continuation = Optional.absent();
+        generator.writeObjectFieldStart(ApiConstants.ACTION_QUERY);
+        if (lists.contains(ApiConstants.LIST_USERS)) {
+            writeUsers(generator, arguments, session, warnings);
+        }
+        if (lists.contains(ApiConstants.LIST_USERCONTRIBS)) {
+            continuation =
+                    writeUserContribs(generator, arguments, session,
+                            warnings);
+        }
+        if (metas.contains(ApiConstants.META_USERINFO)) {
+            writeUserInfo(generator, session);
+        }
+        generator.writeEndObject();
+
+        if (continuation.isPresent()) {
+            generator.writeObjectFieldStart(ApiConstants.RESULT_CONTINUE);
+            generator.writeStringField(UC_CONTINUE, continuation.get());
+            generator.writeStringField(ApiConstants.CONTINUE, CONTINUE_VALUE);
+            generator.writeEndObject();
+        } else {
+            generator.writeStringField("batchcomplete", "");
+        }
+        if (!warnings.isEmpty()) {
+            generator.writeObjectFieldStart("warnings");
+            for (Map.Entry<String, String> warning : warnings.entrySet()) {
+                generator.writeObjectFieldStart(warning.getKey());
+                generator.writeStringField("*", warning.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeTokens(final JsonGenerator generator,
+            final Map<String, String> arguments,
+            final Optional<Session> session) throws IOException {
+        String token = ANONYMOUS_TOKEN;
+        if (session.isPresent() && session.get().isLoggedIn()) {
+            token = session.get().editToken + ANONYMOUS_TOKEN;
+        }
+        Set<String> types = new HashSet<>();
+        for (TokenType type : TokenType.values()) {
+            types.add(type.getValue());
+        }
+        generator.writeObjectFieldStart(ApiConstants.ACTION_TOKENS);
+        for (String type : SPLITTER.split(Optional.fromNullable(
+                arguments.get(ApiConstants.TOKENS_TYPE)).or(
+                ApiConstants.TOKEN_EDIT))) {
+            if (types.contains(type)) {
+                generator.writeStringField(
+                        String.format(ApiConstants.RESULT_TOKENS, type),
+                        token);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private Optional<String> writeUserContribs(
+            final JsonGenerator generator,
+            final Map<String, String> arguments,
+            final Optional<Session> session,
+            final Map<String, String> warnings) throws ApiError, IOException {
+        String userValue = arguments.get(ApiConstants.UC_USER);
+        if (userValue == null || userValue.isEmpty()) {
+            throw new ApiError("missingparam",
+                    "The ucuser parameter must be set");
+        }
+        List<String> names =
+                SPLITTER.omitEmptyStrings().splitToList(userValue);
+        int valuesLimit = getValuesLimit(session);
+        if (names.size() > valuesLimit) {
+            names = names.subList(0, valuesLimit);
+            addWarning(warnings, ApiConstants.UC_USER, valuesLimit);
+        }
+
+        // the contributions of several users are listed by user name
+        Map<String, Integer> users = new HashMap<>();
+        for (String name : names) {
+            Optional<Integer> user = wiki.getUserIndex(name);
+            if (user.isPresent()) {
+                users.put(wiki.getUserName(user.get()), user.get());
+            }
+        }
+        boolean newer =
+                ApiConstants.UC_DIR_NEWER.equals(arguments
+                        .get(ApiConstants.UC_DIR));
+        List<String> userOrder = new ArrayList<>(users.keySet());
+        Collections.sort(userOrder);
+        if (!newer) {
+            Collections.reverse(userOrder);
+        }
+
+        Optional<Long> start = parseTimestamp(arguments, ApiConstants.UC_START);
+        Optional<Long> end = parseTimestamp(arguments, ApiConstants.UC_END);
+        Optional<Long> lower = start;
+        Optional<Long> upper = end;
+        if (!newer) {
+            lower = end;
+            upper = start;
+        }
+        Optional<Set<Integer>> namespaces = parseNamespaces(arguments);
+        int limit = parseUserContribsLimit(arguments, session);
+        Set<String> properties = new HashSet<>(SPLITTER.splitToList(
+                Optional.fromNullable(arguments.get(ApiConstants.UC_PROP))
+                        .or(DEFAULT_UC_PROP)));
+
+        int firstUser = 0;
+        int continueEdit = -1;
+        String continueValue = arguments.get(UC_CONTINUE);
+        if (continueValue != null) {
+            List<String> fields = SPLITTER.splitToList(continueValue);
+            Long revisionId = null;
+            if (fields.size() == CONTINUE_FIELDS) {
+                revisionId = Longs.tryParse(fields.get(CONTINUE_FIELDS - 1));
+            }
+            firstUser = userOrder.indexOf(fields.get(0));
+            if (revisionId == null || firstUser < 0) {
+                throw new ApiError("badcontinue",
+                        "Invalid continue param");
+            }
+            int user = users.get(fields.get(0));
+            long edit = revisionId - 1 - (long) user * wiki.getMaxEditCount();
+            if (edit < 0 || edit >= wiki.getEditCount(user)) {
+                throw new ApiError("badcontinue",
+                        "Invalid continue param");
+            }
+            continueEdit = (int) edit;
+        }
+
+        generator.writeArrayFieldStart(ApiConstants.RESULT_USERCONTRIBS);
+        int count = 0;
+        for (int i = firstUser; i < userOrder.size(); i++) {
+            int user = users.get(userOrder.get(i));
+            int first = findStart(user, lower);
+            int last = findEnd(user, upper) - 1;
+            if (i == firstUser && continueEdit >= 0) {
+                if (newer) {
+                    first = Math.max(first, continueEdit);
+                } else {
+                    last = Math.min(last, continueEdit);
+                }
+            }
+            int step = 1;
+            int edit = first;
+            if (!newer) {
+                step = -1;
+                edit = last;
+            }
+            for (; edit >= first && edit <= last; edit += step) {
+                if (namespaces.isPresent() && !namespaces.get().contains(
+                        wiki.getNamespace(user, edit))) {
+                    continue;
+                }
+                if (count == limit) {
+                    generator.writeEndArray();
+                    return Optional.of(formatContinuation(
+                            wiki.getUserName(user),
+                            wiki.getTimestamp(user, edit),
+                            wiki.getRevisionId(user, edit)));
+                }
+                writeContribution(generator, user, edit, properties);
+                count++;
+            }
+        }
+        generator.writeEndArray();
+        return Optional.absent();
+    }
+
+    private void writeUserInfo(final JsonGenerator generator,
+            final Optional<Session> session) throws IOException {
+        boolean loggedIn = session.isPresent() && session.get().isLoggedIn();
+        generator.writeObjectFieldStart(ApiConstants.RESULT_USERINFO);
+        if (loggedIn) {
+            int user = session.get().user;
+            generator.writeNumberField("id", wiki.getUserId(user));
+            generator.writeStringField("name", wiki.getUserName(user));
+        } else {
+            generator.writeNumberField("id", 0);
+            generator.writeStringField("name", ANONYMOUS_NAME);
+            generator.writeStringField("anon", "");
+        }
+        generator.writeArrayFieldStart(ApiConstants.RESULT_UI_RIGHTS);
+        List<String> rights = ANONYMOUS_RIGHTS;
+        if (loggedIn) {
+            rights = USER_RIGHTS;
+        }
+        for (String right : rights) {
+            generator.writeString(right);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeUsers(final JsonGenerator generator,
+            final Map<String, String> arguments,
+            final Optional<Session> session,
+            final Map<String, String> warnings) throws IOException {
+        List<String> names = SPLITTER.omitEmptyStrings().splitToList(
+                Optional.fromNullable(arguments.get(ApiConstants.US_USERS))
+                        .or(""));
+        int valuesLimit = getValuesLimit(session);
+        if (names.size() > valuesLimit) {
+            names = names.subList(0, valuesLimit);
+            addWarning(warnings, ApiConstants.US_USERS, valuesLimit);
+        }
+        Set<String> properties = new HashSet<>(SPLITTER.splitToList(
+                Optional.fromNullable(arguments.get(ApiConstants.US_PROP))
+                        .or("")));
+
+        Map<String, String> normalized = new LinkedHashMap<>();
+        for (String name : names) {
+            String normalizedName = MediaWikiUtils.normalizeUserName(name);
+            if (!normalizedName.equals(name)) {
+                normalized.put(name, normalizedName);
+            }
+        }
+        if (!normalized.isEmpty()) {
+            generator.writeArrayFieldStart(ApiConstants.RESULT_NORMALIZED);
+            for (Map.Entry<String, String> entry : normalized.entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField(
+                        ApiConstants.RESULT_NORMALIZED_FROM, entry.getKey());
+                generator.writeStringField(ApiConstants.RESULT_NORMALIZED_TO,
+                        entry.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+
+        generator.writeArrayFieldStart(ApiConstants.RESULT_USERS);
+        Set<String> written = new HashSet<>();
+        for (String name : names) {
+            String normalizedName = MediaWikiUtils.normalizeUserName(name);
+            if (!written.add(normalizedName)) {
+                continue;
+            }
+            generator.writeStartObject();
+            Optional<Integer> user = wiki.getUserIndex(normalizedName);
+            if (normalizedName.isEmpty()) {
+                generator.writeStringField(ApiConstants.RESULT_US_NAME, name);
+                generator.writeStringField(ApiConstants.RESULT_US_INVALID,
+                        "");
+            } else if (!user.isPresent()) {
+                generator.writeStringField(ApiConstants.RESULT_US_NAME,
+                        normalizedName);
+                generator.writeStringField(ApiConstants.RESULT_US_MISSING,
+                        "");
+            } else {
+                generator.writeNumberField(ApiConstants.RESULT_US_ID,
+                        wiki.getUserId(user.get()));
+                generator.writeStringField(ApiConstants.RESULT_US_NAME,
+                        normalizedName);
+                if (properties.contains(ApiConstants.US_PROP_EDIT_COUNT)) {
+                    generator.writeNumberField(
+                            ApiConstants.RESULT_US_EDIT_COUNT,
+                            wiki.getEditCount(user.get()));
+                }
+                if (properties.contains(ApiConstants.US_PROP_REGISTRATION)) {
+                    generator.writeStringField(
+                            ApiConstants.RESULT_US_REGISTRATION,
+                            MediaWikiUtils.formatApiTimestamp(wiki
+                                    .getRegistration(user.get())));
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.testing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.ireas.mediawiki.AsyncMediaWiki;
+import org.ireas.mediawiki.MediaWiki;
+import org.ireas.mediawiki.MediaWikiFactory;
+import org.ireas.mediawiki.exceptions.MediaWikiException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process fake of the MediaWiki API that serves the data of a {@link
+ * SyntheticWiki}.  The server listens on a random port of the loopback
+ * interface and implements the API modules used by this library:  user
+ * data and edit counts ({@code list=users}), contributions ({@code
+ * list=usercontribs} with continuation, namespaces, directions and date
+ * ranges), user rights ({@code meta=userinfo}), tokens and login.  Logged
+ * in users have the {@code apihighlimits} right.
+ * <p>
+ * Use {@link #newMediaWiki()}, {@link #newAsyncMediaWiki()} or pass the
+ * URI parts to {@link
+ * MediaWikiFactory#newInstance(String, String, int, String)} to create a
+ * {@code MediaWiki} instance for the server:
+ * <pre>
+ * SyntheticWiki wiki = new SyntheticWiki.Builder().setUserCount(1000000)
+ *         .build();
+ * try (FakeMediaWikiServer server = new FakeMediaWikiServer(wiki);
+ *         MediaWiki mediaWiki = server.newMediaWiki()) {
+ *     mediaWiki.getEditCount(wiki.getUserName(42));
+ * }
+ * </pre>
+ *
+ * @author ireas
+ */
+public final class FakeMediaWikiServer implements Closeable {
+
+    /**
+     * The path of the API on the server.
+     */
+    public static final String API_PATH = "/w/api.php";
+
+    /**
+     * The host the server listens on.
+     */
+    public static final String HOST = "127.0.0.1";
+
+    /**
+     * The scheme of the server URI.
+     */
+    public static final String SCHEME = "http";
+
+    private static final int BACKLOG = 1024;
+
+    private static final String NODELAY_PROPERTY =
+            "sun.net.httpserver.nodelay";
+
+    private static final String THREAD_NAME = "fake-mediawiki-%d";
+
+    static {
+        // The JDK server writes the headers and the body of a response
+        // separately.  Without TCP_NODELAY, the body waits for the delayed
+        // acknowledgement of the headers, which limits each connection to
+        // about 25 requests per second.  The property is read when the
+        // first server of the JVM is created.
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, Boolean.TRUE.toString());
+        }
+    }
+
+    private final SyntheticWiki wiki;
+
+    private final FakeApi api;
+
+    private final ExecutorService executor;
+
+    private final HttpServer server;
+
+    /**
+     * Starts a new server serving the data of the specified wiki.
+     *
+     * @param wiki the synthetic wiki to serve
+     * @throws IOException if the server cannot be started
+     * @throws NullPointerException if the specified wiki is null
+     */
+    public FakeMediaWikiServer(final SyntheticWiki wiki) throws IOException {
+        Preconditions.checkNotNull(wiki);
+
+        this.wiki = wiki;
+        api = new FakeApi(wiki);
+        ThreadFactory threadFactory =
+                new ThreadFactoryBuilder().setNameFormat(THREAD_NAME)
+                        .setDaemon(true).build();
+        executor = Executors.newCachedThreadPool(threadFactory);
+        server = HttpServer.create(new InetSocketAddress(HOST, 0), BACKLOG);
+        server.createContext(API_PATH, api);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the URI of the API.
+     *
+     * @return the API URI
+     */
+    public URI getApiUri() {
+        return URI.create(SCHEME + "://" + HOST + ":" + getPort() + API_PATH);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests handled by this server.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return api.getRequestCount();
+    }
+
+    /**
+     * Returns the wiki served by this server.
+     *
+     * @return the synthetic wiki
+     */
+    public SyntheticWiki getWiki() {
+        return wiki;
+    }
+
+    /**
+     * Constructs a new {@code AsyncMediaWiki} instance for this server using
+     * the configuration of the {@link MediaWikiFactory}.
+     *
+     * @return a new {@code AsyncMediaWiki} instance for this server
+     * @throws MediaWikiException if the instance cannot be constructed
+     */
+    public AsyncMediaWiki newAsyncMediaWiki() throws MediaWikiException {
+        return MediaWikiFactory.newAsyncInstance(SCHEME, HOST, getPort(),
+                API_PATH);
+    }
+
+    /**
+     * Constructs a new {@code MediaWiki} instance for this server using the
+     * configuration of the {@link MediaWikiFactory}.
+     *
+     * @return a new {@code MediaWiki} instance for this server
+     * @throws MediaWikiException if the instance cannot be constructed
+     */
+    public MediaWiki newMediaWiki() throws MediaWikiException {
+        return MediaWikiFactory.newInstance(SCHEME, HOST, getPort(),
+                API_PATH);
+    }
+
+}
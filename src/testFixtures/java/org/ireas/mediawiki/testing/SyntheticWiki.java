@@ -0,0 +1,577 @@
+/*
+ * Copyright (C) 2014 Robin Krahl
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.ireas.mediawiki.testing;
+
+import java.util.regex.Pattern;
+
+import org.ireas.mediawiki.MediaWikiUtils;
+import org.ireas.mediawiki.data.Contribution;
+import org.ireas.mediawiki.data.DefaultContribution;
+import org.ireas.mediawiki.data.DefaultUserData;
+import org.ireas.mediawiki.data.UserData;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Deterministic generator of synthetic wiki data:  users with their
+ * registration dates and contributions.  No data is stored; every value is
+ * computed on demand from the seed, the user index and the edit index, so
+ * that a wiki with millions of users and edits uses constant memory.  Two
+ * instances with the same settings produce the same data.
+ * <p>
+ * The users are numbered from zero and named {@code "Synthetic user
+ * <index>"}.  The user ID is the index plus one, and all users share the
+ * same password.  The edit counts are skewed:  most users have few edits,
+ * and some users have up to {@code getMaxEditCount} edits.  The edits of a
+ * user are spread between the registration date and the end date of the
+ * wiki, and both their timestamps and their revision IDs increase with the
+ * edit index.  Timestamps have a resolution of one second, so several edits
+ * may have the same timestamp.
+ * <p>
+ * Instances are immutable and constructed using a {@link Builder}.  Per
+ * default, the wiki has 1000 users with up to 1000 edits on 100000 pages
+ * between 2004 and 2014, the seed is zero and the password is {@code
+ * "password"}.
+ *
+ * @author ireas
+ */
+public final class SyntheticWiki {
+
+    /**
+     * Builder for {@code SyntheticWiki} objects.  All values are initialized
+     * with the default values and can be changed using the setter methods.
+     * The setters return the builder itself, so that calls can be chained.
+     *
+     * @author ireas
+     */
+    public static final class Builder {
+
+        private long seed = DEFAULT_SEED;
+
+        private int userCount = DEFAULT_USER_COUNT;
+
+        private int maxEditCount = DEFAULT_MAX_EDIT_COUNT;
+
+        private int pageCount = DEFAULT_PAGE_COUNT;
+
+        private DateTime startDate = DEFAULT_START_DATE;
+
+        private DateTime endDate = DEFAULT_END_DATE;
+
+        private String password = DEFAULT_PASSWORD;
+
+        /**
+         * Constructs a new builder using the default values.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Constructs a new wiki using the values of this builder.
+         *
+         * @return a new wiki with the values of this builder
+         * @throws IllegalArgumentException if the start date is not before
+         *         the end date
+         */
+        public SyntheticWiki build() {
+            return new SyntheticWiki(this);
+        }
+
+        /**
+         * Sets the date of the last possible edit.
+         *
+         * @param date the end date
+         * @return this builder
+         * @throws NullPointerException if the specified date is null
+         */
+        public Builder setEndDate(final DateTime date) {
+            endDate = Preconditions.checkNotNull(date);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of edits of a user.
+         *
+         * @param count the maximum edit count
+         * @return this builder
+         * @throws IllegalArgumentException if the specified count is
+         *         negative
+         */
+        public Builder setMaxEditCount(final int count) {
+            Preconditions.checkArgument(count >= 0);
+            maxEditCount = count;
+            return this;
+        }
+
+        /**
+         * Sets the number of pages per namespace that are edited.
+         *
+         * @param count the number of pages
+         * @return this builder
+         * @throws IllegalArgumentException if the specified count is less
+         *         than one
+         */
+        public Builder setPageCount(final int count) {
+            Preconditions.checkArgument(count > 0);
+            pageCount = count;
+            return this;
+        }
+
+        /**
+         * Sets the password of all users.
+         *
+         * @param newPassword the password
+         * @return this builder
+         * @throws NullPointerException if the specified password is null
+         */
+        public Builder setPassword(final String newPassword) {
+            password = Preconditions.checkNotNull(newPassword);
+            return this;
+        }
+
+        /**
+         * Sets the seed of the generator.
+         *
+         * @param newSeed the seed
+         * @return this builder
+         */
+        public Builder setSeed(final long newSeed) {
+            seed = newSeed;
+            return this;
+        }
+
+        /**
+         * Sets the date of the first possible registration.
+         *
+         * @param date the start date
+         * @return this builder
+         * @throws NullPointerException if the specified date is null
+         */
+        public Builder setStartDate(final DateTime date) {
+            startDate = Preconditions.checkNotNull(date);
+            return this;
+        }
+
+        /**
+         * Sets the number of users.
+         *
+         * @param count the number of users
+         * @return this builder
+         * @throws IllegalArgumentException if the specified count is
+         *         negative
+         */
+        public Builder setUserCount(final int count) {
+            Preconditions.checkArgument(count >= 0);
+            userCount = count;
+            return this;
+        }
+
+    }
+
+    /**
+     * Prefix of the names of the users.
+     */
+    public static final String USER_NAME_PREFIX = "Synthetic user ";
+
+    private static final long DEFAULT_SEED = 0;
+
+    private static final int DEFAULT_USER_COUNT = 1000;
+
+    private static final int DEFAULT_MAX_EDIT_COUNT = 1000;
+
+    private static final int DEFAULT_PAGE_COUNT = 100000;
+
+    private static final DateTime DEFAULT_START_DATE = new DateTime(2004, 1,
+            1, 0, 0, DateTimeZone.UTC);
+
+    private static final DateTime DEFAULT_END_DATE = new DateTime(2014, 1, 1,
+            0, 0, DateTimeZone.UTC);
+
+    private static final String DEFAULT_PASSWORD = "password";
+
+    /**
+     * The namespaces of the edits and their weights in percent.
+     */
+    private static final int[][] NAMESPACE_WEIGHTS = {{0, 50}, {1, 12},
+        {2, 10}, {3, 16}, {4, 6}, {5, 2}, {12, 2}, {13, 2}};
+
+    private static final String[] NAMESPACE_PREFIXES = {"", "Talk:",
+        "User:", "User talk:", "Project:", "Project talk:", "Help:",
+        "Help talk:"};
+
+    private static final int PERCENT = 100;
+
+    private static final String PAGE_PREFIX = "Page ";
+
+    /**
+     * Pattern of the canonical user numbers, i. e. without leading zeros.
+     * The length is limited so that the numbers can be parsed as longs.
+     */
+    private static final Pattern USER_NUMBER =
+            Pattern.compile("0|[1-9][0-9]{0,17}");
+
+    /**
+     * Exponent of the edit count distribution.  With an exponent of three,
+     * the mean edit count is a quarter of the maximum.
+     */
+    private static final double EDIT_COUNT_SKEW = 3;
+
+    /**
+     * Share of the time span of the wiki in which the users register.
+     */
+    private static final double REGISTRATION_SHARE = 0.9;
+
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    private static final long SALT_EDIT_COUNT = 1;
+
+    private static final long SALT_REGISTRATION = 2;
+
+    private static final long SALT_TIMESTAMP = 3;
+
+    private static final long SALT_NAMESPACE = 4;
+
+    private static final long SALT_PAGE = 5;
+
+    private static final long MIX_USER = 0x9e3779b97f4a7c15L;
+
+    private static final long MIX_EDIT = 0xc2b2ae3d27d4eb4fL;
+
+    private static final long MIX_SALT = 0x165667b19e3779f9L;
+
+    private static final long MIX_1 = 0xbf58476d1ce4e5b9L;
+
+    private static final long MIX_2 = 0x94d049bb133111ebL;
+
+    private static final int SHIFT_1 = 30;
+
+    private static final int SHIFT_2 = 27;
+
+    private static final int SHIFT_3 = 31;
+
+    private static final int DOUBLE_SHIFT = 11;
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private final long seed;
+
+    private final int userCount;
+
+    private final int maxEditCount;
+
+    private final int pageCount;
+
+    private final long startSecond;
+
+    private final long endSecond;
+
+    private final String password;
+
+    private SyntheticWiki(final Builder builder) {
+        Preconditions.checkArgument(
+                builder.startDate.isBefore(builder.endDate),
+                "Start date must be before end date");
+
+        seed = builder.seed;
+        userCount = builder.userCount;
+        maxEditCount = builder.maxEditCount;
+        pageCount = builder.pageCount;
+        startSecond = builder.startDate.getMillis() / MILLIS_PER_SECOND;
+        endSecond = builder.endDate.getMillis() / MILLIS_PER_SECOND;
+        password = builder.password;
+    }
+
+    private void checkEdit(final int user, final int edit) {
+        Preconditions.checkElementIndex(edit, getEditCount(user));
+    }
+
+    private void checkUser(final int user) {
+        Preconditions.checkElementIndex(user, userCount);
+    }
+
+    /**
+     * Returns the index of the first edit of the specified user that has
+     * been made at or after the specified instant.  If there is no such
+     * edit, the edit count of the user is returned.
+     *
+     * @param user the index of the user
+     * @param millis the instant in milliseconds since the epoch
+     * @return the index of the first edit at or after the instant
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public int findEdit(final int user, final long millis) {
+        int low = 0;
+        int high = getEditCount(user);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(user, middle) < millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the specified edit of the specified user.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the contribution
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public Contribution getContribution(final int user, final int edit) {
+        checkEdit(user, edit);
+        return new DefaultContribution(getUserName(user),
+                getRevisionId(user, edit), getPageId(user, edit),
+                getNamespace(user, edit), getTitle(user, edit),
+                new DateTime(getTimestamp(user, edit), DateTimeZone.UTC));
+    }
+
+    /**
+     * Returns the number of edits of the specified user.
+     *
+     * @param user the index of the user
+     * @return the edit count of the user
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public int getEditCount(final int user) {
+        checkUser(user);
+        return (int) (maxEditCount * Math.pow(
+                uniform(user, 0, SALT_EDIT_COUNT), EDIT_COUNT_SKEW));
+    }
+
+    /**
+     * Returns the maximum number of edits of a user.
+     *
+     * @return the maximum edit count
+     */
+    public int getMaxEditCount() {
+        return maxEditCount;
+    }
+
+    private int getNamespaceIndex(final int user, final int edit) {
+        int value = (int) (uniform(user, edit, SALT_NAMESPACE) * PERCENT);
+        for (int i = 0; i < NAMESPACE_WEIGHTS.length; i++) {
+            value -= NAMESPACE_WEIGHTS[i][1];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the namespace ID of the page edited in the specified edit.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the namespace ID
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public int getNamespace(final int user, final int edit) {
+        checkEdit(user, edit);
+        return NAMESPACE_WEIGHTS[getNamespaceIndex(user, edit)][0];
+    }
+
+    private int getPage(final int user, final int edit) {
+        return (int) (uniform(user, edit, SALT_PAGE) * pageCount);
+    }
+
+    /**
+     * Returns the ID of the page edited in the specified edit.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the page ID
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public int getPageId(final int user, final int edit) {
+        checkEdit(user, edit);
+        return getPage(user, edit) * NAMESPACE_WEIGHTS.length
+                + getNamespaceIndex(user, edit) + 1;
+    }
+
+    /**
+     * Returns the password of all users.
+     *
+     * @return the password
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    private long getRegistrationSecond(final int user) {
+        return startSecond + (long) (uniform(user, 0, SALT_REGISTRATION)
+                * (endSecond - startSecond) * REGISTRATION_SHARE);
+    }
+
+    /**
+     * Returns the registration date of the specified user.
+     *
+     * @param user the index of the user
+     * @return the registration date in milliseconds since the epoch
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public long getRegistration(final int user) {
+        checkUser(user);
+        return getRegistrationSecond(user) * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Returns the ID of the revision created by the specified edit.
+     * Revision IDs are unique and increase with the edit index.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the revision ID
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public long getRevisionId(final int user, final int edit) {
+        checkEdit(user, edit);
+        return (long) user * maxEditCount + edit + 1;
+    }
+
+    /**
+     * Returns the timestamp of the specified edit.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the timestamp in milliseconds since the epoch
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public long getTimestamp(final int user, final int edit) {
+        checkEdit(user, edit);
+        long registration = getRegistrationSecond(user);
+        double position = edit + uniform(user, edit, SALT_TIMESTAMP);
+        long offset = (long) ((endSecond - registration) * position
+                / getEditCount(user));
+        return (registration + offset) * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Returns the title of the page edited in the specified edit.
+     *
+     * @param user the index of the user
+     * @param edit the index of the edit
+     * @return the page title
+     * @throws IndexOutOfBoundsException if there is no such user or edit
+     */
+    public String getTitle(final int user, final int edit) {
+        checkEdit(user, edit);
+        return NAMESPACE_PREFIXES[getNamespaceIndex(user, edit)]
+                + PAGE_PREFIX + getPage(user, edit);
+    }
+
+    /**
+     * Returns the number of users.
+     *
+     * @return the number of users
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Returns the data of the specified user.
+     *
+     * @param user the index of the user
+     * @return the user data
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public UserData getUserData(final int user) {
+        return new DefaultUserData(getUserName(user), getUserId(user),
+                new DateTime(getRegistration(user), DateTimeZone.UTC));
+    }
+
+    /**
+     * Returns the ID of the specified user.
+     *
+     * @param user the index of the user
+     * @return the user ID
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public int getUserId(final int user) {
+        checkUser(user);
+        return user + 1;
+    }
+
+    /**
+     * Returns the index of the user with the specified name.  The name is
+     * normalized the way MediaWiki does.
+     *
+     * @param name the name of the user
+     * @return the index of the user, or absent if there is no such user
+     */
+    public Optional<Integer> getUserIndex(final String name) {
+        String normalized = MediaWikiUtils.normalizeUserName(name);
+        if (!normalized.startsWith(USER_NAME_PREFIX)) {
+            return Optional.absent();
+        }
+        String number = normalized.substring(USER_NAME_PREFIX.length());
+        if (!USER_NUMBER.matcher(number).matches()) {
+            return Optional.absent();
+        }
+        long user = Long.parseLong(number);
+        if (user >= userCount) {
+            return Optional.absent();
+        }
+        return Optional.of((int) user);
+    }
+
+    /**
+     * Returns the name of the specified user.
+     *
+     * @param user the index of the user
+     * @return the user name
+     * @throws IndexOutOfBoundsException if there is no user with the
+     *         specified index
+     */
+    public String getUserName(final int user) {
+        checkUser(user);
+        return USER_NAME_PREFIX + user;
+    }
+
+    /**
+     * Returns a pseudo-random number between zero (inclusive) and one
+     * (exclusive) that only depends on the seed and the arguments.
+     */
+    private double uniform(final long user, final long edit, final long salt) {
+        long value = seed + user * MIX_USER + edit * MIX_EDIT
+                + salt * MIX_SALT;
+        value = (value ^ (value >>> SHIFT_1)) * MIX_1;
+        value = (value ^ (value >>> SHIFT_2)) * MIX_2;
+        value = value ^ (value >>> SHIFT_3);
+        return (value >>> DOUBLE_SHIFT) * DOUBLE_UNIT;
+    }
+
+}